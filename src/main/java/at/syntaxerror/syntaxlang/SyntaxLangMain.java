@@ -18,19 +18,34 @@
 package at.syntaxerror.syntaxlang;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
 
 import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.EscapeAnalysis;
 import at.syntaxerror.syntaxlang.interpreter.Interpreter;
+import at.syntaxerror.syntaxlang.interpreter.LoopInvariants;
+import at.syntaxerror.syntaxlang.interpreter.Optimizer;
 import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.RuntimeImage;
+import at.syntaxerror.syntaxlang.interpreter.ScopeResolver;
+import at.syntaxerror.syntaxlang.interpreter.Superinstructions;
+import at.syntaxerror.syntaxlang.interpreter.TypeInference;
+import at.syntaxerror.syntaxlang.interpreter.bytecode.BytecodeCompiler;
+import at.syntaxerror.syntaxlang.interpreter.flat.FlatCompiler;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.jit.HandleCompiler;
+import at.syntaxerror.syntaxlang.interpreter.jit.JitCompiler;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
 import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeStackTraceElement;
 import at.syntaxerror.syntaxlang.lexer.Lexer;
 import at.syntaxerror.syntaxlang.lexer.Tokens;
+import at.syntaxerror.syntaxlang.parser.ParseCache;
 import at.syntaxerror.syntaxlang.parser.Parser;
+import at.syntaxerror.syntaxlang.parser.node.NodeJSONWriter;
 import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
 
 /**
@@ -40,6 +55,8 @@ import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
  */
 public class SyntaxLangMain {
 
+	public static final String VERSION = "0.0.1";
+	
 	public static void main(String[] args) {
 		// TODO proper main
 		
@@ -47,22 +64,86 @@ public class SyntaxLangMain {
 		
 		InputEnvironment in = InputEnvironment.fromFile(new File("/run/media/thomas/Shared/Git/SyntaxLang/src/main/resources/test/test2.sl"));
 		
-		Lexer lexer = new Lexer(in);
+		String imageDir = System.getProperty("syntaxlang.image");
+		boolean bytecode = Boolean.getBoolean("syntaxlang.bytecode");
 		
-		Tokens tokens = lexer.makeTokens();
-		System.out.println(tokens);
+		// an image of the same source skips everything up to the execution of the first instruction
+		Path imagePath = imageDir == null ? null : RuntimeImage.path(new File(imageDir), in, bytecode);
+		RuntimeImage image = imagePath == null ? null : RuntimeImage.load(imagePath, in);
 		
-		Parser parser = new Parser(in, tokens);
+		if(image == null) {
+			String cacheDir = System.getProperty("syntaxlang.cache");
+			
+			StatementsNode nodes;
+			
+			if(cacheDir != null) {
+				ParseCache cache = new ParseCache(new File(cacheDir));
+				cache.setLazyBodies(Boolean.getBoolean("syntaxlang.lazy"));
+				
+				if(Boolean.getBoolean("syntaxlang.parallel"))
+					cache.setPool(ForkJoinPool.commonPool());
+				
+				nodes = cache.parse(in);
+			} else {
+				Lexer lexer = new Lexer(in);
+				
+				Tokens tokens = lexer.makeTokens();
+				System.out.println(tokens);
+				
+				Parser parser = new Parser(in, tokens);
+				parser.setLazyBodies(Boolean.getBoolean("syntaxlang.lazy"));
+				
+				if(Boolean.getBoolean("syntaxlang.parallel"))
+					nodes = parser.makeNodesParallel(ForkJoinPool.commonPool());
+				else nodes = parser.makeNodes();
+			}
+			
+			System.out.println(nodes);
+			
+			if(Boolean.getBoolean("syntaxlang.dump")) {
+				new NodeJSONWriter(System.out, 2).write(nodes);
+				System.out.println();
+			}
+			
+			ScopeResolver scopes = ScopeResolver.resolve(in, Optimizer.optimize(Interpreter.makeInstructions(nodes)));
+			
+			image = RuntimeImage.of(bytecode
+				? BytecodeCompiler.compile(scopes.getInstructions())
+				: scopes.getInstructions(), scopes.getLocals());
+			
+			if(imagePath != null)
+				image.save(imagePath, in);
+		}
 		
-		StatementsNode nodes = parser.makeNodes();
+		RuntimeEnvironment runtime = new RuntimeEnvironment(in);
+		runtime.allocateLocals(image.getLocals());
 		
-		System.out.println(nodes);
+		List<Instruction> instructions = image.getInstructions();
 		
-		System.out.println(nodes.toJSON().toString(2));
+		/*
+		 * Optimization passes, run in this order before a backend is picked. Hoisting and
+		 * scalar replacement only act on the typed instructions emitted by type inference
+		 */
+		if(Boolean.getBoolean("syntaxlang.infer"))
+			instructions = TypeInference.specialize(instructions, image.getLocals());
 		
-		RuntimeEnvironment runtime = new RuntimeEnvironment(in);
+		if(Boolean.getBoolean("syntaxlang.hoist"))
+			instructions = LoopInvariants.hoist(instructions);
+		
+		if(Boolean.getBoolean("syntaxlang.escape"))
+			instructions = EscapeAnalysis.scalarReplace(instructions);
+		
+		if(Boolean.getBoolean("syntaxlang.jit"))
+			instructions = instructions.stream().map(JitCompiler::compile).toList();
+		else if(Boolean.getBoolean("syntaxlang.handles"))
+			instructions = HandleCompiler.compile(instructions);
+		else if(Boolean.getBoolean("syntaxlang.fuse"))
+			instructions = Superinstructions.fuse(instructions);
+		else if(Boolean.getBoolean("syntaxlang.flat"))
+			instructions = FlatCompiler.makeInstructions(instructions);
 		
-		List<Instruction> instructions = Interpreter.makeInstructions(nodes);
+		if(Boolean.getBoolean("syntaxlang.profile"))
+			instructions = Superinstructions.profile(instructions);
 		
 		System.out.println(instructions);
 		
@@ -72,7 +153,7 @@ public class SyntaxLangMain {
 				runtime.getNamespace(),
 				null,
 				null,
-				instr.getPosition().line()
+				in.getLine(instr.getPosition())
 			)));
 			
 			res.terminateIfThrown();
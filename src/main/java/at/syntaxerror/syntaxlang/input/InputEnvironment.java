@@ -21,6 +21,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.function.Predicate;
 
 import at.syntaxerror.syntaxlang.misc.AnsiUtils;
@@ -75,12 +76,16 @@ public final class InputEnvironment {
 	
 	@Getter
 	private final String source;
+	@Getter
 	private final WideString data;
 	private int length;
 	@Getter
 	private int position;
 	private int marked;
 	
+	// offsets at which each line starts, built on first use
+	private volatile int[] lineStarts;
+	
 	@NonNull
 	private InputEnvironment(String source, WideString data) {
 		this.source = source;
@@ -90,6 +95,11 @@ public final class InputEnvironment {
 		marked = -1;
 	}
 	
+	// a new environment reading the same source from the start, e.g. to lex it again
+	public InputEnvironment copy() {
+		return new InputEnvironment(source, data);
+	}
+	
 	public void mark() {
 		marked = position;
 	}
@@ -102,6 +112,11 @@ public final class InputEnvironment {
 		this.position -= len;
 	}
 	
+	// as if the whole input had been read
+	public void skipToEnd() {
+		position = length;
+	}
+	
 	// relative
 
 	public WideCharacter currentChar() {
@@ -154,13 +169,76 @@ public final class InputEnvironment {
 		return data.substring(from, Math.min(to, length));
 	}
 	
+	// lines
+	
+	private int[] lineStarts() {
+		int[] starts = lineStarts;
+		
+		if(starts != null)
+			return starts;
+		
+		starts = new int[16];
+		int count = 1;
+		
+		for(int i = 0; i < length; ++i)
+			if(data.charAt(i).getCodepoint() == '\n') {
+				if(count == starts.length)
+					starts = Arrays.copyOf(starts, count * 2);
+				
+				starts[count++] = i + 1;
+			}
+		
+		return lineStarts = Arrays.copyOf(starts, count);
+	}
+	
+	public int getLine(long position) {
+		if(position == Position.NONE)
+			return 0;
+		
+		int[] starts = lineStarts();
+		int idx = Arrays.binarySearch(starts, Position.offset(position));
+		
+		return idx < 0 ? -idx - 2 : idx;
+	}
+	
+	public Position decode(long position) {
+		if(position == Position.NONE)
+			return new Position(0, 0, 0, 0, 0);
+		
+		int[] starts = lineStarts();
+		int abs = Position.offset(position);
+		int line = getLine(position);
+		
+		return new Position(abs, abs - starts[line], line, Position.length(position), starts[Math.max(line - 1, 0)]);
+	}
+	
 	//
 	
+	public void terminate(String message, long position) {
+		terminate(message, decode(position));
+	}
+	
 	public void terminate(String message, Position position) {
 		System.out.println(highlight(HighlightLevel.ERROR, message, position));
 		System.exit(1);
 	}
 	
+	// reports a problem that is not tied to a position in the input, e.g. an unusable cache file
+	public void warn(String message) {
+		System.err.println(AnsiUtils.stripAnsi("%3$s%4$s%1$s - %5$s%1$s %2$s\"%1$s%6$s%2$s\"%1$s".formatted(
+			AnsiUtils.Special.RESET,
+			AnsiUtils.Foreground.BRIGHT_BLACK,
+			AnsiUtils.Foreground.BRIGHT_CYAN,
+			source,
+			HighlightLevel.WARNING.getColorized(),
+			message
+		)));
+	}
+	
+	public String highlight(HighlightLevel level, String message, long position) {
+		return highlight(level, message, decode(position));
+	}
+	
 	public String highlight(HighlightLevel level, String message, Position position) {
 		mark();
 		readWhile(i -> i != '\n', false);
@@ -0,0 +1,89 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class CompileQueue {
+	
+	/*
+	 * A small pool of low priority daemon threads for compilation work that doesn't have to block
+	 * the executing thread, e.g. function bodies and hot loops. Tasks must publish their result
+	 * atomically, since the executing thread may need it first and compile it synchronously itself.
+	 * 
+	 * Failed tasks are logged and dropped. Their owner is notified, so it does not submit them again and
+	 * keeps running the code it has. Anything else a task throws (e.g. an OutOfMemoryError) is left to
+	 * the thread, which is replaced by the pool.
+	 */
+	
+	public static final boolean ENABLED = Boolean.getBoolean("syntaxlang.background");
+	public static final int THREADS = Integer.getInteger(
+		"syntaxlang.compiler.threads",
+		Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1))
+	);
+	
+	public static boolean submit(@NonNull Runnable task) {
+		return submit(task, () -> {});
+	}
+	
+	// runs the task on a compiler thread, and failed if it fails. Returns false if the caller has to run the task instead
+	public static boolean submit(@NonNull Runnable task, @NonNull Runnable failed) {
+		if(!ENABLED || THREADS < 1)
+			return false;
+		
+		try {
+			Pool.EXECUTOR.execute(() -> {
+				try {
+					task.run();
+				} catch (Exception | LinkageError e) {
+					System.err.println("WARN: compile task failed, keeping the current code: " + e);
+					failed.run();
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+	
+	// only started once the first task is submitted
+	private static class Pool {
+		
+		private static final AtomicInteger COUNTER = new AtomicInteger();
+		
+		private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, task -> {
+			Thread thread = new Thread(task, "SyntaxLang Compiler " + COUNTER.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.ScalarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.ScalarOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedOpInstruction;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class EscapeAnalysis {
+	
+	/*
+	 * Scalar replacement of the temporaries of typed number operations (see TypeInference). The value
+	 * of a number operation that is an operand of another one never escapes: it is only unwrapped
+	 * again right away. Such trees of number literals, variables and operations are evaluated on plain
+	 * BigDecimals, so only their final value is allocated as a RuntimeValue and RuntimeResult.
+	 * 
+	 * The trees have no side effects, so the allocating typed instructions are kept for the rare case
+	 * of a failure (an undefined variable or an ArithmeticException), and simply run instead.
+	 */
+	public static List<Instruction> scalarReplace(@NonNull List<Instruction> instructions) {
+		return Superinstructions.rewriteAll(instructions, EscapeAnalysis::scalarReplace, new IdentityHashMap<>());
+	}
+	
+	// operands are replaced first, so nested operations are merged into the tree of their parent
+	private static Instruction scalarReplace(Instruction original, Instruction instr) {
+		Instruction result = null;
+		
+		if(instr instanceof TypedOpInstruction n)
+			result = ScalarOpInstruction.of(n);
+		
+		else if(instr instanceof TypedModInstruction n)
+			result = ScalarModInstruction.of(n);
+		
+		return result == null ? instr : result;
+	}
+
+}
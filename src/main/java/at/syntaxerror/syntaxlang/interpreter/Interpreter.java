@@ -17,7 +17,10 @@
  */
 package at.syntaxerror.syntaxlang.interpreter;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import at.syntaxerror.syntaxlang.SyntaxLangException;
@@ -33,22 +36,49 @@ import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruc
 import at.syntaxerror.syntaxlang.interpreter.instruction.block.SwitchInstruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.block.TryCatchInstruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.BreakInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ContinueInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ThrowInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.YieldInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.function.FuncCallInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.function.FuncDefInstruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
 import at.syntaxerror.syntaxlang.parser.node.BinaryOpNode;
+import at.syntaxerror.syntaxlang.parser.node.BreakNode;
+import at.syntaxerror.syntaxlang.parser.node.ContinueNode;
 import at.syntaxerror.syntaxlang.parser.node.DoWhileNode;
 import at.syntaxerror.syntaxlang.parser.node.EmptyNode;
 import at.syntaxerror.syntaxlang.parser.node.ForNode;
 import at.syntaxerror.syntaxlang.parser.node.ForeachNode;
+import at.syntaxerror.syntaxlang.parser.node.FuncCallNode;
+import at.syntaxerror.syntaxlang.parser.node.FuncDefNode;
 import at.syntaxerror.syntaxlang.parser.node.IfNode;
 import at.syntaxerror.syntaxlang.parser.node.ListNode;
 import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
 import at.syntaxerror.syntaxlang.parser.node.MapNode;
 import at.syntaxerror.syntaxlang.parser.node.Node;
+import at.syntaxerror.syntaxlang.parser.node.NodeArena;
+import at.syntaxerror.syntaxlang.parser.node.ParenthesizedNode;
+import at.syntaxerror.syntaxlang.parser.node.ReturnNode;
 import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
 import at.syntaxerror.syntaxlang.parser.node.SwitchNode;
+import at.syntaxerror.syntaxlang.parser.node.TernaryOpNode;
+import at.syntaxerror.syntaxlang.parser.node.ThrowNode;
 import at.syntaxerror.syntaxlang.parser.node.TryCatchNode;
+import at.syntaxerror.syntaxlang.parser.node.UnaryOpNode;
+import at.syntaxerror.syntaxlang.parser.node.VarDeclNode;
+import at.syntaxerror.syntaxlang.parser.node.VarModNode;
 import at.syntaxerror.syntaxlang.parser.node.WhileNode;
+import at.syntaxerror.syntaxlang.parser.node.YieldNode;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 
@@ -58,6 +88,7 @@ import lombok.experimental.UtilityClass;
  */
 @UtilityClass
 public class Interpreter {
+	
 
 	public static List<Instruction> makeInstructions(@NonNull StatementsNode statements) {
 		return statements.getStatements()
@@ -66,6 +97,200 @@ public class Interpreter {
 				.collect(Collectors.toList());
 	}
 	
+	public static List<Instruction> makeInstructions(@NonNull NodeArena arena) {
+		if(arena.type(0) != StatementsNode.class)
+			throw new SyntaxLangException("Illegal root node: " + arena.getRoot());
+		
+		return makeInstructions(arena, arena.field(0, 0));
+	}
+	
+	private static List<Instruction> makeInstructions(NodeArena arena, int list) {
+		List<Instruction> instructions = new ArrayList<>(arena.childCount(list));
+		
+		for(int cell = arena.firstChild(list); cell != -1; cell = arena.nextSibling(cell))
+			instructions.add(makeInstruction(arena, cell));
+		
+		return instructions;
+	}
+	
+	// walks the arena directly, the fields of a node are addressed by their slot (see NodeArena)
+	public static Instruction makeInstruction(@NonNull NodeArena arena, int cell) {
+		Class<? extends Node> type = arena.type(cell);
+		long position = arena.position(cell);
+		
+		if(type == EmptyNode.class)
+			return EmptyInstruction.of(position);
+		
+		if(type == StatementsNode.class) {
+			int list = arena.field(cell, 0);
+			
+			if(arena.childCount(list) == 0)
+				return EmptyInstruction.of(position);
+			
+			return StatementsInstruction.of(position, makeInstructions(arena, list));
+		}
+		if(type == TryCatchNode.class)
+			return TryCatchInstruction.of(
+				position,
+				arena.token(arena.field(cell, 1)),
+				makeField(arena, cell, 0),
+				makeField(arena, cell, 2)
+			);
+		if(type == IfNode.class) {
+			List<Instruction> conditions = new ArrayList<>();
+			List<Instruction> bodies = new ArrayList<>();
+			
+			for(int body = arena.firstChild(arena.field(cell, 0)); body != -1; body = arena.nextSibling(body)) {
+				conditions.add(makeField(arena, body, 0));
+				bodies.add(makeField(arena, body, 1));
+			}
+			
+			return IfInstruction.of(position, conditions, bodies, makeField(arena, cell, 1));
+		}
+		if(type == ForNode.class) {
+			int condition = arena.field(cell, 2);
+			
+			return ForInstruction.of(
+				position,
+				label(arena, cell),
+				makeInstructions(arena, arena.field(cell, 1)),
+				arena.kind(condition) == NodeArena.NULL || arena.type(condition) == EmptyNode.class
+					? null
+					: makeInstruction(arena, condition),
+				makeInstructions(arena, arena.field(cell, 3)),
+				makeField(arena, cell, 4),
+				0
+			);
+		}
+		if(type == ForeachNode.class)
+			return ForeachInstruction.of(position);
+		if(type == WhileNode.class)
+			return WhileInstruction.of(position, label(arena, cell), makeField(arena, cell, 1), makeField(arena, cell, 2));
+		if(type == DoWhileNode.class)
+			return DoWhileInstruction.of(position, label(arena, cell), makeField(arena, cell, 1), makeField(arena, cell, 2));
+		if(type == SwitchNode.class) {
+			List<Instruction> cases = new ArrayList<>();
+			List<Instruction> bodies = new ArrayList<>();
+			boolean expression = false;
+			
+			for(int n = arena.firstChild(arena.field(cell, 1)); n != -1; n = arena.nextSibling(n)) {
+				Instruction value = makeField(arena, n, 0);
+				
+				cases.add(value instanceof EmptyInstruction ? null : value); // null is the default case
+				bodies.add(makeField(arena, n, 1));
+				
+				expression = arena.bool(arena.field(n, 2));
+			}
+			
+			return SwitchInstruction.of(position, makeField(arena, cell, 0), cases, bodies, expression);
+		}
+		
+		if(type == BreakNode.class)
+			return BreakInstruction.of(position, label(arena, cell));
+		if(type == ContinueNode.class)
+			return ContinueInstruction.of(position, label(arena, cell));
+		if(type == YieldNode.class)
+			return YieldInstruction.of(position, makeField(arena, cell, 0));
+		if(type == ReturnNode.class) {
+			int value = arena.field(cell, 0);
+			
+			if(arena.kind(value) == NodeArena.NULL || arena.type(value) == EmptyNode.class)
+				return ReturnInstruction.of(position, null);
+			
+			return ReturnInstruction.of(position, makeInstruction(arena, value));
+		}
+		if(type == ThrowNode.class)
+			return ThrowInstruction.of(position, makeField(arena, cell, 0));
+		
+		// the body is kept as a node until the function is called (see RuntimeFunction)
+		if(type == FuncDefNode.class)
+			return FuncDefInstruction.of((FuncDefNode) arena.toNode(cell));
+		if(type == FuncCallNode.class) {
+			int target = arena.field(cell, 0);
+			Token name = arena.type(target) == LiteralNode.class ? arena.token(arena.field(target, 0)) : null;
+			
+			if(name == null || !name.is(TokenType.IDENTIFIER))
+				throw new SyntaxLangException("Illegal call target: " + arena.get(target));
+			
+			return FuncCallInstruction.of(position, name.identifierValue(), makeInstructions(arena, arena.field(arena.field(cell, 1), 0)));
+		}
+		
+		if(type == VarDeclNode.class) {
+			boolean modFinal = arena.kind(arena.field(cell, 2)) != NodeArena.NULL;
+			
+			return VarDeclInstruction.of(
+				position,
+				arena.token(arena.field(cell, 3)).identifierValue(),
+				// see VarDeclInstruction
+				modFinal || arena.kind(arena.field(cell, 0)) != NodeArena.NULL || arena.kind(arena.field(cell, 1)) != NodeArena.NULL,
+				modFinal,
+				makeField(arena, cell, 4)
+			);
+		}
+		if(type == VarModNode.class)
+			return VarModInstruction.of(
+				position,
+				arena.token(arena.field(cell, 0)).identifierValue(),
+				arena.token(arena.field(cell, 1)),
+				makeField(arena, cell, 2)
+			);
+		
+		if(type == BinaryOpNode.class)
+			return BinaryOpInstruction.of(
+				position,
+				makeField(arena, cell, 0),
+				arena.token(arena.field(cell, 1)),
+				makeField(arena, cell, 2)
+			);
+		if(type == UnaryOpNode.class) {
+			Token op = arena.token(arena.field(cell, 1));
+			
+			if(op.is(TokenType.INCREMENT, TokenType.DECREMENT)) {
+				int target = arena.field(cell, 2);
+				Token name = arena.type(target) == LiteralNode.class ? arena.token(arena.field(target, 0)) : null;
+				
+				if(name == null || !name.is(TokenType.IDENTIFIER))
+					throw new SyntaxLangException("Illegal increment target: " + arena.get(target));
+				
+				return VarModInstruction.increment(position, name.identifierValue(), op, arena.bool(arena.field(cell, 0)));
+			}
+			
+			return UnaryOpInstruction.of(position, op, makeField(arena, cell, 2));
+		}
+		if(type == TernaryOpNode.class)
+			return TernaryOpInstruction.of(
+				position,
+				makeField(arena, cell, 0),
+				makeField(arena, cell, 1),
+				makeField(arena, cell, 2)
+			);
+		if(type == ParenthesizedNode.class)
+			return makeField(arena, cell, 0);
+		if(type == LiteralNode.class)
+			return LiteralInstruction.of(position, arena.token(arena.field(cell, 0)));
+		if(type == ListNode.class)
+			return ListInstruction.of(position, makeInstructions(arena, arena.field(cell, 0)));
+		if(type == MapNode.class) {
+			Map<RuntimeValue, Instruction> values = new HashMap<>();
+			
+			for(int part = arena.firstChild(arena.field(cell, 0)); part != -1; part = arena.nextSibling(part))
+				values.put(MapInstruction.key(arena.token(arena.field(part, 0))), makeField(arena, part, 1));
+			
+			return MapInstruction.of(position, values);
+		}
+		
+		throw new SyntaxLangException("Illegal node: " + arena.get(cell));
+	}
+	
+	private static Instruction makeField(NodeArena arena, int cell, int slot) {
+		return makeInstruction(arena, arena.field(cell, slot));
+	}
+	
+	private static String label(NodeArena arena, int cell) {
+		Token label = arena.token(arena.field(cell, 0));
+		return label == null ? null : label.identifierValue();
+	}
+	
 	public static Instruction makeInstruction(@NonNull Node node) {
 		if(node instanceof EmptyNode)
 			return EmptyInstruction.of(node.getPosition());
@@ -87,8 +312,35 @@ public class Interpreter {
 		if(node instanceof SwitchNode n)
 			return SwitchInstruction.of(n);
 		
+		if(node instanceof BreakNode n)
+			return BreakInstruction.of(n);
+		if(node instanceof ContinueNode n)
+			return ContinueInstruction.of(n);
+		if(node instanceof YieldNode n)
+			return YieldInstruction.of(n);
+		if(node instanceof ReturnNode n)
+			return ReturnInstruction.of(n);
+		if(node instanceof ThrowNode n)
+			return ThrowInstruction.of(n);
+		
+		if(node instanceof FuncDefNode n)
+			return FuncDefInstruction.of(n);
+		if(node instanceof FuncCallNode n)
+			return FuncCallInstruction.of(n);
+		
+		if(node instanceof VarDeclNode n)
+			return VarDeclInstruction.of(n);
+		if(node instanceof VarModNode n)
+			return VarModInstruction.of(n);
+		
 		if(node instanceof BinaryOpNode n)
 			return BinaryOpInstruction.of(n);
+		if(node instanceof UnaryOpNode n)
+			return UnaryOpInstruction.of(n);
+		if(node instanceof TernaryOpNode n)
+			return TernaryOpInstruction.of(n);
+		if(node instanceof ParenthesizedNode n)
+			return makeInstruction(n.getValue());
 		if(node instanceof LiteralNode n)
 			return LiteralInstruction.of(n);
 		if(node instanceof ListNode n)
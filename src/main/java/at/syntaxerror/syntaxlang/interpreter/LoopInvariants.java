@@ -0,0 +1,307 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.EmptyInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.BreakInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ContinueInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class LoopInvariants {
+	
+	/*
+	 * Loop-invariant code motion for typed instructions (see TypeInference). Operations inside a loop
+	 * whose operands are literals or variables of enclosing scopes that the loop never assigns are
+	 * computed once in a preheader: the loop is wrapped in a block that stores them in temporaries,
+	 * and the loop reads the temporaries instead. Accesses to enclosing scopes are moved one hop
+	 * further out, past the new block.
+	 * 
+	 * Only operations that cannot fail are hoisted (no division or modulo), since the preheader also
+	 * runs if the loop never reaches the operation. Typed operations never involve objects, so no
+	 * user-defined operator can be skipped or run too often. Loops containing any instruction that
+	 * is not understood here are left untouched.
+	 */
+	public static List<Instruction> hoist(@NonNull List<Instruction> instructions) {
+		List<Instruction> result = new ArrayList<>(instructions.size());
+		
+		for(Instruction instr : instructions)
+			result.add(optimize(instr));
+		
+		return result;
+	}
+	
+	private static Instruction optimize(Instruction instr) {
+		// inner loops first
+		Instruction result = map(instr, 0, (child, depth) -> optimize(child));
+		
+		if(result == null)
+			return instr;
+		
+		if(result instanceof WhileInstruction || result instanceof DoWhileInstruction || result instanceof ForInstruction)
+			return hoistLoop(result);
+		
+		return result;
+	}
+	
+	private static Instruction hoistLoop(Instruction loop) {
+		Set<Long> assigned = new HashSet<>();
+		
+		if(!assignments(loop, 0, assigned))
+			return loop;
+		
+		List<Instruction> hoisted = new ArrayList<>();
+		Set<Instruction> temporaries = Collections.newSetFromMap(new IdentityHashMap<>());
+		
+		Instruction body = map(loop, 0, new Mapper() {
+			
+			@Override
+			public Instruction apply(Instruction instr, int depth) {
+				if(instr instanceof TypedOpInstruction && isInvariant(instr, depth, assigned)) {
+					// evaluated in the preheader block, right outside of the loop
+					hoisted.add(move(instr, 0, 1 - depth, temporaries));
+					
+					Instruction temporary = VariableInstruction.of(instr.getPosition(), temporary(hoisted.size() - 1), depth, hoisted.size() - 1);
+					temporaries.add(temporary);
+					
+					return temporary;
+				}
+				
+				return map(instr, depth, this);
+			}
+			
+		});
+		
+		if(hoisted.isEmpty())
+			return loop;
+		
+		List<Instruction> block = new ArrayList<>();
+		
+		for(int i = 0; i < hoisted.size(); ++i)
+			block.add(VarDeclInstruction.of(hoisted.get(i).getPosition(), temporary(i), hoisted.get(i), 0, i));
+		
+		block.add(move(body, 0, 1, temporaries));
+		
+		return StatementsInstruction.of(loop.getPosition(), block, hoisted.size());
+	}
+	
+	private static String temporary(int idx) {
+		return "<invariant" + idx + ">";
+	}
+	
+	private static boolean isInvariant(Instruction instr, int depth, Set<Long> assigned) {
+		if(instr instanceof LiteralInstruction)
+			return true;
+		
+		if(instr instanceof VariableInstruction n)
+			return n.getHops() >= depth && !assigned.contains(address(n.getHops() - depth, n.getSlot()));
+		
+		if(instr instanceof TypedOpInstruction n) {
+			BinarySpecialization spec = n.getSpecialization();
+			
+			// the only operations that can fail
+			if(spec == BinarySpecialization.NUMBER_DIVIDE || spec == BinarySpecialization.NUMBER_MODULO)
+				return false;
+			
+			return isInvariant(n.getLeft(), depth, assigned) && isInvariant(n.getRight(), depth, assigned);
+		}
+		
+		return false;
+	}
+	
+	// collects the variables of enclosing scopes assigned by the instruction, returns false if it is not understood
+	private static boolean assignments(Instruction instr, int depth, Set<Long> assigned) {
+		int hops = -1;
+		int slot = -1;
+		
+		if(instr instanceof VarDeclInstruction n) {
+			hops = n.getHops();
+			slot = n.getSlot();
+		} else if(instr instanceof VarModInstruction n) {
+			hops = n.getHops();
+			slot = n.getSlot();
+		} else if(instr instanceof TypedModInstruction n) {
+			hops = n.getSource().getHops();
+			slot = n.getSource().getSlot();
+		}
+		
+		if(hops >= depth)
+			assigned.add(address(hops - depth, slot));
+		
+		boolean[] understood = { true };
+		
+		Instruction result = map(instr, depth, (child, childDepth) -> {
+			understood[0] &= assignments(child, childDepth, assigned);
+			return child;
+		});
+		
+		return result != null && understood[0];
+	}
+	
+	// address of a variable as seen from right outside of the loop
+	private static long address(int hops, int slot) {
+		return (long) hops << 32 | slot;
+	}
+	
+	// adds delta to the hops of all variables of enclosing scopes
+	private static Instruction move(Instruction instr, int depth, int delta, Set<Instruction> temporaries) {
+		if(temporaries.contains(instr))
+			return instr;
+		
+		if(instr instanceof VariableInstruction n && n.getHops() >= depth)
+			return VariableInstruction.of(n.getPosition(), n.getName(), n.getHops() + delta, n.getSlot());
+		
+		Instruction result = map(instr, depth, (child, childDepth) -> move(child, childDepth, delta, temporaries));
+		
+		if(result instanceof VarDeclInstruction n && n.getHops() >= depth)
+			return VarDeclInstruction.of(n, n.getValue(), n.getHops() + delta, n.getSlot());
+		
+		if(result instanceof VarModInstruction n && n.getHops() >= depth)
+			return VarModInstruction.of(n, n.getValue(), n.getHops() + delta, n.getSlot());
+		
+		if(result instanceof TypedModInstruction n && n.getSource().getHops() >= depth) {
+			VarModInstruction source = n.getSource();
+			
+			return TypedModInstruction.of(
+				(VarModInstruction) VarModInstruction.of(source, source.getValue(), source.getHops() + delta, source.getSlot()),
+				n.getValue(),
+				n.getSpecialization()
+			);
+		}
+		
+		return result;
+	}
+	
+	/*
+	 * Rebuilds the instruction with each operand passed through the function, together with the
+	 * number of environments created between the instruction and the operand. Returns null if the
+	 * instruction is not understood
+	 */
+	
+	private static interface Mapper {
+		
+		Instruction apply(Instruction instr, int depth);
+		
+	}
+	
+	private static List<Instruction> mapAll(List<Instruction> instructions, int depth, Mapper fn) {
+		List<Instruction> result = new ArrayList<>(instructions.size());
+		
+		for(Instruction instr : instructions)
+			result.add(fn.apply(instr, depth));
+		
+		return result;
+	}
+	
+	private static Instruction map(Instruction instr, int depth, Mapper fn) {
+		if(instr instanceof LiteralInstruction || instr instanceof VariableInstruction || instr instanceof EmptyInstruction ||
+				instr instanceof BreakInstruction || instr instanceof ContinueInstruction)
+			return instr;
+		
+		if(instr instanceof StatementsInstruction n) {
+			int inner = n.getLocals() == 0 ? depth : depth + 1;
+			
+			return StatementsInstruction.of(n.getPosition(), mapAll(n.getInstructions(), inner, fn), n.getLocals());
+		}
+		
+		if(instr instanceof IfInstruction n)
+			return IfInstruction.of(
+				n.getPosition(),
+				mapAll(n.getConditions(), depth, fn),
+				mapAll(n.getBodies(), depth, fn),
+				fn.apply(n.getElseBody(), depth)
+			);
+		
+		if(instr instanceof WhileInstruction n)
+			return WhileInstruction.of(n.getPosition(), n.getLabel(), fn.apply(n.getCondition(), depth), fn.apply(n.getBody(), depth));
+		
+		if(instr instanceof DoWhileInstruction n)
+			return DoWhileInstruction.of(n.getPosition(), n.getLabel(), fn.apply(n.getCondition(), depth), fn.apply(n.getBody(), depth));
+		
+		if(instr instanceof ForInstruction n) {
+			int inner = n.getLocals() == 0 ? depth : depth + 1;
+			
+			return ForInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				mapAll(n.getInit(), inner, fn),
+				n.getCondition() == null ? null : fn.apply(n.getCondition(), inner),
+				mapAll(n.getUpdate(), inner, fn),
+				fn.apply(n.getBody(), inner),
+				n.getLocals()
+			);
+		}
+		
+		if(instr instanceof TernaryOpInstruction n)
+			return TernaryOpInstruction.of(
+				n.getPosition(),
+				fn.apply(n.getCondition(), depth),
+				fn.apply(n.getResultThen(), depth),
+				fn.apply(n.getResultElse(), depth)
+			);
+		
+		if(instr instanceof BinaryOpInstruction n)
+			return BinaryOpInstruction.of(n.getPosition(), fn.apply(n.getLeft(), depth), n.getOp(), fn.apply(n.getRight(), depth));
+		
+		if(instr instanceof UnaryOpInstruction n)
+			return UnaryOpInstruction.of(n.getPosition(), n.getOp(), fn.apply(n.getTarget(), depth));
+		
+		if(instr instanceof TypedOpInstruction n)
+			return TypedOpInstruction.of(n.getSource(), fn.apply(n.getLeft(), depth), fn.apply(n.getRight(), depth), n.getSpecialization());
+		
+		if(instr instanceof TypedModInstruction n)
+			return TypedModInstruction.of(n.getSource(), fn.apply(n.getValue(), depth), n.getSpecialization());
+		
+		if(instr instanceof VarDeclInstruction n && n.getSlot() != -1)
+			return VarDeclInstruction.of(n, fn.apply(n.getValue(), depth), n.getHops(), n.getSlot());
+		
+		if(instr instanceof VarModInstruction n && n.getSlot() != -1)
+			return VarModInstruction.of(n, fn.apply(n.getValue(), depth), n.getHops(), n.getSlot());
+		
+		return null;
+	}
+
+}
@@ -0,0 +1,402 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.EmptyInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.ListInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.MapInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.SwitchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.TryCatchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ThrowInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.YieldInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.function.FuncCallInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.PrimitiveOperations;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class Optimizer {
+	
+	/*
+	 * Rewrites instructions before they are executed:
+	 * 
+	 * - operations on literal operands are folded into a single literal. Literals are always primitive
+	 *   values, and only objects can overload operators (__add etc.), so folding never skips user code
+	 * - branches of if, switch and ternary operations with literal conditions are resolved
+	 * - empty instructions are removed from statement lists
+	 * - x++ and x-- whose value is discarded become ++x and --x (see VarModInstruction#increment)
+	 * 
+	 * Operations that fail (e.g. division by zero) are kept, so the error is still reported at runtime.
+	 * Instructions shared between several parents (see Interpreter#makeInstruction) are optimized once
+	 * and stay shared.
+	 */
+	public static List<Instruction> optimize(@NonNull List<Instruction> instructions) {
+		return optimizeStatements(instructions, new IdentityHashMap<>());
+	}
+	
+	public static Instruction optimize(@NonNull Instruction instruction) {
+		return optimize(instruction, new IdentityHashMap<>());
+	}
+	
+	private static List<Instruction> optimizeStatements(List<Instruction> instructions, Map<Instruction, Instruction> done) {
+		List<Instruction> result = new ArrayList<>(instructions.size());
+		
+		for(Instruction instr : instructions) {
+			instr = discardValue(optimize(instr, done));
+			
+			if(!(instr instanceof EmptyInstruction))
+				result.add(instr);
+		}
+		
+		return result;
+	}
+	
+	// for instructions whose value is never used
+	private static Instruction discardValue(Instruction instr) {
+		if(instr instanceof BinaryOpInstruction n && n.getLeft() instanceof VarModInstruction mod
+			&& isOne(n.getRight()) && isOne(mod.getValue())) {
+			TokenType op = n.getOp().getType();
+			TokenType modOp = mod.getOp().getType();
+			
+			// undoes the increment to get the previous value
+			if(op == TokenType.MINUS && modOp == TokenType.PLUS || op == TokenType.PLUS && modOp == TokenType.MINUS)
+				return mod;
+		}
+		
+		return instr;
+	}
+	
+	private static boolean isOne(Instruction instr) {
+		RuntimeValue value = constant(instr);
+		return value != null && value.isNumber() && value.numberValue().compareTo(BigDecimal.ONE) == 0;
+	}
+	
+	private static List<Instruction> optimizeAll(List<Instruction> instructions, Map<Instruction, Instruction> done) {
+		List<Instruction> result = new ArrayList<>(instructions.size());
+		
+		for(Instruction instr : instructions)
+			result.add(optimize(instr, done));
+		
+		return result;
+	}
+	
+	private static Instruction optimize(Instruction instr, Map<Instruction, Instruction> done) {
+		Instruction result = done.get(instr);
+		
+		if(result == null) {
+			result = rewrite(instr, done);
+			done.put(instr, result);
+		}
+		
+		return result;
+	}
+	
+	private static Instruction rewrite(Instruction instr, Map<Instruction, Instruction> done) {
+		if(instr instanceof StatementsInstruction n) {
+			List<Instruction> instructions = optimizeStatements(n.getInstructions(), done);
+			
+			if(instructions.isEmpty())
+				return EmptyInstruction.of(n.getPosition());
+			
+			return StatementsInstruction.of(n.getPosition(), instructions);
+		}
+		
+		if(instr instanceof TryCatchInstruction n)
+			return TryCatchInstruction.of(
+				n.getPosition(),
+				n.getVarName(),
+				optimize(n.getTryBody(), done),
+				optimize(n.getCatchBody(), done)
+			);
+		
+		if(instr instanceof WhileInstruction n) {
+			Instruction condition = optimize(n.getCondition(), done);
+			RuntimeValue value = constant(condition);
+			
+			if(value != null && value.isBoolean() && !value.booleanValue())
+				return EmptyInstruction.of(n.getPosition());
+			
+			return WhileInstruction.of(n.getPosition(), n.getLabel(), condition, optimize(n.getBody(), done));
+		}
+		
+		if(instr instanceof DoWhileInstruction n)
+			return DoWhileInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				optimize(n.getCondition(), done),
+				optimize(n.getBody(), done)
+			);
+		
+		if(instr instanceof ForInstruction n)
+			return ForInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				optimizeAll(n.getInit(), done),
+				n.getCondition() == null ? null : optimize(n.getCondition(), done),
+				optimizeStatements(n.getUpdate(), done),
+				optimize(n.getBody(), done),
+				n.getLocals()
+			);
+		
+		if(instr instanceof YieldInstruction n)
+			return YieldInstruction.of(n.getPosition(), optimize(n.getValue(), done));
+		
+		if(instr instanceof ReturnInstruction n && n.getValue() != null)
+			return ReturnInstruction.of(n.getPosition(), optimize(n.getValue(), done));
+		
+		if(instr instanceof ThrowInstruction n)
+			return ThrowInstruction.of(n.getPosition(), optimize(n.getValue(), done));
+		
+		if(instr instanceof IfInstruction n)
+			return rewriteIf(n, done);
+		
+		if(instr instanceof SwitchInstruction n)
+			return rewriteSwitch(n, done);
+		
+		if(instr instanceof TernaryOpInstruction n) {
+			Instruction condition = optimize(n.getCondition(), done);
+			RuntimeValue value = constant(condition);
+			
+			if(value != null && value.isBoolean())
+				return optimize(value.booleanValue() ? n.getResultThen() : n.getResultElse(), done);
+			
+			return TernaryOpInstruction.of(
+				n.getPosition(),
+				condition,
+				optimize(n.getResultThen(), done),
+				optimize(n.getResultElse(), done)
+			);
+		}
+		
+		if(instr instanceof BinaryOpInstruction n)
+			return rewriteBinary(n, done);
+		
+		if(instr instanceof UnaryOpInstruction n) {
+			Instruction target = optimize(n.getTarget(), done);
+			RuntimeValue value = constant(target);
+			
+			if(value != null) {
+				RuntimeValue result;
+				
+				try {
+					result = PrimitiveOperations.unary(n.getPosition(), n.getOp().getType(), value);
+				} catch (ArithmeticException e) {
+					result = null;
+				}
+				
+				if(result != null)
+					return LiteralInstruction.of(result);
+			}
+			
+			return UnaryOpInstruction.of(n.getPosition(), n.getOp(), target);
+		}
+		
+		if(instr instanceof VarDeclInstruction n)
+			return VarDeclInstruction.of(n, optimize(n.getValue(), done), n.getHops(), n.getSlot());
+		
+		if(instr instanceof VarModInstruction n)
+			return VarModInstruction.of(n, optimize(n.getValue(), done), n.getHops(), n.getSlot());
+		
+		if(instr instanceof ListInstruction n)
+			return ListInstruction.of(n.getPosition(), optimizeAll(n.getValues(), done));
+		
+		if(instr instanceof FuncCallInstruction n)
+			return FuncCallInstruction.of(n.getPosition(), n.getName(), optimizeAll(n.getArgs(), done));
+		
+		if(instr instanceof MapInstruction n) {
+			Map<RuntimeValue, Instruction> values = new LinkedHashMap<>();
+			
+			n.getValues().forEach((key, value) -> values.put(key, optimize(value, done)));
+			
+			return MapInstruction.of(n.getPosition(), values);
+		}
+		
+		return instr;
+	}
+	
+	private static Instruction rewriteBinary(BinaryOpInstruction instr, Map<Instruction, Instruction> done) {
+		long position = instr.getPosition();
+		TokenType op = instr.getOp().getType();
+		
+		Instruction left = optimize(instr.getLeft(), done);
+		RuntimeValue leftValue = constant(left);
+		
+		// false && ... and true || ... never evaluate the right operand
+		if(leftValue != null && leftValue.isBoolean() && (op == TokenType.AND || op == TokenType.OR)
+			&& (op == TokenType.AND) != leftValue.booleanValue())
+			return LiteralInstruction.of(RuntimeValue.of(position, leftValue.booleanValue()));
+		
+		Instruction right = optimize(instr.getRight(), done);
+		RuntimeValue rightValue = constant(right);
+		
+		if(leftValue != null && rightValue != null) {
+			RuntimeValue result;
+			
+			try {
+				result = PrimitiveOperations.binary(position, leftValue, op, rightValue);
+			} catch (ArithmeticException e) {
+				result = null;
+			}
+			
+			if(result != null)
+				return LiteralInstruction.of(result);
+		}
+		
+		return BinaryOpInstruction.of(position, left, instr.getOp(), right);
+	}
+	
+	private static Instruction rewriteIf(IfInstruction instr, Map<Instruction, Instruction> done) {
+		List<Instruction> conditions = new ArrayList<>();
+		List<Instruction> bodies = new ArrayList<>();
+		Instruction elseBody = null;
+		
+		for(int i = 0; i < instr.getConditions().size(); ++i) {
+			Instruction condition = optimize(instr.getConditions().get(i), done);
+			RuntimeValue value = constant(condition);
+			
+			if(value != null && value.isBoolean()) {
+				if(!value.booleanValue())
+					continue;
+				
+				// every following branch is unreachable
+				elseBody = optimize(instr.getBodies().get(i), done);
+				break;
+			}
+			
+			conditions.add(condition);
+			bodies.add(optimize(instr.getBodies().get(i), done));
+		}
+		
+		if(elseBody == null)
+			elseBody = optimize(instr.getElseBody(), done);
+		
+		return IfInstruction.of(instr.getPosition(), conditions, bodies, elseBody);
+	}
+	
+	private static Instruction rewriteSwitch(SwitchInstruction instr, Map<Instruction, Instruction> done) {
+		long position = instr.getPosition();
+		
+		Instruction value = optimize(instr.getValue(), done);
+		List<Instruction> cases = new ArrayList<>();
+		List<Instruction> bodies = new ArrayList<>();
+		
+		for(Instruction caseValue : instr.getCases())
+			cases.add(caseValue == null ? null : optimize(caseValue, done));
+		
+		for(Instruction body : instr.getBodies())
+			bodies.add(optimize(body, done));
+		
+		int match = constantMatch(position, constant(value), cases);
+		
+		if(match == -1 && !instr.isExpression())
+			return EmptyInstruction.of(position);
+		
+		if(match >= 0) {
+			if(instr.isExpression())
+				return bodies.get(match);
+			
+			/*
+			 * the cases before the match are unreachable. The remaining ones are only
+			 * entered by falling through, so they all become default cases
+			 */
+			return SwitchInstruction.of(
+				position,
+				value,
+				new ArrayList<>(Collections.nCopies(bodies.size() - match, null)),
+				new ArrayList<>(bodies.subList(match, bodies.size())),
+				false
+			);
+		}
+		
+		return SwitchInstruction.of(position, value, cases, bodies, instr.isExpression());
+	}
+	
+	/*
+	 * Returns the index of the case selected by a literal switch value, -1 if no case matches
+	 * or -2 if the result is not known before runtime
+	 */
+	private static int constantMatch(long position, RuntimeValue value, List<Instruction> cases) {
+		if(value == null)
+			return -2;
+		
+		int fallback = -1;
+		
+		for(int i = 0; i < cases.size(); ++i) {
+			Instruction caseValue = cases.get(i);
+			
+			if(caseValue == null) {
+				if(fallback == -1)
+					fallback = i;
+				continue;
+			}
+			
+			RuntimeValue constant = constant(caseValue);
+			
+			if(constant == null)
+				return -2;
+			
+			RuntimeValue equal;
+			
+			try {
+				equal = PrimitiveOperations.binary(position, value, TokenType.EQUAL, constant);
+			} catch (ArithmeticException e) {
+				return -2;
+			}
+			
+			if(equal == null || !equal.isBoolean())
+				return -2;
+			
+			if(equal.booleanValue())
+				return i;
+		}
+		
+		return fallback;
+	}
+	
+	private static RuntimeValue constant(Instruction instr) {
+		return instr instanceof LiteralInstruction lit ? lit.getValue() : null;
+	}
+
+}
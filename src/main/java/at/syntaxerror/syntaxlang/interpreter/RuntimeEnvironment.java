@@ -20,6 +20,7 @@ package at.syntaxerror.syntaxlang.interpreter;
 import java.io.File;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,7 @@ import at.syntaxerror.syntaxlang.interpreter.object.function.RuntimeFunction;
 import at.syntaxerror.syntaxlang.interpreter.object.variable.RuntimeVariable;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
 import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeError;
+import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeStackTrace;
 import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeStackTraceElement;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.parser.node.ImportNode;
@@ -44,7 +46,6 @@ import at.syntaxerror.syntaxlang.parser.node.NamespaceNode;
 import at.syntaxerror.syntaxlang.parser.node.Node;
 import at.syntaxerror.syntaxlang.parser.node.ScopedNode;
 import at.syntaxerror.syntaxlang.parser.node.UseAsNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -55,6 +56,8 @@ import lombok.Setter;
  */
 @Getter
 public class RuntimeEnvironment {
+	
+	private static final RuntimeValue[] NO_LOCALS = new RuntimeValue[0];
 
 	private final InputEnvironment inputEnvironment;
 	
@@ -64,12 +67,15 @@ public class RuntimeEnvironment {
 	private Map<String, String> namespaceMappings;
 	private Map<String, List<RuntimeEnvironment>> importedNamespaces;
 	
-	private List<RuntimeStackTraceElement> stackTrace;
+	private RuntimeStackTrace stackTrace;
 	
 	private Map<String, RuntimeFunction> functions;
 	private Map<String, RuntimeVariable> variables;
 	private Map<String, RuntimeClassLike> classLikes;
 	
+	// local variables, indexed by the slots assigned by the ScopeResolver
+	private RuntimeValue[] locals;
+	
 	private RuntimeEnvironment parent;
 
 	@Setter
@@ -88,16 +94,40 @@ public class RuntimeEnvironment {
 		namespaceMappings = new HashMap<>();
 		importedNamespaces = new HashMap<>();
 		
-		stackTrace = new ArrayList<>();
+		stackTrace = RuntimeStackTrace.EMPTY;
 		
 		functions = new HashMap<>();
 		variables = new HashMap<>();
 		classLikes = new HashMap<>();
 		
+		locals = NO_LOCALS;
+		
 		mayManageImports = mayDeclareNamespace = true;
 		namespace = null;
 	}
 	
+	// block scopes only hold locals and share everything else with the enclosing environment
+	private RuntimeEnvironment(RuntimeEnvironment parent, int locals) {
+		inputEnvironment = parent.inputEnvironment;
+		
+		imported = parent.imported;
+		importedFiles = parent.importedFiles;
+		
+		namespaceMappings = parent.namespaceMappings;
+		importedNamespaces = parent.importedNamespaces;
+		
+		stackTrace = parent.stackTrace;
+		
+		functions = parent.functions;
+		variables = parent.variables;
+		classLikes = parent.classLikes;
+		
+		this.locals = new RuntimeValue[locals];
+		this.parent = parent;
+		
+		namespace = parent.namespace;
+	}
+	
 	public RuntimeEnvironment setNamespace(@NonNull NamespaceNode namespace) {
 		if(!mayDeclareNamespace) {
 			inputEnvironment.terminate("Invalid location for namespace statement", namespace.getPosition());
@@ -152,7 +182,7 @@ public class RuntimeEnvironment {
 			return null;
 		}
 		
-		RuntimeEnvironment child = buildSibling(inputEnv, importNode.getPosition().line());
+		RuntimeEnvironment child = buildSibling(inputEnv, inputEnvironment.getLine(importNode.getPosition()));
 		
 		// TODO execute imported data
 		
@@ -193,7 +223,7 @@ public class RuntimeEnvironment {
 
 	private RuntimeEnvironment buildSibling(@NonNull InputEnvironment inputEnv, int line) {
 		RuntimeEnvironment env = new RuntimeEnvironment(inputEnv);
-		env.stackTrace = getStackTrace(null, null, line);
+		env.stackTrace = stackTrace.push(element(null, null, line));
 		env.parent = parent;
 		env.mayDeclareNamespace = mayDeclareNamespace;
 		env.mayManageImports = mayManageImports;
@@ -210,26 +240,72 @@ public class RuntimeEnvironment {
 
 	public RuntimeEnvironment buildChild(String className, String function, int line) {
 		RuntimeEnvironment env = new RuntimeEnvironment(inputEnvironment);
-		env.stackTrace = getStackTrace(className, function, line);
+		env.stackTrace = stackTrace.push(element(className, function, line));
 		env.parent = this;
 		return env;
 	}
 	public RuntimeEnvironment buildChild() {
 		RuntimeEnvironment env = new RuntimeEnvironment(inputEnvironment);
-		env.stackTrace = getStackTrace();
+		env.stackTrace = stackTrace;
 		env.parent = this;
 		env.mayDeclareNamespace = false;
 		env.mayManageImports = false;
 		return env;
 	}
+	public RuntimeEnvironment buildScope(int locals) {
+		return new RuntimeEnvironment(this, locals);
+	}
+	// the frame of a call to a function declared in this environment, its trace continues at the call site
+	public RuntimeEnvironment buildFrame(@NonNull RuntimeEnvironment caller, @NonNull RuntimeStackTraceElement site, int locals) {
+		RuntimeEnvironment env = new RuntimeEnvironment(this, locals);
+		env.stackTrace = caller.stackTrace.push(site);
+		return env;
+	}
+	/*
+	 * Builds the frame of a call in tail position, which takes over the place of origin, the frame the chain
+	 * of tail calls started in: only the latest call site is pushed, counting the ones elided before it
+	 */
+	public RuntimeEnvironment buildTailFrame(@NonNull RuntimeEnvironment origin, @NonNull RuntimeStackTraceElement site,
+			int elided, int locals) {
+		RuntimeEnvironment env = new RuntimeEnvironment(this, locals);
+		env.stackTrace = origin.stackTrace.push(site.eliding(elided));
+		return env;
+	}
 	
 	public List<RuntimeStackTraceElement> getStackTrace() {
-		return new ArrayList<>(stackTrace);
+		return stackTrace.toList();
 	}
 	public List<RuntimeStackTraceElement> getStackTrace(String className, String function, int line) {
-		List<RuntimeStackTraceElement> trace = getStackTrace();
-		trace.add(new RuntimeStackTraceElement(inputEnvironment.getSource(), namespace, className, function, line));
-		return trace;
+		return stackTrace.push(element(className, function, line)).toList();
+	}
+	
+	private RuntimeStackTraceElement element(String className, String function, int line) {
+		return new RuntimeStackTraceElement(inputEnvironment.getSource(), namespace, className, function, line);
+	}
+	
+	//
+	
+	public void allocateLocals(int count) {
+		if(count > locals.length)
+			locals = Arrays.copyOf(locals, count);
+	}
+	
+	// hops is the number of parent environments to walk up
+	public RuntimeValue getLocal(int hops, int slot) {
+		RuntimeEnvironment env = this;
+		
+		while(hops-- > 0)
+			env = env.parent;
+		
+		return env.locals[slot];
+	}
+	public void setLocal(int hops, int slot, @NonNull RuntimeValue value) {
+		RuntimeEnvironment env = this;
+		
+		while(hops-- > 0)
+			env = env.parent;
+		
+		env.locals[slot] = value;
 	}
 	
 	//
@@ -326,17 +402,20 @@ public class RuntimeEnvironment {
 	
 	//
 	
-	public RuntimeError buildError(@NonNull RuntimeValue value, String className, String function, Position position) {
+	public RuntimeError buildError(@NonNull RuntimeValue value, String className, String function, long position) {
 		RuntimeValue exception = null;
 		String type = "GenericException";
 		Object message = null;
 		
+		// the base class of all exceptions, unless neither the program nor the standard library declares it
+		Resolved<RuntimeClassLike> base = resolveClass(null, type);
+		
 		if(value.isObject()) {
 			exception = value;
 			
 			RuntimeClassLikeInstance inst = value.objectValue();
 			
-			if(!inst.isInstanceof(null)) // TODO proper class
+			if(base.isResolved() && !inst.isInstanceof(base.getValue()))
 				inputEnvironment.terminate("Cannot throw object of type %s"
 					.formatted(inst.getName()), position);
 			
@@ -373,11 +452,11 @@ public class RuntimeEnvironment {
 		
 		String strMessage = String.valueOf(message);
 		
-		if(exception == null) {
+		if(exception == null && base.isResolved()) {
 			RuntimeResult result = SpecialFunctions.instantiate(new RuntimeCallData(
 				this,
 				position,
-				null, // TODO proper class
+				base.getValue(),
 				null,
 				new RuntimeValue[] {
 					RuntimeValue.of(position, strMessage)
@@ -389,11 +468,15 @@ public class RuntimeEnvironment {
 			exception = result.getValue();
 		}
 		
+		// without an exception class, the thrown value itself is caught
+		else if(exception == null)
+			exception = value;
+		
 		return new RuntimeError(
 			exception,
 			type,
 			strMessage,
-			getStackTrace(className, function, position.line())
+			getStackTrace(className, function, inputEnvironment.getLine(position))
 		);
 	}
 	
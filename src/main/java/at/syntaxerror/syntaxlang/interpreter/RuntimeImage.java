@@ -0,0 +1,651 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.bytecode.Chunk;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Keyword;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.misc.CacheFiles;
+import at.syntaxerror.syntaxlang.parser.node.Node;
+import at.syntaxerror.syntaxlang.parser.node.NodeFactory;
+import at.syntaxerror.syntaxlang.parser.node.NodeVisitor;
+import at.syntaxerror.syntaxlang.string.WideString;
+import ch.obermuhlner.math.big.BigComplex;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class RuntimeImage {
+	
+	/*
+	 * A snapshot of a program whose instructions have been built, optimized and resolved, i.e. everything
+	 * that happens before the first instruction is executed. A later run of the same source loads the image
+	 * and starts executing right away, without lexing, parsing or building any instructions.
+	 * 
+	 * Instructions are stored as their class and the values of their final fields, ordered by name, and are
+	 * recreated through their constructor, which takes exactly these fields. Its parameters are matched to
+	 * the fields by their names, which the compiler records (-parameters, see pom.xml). Transient fields
+	 * hold state built up at runtime and start out fresh. Instructions shared between several parents are
+	 * stored once and stay shared.
+	 * 
+	 * The classes are listed up front, followed by a hash of the names and types of their fields. An image
+	 * whose classes have changed since it was written is discarded, even if the version has not.
+	 */
+	
+	private static final int MAGIC = 0x534C4901; // SLI\1
+	private static final String EXTENSION = ".sli";
+	
+	private static final int TAG_NULL = 0;
+	private static final int TAG_REF = 1;
+	private static final int TAG_OBJECT = 2;
+	private static final int TAG_NODE = 3;
+	private static final int TAG_TOKEN = 4;
+	private static final int TAG_VALUE = 5;
+	private static final int TAG_STRING = 6;
+	private static final int TAG_WIDE_STRING = 7;
+	private static final int TAG_NUMBER = 8;
+	private static final int TAG_COMPLEX = 9;
+	private static final int TAG_BOOLEAN = 10;
+	private static final int TAG_INT = 11;
+	private static final int TAG_LONG = 12;
+	private static final int TAG_LIST = 13;
+	private static final int TAG_MAP = 14;
+	private static final int TAG_ARRAY = 15;
+	private static final int TAG_INTS = 16;
+	private static final int TAG_LONGS = 17;
+	private static final int TAG_END = 18;
+	
+	private static final Map<Class<?>, Field[]> FIELDS = new HashMap<>();
+	private static final Map<Class<?>, Layout> LAYOUTS = new HashMap<>();
+	
+	public static RuntimeImage of(@NonNull List<Instruction> instructions, int locals) {
+		return new RuntimeImage(instructions, locals);
+	}
+	
+	private final List<Instruction> instructions;
+	private final int locals; // see ScopeResolver#getLocals
+	
+	// the file of the image of the input
+	public static Path path(@NonNull File directory, @NonNull InputEnvironment input, boolean bytecode) {
+		return directory.toPath().resolve(CacheFiles.key(input, (byte) (bytecode ? 1 : 0)) + EXTENSION);
+	}
+	
+	// returns null if there is no valid image of the input
+	public static RuntimeImage load(@NonNull Path path, @NonNull InputEnvironment input) {
+		if(!Files.isRegularFile(path))
+			return null;
+		
+		RuntimeImage image;
+		
+		try {
+			image = read(path);
+		} catch (Exception e) {
+			input.warn("Discarding invalid image %s: %s".formatted(path, e));
+			return null;
+		}
+		
+		// error highlights end at the read position, which the lexer would have left at the end of the input
+		input.skipToEnd();
+		
+		return image;
+	}
+	
+	public void save(@NonNull Path path, @NonNull InputEnvironment input) {
+		try {
+			write(path);
+		} catch (Exception e) {
+			input.warn("Could not write image %s: %s".formatted(path, e));
+		}
+	}
+	
+	// the fields passed to the constructor, ordered by name
+	private static synchronized Field[] fields(Class<?> cls) {
+		return FIELDS.computeIfAbsent(cls, c -> {
+			List<Field> fields = new ArrayList<>();
+			
+			for(Field field : c.getDeclaredFields()) {
+				int mod = field.getModifiers();
+				
+				if(Modifier.isStatic(mod) || Modifier.isTransient(mod) || !Modifier.isFinal(mod))
+					continue;
+				
+				field.setAccessible(true);
+				fields.add(field);
+			}
+			
+			fields.sort(Comparator.comparing(Field::getName));
+			
+			return fields.toArray(Field[]::new);
+		});
+	}
+	
+	// the constructor taking exactly the fields, and the index of each field among its parameters
+	private static record Layout(Constructor<?> constructor, int[] parameters) { }
+	
+	private static synchronized Layout layout(Class<?> cls) {
+		return LAYOUTS.computeIfAbsent(cls, c -> {
+			Field[] fields = fields(c);
+			
+			search: for(Constructor<?> ctor : c.getDeclaredConstructors()) {
+				Parameter[] params = ctor.getParameters();
+				
+				if(params.length != fields.length)
+					continue;
+				
+				List<String> names = new ArrayList<>(params.length);
+				
+				for(Parameter param : params) {
+					if(!param.isNamePresent())
+						continue search;
+					
+					names.add(param.getName());
+				}
+				
+				int[] parameters = new int[fields.length];
+				
+				for(int i = 0; i < fields.length; ++i) {
+					int idx = names.indexOf(fields[i].getName());
+					
+					if(idx == -1 || params[idx].getType() != fields[i].getType())
+						continue search;
+					
+					parameters[i] = idx;
+				}
+				
+				ctor.setAccessible(true);
+				return new Layout(ctor, parameters);
+			}
+			
+			throw new SyntaxLangException("No suitable constructor for " + c.getSimpleName());
+		});
+	}
+	
+	// a hash of the names and types of the fields of each class
+	private static byte[] schema(Collection<Class<?>> classes) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		
+		for(Class<?> cls : classes) {
+			sb.append(cls.getName()).append('{');
+			
+			for(Field field : fields(cls))
+				sb.append(field.getName()).append(':').append(field.getType().getName()).append(';');
+			
+			sb.append('}');
+		}
+		
+		return MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	// reading
+	
+	private static RuntimeImage read(Path path) throws Exception {
+		try(DataInputStream in = CacheFiles.open(path, MAGIC)) {
+			Reader reader = new Reader(in);
+			
+			reader.readClasses();
+			
+			int locals = reader.readVarInt();
+			int count = reader.readVarInt();
+			
+			List<Instruction> instructions = new ArrayList<>(count);
+			
+			for(int i = 0; i < count; ++i)
+				instructions.add((Instruction) reader.readValue());
+			
+			return new RuntimeImage(instructions, locals);
+		}
+	}
+	
+	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+	private static class Reader {
+		
+		private final DataInputStream in;
+		private final List<Class<?>> classes = new ArrayList<>();
+		private final List<Object> objects = new ArrayList<>();
+		
+		private Object readValue() throws Exception {
+			return readValue(in.readByte());
+		}
+		
+		private Object readValue(int tag) throws Exception {
+			switch(tag) {
+			case TAG_NULL: return null;
+			case TAG_REF: return objects.get(readVarInt());
+			case TAG_OBJECT: return readObject();
+			case TAG_NODE: return readNode();
+			case TAG_TOKEN: return readToken();
+			case TAG_VALUE: return readRuntimeValue();
+			case TAG_STRING: return in.readUTF();
+			case TAG_WIDE_STRING: return readWideString();
+			case TAG_NUMBER: return new BigDecimal(in.readUTF());
+			case TAG_COMPLEX: return BigComplex.valueOf(new BigDecimal(in.readUTF()), new BigDecimal(in.readUTF()));
+			case TAG_BOOLEAN: return in.readBoolean();
+			case TAG_INT: return in.readInt();
+			case TAG_LONG: return in.readLong();
+			case TAG_LIST: {
+				int size = readVarInt();
+				List<Object> list = new ArrayList<>(size);
+				
+				for(int i = 0; i < size; ++i)
+					list.add(readValue());
+				
+				return list;
+			}
+			case TAG_MAP: {
+				int size = readVarInt();
+				Map<Object, Object> map = new LinkedHashMap<>();
+				
+				for(int i = 0; i < size; ++i)
+					map.put(readValue(), readValue());
+				
+				return map;
+			}
+			case TAG_ARRAY: {
+				Object[] array = new Object[readVarInt()];
+				
+				for(int i = 0; i < array.length; ++i)
+					array[i] = readValue();
+				
+				return array;
+			}
+			case TAG_INTS: {
+				int[] array = new int[readVarInt()];
+				
+				for(int i = 0; i < array.length; ++i)
+					array[i] = in.readInt();
+				
+				return array;
+			}
+			case TAG_LONGS: {
+				long[] array = new long[readVarInt()];
+				
+				for(int i = 0; i < array.length; ++i)
+					array[i] = in.readLong();
+				
+				return array;
+			}
+			default: throw new IOException("Invalid tag: " + tag);
+			}
+		}
+		
+		private void readClasses() throws Exception {
+			int count = readVarInt();
+			
+			for(int i = 0; i < count; ++i) {
+				classes.add(CacheFiles.loadClass(in.readUTF(), Instruction.class, Node.class, Chunk.class));
+			}
+			
+			byte[] schema = new byte[32];
+			in.readFully(schema);
+			
+			if(!Arrays.equals(schema, schema(classes)))
+				throw new IOException("Schema mismatch");
+		}
+		
+		private Object readObject() throws Exception {
+			Layout layout = layout(readClass());
+			Object[] args = new Object[layout.parameters().length];
+			
+			for(int param : layout.parameters())
+				args[param] = readValue();
+			
+			Object obj = layout.constructor().newInstance(args);
+			objects.add(obj);
+			
+			return obj;
+		}
+		
+		private Node readNode() throws Exception {
+			Class<? extends Node> cls = readClass().asSubclass(Node.class);
+			long pos = in.readLong();
+			
+			List<Object> args = new ArrayList<>();
+			
+			int tag;
+			
+			while((tag = in.readByte()) != TAG_END)
+				args.add(readValue(tag));
+			
+			Node node = NodeFactory.create(cls, args.toArray());
+			node.setPosition(pos);
+			
+			objects.add(node);
+			return node;
+		}
+		
+		private Class<?> readClass() throws Exception {
+			return classes.get(readVarInt());
+		}
+		
+		private Token readToken() throws Exception {
+			TokenType type = TokenType.values()[readVarInt()];
+			Token tok;
+			
+			switch(type) {
+			case KEYWORD:
+				tok = new Token(Keyword.values()[readVarInt()]);
+				break;
+			case IDENTIFIER:
+			case STRING:
+			case NUMBER:
+			case COMPLEX:
+				tok = new Token(type, readValue());
+				break;
+			default:
+				tok = new Token(type);
+				break;
+			}
+			
+			tok.setPosition(in.readLong());
+			return tok;
+		}
+		
+		private RuntimeValue readRuntimeValue() throws Exception {
+			long pos = in.readLong();
+			Object raw = readValue();
+			
+			if(raw == null)
+				return RuntimeValue.of(pos);
+			
+			if(raw instanceof BigDecimal num)
+				return RuntimeValue.of(pos, num);
+			
+			if(raw instanceof WideString str)
+				return RuntimeValue.of(pos, str);
+			
+			if(raw instanceof BigComplex complex)
+				return RuntimeValue.of(pos, complex);
+			
+			if(raw instanceof Boolean bool)
+				return RuntimeValue.of(pos, bool);
+			
+			throw new IOException("Invalid value: " + raw);
+		}
+		
+		private WideString readWideString() throws Exception {
+			byte[] bytes = new byte[readVarInt()];
+			in.readFully(bytes);
+			return new WideString(bytes);
+		}
+		
+		private int readVarInt() throws Exception {
+			return CacheFiles.readVarInt(in);
+		}
+		
+	}
+	
+	// writing
+	
+	private void write(Path path) throws Exception {
+		// the instructions are written first, so the classes they use are known for the header
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		Writer writer = new Writer(new DataOutputStream(body));
+		
+		writer.writeVarInt(locals);
+		writer.writeVarInt(instructions.size());
+		
+		for(Instruction instr : instructions)
+			writer.writeValue(instr);
+		
+		Collection<Class<?>> classes = writer.classes.keySet();
+		
+		CacheFiles.write(path, MAGIC, out -> {
+			CacheFiles.writeVarInt(out, classes.size());
+			
+			for(Class<?> cls : classes)
+				out.writeUTF(cls.getName());
+			
+			out.write(schema(classes));
+			body.writeTo(out);
+		});
+	}
+	
+	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+	private static class Writer {
+		
+		private final DataOutputStream out;
+		private final Map<Class<?>, Integer> classes = new LinkedHashMap<>();
+		
+		/*
+		 * Objects are numbered once they have been written completely, in the same order
+		 * the reader creates them. Instruction trees have no cycles, so a shared object is
+		 * always complete by the time it is referenced again
+		 */
+		private final Map<Object, Integer> objects = new IdentityHashMap<>();
+		
+		private void writeValue(Object value) throws IOException {
+			Integer ref = value == null ? null : objects.get(value);
+			
+			if(ref != null) {
+				out.writeByte(TAG_REF);
+				writeVarInt(ref);
+			} else if(value == null)
+				out.writeByte(TAG_NULL);
+			else if(value instanceof Instruction || value instanceof Chunk)
+				writeObject(value);
+			else if(value instanceof Node node)
+				writeNode(node);
+			else if(value instanceof Token tok)
+				writeToken(tok);
+			else if(value instanceof RuntimeValue val)
+				writeRuntimeValue(val);
+			else if(value instanceof String str) {
+				out.writeByte(TAG_STRING);
+				out.writeUTF(str);
+			} else if(value instanceof WideString str) {
+				out.writeByte(TAG_WIDE_STRING);
+				
+				byte[] bytes = str.getBytes();
+				writeVarInt(bytes.length);
+				out.write(bytes);
+			} else if(value instanceof BigDecimal num) {
+				out.writeByte(TAG_NUMBER);
+				out.writeUTF(num.toString());
+			} else if(value instanceof BigComplex complex) {
+				out.writeByte(TAG_COMPLEX);
+				out.writeUTF(complex.re.toString());
+				out.writeUTF(complex.im.toString());
+			} else if(value instanceof Boolean bool) {
+				out.writeByte(TAG_BOOLEAN);
+				out.writeBoolean(bool);
+			} else if(value instanceof Integer num) {
+				out.writeByte(TAG_INT);
+				out.writeInt(num);
+			} else if(value instanceof Long num) {
+				out.writeByte(TAG_LONG);
+				out.writeLong(num);
+			} else if(value instanceof List<?> list) {
+				out.writeByte(TAG_LIST);
+				writeVarInt(list.size());
+				
+				for(Object element : list)
+					writeValue(element);
+			} else if(value instanceof Map<?, ?> map) {
+				out.writeByte(TAG_MAP);
+				writeVarInt(map.size());
+				
+				for(var entry : map.entrySet()) {
+					writeValue(entry.getKey());
+					writeValue(entry.getValue());
+				}
+			} else if(value instanceof Object[] array) {
+				out.writeByte(TAG_ARRAY);
+				writeVarInt(array.length);
+				
+				for(Object element : array)
+					writeValue(element);
+			} else if(value instanceof int[] array) {
+				out.writeByte(TAG_INTS);
+				writeVarInt(array.length);
+				
+				for(int element : array)
+					out.writeInt(element);
+			} else if(value instanceof long[] array) {
+				out.writeByte(TAG_LONGS);
+				writeVarInt(array.length);
+				
+				for(long element : array)
+					out.writeLong(element);
+			} else throw new IOException("Cannot store " + value.getClass().getName());
+		}
+		
+		private void writeObject(Object obj) throws IOException {
+			layout(obj.getClass()); // fails right away if it cannot be read back
+			
+			out.writeByte(TAG_OBJECT);
+			writeClass(obj.getClass());
+			
+			try {
+				for(Field field : fields(obj.getClass()))
+					writeValue(field.get(obj));
+			} catch (IllegalAccessException e) {
+				throw new IOException(e);
+			}
+			
+			objects.put(obj, objects.size());
+		}
+		
+		private void writeNode(Node node) throws IOException {
+			// the image is read without the source tokens, so lazily parsed bodies are stored parsed (see NodeVisitor#visitLazy)
+			out.writeByte(TAG_NODE);
+			writeClass(node.getNodeType());
+			out.writeLong(node.getPosition());
+			
+			List<Object> args = new ArrayList<>();
+			
+			node.accept(new NodeVisitor() {
+				
+				@Override
+				public void visitNode(String name, Node value) {
+					args.add(value);
+				}
+				
+				@Override
+				public void visitToken(String name, Token token) {
+					args.add(token);
+				}
+				
+				@Override
+				public void visitBoolean(String name, boolean value) {
+					args.add(value);
+				}
+				
+				@Override
+				public void visitNodes(String name, List<? extends Node> nodes) {
+					args.add(nodes);
+				}
+				
+			});
+			
+			for(Object arg : args)
+				writeValue(arg);
+			
+			out.writeByte(TAG_END);
+			
+			objects.put(node, objects.size());
+		}
+		
+		private void writeClass(Class<?> cls) throws IOException {
+			Integer idx = classes.get(cls);
+			
+			if(idx == null)
+				classes.put(cls, idx = classes.size());
+			
+			writeVarInt(idx);
+		}
+		
+		private void writeToken(Token tok) throws IOException {
+			TokenType type = tok.getType();
+			
+			out.writeByte(TAG_TOKEN);
+			writeVarInt(type.ordinal());
+			
+			switch(type) {
+			case KEYWORD:
+				writeVarInt(tok.getKeyword().ordinal());
+				break;
+			case IDENTIFIER:
+			case STRING:
+			case NUMBER:
+			case COMPLEX:
+				writeValue(tok.getValue());
+				break;
+			default:
+				break;
+			}
+			
+			out.writeLong(tok.getPosition());
+		}
+		
+		private void writeRuntimeValue(RuntimeValue value) throws IOException {
+			out.writeByte(TAG_VALUE);
+			out.writeLong(value.getPosition());
+			
+			switch(value.getType()) {
+			case NULL -> writeValue(null);
+			case NUMBER -> writeValue(value.numberValue());
+			case STRING -> writeValue(value.stringValue());
+			case COMPLEX -> writeValue(value.complexValue());
+			case BOOLEAN -> writeValue(value.booleanValue());
+			default -> throw new IOException("Cannot store value of type " + value.getType());
+			}
+		}
+		
+		private void writeVarInt(int value) throws IOException {
+			CacheFiles.writeVarInt(out, value);
+		}
+		
+	}
+
+}
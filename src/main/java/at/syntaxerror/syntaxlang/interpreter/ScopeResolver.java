@@ -0,0 +1,358 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.ListInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.MapInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.SwitchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.TryCatchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ThrowInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.YieldInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.function.FuncCallInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.IdentifierInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class ScopeResolver {
+	
+	/*
+	 * Assigns every local variable a slot in the frame of the scope it is declared in, and every
+	 * access the number of scopes to walk up (hops) and the slot, so variables are never looked up
+	 * by name at runtime. Scopes mirror the environments created at runtime: one per block, plus the
+	 * catch environment of a try-catch statement.
+	 * 
+	 * Blocks that declare no variables don't get an environment at all and are skipped when counting
+	 * hops. Since a declaration may follow accesses that walk past its block, a first pass finds the
+	 * scopes that declare anything before the second pass assigns the addresses.
+	 * 
+	 * A variable belongs to the innermost scope of its first assignment. Assigning a name that is
+	 * visible from an enclosing scope modifies that variable, unless a modifier (e.g. final) is given.
+	 * Identifiers that are not variables (functions, classes, ...) are left untouched.
+	 */
+	public static ScopeResolver resolve(@NonNull InputEnvironment input, @NonNull List<Instruction> instructions) {
+		return resolve(input, List.of(), instructions);
+	}
+	
+	// for function bodies, whose parameters are the first locals of the top-level scope
+	public static ScopeResolver resolve(@NonNull InputEnvironment input, @NonNull List<String> parameters, @NonNull List<Instruction> instructions) {
+		ScopeResolver resolver = new ScopeResolver(input);
+		
+		resolver.sizing = true;
+		resolver.declareAll(parameters);
+		resolver.resolveAll(instructions);
+		
+		resolver.sizing = false;
+		resolver.scope = new Scope(null, true);
+		
+		resolver.declareAll(parameters);
+		resolver.instructions = resolver.resolveAll(instructions);
+		resolver.locals = resolver.scope.slots.size();
+		return resolver;
+	}
+	
+	@Getter
+	private List<Instruction> instructions;
+	
+	// number of locals in the top-level scope
+	@Getter
+	private int locals;
+	
+	private final InputEnvironment input;
+	private Scope scope = new Scope(null, true);
+	
+	// scopes (identified by the instruction opening them) that declare at least one variable
+	private final Set<Instruction> frames = Collections.newSetFromMap(new IdentityHashMap<>());
+	private boolean sizing;
+	
+	private ScopeResolver(InputEnvironment input) {
+		this.input = input;
+	}
+	
+	private void enterScope(Instruction owner) {
+		scope = new Scope(scope, sizing || frames.contains(owner));
+	}
+	
+	// returns the number of locals declared in the scope
+	private int leaveScope(Instruction owner) {
+		int locals = scope.slots.size();
+		
+		if(sizing && locals != 0)
+			frames.add(owner);
+		
+		scope = scope.parent;
+		return locals;
+	}
+	
+	private void declareAll(List<String> names) {
+		for(String name : names)
+			scope.declare(name, false);
+	}
+	
+	private List<Instruction> resolveAll(List<Instruction> instructions) {
+		List<Instruction> result = new ArrayList<>(instructions.size());
+		
+		for(Instruction instr : instructions)
+			result.add(resolve(instr));
+		
+		return result;
+	}
+	
+	private Instruction resolve(Instruction instr) {
+		if(instr instanceof StatementsInstruction n) {
+			enterScope(n);
+			List<Instruction> instructions = resolveAll(n.getInstructions());
+			
+			return StatementsInstruction.of(n.getPosition(), instructions, leaveScope(n));
+		}
+		
+		if(instr instanceof TryCatchInstruction n) {
+			Instruction tryBody = resolve(n.getTryBody());
+			
+			enterScope(n);
+			scope.declare(n.getVarName().identifierValue(), true);
+			Instruction catchBody = resolve(n.getCatchBody());
+			leaveScope(n);
+			
+			return TryCatchInstruction.of(n.getPosition(), n.getVarName(), tryBody, catchBody);
+		}
+		
+		if(instr instanceof WhileInstruction n)
+			return WhileInstruction.of(n.getPosition(), n.getLabel(), resolve(n.getCondition()), resolve(n.getBody()));
+		
+		if(instr instanceof DoWhileInstruction n) {
+			// the body is executed first
+			Instruction body = resolve(n.getBody());
+			return DoWhileInstruction.of(n.getPosition(), n.getLabel(), resolve(n.getCondition()), body);
+		}
+		
+		if(instr instanceof ForInstruction n) {
+			enterScope(n);
+			
+			List<Instruction> init = resolveAll(n.getInit());
+			Instruction condition = n.getCondition() == null ? null : resolve(n.getCondition());
+			Instruction body = resolve(n.getBody());
+			List<Instruction> update = resolveAll(n.getUpdate());
+			
+			return ForInstruction.of(n.getPosition(), n.getLabel(), init, condition, update, body, leaveScope(n));
+		}
+		
+		if(instr instanceof YieldInstruction n)
+			return YieldInstruction.of(n.getPosition(), resolve(n.getValue()));
+		
+		if(instr instanceof ReturnInstruction n)
+			return ReturnInstruction.of(n.getPosition(), n.getValue() == null ? null : resolve(n.getValue()));
+		
+		if(instr instanceof ThrowInstruction n)
+			return ThrowInstruction.of(n.getPosition(), resolve(n.getValue()));
+		
+		if(instr instanceof IfInstruction n)
+			return IfInstruction.of(
+				n.getPosition(),
+				resolveAll(n.getConditions()),
+				resolveAll(n.getBodies()),
+				resolve(n.getElseBody())
+			);
+		
+		if(instr instanceof SwitchInstruction n) {
+			Instruction value = resolve(n.getValue());
+			List<Instruction> cases = new ArrayList<>();
+			
+			// all case values are evaluated before any of the bodies
+			for(Instruction caseValue : n.getCases())
+				cases.add(caseValue == null ? null : resolve(caseValue));
+			
+			return SwitchInstruction.of(n.getPosition(), value, cases, resolveAll(n.getBodies()), n.isExpression());
+		}
+		
+		if(instr instanceof TernaryOpInstruction n)
+			return TernaryOpInstruction.of(
+				n.getPosition(),
+				resolve(n.getCondition()),
+				resolve(n.getResultThen()),
+				resolve(n.getResultElse())
+			);
+		
+		if(instr instanceof BinaryOpInstruction n) {
+			Instruction left = resolve(n.getLeft());
+			Instruction right = resolve(n.getRight());
+			
+			if(left == n.getLeft() && right == n.getRight())
+				return n;
+			
+			return BinaryOpInstruction.of(n.getPosition(), left, n.getOp(), right);
+		}
+		
+		if(instr instanceof UnaryOpInstruction n) {
+			Instruction target = resolve(n.getTarget());
+			
+			if(target == n.getTarget())
+				return n;
+			
+			return UnaryOpInstruction.of(n.getPosition(), n.getOp(), target);
+		}
+		
+		if(instr instanceof ListInstruction n)
+			return ListInstruction.of(n.getPosition(), resolveAll(n.getValues()));
+		
+		// the body of a function is resolved on its own (see RuntimeFunction)
+		if(instr instanceof FuncCallInstruction n)
+			return FuncCallInstruction.of(n.getPosition(), n.getName(), resolveAll(n.getArgs()));
+		
+		if(instr instanceof MapInstruction n) {
+			Map<RuntimeValue, Instruction> values = new LinkedHashMap<>();
+			
+			n.getValues().forEach((key, value) -> values.put(key, resolve(value)));
+			
+			return MapInstruction.of(n.getPosition(), values);
+		}
+		
+		if(instr instanceof IdentifierInstruction n) {
+			int[] address = lookup(n.getValue());
+			
+			if(address == null)
+				return n;
+			
+			return VariableInstruction.of(n.getPosition(), n.getValue(), address[0], address[1]);
+		}
+		
+		if(instr instanceof VarDeclInstruction n)
+			return resolveDeclaration(n);
+		
+		if(instr instanceof VarModInstruction n) {
+			Instruction value = resolve(n.getValue());
+			int[] address = lookup(n.getName());
+			
+			if(address == null)
+				input.terminate("Variable %s is not defined".formatted(n.getName()), n.getPosition());
+			
+			if(isFinal(n.getName()))
+				input.terminate("Cannot modify final variable %s".formatted(n.getName()), n.getPosition());
+			
+			return VarModInstruction.of(n, value, address[0], address[1]);
+		}
+		
+		return instr;
+	}
+	
+	private Instruction resolveDeclaration(VarDeclInstruction decl) {
+		String name = decl.getName();
+		
+		// the value is evaluated before the variable is declared
+		Instruction value = resolve(decl.getValue());
+		
+		if(!decl.isDeclaration()) {
+			int[] address = lookup(name);
+			
+			if(address != null) {
+				if(isFinal(name))
+					input.terminate("Cannot assign to final variable %s".formatted(name), decl.getPosition());
+				
+				return VarDeclInstruction.of(decl, value, address[0], address[1]);
+			}
+		}
+		
+		else if(scope.slots.containsKey(name))
+			input.terminate("Variable is already defined", decl.getPosition());
+		
+		return VarDeclInstruction.of(decl, value, 0, scope.declare(name, decl.isFinalModifier()));
+	}
+	
+	// returns {hops, slot}, or null if there is no such variable
+	private int[] lookup(String name) {
+		int hops = 0;
+		
+		for(Scope s = scope; s != null; s = s.parent) {
+			Integer slot = s.slots.get(name);
+			
+			if(slot != null)
+				return new int[] { hops, slot };
+			
+			// scopes without an environment share the one of their parent
+			if(s.frame)
+				++hops;
+		}
+		
+		return null;
+	}
+	
+	private boolean isFinal(String name) {
+		for(Scope s = scope; s != null; s = s.parent) {
+			Integer slot = s.slots.get(name);
+			
+			if(slot != null)
+				return s.finals.contains(slot);
+		}
+		
+		return false;
+	}
+	
+	private static class Scope {
+		
+		private final Scope parent;
+		private final boolean frame;
+		private final Map<String, Integer> slots = new HashMap<>();
+		private final Set<Integer> finals = new HashSet<>();
+		
+		private Scope(Scope parent, boolean frame) {
+			this.parent = parent;
+			this.frame = frame;
+		}
+		
+		private int declare(String name, boolean isFinal) {
+			int slot = slots.size();
+			
+			slots.put(name, slot);
+			
+			if(isFinal)
+				finals.add(slot);
+			
+			return slot;
+		}
+		
+	}
+
+}
@@ -0,0 +1,328 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.ListInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.MapInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.SwitchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.TryCatchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ThrowInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.YieldInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.function.FuncCallInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.fused.Operand;
+import at.syntaxerror.syntaxlang.interpreter.instruction.fused.OperandModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.fused.OperandOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.fused.OperandsOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.fused.ProfiledInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class Superinstructions {
+	
+	/*
+	 * Replaces frequent instruction patterns with fused instructions that execute the whole
+	 * pattern in a single process() call. Must run after the ScopeResolver.
+	 * 
+	 * The patterns were chosen from the output of #profile, which counts how often each instruction
+	 * shape (the instruction, its operator and the kinds of its operands) is executed. For loop-heavy
+	 * scripts, loads of literals and variables feeding binary operations and variable modifications
+	 * dominate, especially conditions like i < n and updates like i += 1:
+	 * 
+	 * - binary operations on two literals or variables => OperandsOpInstruction
+	 * - variable modifications by a literal or variable => OperandModInstruction
+	 * 
+	 * With these fused, the profiles are led by binary operations with one literal or variable operand,
+	 * e.g. BinaryOp == (BinaryOp, Number) for t % 3 == 0 or BinaryOp + (Variable, BinaryOp) for s + i * 2:
+	 * 
+	 * - binary operations on a literal or variable and any other operand => OperandOpInstruction
+	 * 
+	 * && and || are never fused, since their right operand is not always evaluated.
+	 */
+	public static List<Instruction> fuse(@NonNull List<Instruction> instructions) {
+		return rewriteAll(instructions, Superinstructions::fuse, new IdentityHashMap<>());
+	}
+	
+	/*
+	 * Counts the executions of every instruction by shape. The counts are printed to stderr when the
+	 * program exits, the most frequent first
+	 */
+	public static List<Instruction> profile(@NonNull List<Instruction> instructions) {
+		Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+		
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(counters)));
+		
+		return rewriteAll(
+			instructions,
+			(original, instr) -> ProfiledInstruction.of(instr, counters.computeIfAbsent(shape(original), k -> new LongAdder())),
+			new IdentityHashMap<>()
+		);
+	}
+	
+	private static void dump(Map<String, LongAdder> counters) {
+		System.err.println("PROFILE: executions by instruction shape");
+		
+		counters.entrySet()
+			.stream()
+			.sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+			.forEach(e -> System.err.printf("PROFILE: %12d  %s%n", e.getValue().sum(), e.getKey()));
+	}
+	
+	private static Instruction fuse(Instruction original, Instruction instr) {
+		if(instr instanceof BinaryOpInstruction n && !n.getOp().is(TokenType.AND, TokenType.OR)) {
+			Operand left = Operand.of(n.getLeft());
+			Operand right = Operand.of(n.getRight());
+			
+			if(left != null && right != null)
+				return OperandsOpInstruction.of(n, left, right);
+			
+			if(left != null)
+				return OperandOpInstruction.of(n, left, true);
+			
+			if(right != null)
+				return OperandOpInstruction.of(n, right, false);
+		}
+		
+		if(instr instanceof VarModInstruction n && n.getSlot() != -1) {
+			Operand operand = Operand.of(n.getValue());
+			
+			if(operand != null)
+				return OperandModInstruction.of(n, operand);
+		}
+		
+		return instr;
+	}
+	
+	// e.g. BinaryOp < (Variable, Literal)
+	private static String shape(Instruction instr) {
+		String name = kind(instr);
+		
+		List<Instruction> operands = new ArrayList<>();
+		
+		if(instr instanceof BinaryOpInstruction n) {
+			name += " " + n.getOp().toSimpleString();
+			operands.add(n.getLeft());
+			operands.add(n.getRight());
+		} else if(instr instanceof UnaryOpInstruction n) {
+			name += " " + n.getOp().toSimpleString();
+			operands.add(n.getTarget());
+		} else if(instr instanceof VarModInstruction n) {
+			name += " " + n.getOp().toSimpleString() + "=";
+			operands.add(n.getValue());
+		} else if(instr instanceof VarDeclInstruction n)
+			operands.add(n.getValue());
+		else if(instr instanceof TernaryOpInstruction n)
+			operands.add(n.getCondition());
+		else if(instr instanceof IfInstruction n)
+			operands.addAll(n.getConditions());
+		else if(instr instanceof WhileInstruction n)
+			operands.add(n.getCondition());
+		else if(instr instanceof DoWhileInstruction n)
+			operands.add(n.getCondition());
+		else if(instr instanceof ForInstruction n && n.getCondition() != null)
+			operands.add(n.getCondition());
+		
+		if(operands.isEmpty())
+			return name;
+		
+		StringJoiner joiner = new StringJoiner(", ", name + " (", ")");
+		
+		for(Instruction operand : operands)
+			joiner.add(kind(operand));
+		
+		return joiner.toString();
+	}
+	
+	private static String kind(Instruction instr) {
+		return instr.getClass().getSimpleName().replaceFirst("Instruction$", "");
+	}
+	
+	/*
+	 * Rebuilds the instruction tree bottom-up, passing each instruction (with its operands already
+	 * rewritten) to the given function together with the original one
+	 */
+	
+	static List<Instruction> rewriteAll(List<Instruction> instructions, BinaryOperator<Instruction> fn,
+			Map<Instruction, Instruction> done) {
+		List<Instruction> result = new ArrayList<>(instructions.size());
+		
+		for(Instruction instr : instructions)
+			result.add(rewrite(instr, fn, done));
+		
+		return result;
+	}
+	
+	private static Instruction rewrite(Instruction instr, BinaryOperator<Instruction> fn, Map<Instruction, Instruction> done) {
+		if(instr == null)
+			return null;
+		
+		Instruction result = done.get(instr);
+		
+		if(result == null) {
+			result = fn.apply(instr, rebuild(instr, fn, done));
+			done.put(instr, result);
+		}
+		
+		return result;
+	}
+	
+	private static Instruction rebuild(Instruction instr, BinaryOperator<Instruction> fn, Map<Instruction, Instruction> done) {
+		if(instr instanceof StatementsInstruction n)
+			return StatementsInstruction.of(n.getPosition(), rewriteAll(n.getInstructions(), fn, done), n.getLocals());
+		
+		if(instr instanceof IfInstruction n)
+			return IfInstruction.of(
+				n.getPosition(),
+				rewriteAll(n.getConditions(), fn, done),
+				rewriteAll(n.getBodies(), fn, done),
+				rewrite(n.getElseBody(), fn, done)
+			);
+		
+		if(instr instanceof WhileInstruction n)
+			return WhileInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				rewrite(n.getCondition(), fn, done),
+				rewrite(n.getBody(), fn, done)
+			);
+		
+		if(instr instanceof DoWhileInstruction n)
+			return DoWhileInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				rewrite(n.getCondition(), fn, done),
+				rewrite(n.getBody(), fn, done)
+			);
+		
+		if(instr instanceof ForInstruction n)
+			return ForInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				rewriteAll(n.getInit(), fn, done),
+				rewrite(n.getCondition(), fn, done),
+				rewriteAll(n.getUpdate(), fn, done),
+				rewrite(n.getBody(), fn, done),
+				n.getLocals()
+			);
+		
+		if(instr instanceof TryCatchInstruction n)
+			return TryCatchInstruction.of(
+				n.getPosition(),
+				n.getVarName(),
+				rewrite(n.getTryBody(), fn, done),
+				rewrite(n.getCatchBody(), fn, done)
+			);
+		
+		if(instr instanceof SwitchInstruction n) {
+			List<Instruction> cases = new ArrayList<>();
+			
+			for(Instruction caseValue : n.getCases())
+				cases.add(rewrite(caseValue, fn, done));
+			
+			return SwitchInstruction.of(
+				n.getPosition(),
+				rewrite(n.getValue(), fn, done),
+				cases,
+				rewriteAll(n.getBodies(), fn, done),
+				n.isExpression()
+			);
+		}
+		
+		if(instr instanceof YieldInstruction n)
+			return YieldInstruction.of(n.getPosition(), rewrite(n.getValue(), fn, done));
+		
+		if(instr instanceof ReturnInstruction n && n.getValue() != null)
+			return ReturnInstruction.of(n.getPosition(), rewrite(n.getValue(), fn, done));
+		
+		if(instr instanceof ThrowInstruction n)
+			return ThrowInstruction.of(n.getPosition(), rewrite(n.getValue(), fn, done));
+		
+		if(instr instanceof TernaryOpInstruction n)
+			return TernaryOpInstruction.of(
+				n.getPosition(),
+				rewrite(n.getCondition(), fn, done),
+				rewrite(n.getResultThen(), fn, done),
+				rewrite(n.getResultElse(), fn, done)
+			);
+		
+		if(instr instanceof BinaryOpInstruction n)
+			return BinaryOpInstruction.of(n.getPosition(), rewrite(n.getLeft(), fn, done), n.getOp(), rewrite(n.getRight(), fn, done));
+		
+		if(instr instanceof UnaryOpInstruction n)
+			return UnaryOpInstruction.of(n.getPosition(), n.getOp(), rewrite(n.getTarget(), fn, done));
+		
+		if(instr instanceof TypedOpInstruction n)
+			return TypedOpInstruction.of(n.getSource(), rewrite(n.getLeft(), fn, done), rewrite(n.getRight(), fn, done), n.getSpecialization());
+		
+		if(instr instanceof TypedModInstruction n)
+			return TypedModInstruction.of(n.getSource(), rewrite(n.getValue(), fn, done), n.getSpecialization());
+		
+		if(instr instanceof VarDeclInstruction n)
+			return VarDeclInstruction.of(n, rewrite(n.getValue(), fn, done), n.getHops(), n.getSlot());
+		
+		if(instr instanceof VarModInstruction n)
+			return VarModInstruction.of(n, rewrite(n.getValue(), fn, done), n.getHops(), n.getSlot());
+		
+		if(instr instanceof ListInstruction n)
+			return ListInstruction.of(n.getPosition(), rewriteAll(n.getValues(), fn, done));
+		
+		if(instr instanceof FuncCallInstruction n)
+			return FuncCallInstruction.of(n.getPosition(), n.getName(), rewriteAll(n.getArgs(), fn, done));
+		
+		if(instr instanceof MapInstruction n) {
+			Map<RuntimeValue, Instruction> values = new LinkedHashMap<>();
+			
+			n.getValues().forEach((key, value) -> values.put(key, rewrite(value, fn, done)));
+			
+			return MapInstruction.of(n.getPosition(), values);
+		}
+		
+		return instr;
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.SwitchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.function.FuncCallInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.function.TailCallInstruction;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class TailCalls {
+	
+	/*
+	 * Turns return f(...) in the body of a function into a TailCallInstruction. Must run after the ScopeResolver.
+	 * 
+	 * Only statements are visited. Try statements are skipped entirely: the trampoline makes the call after the
+	 * try statement has been left, so the catch body would miss the exceptions of the callee.
+	 */
+	public static List<Instruction> mark(@NonNull List<Instruction> instructions) {
+		List<Instruction> result = new ArrayList<>(instructions.size());
+		
+		for(Instruction instr : instructions)
+			result.add(mark(instr));
+		
+		return result;
+	}
+	
+	private static Instruction mark(Instruction instr) {
+		if(instr == null)
+			return null;
+		
+		if(instr instanceof ReturnInstruction n && n.getValue() instanceof FuncCallInstruction call)
+			return TailCallInstruction.of(n.getPosition(), call);
+		
+		if(instr instanceof StatementsInstruction n)
+			return StatementsInstruction.of(n.getPosition(), mark(n.getInstructions()), n.getLocals());
+		
+		if(instr instanceof IfInstruction n)
+			return IfInstruction.of(
+				n.getPosition(),
+				n.getConditions(),
+				mark(n.getBodies()),
+				mark(n.getElseBody())
+			);
+		
+		if(instr instanceof WhileInstruction n)
+			return WhileInstruction.of(n.getPosition(), n.getLabel(), n.getCondition(), mark(n.getBody()));
+		
+		if(instr instanceof DoWhileInstruction n)
+			return DoWhileInstruction.of(n.getPosition(), n.getLabel(), n.getCondition(), mark(n.getBody()));
+		
+		if(instr instanceof ForInstruction n)
+			return ForInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				n.getInit(),
+				n.getCondition(),
+				n.getUpdate(),
+				mark(n.getBody()),
+				n.getLocals()
+			);
+		
+		// the bodies of switch expressions end in yields, not returns
+		if(instr instanceof SwitchInstruction n && !n.isExpression())
+			return SwitchInstruction.of(n.getPosition(), n.getValue(), n.getCases(), mark(n.getBodies()), false);
+		
+		return instr;
+	}
+
+}
@@ -0,0 +1,510 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.EmptyInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.ListInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.MapInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.BreakInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ContinueInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ThrowInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.IdentifierInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.interpreter.value.ValueType;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import lombok.NonNull;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class TypeInference {
+	
+	/*
+	 * Computes the types of locals and expressions of resolved instructions from literals and
+	 * operators, following the control flow: branches are merged where they join, and loops are
+	 * analyzed until the types at their header no longer change. A type is only known if every
+	 * path leading to the point agrees on it.
+	 * 
+	 * Binary operations and modifications with known operand types are replaced by typed
+	 * instructions, which apply their BinarySpecialization right away without any guard.
+	 * Instructions that are not understood (try-catch, switch, foreach, ...) forget all types.
+	 */
+	public static List<Instruction> specialize(@NonNull List<Instruction> instructions, int locals) {
+		TypeInference inference = new TypeInference();
+		inference.frames.add(new ValueType[locals]);
+		
+		return inference.inferAll(instructions);
+	}
+	
+	// types of the locals in every environment, innermost last; null if the type is unknown
+	private List<ValueType[]> frames = new ArrayList<>();
+	
+	// type of the last expression
+	private ValueType type;
+	
+	// loops enclosing the current instruction, innermost last
+	private final List<Loop> loops = new ArrayList<>();
+	
+	private TypeInference() { }
+	
+	private List<Instruction> inferAll(List<Instruction> instructions) {
+		List<Instruction> result = new ArrayList<>(instructions.size());
+		
+		for(Instruction instr : instructions)
+			result.add(infer(instr));
+		
+		type = null;
+		return result;
+	}
+	
+	private Instruction infer(Instruction instr) {
+		if(instr instanceof LiteralInstruction n) {
+			type = n.getValue().getType();
+			return n;
+		}
+		
+		if(instr instanceof VariableInstruction n) {
+			type = load(n.getHops(), n.getSlot());
+			return n;
+		}
+		
+		if(instr instanceof VarDeclInstruction n && n.getSlot() != -1) {
+			Instruction value = infer(n.getValue());
+			store(n.getHops(), n.getSlot(), type);
+			
+			if(value == n.getValue())
+				return n;
+			
+			return VarDeclInstruction.of(n, value, n.getHops(), n.getSlot());
+		}
+		
+		if(instr instanceof VarModInstruction n && n.getSlot() != -1) {
+			// the variable is read before the value is evaluated
+			ValueType current = load(n.getHops(), n.getSlot());
+			Instruction value = infer(n.getValue());
+			
+			BinarySpecialization spec = BinarySpecialization.of(n.getOp().getType(), current, type);
+			store(n.getHops(), n.getSlot(), type = spec.getResultType());
+			
+			if(spec != BinarySpecialization.GENERIC)
+				return TypedModInstruction.of(n, value, spec);
+			
+			if(value == n.getValue())
+				return n;
+			
+			return VarModInstruction.of(n, value, n.getHops(), n.getSlot());
+		}
+		
+		if(instr instanceof BinaryOpInstruction n)
+			return inferBinary(n);
+		
+		if(instr instanceof UnaryOpInstruction n) {
+			Instruction target = infer(n.getTarget());
+			type = unaryType(n.getOp().getType(), type);
+			
+			if(target == n.getTarget())
+				return n;
+			
+			return UnaryOpInstruction.of(n.getPosition(), n.getOp(), target);
+		}
+		
+		if(instr instanceof TernaryOpInstruction n) {
+			Instruction condition = infer(n.getCondition());
+			
+			List<ValueType[]> branch = copy();
+			Instruction resultThen = infer(n.getResultThen());
+			ValueType typeThen = type;
+			
+			List<ValueType[]> joined = frames;
+			frames = branch;
+			
+			Instruction resultElse = infer(n.getResultElse());
+			
+			merge(joined);
+			
+			if(type != typeThen)
+				type = null;
+			
+			return TernaryOpInstruction.of(n.getPosition(), condition, resultThen, resultElse);
+		}
+		
+		if(instr instanceof StatementsInstruction n) {
+			enterScope(n.getLocals());
+			List<Instruction> instructions = inferAll(n.getInstructions());
+			leaveScope(n.getLocals());
+			
+			return StatementsInstruction.of(n.getPosition(), instructions, n.getLocals());
+		}
+		
+		if(instr instanceof IfInstruction n)
+			return inferIf(n);
+		
+		if(instr instanceof WhileInstruction n)
+			return inferWhile(n);
+		
+		if(instr instanceof DoWhileInstruction n)
+			return inferDoWhile(n);
+		
+		if(instr instanceof ForInstruction n)
+			return inferFor(n);
+		
+		if(instr instanceof ListInstruction n) {
+			List<Instruction> values = inferAll(n.getValues());
+			type = ValueType.LIST;
+			
+			return ListInstruction.of(n.getPosition(), values);
+		}
+		
+		if(instr instanceof MapInstruction n) {
+			Map<RuntimeValue, Instruction> values = new LinkedHashMap<>();
+			
+			n.getValues().forEach((key, value) -> values.put(key, infer(value)));
+			type = ValueType.MAP;
+			
+			return MapInstruction.of(n.getPosition(), values);
+		}
+		
+		if(instr instanceof ReturnInstruction n) {
+			Instruction value = n.getValue() == null ? null : infer(n.getValue());
+			type = null;
+			
+			return ReturnInstruction.of(n.getPosition(), value);
+		}
+		
+		if(instr instanceof ThrowInstruction n) {
+			Instruction value = infer(n.getValue());
+			type = null;
+			
+			return ThrowInstruction.of(n.getPosition(), value);
+		}
+		
+		type = null;
+		
+		// leaves the loop, so the current types flow to its header and exit
+		if(instr instanceof BreakInstruction || instr instanceof ContinueInstruction)
+			jump();
+		
+		else if(!(instr instanceof IdentifierInstruction || instr instanceof EmptyInstruction))
+			forget();
+		
+		return instr;
+	}
+	
+	private Instruction inferBinary(BinaryOpInstruction n) {
+		Instruction left = infer(n.getLeft());
+		ValueType leftType = type;
+		
+		if(n.getOp().is(TokenType.AND, TokenType.OR)) {
+			// the right expression might not be evaluated
+			List<ValueType[]> skipped = copy();
+			Instruction right = infer(n.getRight());
+			
+			merge(skipped);
+			
+			type = leftType == ValueType.BOOLEAN && type == ValueType.BOOLEAN
+				? ValueType.BOOLEAN
+				: null;
+			
+			if(left == n.getLeft() && right == n.getRight())
+				return n;
+			
+			return BinaryOpInstruction.of(n.getPosition(), left, n.getOp(), right);
+		}
+		
+		Instruction right = infer(n.getRight());
+		
+		BinarySpecialization spec = BinarySpecialization.of(n.getOp().getType(), leftType, type);
+		type = spec.getResultType();
+		
+		if(spec != BinarySpecialization.GENERIC)
+			return TypedOpInstruction.of(n, left, right, spec);
+		
+		if(left == n.getLeft() && right == n.getRight())
+			return n;
+		
+		return BinaryOpInstruction.of(n.getPosition(), left, n.getOp(), right);
+	}
+	
+	private static ValueType unaryType(TokenType op, ValueType operand) {
+		if(operand == ValueType.NUMBER && (op == TokenType.PLUS || op == TokenType.MINUS || op == TokenType.COMPLEMENT))
+			return ValueType.NUMBER;
+		
+		if(operand == ValueType.COMPLEX && (op == TokenType.PLUS || op == TokenType.MINUS))
+			return ValueType.COMPLEX;
+		
+		if(operand == ValueType.BOOLEAN && op == TokenType.NOT)
+			return ValueType.BOOLEAN;
+		
+		return null;
+	}
+	
+	private Instruction inferIf(IfInstruction n) {
+		List<Instruction> conditions = new ArrayList<>();
+		List<Instruction> bodies = new ArrayList<>();
+		List<List<ValueType[]>> branches = new ArrayList<>();
+		
+		for(int i = 0; i < n.getConditions().size(); ++i) {
+			conditions.add(infer(n.getConditions().get(i)));
+			
+			// the next condition is only evaluated if this one is false
+			List<ValueType[]> skipped = copy();
+			bodies.add(infer(n.getBodies().get(i)));
+			
+			branches.add(frames);
+			frames = skipped;
+		}
+		
+		Instruction elseBody = infer(n.getElseBody());
+		
+		for(List<ValueType[]> branch : branches)
+			merge(branch);
+		
+		type = null;
+		return IfInstruction.of(n.getPosition(), conditions, bodies, elseBody);
+	}
+	
+	/*
+	 * Every loop is analyzed until the types at its header are the same as after a full iteration,
+	 * only the instructions of that final iteration are kept. Types only ever change from known to
+	 * unknown, so this ends after at most one iteration per local.
+	 */
+	
+	private Instruction inferWhile(WhileInstruction n) {
+		Loop loop = enterLoop();
+		
+		while(true) {
+			List<ValueType[]> header = copy();
+			
+			Instruction condition = infer(n.getCondition());
+			List<ValueType[]> exit = copy();
+			
+			Instruction body = infer(n.getBody());
+			
+			if(endIteration(loop, header)) {
+				leaveLoop(loop, exit);
+				return WhileInstruction.of(n.getPosition(), n.getLabel(), condition, body);
+			}
+		}
+	}
+	
+	private Instruction inferDoWhile(DoWhileInstruction n) {
+		Loop loop = enterLoop();
+		
+		while(true) {
+			List<ValueType[]> header = copy();
+			
+			Instruction body = infer(n.getBody());
+			
+			// continue jumps to the condition
+			merge(loop.jumps);
+			
+			Instruction condition = infer(n.getCondition());
+			List<ValueType[]> exit = copy();
+			
+			if(endIteration(loop, header)) {
+				leaveLoop(loop, exit);
+				return DoWhileInstruction.of(n.getPosition(), n.getLabel(), condition, body);
+			}
+		}
+	}
+	
+	private Instruction inferFor(ForInstruction n) {
+		enterScope(n.getLocals());
+		
+		List<Instruction> init = inferAll(n.getInit());
+		Loop loop = enterLoop();
+		
+		while(true) {
+			List<ValueType[]> header = copy();
+			
+			Instruction condition = n.getCondition() == null ? null : infer(n.getCondition());
+			
+			// without a condition, the loop can only be left by jumping out of it
+			List<ValueType[]> exit = condition == null ? null : copy();
+			
+			Instruction body = infer(n.getBody());
+			
+			// continue jumps to the update
+			merge(loop.jumps);
+			
+			List<Instruction> update = inferAll(n.getUpdate());
+			
+			if(endIteration(loop, header)) {
+				leaveLoop(loop, exit);
+				leaveScope(n.getLocals());
+				
+				return ForInstruction.of(n.getPosition(), n.getLabel(), init, condition, update, body, n.getLocals());
+			}
+		}
+	}
+	
+	private Loop enterLoop() {
+		Loop loop = new Loop(frames.size());
+		loops.add(loop);
+		return loop;
+	}
+	
+	// merges the types after an iteration into the header, returns true if they are the same
+	private boolean endIteration(Loop loop, List<ValueType[]> header) {
+		merge(loop.jumps);
+		merge(header);
+		
+		if(same(header)) {
+			frames = header;
+			return true;
+		}
+		
+		loop.jumps = null;
+		return false;
+	}
+	
+	private void leaveLoop(Loop loop, List<ValueType[]> exit) {
+		loops.remove(loops.size() - 1);
+		
+		if(exit != null)
+			frames = exit;
+		
+		merge(loop.jumps);
+		
+		type = null;
+	}
+	
+	// break or continue, possibly of an enclosing loop
+	private void jump() {
+		for(Loop loop : loops) {
+			List<ValueType[]> state = new ArrayList<>(loop.depth);
+			
+			for(int i = 0; i < loop.depth; ++i)
+				state.add(frames.get(i).clone());
+			
+			if(loop.jumps == null)
+				loop.jumps = state;
+			else merge(loop.jumps, state);
+		}
+	}
+	
+	// the instruction might modify any local, or leave any loop
+	private void forget() {
+		for(ValueType[] frame : frames)
+			Arrays.fill(frame, null);
+		
+		jump();
+	}
+	
+	// environments
+	
+	private void enterScope(int locals) {
+		// blocks without variables share the environment of their parent
+		if(locals != 0)
+			frames.add(new ValueType[locals]);
+	}
+	
+	private void leaveScope(int locals) {
+		if(locals != 0)
+			frames.remove(frames.size() - 1);
+	}
+	
+	private ValueType load(int hops, int slot) {
+		int idx = frames.size() - 1 - hops;
+		
+		return idx < 0 ? null : frames.get(idx)[slot];
+	}
+	
+	private void store(int hops, int slot, ValueType type) {
+		int idx = frames.size() - 1 - hops;
+		
+		if(idx >= 0)
+			frames.get(idx)[slot] = type;
+	}
+	
+	private List<ValueType[]> copy() {
+		List<ValueType[]> copy = new ArrayList<>(frames.size());
+		
+		for(ValueType[] frame : frames)
+			copy.add(frame.clone());
+		
+		return copy;
+	}
+	
+	private boolean same(List<ValueType[]> other) {
+		for(int i = 0; i < frames.size(); ++i)
+			if(!Arrays.equals(frames.get(i), other.get(i)))
+				return false;
+		
+		return true;
+	}
+	
+	// joins another path into the current one
+	private void merge(List<ValueType[]> other) {
+		merge(frames, other);
+	}
+	
+	private static void merge(List<ValueType[]> target, List<ValueType[]> other) {
+		if(other == null)
+			return;
+		
+		// the other path might be inside fewer environments
+		for(int i = 0; i < other.size(); ++i) {
+			ValueType[] frame = target.get(i);
+			ValueType[] types = other.get(i);
+			
+			for(int j = 0; j < frame.length; ++j)
+				if(frame[j] != types[j])
+					frame[j] = null;
+		}
+	}
+	
+	private static class Loop {
+		
+		// number of environments at the header
+		private final int depth;
+		
+		// joined types at all break and continue statements, null if there are none
+		private List<ValueType[]> jumps;
+		
+		private Loop(int depth) {
+			this.depth = depth;
+		}
+		
+	}
+
+}
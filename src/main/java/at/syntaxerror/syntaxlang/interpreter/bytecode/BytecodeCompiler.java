@@ -0,0 +1,521 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.bytecode;
+
+import static at.syntaxerror.syntaxlang.interpreter.bytecode.Opcodes.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.EmptyInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.ListInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.MapInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.TryCatchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.BreakInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ContinueInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ThrowInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.YieldInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import lombok.NonNull;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class BytecodeCompiler {
+	
+	/*
+	 * Compiles a statement or expression into a Chunk for the BytecodeVM. The instructions have to be
+	 * resolved by the ScopeResolver first: variables are read and written through their hops and slot,
+	 * and every block with locals gets its own environment, just like in the instruction tree.
+	 * 
+	 * Expressions the VM has no opcode for are evaluated by the instruction tree (EVAL). Statements it
+	 * cannot execute (switch, foreach, ...) make the whole statement fall back to the instruction tree,
+	 * so both execution modes can be mixed freely.
+	 */
+	public static Chunk compile(@NonNull Instruction instr) {
+		BytecodeCompiler compiler = new BytecodeCompiler();
+		
+		try {
+			if(isExpression(instr)) {
+				int reg = compiler.alloc();
+				compiler.expression(instr, reg);
+				compiler.emit(instr, VALUE, reg);
+			} else {
+				compiler.statement(instr);
+				compiler.emit(instr, END);
+			}
+		} catch (Unsupported e) {
+			return null;
+		}
+		
+		return compiler.build(instr.getPosition());
+	}
+	
+	public static Instruction compileInstruction(@NonNull Instruction instr) {
+		Chunk chunk = compile(instr);
+		
+		if(chunk == null)
+			return instr;
+		
+		return BytecodeInstruction.of(chunk);
+	}
+	
+	public static List<Instruction> compile(@NonNull List<Instruction> instructions) {
+		return instructions.stream()
+				.map(BytecodeCompiler::compileInstruction)
+				.toList();
+	}
+	
+	private static boolean isExpression(Instruction instr) {
+		return instr instanceof LiteralInstruction || instr instanceof VariableInstruction ||
+				instr instanceof VarDeclInstruction || instr instanceof VarModInstruction ||
+				instr instanceof BinaryOpInstruction || instr instanceof UnaryOpInstruction ||
+				instr instanceof TernaryOpInstruction || instr instanceof ListInstruction ||
+				instr instanceof MapInstruction;
+	}
+	
+	// ++x, --x, x += 1 and x -= 1
+	private static boolean isIncrement(VarModInstruction instr) {
+		return instr.getOp().is(TokenType.PLUS, TokenType.MINUS)
+				&& instr.getValue() instanceof LiteralInstruction lit
+				&& lit.getValue().isNumber()
+				&& lit.getValue().numberValue().compareTo(BigDecimal.ONE) == 0;
+	}
+	
+	private int[] code = new int[64];
+	private long[] positions = new long[64];
+	private int size = 0;
+	
+	private final List<Object> constants = new ArrayList<>();
+	private final Map<Object, Integer> constantIndices = new HashMap<>();
+	
+	private final List<Integer> handlers = new ArrayList<>();
+	
+	private int top = 0;
+	private int registers = 0;
+	
+	// number of environments entered by the chunk at the current offset
+	private int depth = 0;
+	private int scopes = 0;
+	
+	private final Deque<Loop> loops = new ArrayDeque<>();
+	
+	private BytecodeCompiler() { }
+	
+	private Chunk build(long position) {
+		return new Chunk(
+			position,
+			Arrays.copyOf(code, size),
+			constants.toArray(),
+			Arrays.copyOf(positions, size),
+			handlers.stream().mapToInt(Integer::intValue).toArray(),
+			registers,
+			scopes
+		);
+	}
+	
+	// emitting
+	
+	private int emit(Instruction instr, int opcode, int... operands) {
+		int pc = size;
+		
+		if(size + operands.length + 1 > code.length) {
+			int cap = Math.max(code.length * 2, size + operands.length + 1);
+			code = Arrays.copyOf(code, cap);
+			positions = Arrays.copyOf(positions, cap);
+		}
+		
+		positions[size] = instr.getPosition();
+		code[size++] = opcode;
+		
+		for(int operand : operands) {
+			positions[size] = instr.getPosition();
+			code[size++] = operand;
+		}
+		
+		return pc;
+	}
+	
+	// the jump target is always the last operand
+	private void patch(int pc) {
+		code[pc + Opcodes.getOperandCount(code[pc])] = size;
+	}
+	
+	private int constant(Object value) {
+		return constantIndices.computeIfAbsent(value, v -> {
+			constants.add(v);
+			return constants.size() - 1;
+		});
+	}
+	
+	private int alloc() {
+		registers = Math.max(registers, top + 1);
+		return top++;
+	}
+	
+	// blocks without variables run in the enclosing environment
+	private void enterScope(Instruction instr, int locals) {
+		if(locals == 0)
+			return;
+		
+		emit(instr, ENTER_SCOPE, locals);
+		scopes = Math.max(scopes, ++depth);
+	}
+	
+	private void exitScope(Instruction instr, int locals) {
+		if(locals != 0)
+			emit(instr, EXIT_SCOPE, --depth);
+	}
+	
+	// statements
+	
+	private void statement(Instruction instr) {
+		int saved = top;
+		
+		if(instr == null || instr instanceof EmptyInstruction);
+		
+		else if(instr instanceof StatementsInstruction n) {
+			enterScope(n, n.getLocals());
+			
+			for(Instruction statement : n.getInstructions())
+				statement(statement);
+			
+			exitScope(n, n.getLocals());
+		}
+		
+		else if(isExpression(instr))
+			expression(instr, alloc());
+		
+		else if(instr instanceof IfInstruction n)
+			ifStatement(n);
+		else if(instr instanceof WhileInstruction n)
+			whileStatement(n);
+		else if(instr instanceof DoWhileInstruction n)
+			doWhileStatement(n);
+		else if(instr instanceof ForInstruction n)
+			forStatement(n);
+		else if(instr instanceof TryCatchInstruction n)
+			tryCatchStatement(n);
+		
+		else if(instr instanceof BreakInstruction n)
+			jumpStatement(n, n.getLabel(), true);
+		else if(instr instanceof ContinueInstruction n)
+			jumpStatement(n, n.getLabel(), false);
+		
+		else if(instr instanceof YieldInstruction n)
+			emit(n, YIELD, operand(n.getValue()));
+		else if(instr instanceof ThrowInstruction n)
+			emit(n, THROW, operand(n.getValue()));
+		else if(instr instanceof ReturnInstruction n) {
+			if(n.getValue() == null)
+				emit(n, RETURN);
+			else emit(n, RETURN_VALUE, operand(n.getValue()));
+		}
+		
+		else throw Unsupported.INSTANCE;
+		
+		top = saved;
+	}
+	
+	private void ifStatement(IfInstruction instr) {
+		List<Integer> ends = new ArrayList<>();
+		
+		for(int i = 0; i < instr.getConditions().size(); ++i) {
+			int skip = emit(instr, JUMP_IF_FALSE, operand(instr.getConditions().get(i)), -1);
+			
+			statement(instr.getBodies().get(i));
+			
+			ends.add(emit(instr, JUMP, -1));
+			patch(skip);
+		}
+		
+		statement(instr.getElseBody());
+		
+		for(int end : ends)
+			patch(end);
+	}
+	
+	private void whileStatement(WhileInstruction instr) {
+		Loop loop = enterLoop(instr.getLabel());
+		
+		int start = size;
+		int exit = emit(instr, JUMP_IF_FALSE, operand(instr.getCondition()), -1);
+		
+		statement(instr.getBody());
+		emit(instr, JUMP, start);
+		
+		patch(exit);
+		exitLoop(loop, start);
+	}
+	
+	private void doWhileStatement(DoWhileInstruction instr) {
+		Loop loop = enterLoop(instr.getLabel());
+		
+		int start = size;
+		
+		statement(instr.getBody());
+		
+		int condition = size;
+		emit(instr, JUMP_IF_TRUE, operand(instr.getCondition()), start);
+		
+		exitLoop(loop, condition);
+	}
+	
+	private void forStatement(ForInstruction instr) {
+		// the variables of the initializer are visible in every iteration
+		enterScope(instr, instr.getLocals());
+		
+		for(Instruction init : instr.getInit())
+			statement(init);
+		
+		Loop loop = enterLoop(instr.getLabel());
+		
+		int start = size;
+		int exit = -1;
+		
+		if(instr.getCondition() != null)
+			exit = emit(instr, JUMP_IF_FALSE, operand(instr.getCondition()), -1);
+		
+		statement(instr.getBody());
+		
+		int update = size;
+		
+		for(Instruction expr : instr.getUpdate())
+			statement(expr);
+		
+		emit(instr, JUMP, start);
+		
+		if(exit != -1)
+			patch(exit);
+		
+		exitLoop(loop, update);
+		exitScope(instr, instr.getLocals());
+	}
+	
+	private void tryCatchStatement(TryCatchInstruction instr) {
+		int start = size;
+		int scope = depth;
+		
+		statement(instr.getTryBody());
+		
+		int end = size;
+		
+		// an empty try block cannot throw, so the catch block is unreachable
+		if(start == end)
+			return;
+		
+		int skip = emit(instr, JUMP, -1);
+		int reg = alloc();
+		
+		handlers.addAll(List.of(start, end, size, reg, scope));
+		
+		// the catch variable is always the first local of its scope
+		enterScope(instr, 1);
+		emit(instr, STORE_LOCAL, 0, 0, reg);
+		
+		statement(instr.getCatchBody());
+		
+		exitScope(instr, 1);
+		patch(skip);
+	}
+	
+	private void jumpStatement(Instruction instr, String label, boolean isBreak) {
+		for(Loop loop : loops)
+			if(label == null || label.equals(loop.label)) {
+				// leaves the blocks within the loop body
+				if(depth != loop.depth)
+					emit(instr, EXIT_SCOPE, loop.depth);
+				
+				(isBreak ? loop.breaks : loop.continues).add(emit(instr, JUMP, -1));
+				return;
+			}
+		
+		// not within this chunk, so the enclosing construct has to handle it
+		emit(instr, isBreak ? BREAK : CONTINUE, label == null ? -1 : constant(label));
+	}
+	
+	private Loop enterLoop(String label) {
+		Loop loop = new Loop(label, depth);
+		loops.push(loop);
+		return loop;
+	}
+	
+	private void exitLoop(Loop loop, int continueTarget) {
+		loops.pop();
+		
+		for(int pc : loop.breaks)
+			patch(pc);
+		
+		for(int pc : loop.continues)
+			code[pc + 1] = continueTarget;
+	}
+	
+	// expressions
+	
+	// new temporary holding the value of instr
+	private int operand(Instruction instr) {
+		int reg = alloc();
+		expression(instr, reg);
+		return reg;
+	}
+	
+	private void expression(Instruction instr, int dst) {
+		int saved = top;
+		
+		if(instr instanceof LiteralInstruction n)
+			emit(n, CONST, dst, constant(n.getValue()));
+		
+		else if(instr instanceof VariableInstruction n)
+			emit(n, LOAD_LOCAL, dst, n.getHops(), n.getSlot(), constant(n.getName()));
+		
+		else if(instr instanceof VarDeclInstruction n) {
+			if(n.getSlot() == -1)
+				throw Unsupported.INSTANCE;
+			
+			expression(n.getValue(), dst);
+			emit(n, STORE_LOCAL, n.getHops(), n.getSlot(), dst);
+		}
+		
+		else if(instr instanceof VarModInstruction n) {
+			if(n.getSlot() == -1)
+				throw Unsupported.INSTANCE;
+			
+			if(isIncrement(n))
+				emit(n, INC_LOCAL, dst, n.getHops(), n.getSlot(), constant(n));
+			else {
+				// the variable is read before the operand is evaluated
+				int current = alloc();
+				emit(n, LOAD_LOCAL, current, n.getHops(), n.getSlot(), constant(n.getName()));
+				emit(n, MODIFY_LOCAL, dst, current, operand(n.getValue()), n.getHops(), n.getSlot(), constant(n));
+			}
+		}
+		
+		else if(instr instanceof BinaryOpInstruction n) {
+			Token op = n.getOp();
+			int left = operand(n.getLeft());
+			
+			if(op.is(TokenType.AND, TokenType.OR)) {
+				int skip = emit(n, SHORT_CIRCUIT, dst, left, constant(op), -1);
+				emit(n, BINARY, dst, left, operand(n.getRight()), constant(op));
+				patch(skip);
+			}
+			else emit(n, BINARY, dst, left, operand(n.getRight()), constant(op));
+		}
+		
+		else if(instr instanceof UnaryOpInstruction n)
+			emit(n, UNARY, dst, operand(n.getTarget()), constant(n.getOp()));
+		
+		else if(instr instanceof TernaryOpInstruction n) {
+			int otherwise = emit(n, JUMP_IF_FALSE, operand(n.getCondition()), -1);
+			
+			expression(n.getResultThen(), dst);
+			int end = emit(n, JUMP, -1);
+			
+			patch(otherwise);
+			expression(n.getResultElse(), dst);
+			
+			patch(end);
+		}
+		
+		else if(instr instanceof ListInstruction n) {
+			List<Instruction> values = n.getValues();
+			int first = top;
+			
+			for(int i = 0; i < values.size(); ++i)
+				alloc();
+			
+			for(int i = 0; i < values.size(); ++i)
+				expression(values.get(i), first + i);
+			
+			emit(n, LIST, dst, first, values.size());
+		}
+		
+		else if(instr instanceof MapInstruction n) {
+			Map<RuntimeValue, Instruction> values = n.getValues();
+			int first = top;
+			int i = 0;
+			
+			for(int j = 0; j < values.size(); ++j) {
+				alloc();
+				alloc();
+			}
+			
+			for(Map.Entry<RuntimeValue, Instruction> part : values.entrySet()) {
+				emit(n, CONST, first + i * 2, constant(part.getKey()));
+				expression(part.getValue(), first + i * 2 + 1);
+				++i;
+			}
+			
+			emit(n, MAP, dst, first, values.size());
+		}
+		
+		else emit(instr, EVAL, dst, constant(instr));
+		
+		top = saved;
+	}
+	
+	private static class Loop {
+		
+		private final String label;
+		private final int depth;
+		private final List<Integer> breaks = new ArrayList<>();
+		private final List<Integer> continues = new ArrayList<>();
+		
+		private Loop(String label, int depth) {
+			this.label = label;
+			this.depth = depth;
+		}
+		
+	}
+	
+	private static class Unsupported extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private static final Unsupported INSTANCE = new Unsupported();
+		
+		private Unsupported() {
+			super(null, null, false, false);
+		}
+		
+	}
+
+}
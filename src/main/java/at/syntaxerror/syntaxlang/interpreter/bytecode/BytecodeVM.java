@@ -0,0 +1,377 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.bytecode;
+
+import static at.syntaxerror.syntaxlang.interpreter.bytecode.Opcodes.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.PrimitiveOperations;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.trace.Position;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class BytecodeVM {
+	
+	private static final RuntimeValue ONE = RuntimeValue.of(Position.NONE, BigDecimal.ONE);
+	
+	/*
+	 * Runs a chunk in a single dispatch loop. Values live in a register array, so no RuntimeResult
+	 * or InstructionData is allocated unless the chunk calls back into the runtime or exits.
+	 * Locals live in the environments of their blocks, scopes[depth] being the current one.
+	 */
+	public static RuntimeResult execute(@NonNull Chunk chunk, @NonNull InstructionData data) {
+		int[] code = chunk.getCode();
+		Object[] constants = chunk.getConstants();
+		long[] positions = chunk.getPositions();
+		RuntimeValue[] registers = new RuntimeValue[chunk.getRegisters()];
+		
+		RuntimeEnvironment env = data.env();
+		RuntimeEnvironment[] scopes = new RuntimeEnvironment[chunk.getScopes() + 1];
+		int depth = 0;
+		
+		scopes[0] = env;
+		
+		int pc = 0;
+		
+		while(true) {
+			RuntimeResult thrown;
+			
+			switch(code[pc]) {
+			case CONST:
+				registers[code[pc + 1]] = (RuntimeValue) constants[code[pc + 2]];
+				pc += 3;
+				continue;
+			
+			case MOVE:
+				registers[code[pc + 1]] = registers[code[pc + 2]];
+				pc += 3;
+				continue;
+			
+			case BINARY: {
+				RuntimeValue left = registers[code[pc + 2]];
+				RuntimeValue right = registers[code[pc + 3]];
+				Token op = (Token) constants[code[pc + 4]];
+				
+				// primitive fast path, skips the intermediate RuntimeResult
+				if(PrimitiveOperations.isPrimitive(left) && PrimitiveOperations.isPrimitive(right)) {
+					RuntimeValue result;
+					
+					try {
+						result = PrimitiveOperations.binary(positions[pc], left, op.getType(), right);
+					} catch (ArithmeticException e) {
+						result = null; // reported by the slow path below
+					}
+					
+					if(result != null) {
+						registers[code[pc + 1]] = result;
+						pc += 5;
+						continue;
+					}
+				}
+				
+				RuntimeResult res = BinaryOpInstruction.performOperation(data, positions[pc], left, op, right);
+				
+				if(res.isThrow()) {
+					thrown = res;
+					break;
+				}
+				
+				registers[code[pc + 1]] = value(data, positions[pc], res, "binary");
+				pc += 5;
+				continue;
+			}
+			
+			case UNARY: {
+				RuntimeValue target = registers[code[pc + 2]];
+				Token op = (Token) constants[code[pc + 3]];
+				
+				if(PrimitiveOperations.isPrimitive(target)) {
+					RuntimeValue result;
+					
+					try {
+						result = PrimitiveOperations.unary(positions[pc], op.getType(), target);
+					} catch (ArithmeticException e) {
+						result = null; // reported by the slow path below
+					}
+					
+					if(result != null) {
+						registers[code[pc + 1]] = result;
+						pc += 4;
+						continue;
+					}
+				}
+				
+				RuntimeResult res = UnaryOpInstruction.performOperation(data, positions[pc], op, target);
+				
+				if(res.isThrow()) {
+					thrown = res;
+					break;
+				}
+				
+				registers[code[pc + 1]] = value(data, positions[pc], res, "unary");
+				pc += 4;
+				continue;
+			}
+			
+			case SHORT_CIRCUIT: {
+				RuntimeValue left = registers[code[pc + 2]];
+				
+				if(left.isBoolean()) {
+					boolean value = left.booleanValue();
+					
+					// false && ... and true || ... do not evaluate the right operand
+					if(((Token) constants[code[pc + 3]]).is(TokenType.AND) != value) {
+						registers[code[pc + 1]] = RuntimeValue.of(positions[pc], value);
+						pc = code[pc + 4];
+						continue;
+					}
+				}
+				
+				pc += 5;
+				continue;
+			}
+			
+			case LIST: {
+				int first = code[pc + 2];
+				int count = code[pc + 3];
+				List<RuntimeValue> list = new ArrayList<>(count);
+				
+				for(int i = 0; i < count; ++i)
+					list.add(registers[first + i]);
+				
+				registers[code[pc + 1]] = RuntimeValue.of(positions[pc], list);
+				pc += 4;
+				continue;
+			}
+			
+			case MAP: {
+				int first = code[pc + 2];
+				int count = code[pc + 3];
+				Map<RuntimeValue, RuntimeValue> map = new HashMap<>();
+				
+				for(int i = 0; i < count; ++i)
+					map.put(registers[first + i * 2], registers[first + i * 2 + 1]);
+				
+				registers[code[pc + 1]] = RuntimeValue.of(positions[pc], map);
+				pc += 4;
+				continue;
+			}
+			
+			case LOAD_LOCAL: {
+				RuntimeValue value = env.getLocal(code[pc + 2], code[pc + 3]);
+				
+				// the slot is only empty if the declaration has not been executed
+				if(value == null)
+					undefined(data, positions[pc], (String) constants[code[pc + 4]]);
+				
+				registers[code[pc + 1]] = value;
+				pc += 5;
+				continue;
+			}
+			
+			case STORE_LOCAL:
+				env.setLocal(code[pc + 1], code[pc + 2], registers[code[pc + 3]]);
+				pc += 4;
+				continue;
+			
+			case MODIFY_LOCAL:
+			case INC_LOCAL: {
+				boolean inc = code[pc] == INC_LOCAL;
+				int hops = code[pc + (inc ? 2 : 4)];
+				int slot = code[pc + (inc ? 3 : 5)];
+				VarModInstruction mod = (VarModInstruction) constants[code[pc + (inc ? 4 : 6)]];
+				
+				RuntimeValue current;
+				RuntimeValue operand;
+				
+				if(inc) {
+					current = env.getLocal(hops, slot);
+					operand = ONE;
+					
+					if(current == null)
+						undefined(data, positions[pc], mod.getName());
+				} else {
+					current = registers[code[pc + 2]];
+					operand = registers[code[pc + 3]];
+				}
+				
+				RuntimeValue result = null;
+				
+				if(PrimitiveOperations.isPrimitive(current) && PrimitiveOperations.isPrimitive(operand))
+					try {
+						result = PrimitiveOperations.binary(positions[pc], current, mod.getOp().getType(), operand);
+					} catch (ArithmeticException e) {
+						// reported by the slow path below
+					}
+				
+				if(result == null) {
+					RuntimeResult res = mod.modify(data, current, operand);
+					
+					if(res.isThrow()) {
+						thrown = res;
+						break;
+					}
+					
+					result = res.getValue();
+				}
+				
+				env.setLocal(hops, slot, result);
+				registers[code[pc + 1]] = result;
+				pc += inc ? 5 : 7;
+				continue;
+			}
+			
+			case ENTER_SCOPE:
+				scopes[++depth] = env = env.buildScope(code[pc + 1]);
+				pc += 2;
+				continue;
+			
+			case EXIT_SCOPE:
+				env = scopes[depth = code[pc + 1]];
+				pc += 2;
+				continue;
+			
+			case EVAL: {
+				Instruction instr = (Instruction) constants[code[pc + 2]];
+				RuntimeResult res = env == data.env() ? instr.process(data) : instr.process(data, env);
+				
+				if(res.isThrow()) {
+					thrown = res;
+					break;
+				}
+				
+				registers[code[pc + 1]] = value(data, positions[pc], res, "evaluated");
+				pc += 3;
+				continue;
+			}
+			
+			case JUMP:
+				pc = code[pc + 1];
+				continue;
+			
+			case JUMP_IF_FALSE:
+				pc = condition(data, positions[pc], registers[code[pc + 1]]) ? pc + 3 : code[pc + 2];
+				continue;
+			
+			case JUMP_IF_TRUE:
+				pc = condition(data, positions[pc], registers[code[pc + 1]]) ? code[pc + 2] : pc + 3;
+				continue;
+			
+			case THROW:
+				thrown = new RuntimeResult().throwException(data.env().buildError(
+					registers[code[pc + 1]],
+					data.caller().className(),
+					data.caller().function(),
+					positions[pc]
+				));
+				break;
+			
+			case YIELD:
+				return new RuntimeResult().yieldValue(registers[code[pc + 1]]);
+			
+			case RETURN:
+				return new RuntimeResult().returnPlain();
+			
+			case RETURN_VALUE:
+				return new RuntimeResult().returnValue0(registers[code[pc + 1]]);
+			
+			case BREAK:
+				return code[pc + 1] == -1
+					? new RuntimeResult().breakPlain()
+					: new RuntimeResult().breakLabel((String) constants[code[pc + 1]]);
+			
+			case CONTINUE:
+				return code[pc + 1] == -1
+					? new RuntimeResult().continuePlain()
+					: new RuntimeResult().continueLabel((String) constants[code[pc + 1]]);
+			
+			case VALUE:
+				return new RuntimeResult().value(registers[code[pc + 1]]);
+			
+			case END:
+				return new RuntimeResult();
+			
+			default:
+				throw new SyntaxLangException("Invalid opcode %d at offset %d".formatted(code[pc], pc));
+			}
+			
+			// only reached when an exception was thrown
+			int handler = chunk.findHandler(pc);
+			
+			if(handler == -1)
+				return thrown;
+			
+			int[] handlers = chunk.getHandlers();
+			
+			// leaves the blocks entered within the try block
+			env = scopes[depth = handlers[handler + 4]];
+			
+			registers[handlers[handler + 3]] = thrown.getException().getValue();
+			pc = handlers[handler + 2];
+		}
+	}
+	
+	private static void undefined(InstructionData data, long position, String name) {
+		data.env().getInputEnvironment().terminate(
+			"Variable %s is not defined".formatted(name),
+			position
+		);
+	}
+	
+	private static RuntimeValue value(InstructionData data, long position, RuntimeResult result, String kind) {
+		if(!result.isNothing() || !result.hasValue())
+			data.env().getInputEnvironment().terminate(
+				"Invalid expression in %s operation".formatted(kind),
+				position
+			);
+		
+		return result.getValue();
+	}
+	
+	private static boolean condition(InstructionData data, long position, RuntimeValue value) {
+		if(!value.isBoolean())
+			data.env().getInputEnvironment().terminate(
+				"Expected condition to be of type boolean, got %s instead".formatted(value.getType()),
+				position
+			);
+		
+		return value.booleanValue();
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.bytecode;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class Chunk {
+	
+	/*
+	 * code       opcodes and operands, see Opcodes
+	 * constants  RuntimeValues, operator Tokens and label names
+	 * positions  source position of the instruction starting at each offset
+	 * handlers   exception table (start, end, target, register, depth), innermost entries first
+	 * scopes     maximum number of environments entered at once (see Opcodes#ENTER_SCOPE)
+	 */
+	
+	private final long position;
+	private final int[] code;
+	private final Object[] constants;
+	private final long[] positions;
+	private final int[] handlers;
+	private final int registers;
+	private final int scopes;
+	
+	// offset of the handler covering pc, storing the exception into handlers[i + 3]; -1 if there is none
+	int findHandler(int pc) {
+		for(int i = 0; i < handlers.length; i += 5)
+			if(pc >= handlers[i] && pc < handlers[i + 1])
+				return i;
+		
+		return -1;
+	}
+	
+	public String disassemble() {
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("registers: ").append(registers).append(", scopes: ").append(scopes).append('\n');
+		
+		for(int pc = 0; pc < code.length; ) {
+			int opcode = code[pc];
+			int operands = Opcodes.getOperandCount(opcode);
+			
+			sb.append("%4d  %-14s".formatted(pc, Opcodes.getName(opcode)));
+			
+			for(int i = 1; i <= operands; ++i)
+				sb.append(' ').append(code[pc + i]);
+			
+			sb.append('\n');
+			pc += operands + 1;
+		}
+		
+		for(int i = 0; i < handlers.length; i += 5)
+			sb.append("catch [%d, %d) -> %d, r%d, depth %d\n"
+				.formatted(handlers[i], handlers[i + 1], handlers[i + 2], handlers[i + 3], handlers[i + 4]));
+		
+		return sb.toString();
+	}
+
+}
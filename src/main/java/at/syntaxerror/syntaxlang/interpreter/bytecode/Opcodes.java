@@ -0,0 +1,89 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.bytecode;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class Opcodes {
+	
+	/*
+	 * Every instruction is an opcode followed by its operands. Registers and constant pool
+	 * indices are plain ints, jump targets are absolute offsets into the code array.
+	 */
+	
+	public static final int CONST = 0;			// dst, constant
+	public static final int MOVE = 1;			// dst, src
+	public static final int BINARY = 2;			// dst, left, right, operator constant
+	public static final int UNARY = 3;			// dst, src, operator constant
+	public static final int SHORT_CIRCUIT = 4;	// dst, src, operator constant, target
+	public static final int LIST = 5;			// dst, first, count
+	public static final int MAP = 6;			// dst, first, count (key/value pairs)
+	
+	public static final int JUMP = 7;			// target
+	public static final int JUMP_IF_FALSE = 8;	// src, target
+	public static final int JUMP_IF_TRUE = 9;	// src, target
+	
+	public static final int THROW = 10;			// src
+	public static final int YIELD = 11;			// src
+	public static final int RETURN = 12;		//
+	public static final int RETURN_VALUE = 13;	// src
+	public static final int BREAK = 14;			// label constant or -1
+	public static final int CONTINUE = 15;		// label constant or -1
+	public static final int VALUE = 16;			// src
+	public static final int END = 17;			//
+	
+	// locals are addressed like in the instruction tree, see ScopeResolver
+	public static final int LOAD_LOCAL = 18;	// dst, hops, slot, name constant
+	public static final int STORE_LOCAL = 19;	// hops, slot, src
+	public static final int MODIFY_LOCAL = 20;	// dst, current, operand, hops, slot, VarModInstruction constant
+	public static final int INC_LOCAL = 21;		// dst, hops, slot, VarModInstruction constant (by one)
+	public static final int ENTER_SCOPE = 22;	// locals
+	public static final int EXIT_SCOPE = 23;	// depth of the environment to return to
+	
+	public static final int EVAL = 24;			// dst, Instruction constant
+	
+	private static final String[] NAMES = {
+		"CONST", "MOVE", "BINARY", "UNARY", "SHORT_CIRCUIT", "LIST", "MAP",
+		"JUMP", "JUMP_IF_FALSE", "JUMP_IF_TRUE",
+		"THROW", "YIELD", "RETURN", "RETURN_VALUE", "BREAK", "CONTINUE", "VALUE", "END",
+		"LOAD_LOCAL", "STORE_LOCAL", "MODIFY_LOCAL", "INC_LOCAL", "ENTER_SCOPE", "EXIT_SCOPE",
+		"EVAL"
+	};
+	
+	private static final int[] OPERANDS = {
+		2, 2, 4, 3, 4, 3, 3,
+		1, 2, 2,
+		1, 1, 0, 1, 1, 1, 1, 0,
+		4, 3, 6, 4, 1, 1,
+		2
+	};
+	
+	public static String getName(int opcode) {
+		return NAMES[opcode];
+	}
+	
+	public static int getOperandCount(int opcode) {
+		return OPERANDS[opcode];
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.flat;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class FlatCode {
+	
+	/*
+	 * An instruction tree laid out in preorder. Node i is described by the i-th entry of every
+	 * array, its first child (if any) is node i + 1 and the sibling following it is next[i].
+	 * 
+	 * opcodes    kind of the node, see below
+	 * operands   constant index, slot or scope size, depending on the opcode
+	 * counts     hops or number of children, depending on the opcode
+	 * next       index of the first node after the subtree
+	 * constants  RuntimeValues and operator Tokens
+	 * sources    instruction each node was created from
+	 * depth      number of nested nodes on the deepest path, bounds the interpreter's stacks
+	 */
+	
+	public static final int FALLBACK = 0;		// runs the source instruction
+	public static final int LITERAL = 1;		// value constant
+	public static final int VARIABLE = 2;		// slot, hops
+	public static final int DECLARE = 3;		// slot, hops; value
+	public static final int MODIFY = 4;			// slot, hops; value
+	public static final int BINARY = 5;			// left, right
+	public static final int SHORT_CIRCUIT = 6;	// 1 for ||, 0 for &&; left, right
+	public static final int UNARY = 7;			// operator constant; target
+	public static final int TERNARY = 8;		// condition, then, else
+	public static final int STATEMENTS = 9;		// locals; statements
+	public static final int IF = 10;			// -, number of conditions; (condition, body)*, else
+	public static final int WHILE = 11;			// condition, body
+	public static final int DO_WHILE = 12;		// body, condition
+	public static final int FOR = 13;			// locals, number of initializers; init*, condition?, body, update*
+	
+	private final int[] opcodes;
+	private final int[] operands;
+	private final int[] counts;
+	private final int[] next;
+	private final Object[] constants;
+	private final Instruction[] sources;
+	private final int depth;
+	
+	public long getPosition() {
+		return sources[0].getPosition();
+	}
+	
+	public int size() {
+		return opcodes.length;
+	}
+
+}
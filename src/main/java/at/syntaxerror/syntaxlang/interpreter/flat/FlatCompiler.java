@@ -0,0 +1,222 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.flat;
+
+import static at.syntaxerror.syntaxlang.interpreter.flat.FlatCode.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import lombok.NonNull;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class FlatCompiler {
+	
+	/*
+	 * Lays out resolved instruction trees as FlatCode. Instructions without a flat form
+	 * (calls, try/catch, collections, ...) are kept as FALLBACK leaves and run as objects,
+	 * so a statement is only partially flattened instead of not at all.
+	 */
+	public static FlatCode compile(@NonNull Instruction instruction) {
+		FlatCompiler compiler = new FlatCompiler();
+		compiler.node(instruction);
+		return compiler.build();
+	}
+	
+	public static Instruction makeInstruction(@NonNull Instruction instruction) {
+		FlatCode code = compile(instruction);
+		
+		// nothing to gain from a single object that is run as-is
+		if(code.size() == 1 && code.getOpcodes()[0] == FALLBACK)
+			return instruction;
+		
+		return FlatInstruction.of(code);
+	}
+	
+	public static List<Instruction> makeInstructions(@NonNull List<Instruction> instructions) {
+		return instructions.stream()
+				.map(FlatCompiler::makeInstruction)
+				.toList();
+	}
+	
+	private int[] opcodes = new int[64];
+	private int[] operands = new int[64];
+	private int[] counts = new int[64];
+	private int[] next = new int[64];
+	private Instruction[] sources = new Instruction[64];
+	private int size = 0;
+	private int depth = 0;
+	private int maxDepth = 0;
+	
+	private final List<Object> constants = new ArrayList<>();
+	
+	private FlatCompiler() { }
+	
+	private FlatCode build() {
+		return new FlatCode(
+			Arrays.copyOf(opcodes, size),
+			Arrays.copyOf(operands, size),
+			Arrays.copyOf(counts, size),
+			Arrays.copyOf(next, size),
+			constants.toArray(),
+			Arrays.copyOf(sources, size),
+			maxDepth
+		);
+	}
+	
+	// emitting
+	
+	private int emit(Instruction source, int opcode, int operand, int count) {
+		if(size == opcodes.length) {
+			int cap = size * 2;
+			opcodes = Arrays.copyOf(opcodes, cap);
+			operands = Arrays.copyOf(operands, cap);
+			counts = Arrays.copyOf(counts, cap);
+			next = Arrays.copyOf(next, cap);
+			sources = Arrays.copyOf(sources, cap);
+		}
+		
+		opcodes[size] = opcode;
+		operands[size] = operand;
+		counts[size] = count;
+		sources[size] = source;
+		
+		return size++;
+	}
+	
+	private int constant(Object value) {
+		constants.add(value);
+		return constants.size() - 1;
+	}
+	
+	// the subtree of a node ends once all of its children have been emitted
+	private void close(int idx) {
+		next[idx] = size;
+	}
+	
+	private void nodes(List<Instruction> instructions) {
+		for(Instruction instr : instructions)
+			node(instr);
+	}
+	
+	private void node(Instruction instr) {
+		int idx;
+		
+		maxDepth = Math.max(maxDepth, ++depth);
+		
+		if(instr instanceof LiteralInstruction n)
+			idx = emit(n, LITERAL, constant(n.getValue()), 0);
+		
+		else if(instr instanceof VariableInstruction n)
+			idx = emit(n, VARIABLE, n.getSlot(), n.getHops());
+		
+		else if(instr instanceof VarDeclInstruction n && n.getSlot() != -1) {
+			idx = emit(n, DECLARE, n.getSlot(), n.getHops());
+			node(n.getValue());
+		}
+		
+		else if(instr instanceof VarModInstruction n && n.getSlot() != -1) {
+			idx = emit(n, MODIFY, n.getSlot(), n.getHops());
+			node(n.getValue());
+		}
+		
+		else if(instr instanceof BinaryOpInstruction n) {
+			idx = n.getOp().is(TokenType.AND, TokenType.OR)
+				? emit(n, SHORT_CIRCUIT, n.getOp().is(TokenType.OR) ? 1 : 0, 0)
+				: emit(n, BINARY, 0, 0);
+			
+			node(n.getLeft());
+			node(n.getRight());
+		}
+		
+		else if(instr instanceof UnaryOpInstruction n) {
+			idx = emit(n, UNARY, constant(n.getOp()), 0);
+			node(n.getTarget());
+		}
+		
+		else if(instr instanceof TernaryOpInstruction n) {
+			idx = emit(n, TERNARY, 0, 0);
+			node(n.getCondition());
+			node(n.getResultThen());
+			node(n.getResultElse());
+		}
+		
+		else if(instr instanceof StatementsInstruction n) {
+			idx = emit(n, STATEMENTS, n.getLocals(), n.getInstructions().size());
+			nodes(n.getInstructions());
+		}
+		
+		else if(instr instanceof IfInstruction n) {
+			idx = emit(n, IF, 0, n.getConditions().size());
+			
+			for(int i = 0; i < n.getConditions().size(); ++i) {
+				node(n.getConditions().get(i));
+				node(n.getBodies().get(i));
+			}
+			
+			node(n.getElseBody());
+		}
+		
+		else if(instr instanceof WhileInstruction n) {
+			idx = emit(n, WHILE, 0, 0);
+			node(n.getCondition());
+			node(n.getBody());
+		}
+		
+		else if(instr instanceof DoWhileInstruction n) {
+			idx = emit(n, DO_WHILE, 0, 0);
+			node(n.getBody());
+			node(n.getCondition());
+		}
+		
+		else if(instr instanceof ForInstruction n) {
+			idx = emit(n, FOR, n.getLocals(), n.getInit().size());
+			nodes(n.getInit());
+			
+			if(n.getCondition() != null)
+				node(n.getCondition());
+			
+			node(n.getBody());
+			nodes(n.getUpdate());
+		}
+		
+		else idx = emit(instr, FALLBACK, 0, 0);
+		
+		close(idx);
+		--depth;
+	}
+
+}
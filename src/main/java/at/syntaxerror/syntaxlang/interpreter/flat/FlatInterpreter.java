@@ -0,0 +1,533 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.flat;
+
+import static at.syntaxerror.syntaxlang.interpreter.flat.FlatCode.*;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import lombok.NonNull;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class FlatInterpreter {
+	
+	
+	/*
+	 * Walks FlatCode by index with the same semantics as the instruction objects it was
+	 * created from. Operations with inline caches (binary operators, modifications) are
+	 * still delegated to their source instruction, so both formats share the caches.
+	 * 
+	 * Instead of recursing per node, a single loop dispatches on the frame at the top of an
+	 * explicit frame stack. A node completes either normally, leaving its value (or null)
+	 * in acc, or abruptly (throw, return, break, ...), leaving the result in signal.
+	 * Operands that are evaluated before their sibling are kept on the value stack.
+	 */
+	public static RuntimeResult execute(@NonNull FlatCode code, @NonNull InstructionData data) {
+		return new FlatInterpreter(code).run(data);
+	}
+	
+	// phases shared by the nodes, more specific meanings are documented in run
+	private static final int ENTER = 0;
+	private static final int FIRST = 1;
+	private static final int SECOND = 2;
+	private static final int THIRD = 3;
+	private static final int FOURTH = 4;
+	private static final int HEAD = 5;
+	
+	private final int[] opcodes;
+	private final int[] operands;
+	private final int[] counts;
+	private final int[] next;
+	private final Object[] constants;
+	private final Instruction[] sources;
+	
+	// frame stack
+	private final int[] nodes;
+	private final int[] phases;
+	private final int[] cursors;
+	private final int[] marks;
+	private final InstructionData[] datas;
+	private int fp = 0;
+	
+	// value stack
+	private final RuntimeValue[] values;
+	private int sp = 0;
+	
+	// completion of the node that was left last
+	private RuntimeValue acc;
+	private RuntimeResult signal;
+	
+	private FlatInterpreter(FlatCode code) {
+		opcodes = code.getOpcodes();
+		operands = code.getOperands();
+		counts = code.getCounts();
+		next = code.getNext();
+		constants = code.getConstants();
+		sources = code.getSources();
+		
+		int depth = code.getDepth();
+		nodes = new int[depth];
+		phases = new int[depth];
+		cursors = new int[depth];
+		marks = new int[depth];
+		datas = new InstructionData[depth];
+		values = new RuntimeValue[depth];
+	}
+	
+	private void enter(int idx, InstructionData data) {
+		nodes[fp] = idx;
+		phases[fp] = ENTER;
+		datas[fp++] = data;
+	}
+	
+	// runs a child and resumes the current frame in the given phase once it completes
+	private void call(int f, int phase, int idx, InstructionData data) {
+		phases[f] = phase;
+		enter(idx, data);
+	}
+	
+	// replaces the current frame with a child whose completion is the frame's own
+	private void jump(int f, int idx) {
+		nodes[f] = idx;
+		phases[f] = ENTER;
+	}
+	
+	private void complete(RuntimeResult result) {
+		if(result.isNothing()) {
+			acc = result.hasValue() ? result.getValue() : null;
+			signal = null;
+		}
+		else {
+			acc = null;
+			signal = result;
+		}
+	}
+	
+	private RuntimeResult run(InstructionData root) {
+		enter(0, root);
+		
+		while(fp > 0) {
+			int f = fp - 1;
+			int idx = nodes[f];
+			InstructionData data = datas[f];
+			
+			switch(opcodes[idx]) {
+			case FALLBACK:
+				complete(sources[idx].process(data));
+				--fp;
+				break;
+			
+			case LITERAL:
+				acc = (RuntimeValue) constants[operands[idx]];
+				--fp;
+				break;
+			
+			case VARIABLE:
+				acc = data.env().getLocal(counts[idx], operands[idx]);
+				
+				// the slot is only empty if the declaration has not been executed
+				if(acc == null)
+					undefined(data, idx);
+				
+				--fp;
+				break;
+			
+			case DECLARE:
+				if(phases[f] == ENTER) {
+					call(f, FIRST, idx + 1, data);
+					break;
+				}
+				
+				if(!failed(data, idx + 1, "Invalid expression in variable declaration"))
+					data.env().setLocal(counts[idx], operands[idx], acc);
+				
+				--fp;
+				break;
+			
+			case MODIFY: {
+				if(phases[f] == ENTER) {
+					RuntimeValue current = data.env().getLocal(counts[idx], operands[idx]);
+					
+					if(current == null)
+						undefined(data, idx);
+					
+					values[sp++] = current;
+					call(f, FIRST, idx + 1, data);
+					break;
+				}
+				
+				RuntimeValue current = values[--sp];
+				
+				if(!failed(data, idx + 1, "Invalid expression in variable modification")) {
+					RuntimeResult result = ((VarModInstruction) sources[idx]).modify(data, current, acc);
+					complete(result);
+					
+					if(!result.isThrow())
+						data.env().setLocal(counts[idx], operands[idx], result.getValue());
+				}
+				
+				--fp;
+				break;
+			}
+			
+			case BINARY:
+			case SHORT_CIRCUIT: {
+				int left = idx + 1;
+				
+				// FIRST: left operand done, SECOND: right operand done
+				if(phases[f] == ENTER) {
+					call(f, FIRST, left, data);
+					break;
+				}
+				
+				if(phases[f] == FIRST) {
+					if(failed(data, left, "Invalid expression in binary operation")) {
+						--fp;
+						break;
+					}
+					
+					// false && ... and true || ... don't evaluate the right expression
+					if(opcodes[idx] == SHORT_CIRCUIT && acc.isBoolean() && acc.booleanValue() == (operands[idx] == 1)) {
+						acc = RuntimeValue.of(sources[idx].getPosition(), acc.booleanValue());
+						--fp;
+						break;
+					}
+					
+					values[sp++] = acc;
+					call(f, SECOND, next[left], data);
+					break;
+				}
+				
+				RuntimeValue leftValue = values[--sp];
+				
+				if(!failed(data, left, "Invalid expression in binary operation"))
+					complete(((BinaryOpInstruction) sources[idx]).operate(data, leftValue, acc));
+				
+				--fp;
+				break;
+			}
+			
+			case UNARY:
+				if(phases[f] == ENTER) {
+					call(f, FIRST, idx + 1, data);
+					break;
+				}
+				
+				if(!failed(data, idx + 1, "Invalid expression in unary operation"))
+					complete(UnaryOpInstruction.performOperation(
+						data,
+						sources[idx].getPosition(),
+						(Token) constants[operands[idx]],
+						acc
+					));
+				
+				--fp;
+				break;
+			
+			case TERNARY: {
+				int condition = idx + 1;
+				
+				if(phases[f] == ENTER) {
+					call(f, FIRST, condition, data);
+					break;
+				}
+				
+				if(thrown())
+					--fp;
+				else jump(f, isTrue(data, condition) ? next[condition] : next[next[condition]]);
+				
+				break;
+			}
+			
+			case STATEMENTS:
+				// cursor: statement that is running
+				if(phases[f] == ENTER) {
+					// blocks without variables run in the enclosing environment
+					if(operands[idx] != 0)
+						datas[f] = data = new InstructionData(data.env().buildScope(operands[idx]), data.caller());
+					
+					cursors[f] = idx + 1;
+				}
+				else if(signal != null) {
+					--fp;
+					break;
+				}
+				else cursors[f] = next[cursors[f]];
+				
+				if(cursors[f] < next[idx])
+					call(f, FIRST, cursors[f], data.at(data.env(), sources[cursors[f]].getPosition()));
+				else {
+					acc = null;
+					--fp;
+				}
+				
+				break;
+			
+			case IF:
+				// cursor: condition that is being tested
+				if(phases[f] == ENTER)
+					cursors[f] = idx + 1;
+				else if(thrown()) {
+					--fp;
+					break;
+				}
+				else if(isTrue(data, cursors[f])) {
+					jump(f, next[cursors[f]]);
+					break;
+				}
+				else cursors[f] = next[next[cursors[f]]];
+				
+				// the else body is the last child
+				if(next[cursors[f]] == next[idx])
+					jump(f, cursors[f]);
+				else call(f, FIRST, cursors[f], data);
+				
+				break;
+			
+			case WHILE: {
+				int condition = idx + 1;
+				
+				// FIRST: condition done, SECOND: body done
+				switch(phases[f]) {
+				case ENTER:
+					call(f, FIRST, condition, data);
+					break;
+				
+				case FIRST:
+					if(thrown())
+						--fp;
+					else if(!isTrue(data, condition))
+						exit();
+					else call(f, SECOND, next[condition], data);
+					break;
+				
+				default:
+					if(exits(((WhileInstruction) sources[idx]).getLabel()))
+						--fp;
+					else call(f, FIRST, condition, data);
+					break;
+				}
+				break;
+			}
+			
+			case DO_WHILE: {
+				int body = idx + 1;
+				
+				// FIRST: body done, SECOND: condition done
+				switch(phases[f]) {
+				case ENTER:
+					call(f, FIRST, body, data);
+					break;
+				
+				case FIRST:
+					if(exits(((DoWhileInstruction) sources[idx]).getLabel()))
+						--fp;
+					else call(f, SECOND, next[body], data);
+					break;
+				
+				default:
+					if(thrown())
+						--fp;
+					else if(!isTrue(data, next[body]))
+						exit();
+					else call(f, FIRST, body, data);
+					break;
+				}
+				break;
+			}
+			
+			case FOR: {
+				ForInstruction loop = (ForInstruction) sources[idx];
+				
+				/*
+				 * mark: first node after the initializers (condition or body)
+				 * cursor: initializer or update that is running
+				 * 
+				 * FIRST: initializer done, SECOND: condition done, THIRD: body done,
+				 * FOURTH: update done, HEAD: next iteration
+				 */
+				switch(phases[f]) {
+				case ENTER: {
+					datas[f] = data = operands[idx] == 0
+						? data.at(loop.getPosition())
+						: data.at(data.env().buildScope(operands[idx]), loop.getPosition());
+					
+					int child = idx + 1;
+					
+					for(int i = 0; i < counts[idx]; ++i)
+						child = next[child];
+					
+					marks[f] = child;
+					cursors[f] = idx + 1;
+					
+					if(cursors[f] < marks[f])
+						call(f, FIRST, cursors[f], data);
+					else phases[f] = HEAD;
+					break;
+				}
+				
+				case FIRST:
+					if(thrown()) {
+						--fp;
+						break;
+					}
+					
+					cursors[f] = next[cursors[f]];
+					
+					if(cursors[f] < marks[f])
+						call(f, FIRST, cursors[f], data);
+					else phases[f] = HEAD;
+					break;
+				
+				case HEAD:
+					if(loop.getCondition() != null)
+						call(f, SECOND, marks[f], data);
+					else call(f, THIRD, marks[f], data);
+					break;
+				
+				case SECOND:
+					if(thrown())
+						--fp;
+					else if(!isTrue(data, marks[f]))
+						exit();
+					else call(f, THIRD, next[marks[f]], data);
+					break;
+				
+				case THIRD: {
+					if(exits(loop.getLabel())) {
+						--fp;
+						break;
+					}
+					
+					int body = loop.getCondition() == null ? marks[f] : next[marks[f]];
+					cursors[f] = next[body];
+					
+					if(cursors[f] < next[idx])
+						call(f, FOURTH, cursors[f], data);
+					else phases[f] = HEAD;
+					break;
+				}
+				
+				default:
+					if(thrown()) {
+						--fp;
+						break;
+					}
+					
+					cursors[f] = next[cursors[f]];
+					
+					if(cursors[f] < next[idx])
+						call(f, FOURTH, cursors[f], data);
+					else phases[f] = HEAD;
+					break;
+				}
+				break;
+			}
+			
+			default:
+				throw new SyntaxLangException("Invalid flat opcode: " + opcodes[idx]);
+			}
+		}
+		
+		if(signal != null)
+			return signal;
+		
+		return acc == null ? new RuntimeResult() : new RuntimeResult().value(acc);
+	}
+	
+	// whether the child threw; other abrupt completions are dropped like the instructions do
+	private boolean thrown() {
+		if(signal == null)
+			return false;
+		
+		if(signal.isThrow())
+			return true;
+		
+		signal = null;
+		return false;
+	}
+	
+	// whether the child threw; any other completion without a value terminates
+	private boolean failed(InstructionData data, int idx, String message) {
+		if(signal != null && signal.isThrow())
+			return true;
+		
+		if(signal != null || acc == null)
+			data.env().getInputEnvironment().terminate(message, sources[idx].getPosition());
+		
+		return false;
+	}
+	
+	private boolean isTrue(InstructionData data, int idx) {
+		if(acc == null)
+			data.env().getInputEnvironment().terminate("Invalid expression in condition", sources[idx].getPosition());
+		
+		return IfInstruction.isTrue(data, sources[idx], acc);
+	}
+	
+	// loops complete without a value
+	private void exit() {
+		acc = null;
+		--fp;
+	}
+	
+	// applies a loop body's completion, returns whether the loop is left
+	private boolean exits(String label) {
+		if(signal == null)
+			return false;
+		
+		boolean own = !signal.hasLabel() || signal.getLabel().equals(label);
+		
+		if(signal.isContinue() && own) {
+			signal = null;
+			return false;
+		}
+		
+		if(signal.isBreak() && own) {
+			signal = null;
+			acc = null;
+		}
+		
+		return true;
+	}
+	
+	private void undefined(InstructionData data, int idx) {
+		String name = sources[idx] instanceof VariableInstruction var
+			? var.getName()
+			: ((VarModInstruction) sources[idx]).getName();
+		
+		data.env().getInputEnvironment().terminate("Variable %s is not defined".formatted(name), sources[idx].getPosition());
+	}
+
+}
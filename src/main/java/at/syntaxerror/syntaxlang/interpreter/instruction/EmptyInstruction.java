@@ -18,7 +18,6 @@
 package at.syntaxerror.syntaxlang.interpreter.instruction;
 
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -30,12 +29,12 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public class EmptyInstruction implements Instruction {
 
-	public static EmptyInstruction of(Position position) {
+	public static EmptyInstruction of(long position) {
 		return new EmptyInstruction(position);
 	}
 	
 	@Getter
-	private final Position position;
+	private final long position;
 	
 	@Override
 	public RuntimeResult process(InstructionData data) {
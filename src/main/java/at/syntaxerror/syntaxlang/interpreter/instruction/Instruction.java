@@ -19,7 +19,6 @@ package at.syntaxerror.syntaxlang.interpreter.instruction;
 
 import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
-import at.syntaxerror.syntaxlang.trace.Position;
 
 /**
  * @author SyntaxError
@@ -29,7 +28,7 @@ public interface Instruction {
 	
 	RuntimeResult process(InstructionData env);
 	
-	Position getPosition();
+	long getPosition();
 	
 	default RuntimeResult process(InstructionData data, RuntimeEnvironment env) {
 		return process(data.at(env, getPosition()));
@@ -19,7 +19,6 @@ package at.syntaxerror.syntaxlang.interpreter.instruction;
 
 import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
 import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeStackTraceElement;
-import at.syntaxerror.syntaxlang.trace.Position;
 
 /**
  * @author SyntaxError
@@ -27,7 +26,7 @@ import at.syntaxerror.syntaxlang.trace.Position;
  */
 public record InstructionData(RuntimeEnvironment env, RuntimeStackTraceElement caller) {
 
-	public InstructionData at(RuntimeEnvironment env, Position position) {
+	public InstructionData at(RuntimeEnvironment env, long position) {
 		return new InstructionData(
 			env,
 			new RuntimeStackTraceElement(
@@ -35,11 +34,11 @@ public record InstructionData(RuntimeEnvironment env, RuntimeStackTraceElement c
 				caller().namespace(),
 				caller().className(),
 				caller().function(),
-				position.line()
+				env.getInputEnvironment().getLine(position)
 			)
 		);
 	}
-	public InstructionData at(Position position) {
+	public InstructionData at(long position) {
 		return new InstructionData(
 			env(),
 			new RuntimeStackTraceElement(
@@ -47,7 +46,7 @@ public record InstructionData(RuntimeEnvironment env, RuntimeStackTraceElement c
 				caller().namespace(),
 				caller().className(),
 				caller().function(),
-				position.line()
+				env().getInputEnvironment().getLine(position)
 			)
 		);
 	}
@@ -25,7 +25,6 @@ import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.parser.node.ListNode;
 import at.syntaxerror.syntaxlang.parser.node.Node;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -44,10 +43,14 @@ public class ListInstruction implements Instruction {
 		for(Node n : node.getValues())
 			values.add(Interpreter.makeInstruction(n));
 		
-		return new ListInstruction(node.getPosition(), values);
+		return of(node.getPosition(), values);
 	}
 	
-	private final Position position;
+	public static Instruction of(long position, List<Instruction> values) {
+		return new ListInstruction(position, values);
+	}
+	
+	private final long position;
 	private final List<Instruction> values;
 	
 	@Override
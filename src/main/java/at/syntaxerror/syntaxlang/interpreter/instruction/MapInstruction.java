@@ -27,9 +27,9 @@ import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruct
 import at.syntaxerror.syntaxlang.interpreter.instruction.literal.NullInstruction;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
 import at.syntaxerror.syntaxlang.parser.node.MapNode;
 import at.syntaxerror.syntaxlang.parser.node.MapPartNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -45,32 +45,40 @@ public class MapInstruction implements Instruction {
 	public static Instruction of(MapNode node) {
 		Map<RuntimeValue, Instruction> values = new HashMap<>();
 		
-		for(MapPartNode n : node.getValues()) {
-			Instruction keyInstruction = LiteralInstruction.of(n.getName());
-			Instruction valueInstruction = Interpreter.makeInstruction(n.getValue());
+		for(MapPartNode n : node.getValues())
+			values.put(key(n.getName()), Interpreter.makeInstruction(n.getValue()));
+		
+		return of(node.getPosition(), values);
+	}
+	
+	public static RuntimeValue key(Token name) {
+		Instruction keyInstruction = LiteralInstruction.of(name);
+		
+		if(keyInstruction instanceof LiteralInstruction lit) {
+			if(lit instanceof NullInstruction)
+				throw new SyntaxLangException("Map key is null");
 			
-			if(keyInstruction instanceof LiteralInstruction lit) {
-				if(lit instanceof NullInstruction)
-					throw new SyntaxLangException("Map key is null");
-				
-				values.put(lit.getValue(), valueInstruction);
-			}
-			else if(keyInstruction instanceof IdentifierInstruction id)
-				values.put(RuntimeValue.of(id.getPosition(), id.getValue()), valueInstruction);
-			else throw new SyntaxLangException("Invalid map key: " + valueInstruction);
+			return lit.getValue();
 		}
 		
-		return new MapInstruction(node.getPosition(), values);
+		if(keyInstruction instanceof IdentifierInstruction id)
+			return RuntimeValue.of(id.getPosition(), id.getValue());
+		
+		throw new SyntaxLangException("Invalid map key: " + keyInstruction);
+	}
+	
+	public static Instruction of(long position, Map<RuntimeValue, Instruction> values) {
+		return new MapInstruction(position, values);
 	}
 	
-	private final Position position;
+	private final long position;
 	private final Map<RuntimeValue, Instruction> values;
 	
 	@Override
 	public RuntimeResult process(InstructionData env) {
 		Map<RuntimeValue, RuntimeValue> runtimeValues = new HashMap<>();
 		
-		for(RuntimeValue key : runtimeValues.keySet()) {
+		for(RuntimeValue key : values.keySet()) {
 			Instruction instruction = values.get(key);
 			
 			RuntimeResult value = instruction.process(env.at(instruction.getPosition()));
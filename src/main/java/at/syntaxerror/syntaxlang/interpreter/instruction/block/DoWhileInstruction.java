@@ -17,11 +17,12 @@
  */
 package at.syntaxerror.syntaxlang.interpreter.instruction.block;
 
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.jit.LoopTier;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
 import at.syntaxerror.syntaxlang.parser.node.DoWhileNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -33,18 +34,48 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 @Getter
 public class DoWhileInstruction implements Instruction {
-
+	
 	public static Instruction of(DoWhileNode node) {
-		
-		return new DoWhileInstruction(node.getPosition());
+		return of(
+			node.getPosition(),
+			WhileInstruction.label(node.getLabel()),
+			Interpreter.makeInstruction(node.getCondition()),
+			Interpreter.makeInstruction(node.getBody())
+		);
 	}
 	
-	private final Position position;
+	public static Instruction of(long position, String label, Instruction condition, Instruction body) {
+		return new DoWhileInstruction(position, label, condition, body);
+	}
+	
+	private final long position;
+	private final String label;
+	private final Instruction condition;
+	private final Instruction body;
+	
+	private final transient LoopTier tier = LoopTier.of(this);
 	
 	@Override
-	public RuntimeResult process(InstructionData env) {
-		
-		return new RuntimeResult();
+	public RuntimeResult process(InstructionData data) {
+		while(true) {
+			Instruction compiled = tier.header();
+			
+			if(compiled != null)
+				return compiled.process(data);
+			
+			RuntimeResult result = WhileInstruction.afterBody(label, body.process(data));
+			
+			if(result != null)
+				return result;
+			
+			result = condition.process(data);
+			
+			if(result.isThrow())
+				return result;
+			
+			if(!IfInstruction.isTrue(data, condition, result))
+				return new RuntimeResult();
+		}
 	}
 
 }
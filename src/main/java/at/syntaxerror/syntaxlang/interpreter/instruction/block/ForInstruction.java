@@ -17,11 +17,18 @@
  */
 package at.syntaxerror.syntaxlang.interpreter.instruction.block;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.jit.LoopTier;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.parser.node.EmptyNode;
 import at.syntaxerror.syntaxlang.parser.node.ForNode;
-import at.syntaxerror.syntaxlang.trace.Position;
+import at.syntaxerror.syntaxlang.parser.node.Node;
+import at.syntaxerror.syntaxlang.parser.node.VarDeclNode;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -33,18 +40,84 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 @Getter
 public class ForInstruction implements Instruction {
-
+	
 	public static Instruction of(ForNode node) {
+		List<Instruction> init = new ArrayList<>();
+		List<Instruction> update = new ArrayList<>();
+		
+		for(VarDeclNode n : node.getInit())
+			init.add(Interpreter.makeInstruction(n));
+		
+		for(Node n : node.getUpdate())
+			update.add(Interpreter.makeInstruction(n));
+		
+		Node condition = node.getCondition();
 		
-		return new ForInstruction(node.getPosition());
+		return of(
+			node.getPosition(),
+			WhileInstruction.label(node.getLabel()),
+			init,
+			condition == null || condition instanceof EmptyNode ? null : Interpreter.makeInstruction(condition),
+			update,
+			Interpreter.makeInstruction(node.getBody()),
+			0
+		);
 	}
 	
-	private final Position position;
+	public static Instruction of(long position, String label, List<Instruction> init, Instruction condition,
+			List<Instruction> update, Instruction body, int locals) {
+		return new ForInstruction(position, label, init, condition, update, body, locals);
+	}
+	
+	private final long position;
+	private final String label;
+	private final List<Instruction> init;
+	private final Instruction condition; // null if the loop has no condition
+	private final List<Instruction> update;
+	private final Instruction body;
+	
+	// variables declared in the initializer live in their own scope, if there are any
+	private final int locals;
+	
+	private final transient LoopTier tier = LoopTier.of(this);
 	
 	@Override
-	public RuntimeResult process(InstructionData env) {
+	public RuntimeResult process(InstructionData data) {
+		data = locals == 0
+			? data.at(position)
+			: data.at(data.env().buildScope(locals), position);
+		
+		RuntimeResult result;
+		
+		for(Instruction instr : init)
+			if((result = instr.process(data)).isThrow())
+				return result;
 		
-		return new RuntimeResult();
+		while(true) {
+			Instruction compiled = tier.header();
+			
+			if(compiled != null)
+				return compiled.process(data);
+			
+			if(condition != null) {
+				result = condition.process(data);
+				
+				if(result.isThrow())
+					return result;
+				
+				if(!IfInstruction.isTrue(data, condition, result))
+					return new RuntimeResult();
+			}
+			
+			result = WhileInstruction.afterBody(label, body.process(data));
+			
+			if(result != null)
+				return result;
+			
+			for(Instruction instr : update)
+				if((result = instr.process(data)).isThrow())
+					return result;
+		}
 	}
 
 }
@@ -21,7 +21,6 @@ import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
 import at.syntaxerror.syntaxlang.parser.node.ForeachNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -36,10 +35,14 @@ public class ForeachInstruction implements Instruction {
 
 	public static Instruction of(ForeachNode node) {
 		
-		return new ForeachInstruction(node.getPosition());
+		return of(node.getPosition());
 	}
 	
-	private final Position position;
+	public static Instruction of(long position) {
+		return new ForeachInstruction(position);
+	}
+	
+	private final long position;
 	
 	@Override
 	public RuntimeResult process(InstructionData env) {
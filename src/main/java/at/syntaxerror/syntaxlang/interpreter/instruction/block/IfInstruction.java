@@ -17,11 +17,16 @@
  */
 package at.syntaxerror.syntaxlang.interpreter.instruction.block;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.parser.node.IfBodyNode;
 import at.syntaxerror.syntaxlang.parser.node.IfNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -33,18 +38,65 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 @Getter
 public class IfInstruction implements Instruction {
-
+	
 	public static Instruction of(IfNode node) {
+		List<Instruction> conditions = new ArrayList<>();
+		List<Instruction> bodies = new ArrayList<>();
+		
+		for(IfBodyNode body : node.getIfBodies()) {
+			conditions.add(Interpreter.makeInstruction(body.getCondition()));
+			bodies.add(Interpreter.makeInstruction(body.getBody()));
+		}
+		
+		return of(node.getPosition(), conditions, bodies, Interpreter.makeInstruction(node.getElseBody()));
+	}
+	
+	public static Instruction of(long position, List<Instruction> conditions, List<Instruction> bodies, Instruction elseBody) {
+		if(conditions.isEmpty())
+			return elseBody;
+		
+		return new IfInstruction(position, conditions, bodies, elseBody);
+	}
+	
+	// checks that the result of a condition is a boolean value
+	public static boolean isTrue(InstructionData data, Instruction condition, RuntimeResult result) {
+		if(!result.isNothing() || !result.hasValue())
+			data.env().getInputEnvironment().terminate(
+				"Invalid expression in condition",
+				condition.getPosition()
+			);
+		
+		return isTrue(data, condition, result.getValue());
+	}
+	public static boolean isTrue(InstructionData data, Instruction condition, RuntimeValue value) {
+		if(!value.isBoolean())
+			data.env().getInputEnvironment().terminate(
+				"Expected condition to be of type boolean, got %s instead".formatted(value.getType()),
+				condition.getPosition()
+			);
 		
-		return new IfInstruction(node.getPosition());
+		return value.booleanValue();
 	}
 	
-	private final Position position;
+	private final long position;
+	private final List<Instruction> conditions;
+	private final List<Instruction> bodies;
+	private final Instruction elseBody;
 	
 	@Override
-	public RuntimeResult process(InstructionData env) {
+	public RuntimeResult process(InstructionData data) {
+		for(int i = 0; i < conditions.size(); ++i) {
+			Instruction condition = conditions.get(i);
+			RuntimeResult result = condition.process(data);
+			
+			if(result.isThrow())
+				return result;
+			
+			if(isTrue(data, condition, result))
+				return bodies.get(i).process(data);
+		}
 		
-		return new RuntimeResult();
+		return elseBody.process(data);
 	}
 
 }
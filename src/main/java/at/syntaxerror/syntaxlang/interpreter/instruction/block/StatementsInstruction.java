@@ -26,7 +26,6 @@ import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
 import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -42,16 +41,28 @@ public class StatementsInstruction implements Instruction {
 		if(node.getStatements().isEmpty())
 			return EmptyInstruction.of(node.getPosition());
 		
-		return new StatementsInstruction(node.getPosition(), Interpreter.makeInstructions(node));
+		return new StatementsInstruction(node.getPosition(), Interpreter.makeInstructions(node), 0);
 	}
 	
+	public static Instruction of(long position, List<Instruction> instructions) {
+		return new StatementsInstruction(position, instructions, 0);
+	}
+	
+	public static Instruction of(long position, List<Instruction> instructions, int locals) {
+		return new StatementsInstruction(position, instructions, locals);
+	}
+	
+	@Getter
+	private final long position;
 	@Getter
-	private final Position position;
 	private final List<Instruction> instructions;
+	@Getter
+	private final int locals;
 	
 	@Override
 	public RuntimeResult process(InstructionData data) {
-		RuntimeEnvironment env = data.env().buildChild();
+		// blocks without variables run in the enclosing environment
+		RuntimeEnvironment env = locals == 0 ? data.env() : data.env().buildScope(locals);
 		
 		for(Instruction instr : instructions) {
 			RuntimeResult res = instr.process(data, env);
@@ -17,11 +17,20 @@
  */
 package at.syntaxerror.syntaxlang.interpreter.instruction.block;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
+import at.syntaxerror.syntaxlang.interpreter.instruction.EmptyInstruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.parser.node.SwitchCaseNode;
 import at.syntaxerror.syntaxlang.parser.node.SwitchNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -33,16 +42,111 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 @Getter
 public class SwitchInstruction implements Instruction {
-
+	
+	private static final Token EQUAL = new Token(TokenType.EQUAL);
+	
 	public static Instruction of(SwitchNode node) {
+		List<Instruction> cases = new ArrayList<>();
+		List<Instruction> bodies = new ArrayList<>();
+		boolean expression = false;
 		
-		return new SwitchInstruction(node.getPosition());
+		for(SwitchCaseNode n : node.getBody()) {
+			Instruction value = Interpreter.makeInstruction(n.getValue());
+			
+			cases.add(value instanceof EmptyInstruction ? null : value); // null is the default case
+			bodies.add(Interpreter.makeInstruction(n.getBody()));
+			
+			expression = n.isExpression();
+		}
+		
+		return of(node.getPosition(), Interpreter.makeInstruction(node.getValue()), cases, bodies, expression);
+	}
+	
+	public static Instruction of(long position, Instruction value, List<Instruction> cases, List<Instruction> bodies, boolean expression) {
+		return new SwitchInstruction(position, value, cases, bodies, expression);
 	}
 	
-	private final Position position;
+	private final long position;
+	private final Instruction value;
+	private final List<Instruction> cases;
+	private final List<Instruction> bodies;
+	private final boolean expression;
 	
 	@Override
-	public RuntimeResult process(InstructionData env) {
+	public RuntimeResult process(InstructionData data) {
+		RuntimeResult result = value.process(data);
+		
+		if(result.isThrow())
+			return result;
+		
+		if(!result.isNothing() || !result.hasValue())
+			data.env().getInputEnvironment().terminate(
+				"Invalid expression in switch",
+				value.getPosition()
+			);
+		
+		RuntimeValue switchValue = result.getValue();
+		
+		int match = -1;
+		int fallback = -1;
+		
+		for(int i = 0; i < cases.size(); ++i) {
+			Instruction caseValue = cases.get(i);
+			
+			if(caseValue == null) {
+				if(fallback == -1)
+					fallback = i;
+				continue;
+			}
+			
+			result = caseValue.process(data);
+			
+			if(result.isThrow())
+				return result;
+			
+			if(!result.isNothing() || !result.hasValue())
+				data.env().getInputEnvironment().terminate(
+					"Invalid expression in switch case",
+					caseValue.getPosition()
+				);
+			
+			result = BinaryOpInstruction.performOperation(data, caseValue.getPosition(), switchValue, EQUAL, result.getValue());
+			
+			if(result.isThrow())
+				return result;
+			
+			if(IfInstruction.isTrue(data, caseValue, result)) {
+				match = i;
+				break;
+			}
+		}
+		
+		if(match == -1)
+			match = fallback;
+		
+		if(match == -1) {
+			if(expression)
+				data.env().getInputEnvironment().terminate(
+					"No matching case in switch expression for %s".formatted(switchValue.getType()),
+					position
+				);
+			
+			return new RuntimeResult();
+		}
+		
+		if(expression)
+			return bodies.get(match).process(data);
+		
+		// statement cases fall through until the first break
+		for(int i = match; i < bodies.size(); ++i) {
+			result = bodies.get(i).process(data);
+			
+			if(result.isBreak() && !result.hasLabel())
+				return new RuntimeResult();
+			
+			if(!result.isNothing())
+				return result;
+		}
 		
 		return new RuntimeResult();
 	}
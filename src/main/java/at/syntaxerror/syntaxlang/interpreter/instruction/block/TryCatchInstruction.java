@@ -22,12 +22,11 @@ import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
 import at.syntaxerror.syntaxlang.interpreter.instruction.EmptyInstruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
-import at.syntaxerror.syntaxlang.interpreter.object.variable.RuntimeVariable;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
 import at.syntaxerror.syntaxlang.lexer.Token;
 import at.syntaxerror.syntaxlang.parser.node.TryCatchNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 /**
@@ -35,48 +34,45 @@ import lombok.RequiredArgsConstructor;
  * 
  */
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
 public class TryCatchInstruction implements Instruction {
 
 	public static Instruction of(TryCatchNode node) {
-		Instruction tryBody = Interpreter.makeInstruction(node.getTryBody());
-		Instruction catchBody = Interpreter.makeInstruction(node.getCatchBody());
-		
+		return of(
+			node.getPosition(),
+			node.getVar(),
+			Interpreter.makeInstruction(node.getTryBody()),
+			Interpreter.makeInstruction(node.getCatchBody())
+		);
+	}
+	
+	public static Instruction of(long position, Token varName, Instruction tryBody, Instruction catchBody) {
 		if(tryBody instanceof EmptyInstruction)
-			return EmptyInstruction.of(node.getPosition());
+			return EmptyInstruction.of(position);
 		
 		return new TryCatchInstruction(
-			node,
+			position,
 			tryBody,
 			catchBody,
-			node.getVar()
+			varName
 		);
 	}
 	
-	private final TryCatchNode node;
+	private final long position;
 	private final Instruction tryBody;
 	private final Instruction catchBody;
 	private final Token varName;
 	
-	@Override
-	public Position getPosition() {
-		return node.getPosition();
-	}
-	
 	@Override
 	public RuntimeResult process(InstructionData data) {
 		RuntimeEnvironment env = data.env();
 		
-		RuntimeResult res = tryBody.process(data, env.buildChild());
+		RuntimeResult res = tryBody.process(data);
 		
 		if(res.isThrow()) {
-			RuntimeEnvironment catchEnv = env.buildChild();
-			
-			new RuntimeVariable(
-				varName.getPosition(),
-				catchEnv,
-				varName.identifierValue(),
-				res.getException().getValue()
-			);
+			// the catch variable is always the first local of its scope
+			RuntimeEnvironment catchEnv = env.buildScope(1);
+			catchEnv.setLocal(0, 0, res.getException().getValue());
 			
 			return catchBody.process(data, catchEnv);
 		}
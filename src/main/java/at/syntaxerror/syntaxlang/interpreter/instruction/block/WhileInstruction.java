@@ -17,11 +17,13 @@
  */
 package at.syntaxerror.syntaxlang.interpreter.instruction.block;
 
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.jit.LoopTier;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.lexer.Token;
 import at.syntaxerror.syntaxlang.parser.node.WhileNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -33,18 +35,71 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 @Getter
 public class WhileInstruction implements Instruction {
-
+	
 	public static Instruction of(WhileNode node) {
+		return of(
+			node.getPosition(),
+			label(node.getLabel()),
+			Interpreter.makeInstruction(node.getCondition()),
+			Interpreter.makeInstruction(node.getBody())
+		);
+	}
+	
+	public static Instruction of(long position, String label, Instruction condition, Instruction body) {
+		return new WhileInstruction(position, label, condition, body);
+	}
+	
+	static String label(Token label) {
+		return label == null ? null : label.identifierValue();
+	}
+	
+	/*
+	 * Handles the result of a loop body. Returns null if the loop continues,
+	 * or the result of the whole loop otherwise
+	 */
+	public static RuntimeResult afterBody(String label, RuntimeResult result) {
+		if(result.isNothing())
+			return null;
+		
+		boolean own = !result.hasLabel() || result.getLabel().equals(label);
+		
+		if(result.isContinue() && own)
+			return null;
 		
-		return new WhileInstruction(node.getPosition());
+		if(result.isBreak() && own)
+			return new RuntimeResult();
+		
+		return result;
 	}
 	
-	private final Position position;
+	private final long position;
+	private final String label;
+	private final Instruction condition;
+	private final Instruction body;
+	
+	private final transient LoopTier tier = LoopTier.of(this);
 	
 	@Override
-	public RuntimeResult process(InstructionData env) {
-		
-		return new RuntimeResult();
+	public RuntimeResult process(InstructionData data) {
+		while(true) {
+			Instruction compiled = tier.header();
+			
+			if(compiled != null)
+				return compiled.process(data);
+			
+			RuntimeResult result = condition.process(data);
+			
+			if(result.isThrow())
+				return result;
+			
+			if(!IfInstruction.isTrue(data, condition, result))
+				return new RuntimeResult();
+			
+			result = afterBody(label, body.process(data));
+			
+			if(result != null)
+				return result;
+		}
 	}
 
 }
@@ -0,0 +1,64 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.flow;
+
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.parser.node.YieldNode;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class YieldInstruction implements Instruction {
+	
+	public static Instruction of(YieldNode node) {
+		return of(node.getPosition(), Interpreter.makeInstruction(node.getValue()));
+	}
+	
+	public static Instruction of(long position, Instruction value) {
+		return new YieldInstruction(position, value);
+	}
+	
+	private final long position;
+	private final Instruction value;
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeResult result = value.process(data);
+		
+		if(result.isThrow())
+			return result;
+		
+		if(!result.isNothing() || !result.hasValue())
+			data.env().getInputEnvironment().terminate(
+				"Invalid expression in yield statement",
+				value.getPosition()
+			);
+		
+		return new RuntimeResult().yieldValue(result.getValue());
+	}
+
+}
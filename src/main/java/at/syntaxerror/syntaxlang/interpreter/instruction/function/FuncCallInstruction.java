@@ -0,0 +1,148 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.function;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.object.function.RuntimeFunction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.parser.node.FuncCallNode;
+import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
+import at.syntaxerror.syntaxlang.parser.node.Node;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class FuncCallInstruction implements Instruction {
+	
+	// only functions declared by name can be called for now
+	public static Instruction of(FuncCallNode node) {
+		if(!(node.getTarget() instanceof LiteralNode target) || !target.getValue().is(TokenType.IDENTIFIER))
+			throw new SyntaxLangException("Illegal call target: " + node.getTarget());
+		
+		List<Instruction> args = new ArrayList<>();
+		
+		for(Node n : node.getArgs().getArgs())
+			args.add(Interpreter.makeInstruction(n));
+		
+		return of(node.getPosition(), target.getValue().identifierValue(), args);
+	}
+	
+	public static Instruction of(long position, String name, List<Instruction> args) {
+		return new FuncCallInstruction(position, name, args);
+	}
+	
+	/*
+	 * Calls to functions that only return an expression of their parameters can be inlined (see RuntimeFunction#inline).
+	 * The first call decides: as long as the name is bound to the same function, the inlined expression is evaluated
+	 * in the frame of the caller instead of making the call. Since it has no side effects, an expression that throws
+	 * is discarded and the call made after all, so the exception gets the stack trace of the call
+	 */
+	public static final boolean INLINE = Boolean.getBoolean("syntaxlang.inline");
+	
+	private final long position;
+	private final String name;
+	private final List<Instruction> args;
+	
+	@Getter(AccessLevel.NONE)
+	private volatile Inlined inlined;
+	
+	// expression is null if the function cannot be inlined
+	private static record Inlined(RuntimeFunction function, Instruction expression) { }
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeFunction function = function(data);
+		RuntimeResult inlined = inline(data, function);
+		
+		if(inlined != null)
+			return inlined;
+		
+		RuntimeValue[] values = new RuntimeValue[args.size()];
+		RuntimeResult thrown = arguments(data, values);
+		
+		if(thrown != null)
+			return thrown;
+		
+		return function.call(data, position, values);
+	}
+	
+	RuntimeFunction function(InstructionData data) {
+		RuntimeFunction function = data.env().getFunctions().get(name);
+		
+		if(function == null)
+			data.env().getInputEnvironment().terminate(
+				"Function %s is not defined".formatted(name),
+				position
+			);
+		
+		return function;
+	}
+	
+	// the result of the inlined call, null if the call has to be made
+	RuntimeResult inline(InstructionData data, RuntimeFunction function) {
+		if(!INLINE)
+			return null;
+		
+		Inlined current = inlined;
+		
+		if(current == null)
+			inlined = current = new Inlined(function, function.inline(args));
+		
+		if(current.function() != function || current.expression() == null)
+			return null;
+		
+		RuntimeResult result = current.expression().process(data);
+		
+		return result.isThrow() ? null : result;
+	}
+	
+	// evaluates the arguments into values, the result is only returned if one of them throws
+	RuntimeResult arguments(InstructionData data, RuntimeValue[] values) {
+		for(int i = 0; i < values.length; ++i) {
+			Instruction arg = args.get(i);
+			RuntimeResult value = arg.process(data.at(arg.getPosition()));
+			
+			if(value.isThrow())
+				return value;
+			
+			if(value.isNothing() && value.hasValue())
+				values[i] = value.getValue();
+			else data.env().getInputEnvironment().terminate(
+				"Invalid expression in function call",
+				arg.getPosition()
+			);
+		}
+		
+		return null;
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.function;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.object.function.RuntimeFunction;
+import at.syntaxerror.syntaxlang.interpreter.object.function.RuntimeFunction.TailCall;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class TailCallInstruction implements Instruction {
+	
+	/*
+	 * return f(...) in tail position (see TailCalls). The arguments are evaluated in the current frame,
+	 * but the call itself is left to the RuntimeFunction#call that runs this frame, which then reuses
+	 * its Java frame for the callee instead of nesting another call
+	 */
+	public static Instruction of(long position, FuncCallInstruction call) {
+		return new TailCallInstruction(position, call);
+	}
+	
+	private final long position;
+	private final FuncCallInstruction call;
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeFunction function = call.function(data);
+		RuntimeResult inlined = call.inline(data, function);
+		
+		if(inlined != null)
+			return new RuntimeResult().returnValue0(inlined.getValue());
+		
+		RuntimeValue[] values = new RuntimeValue[call.getArgs().size()];
+		RuntimeResult thrown = call.arguments(data, values);
+		
+		if(thrown != null)
+			return thrown;
+		
+		return new RuntimeResult().tailCall(new TailCall(function, values, data.at(call.getPosition()).caller(), call.getPosition()));
+	}
+
+}
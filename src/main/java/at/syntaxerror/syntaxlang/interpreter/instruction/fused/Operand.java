@@ -0,0 +1,59 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.fused;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public record Operand(RuntimeValue constant, String name, int hops, int slot, long position) {
+	
+	// returns null unless the instruction is a literal or a resolved variable
+	public static Operand of(Instruction instr) {
+		if(instr instanceof LiteralInstruction n)
+			return new Operand(n.getValue(), null, -1, -1, n.getPosition());
+		
+		if(instr instanceof VariableInstruction n && n.getSlot() != -1)
+			return new Operand(null, n.getName(), n.getHops(), n.getSlot(), n.getPosition());
+		
+		return null;
+	}
+	
+	// the same as processing the literal or variable instruction
+	public RuntimeValue load(InstructionData data) {
+		if(constant != null)
+			return constant;
+		
+		RuntimeValue value = data.env().getLocal(hops, slot);
+		
+		if(value == null)
+			data.env().getInputEnvironment().terminate(
+				"Variable %s is not defined".formatted(name),
+				position
+			);
+		
+		return value;
+	}
+
+}
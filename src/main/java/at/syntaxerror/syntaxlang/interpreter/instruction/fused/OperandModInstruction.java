@@ -0,0 +1,70 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.fused;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class OperandModInstruction implements Instruction {
+	
+	/*
+	 * A variable modification with a literal or variable operand, e.g. the update i += 1.
+	 * Loads, modifies and stores the variable in a single step
+	 */
+	
+	public static Instruction of(VarModInstruction source, Operand operand) {
+		Operand target = new Operand(null, source.getName(), source.getHops(), source.getSlot(), source.getPosition());
+		
+		return new OperandModInstruction(source, target, operand);
+	}
+	
+	private final VarModInstruction source;
+	private final Operand target;
+	private final Operand operand;
+	
+	@Override
+	public long getPosition() {
+		return source.getPosition();
+	}
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeValue current = target.load(data);
+		RuntimeResult result = source.modify(data, current, operand.load(data));
+		
+		if(result.isThrow())
+			return result;
+		
+		data.env().setLocal(target.hops(), target.slot(), result.getValue());
+		
+		return result;
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.fused;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class OperandOpInstruction implements Instruction {
+	
+	/*
+	 * A binary operation with a single literal or variable operand, e.g. t % 3 == 0 or s + i * 2.
+	 * Only the other operand is processed, the operands are still evaluated from left to right
+	 */
+	
+	public static Instruction of(BinaryOpInstruction source, Operand operand, boolean operandLeft) {
+		return new OperandOpInstruction(source, operand, operandLeft ? source.getRight() : source.getLeft(), operandLeft);
+	}
+	
+	private final BinaryOpInstruction source;
+	private final Operand operand;
+	private final Instruction other;
+	private final boolean operandLeft;
+	
+	@Override
+	public long getPosition() {
+		return source.getPosition();
+	}
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeValue loaded = operandLeft ? operand.load(data) : null;
+		RuntimeResult result = other.process(data);
+		
+		if(result.isThrow())
+			return result;
+		
+		if(!result.isNothing() || !result.hasValue())
+			data.env().getInputEnvironment().terminate(
+				"Invalid expression in binary operation",
+				other.getPosition()
+			);
+		
+		return operandLeft
+			? source.operate(data, loaded, result.getValue())
+			: source.operate(data, result.getValue(), operand.load(data));
+	}
+
+}
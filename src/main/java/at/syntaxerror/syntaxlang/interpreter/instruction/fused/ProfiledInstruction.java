@@ -0,0 +1,56 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.fused;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class ProfiledInstruction implements Instruction {
+	
+	// counts how often an instruction is executed, see Superinstructions#profile
+	public static Instruction of(Instruction instruction, LongAdder counter) {
+		return new ProfiledInstruction(instruction, counter);
+	}
+	
+	private final Instruction instruction;
+	private final LongAdder counter;
+	
+	@Override
+	public long getPosition() {
+		return instruction.getPosition();
+	}
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		counter.increment();
+		return instruction.process(data);
+	}
+
+}
@@ -20,7 +20,6 @@ package at.syntaxerror.syntaxlang.interpreter.instruction.literal;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -37,7 +36,11 @@ public class BooleanInstruction implements LiteralInstruction {
 		return new BooleanInstruction(node.getPosition(), node.getValue().booleanValue());
 	}
 	
-	private final Position position;
+	public static Instruction of(long position, boolean value) {
+		return new BooleanInstruction(position, value);
+	}
+	
+	private final long position;
 	private final boolean value;
 	
 	@Override
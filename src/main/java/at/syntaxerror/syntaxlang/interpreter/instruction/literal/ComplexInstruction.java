@@ -20,7 +20,6 @@ package at.syntaxerror.syntaxlang.interpreter.instruction.literal;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import ch.obermuhlner.math.big.BigComplex;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -38,7 +37,11 @@ public class ComplexInstruction implements LiteralInstruction {
 		return new ComplexInstruction(node.getPosition(), node.getValue().complexValue());
 	}
 	
-	private final Position position;
+	public static Instruction of(long position, BigComplex value) {
+		return new ComplexInstruction(position, value);
+	}
+	
+	private final long position;
 	private final BigComplex value;
 	
 	@Override
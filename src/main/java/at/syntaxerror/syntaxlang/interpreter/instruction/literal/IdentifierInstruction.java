@@ -22,7 +22,6 @@ import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -39,7 +38,11 @@ public class IdentifierInstruction implements Instruction {
 		return new IdentifierInstruction(node.getPosition(), node.getValue().identifierValue());
 	}
 	
-	private final Position position;
+	public static Instruction of(long position, String value) {
+		return new IdentifierInstruction(position, value);
+	}
+	
+	private final long position;
 	private final String value;
 	
 	@Override
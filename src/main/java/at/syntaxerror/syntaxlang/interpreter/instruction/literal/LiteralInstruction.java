@@ -40,18 +40,20 @@ public interface LiteralInstruction extends Instruction {
 	}
 	
 	static Instruction of(LiteralNode node) {
-		Token value = node.getValue();
-		
+		return of(node.getPosition(), node.getValue());
+	}
+	
+	static Instruction of(long position, Token value) {
 		return switch(value.getType()) {
-		case IDENTIFIER: yield IdentifierInstruction.of(node); // TODO
-		case STRING: yield StringInstruction.of(node);
-		case NUMBER: yield NumberInstruction.of(node);
-		case COMPLEX: yield ComplexInstruction.of(node);
+		case IDENTIFIER: yield IdentifierInstruction.of(position, value.identifierValue()); // TODO
+		case STRING: yield StringInstruction.of(position, value.stringValue());
+		case NUMBER: yield NumberInstruction.of(position, value.numberValue());
+		case COMPLEX: yield ComplexInstruction.of(position, value.complexValue());
 		case KEYWORD:
 			if(value.is(Keyword.TRUE, Keyword.FALSE))
-				yield BooleanInstruction.of(node);
+				yield BooleanInstruction.of(position, value.booleanValue());
 			if(value.is(Keyword.NULL))
-				yield NullInstruction.of(node);
+				yield NullInstruction.of(position);
 		default: throw new SyntaxLangException("Invalid literal value: " + value);
 		};
 	}
@@ -60,4 +62,17 @@ public interface LiteralInstruction extends Instruction {
 		return of(new LiteralNode(tok));
 	}
 	
+	static Instruction of(RuntimeValue value) {
+		long pos = value.getPosition();
+		
+		return switch(value.getType()) {
+		case STRING: yield StringInstruction.of(pos, value.stringValue());
+		case NUMBER: yield NumberInstruction.of(pos, value.numberValue());
+		case COMPLEX: yield ComplexInstruction.of(pos, value.complexValue());
+		case BOOLEAN: yield BooleanInstruction.of(pos, value.booleanValue());
+		case NULL: yield NullInstruction.of(pos);
+		default: throw new SyntaxLangException("Invalid literal value: " + value.getType());
+		};
+	}
+	
 }
@@ -20,7 +20,6 @@ package at.syntaxerror.syntaxlang.interpreter.instruction.literal;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -37,7 +36,11 @@ public class NullInstruction implements LiteralInstruction {
 		return new NullInstruction(node.getPosition());
 	}
 	
-	private final Position position;
+	public static Instruction of(long position) {
+		return new NullInstruction(position);
+	}
+	
+	private final long position;
 	
 	@Override
 	public RuntimeValue getValue() {
@@ -22,7 +22,6 @@ import java.math.BigDecimal;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -39,7 +38,11 @@ public class NumberInstruction implements LiteralInstruction {
 		return new NumberInstruction(node.getPosition(), node.getValue().numberValue());
 	}
 	
-	private final Position position;
+	public static Instruction of(long position, BigDecimal value) {
+		return new NumberInstruction(position, value);
+	}
+	
+	private final long position;
 	private final BigDecimal value;
 	
 	@Override
@@ -21,7 +21,6 @@ import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
 import at.syntaxerror.syntaxlang.string.WideString;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -38,7 +37,11 @@ public class StringInstruction implements LiteralInstruction {
 		return new StringInstruction(node.getPosition(), node.getValue().stringValue());
 	}
 	
-	private final Position position;
+	public static Instruction of(long position, WideString value) {
+		return new StringInstruction(position, value);
+	}
+	
+	private final long position;
 	private final WideString value;
 	
 	@Override
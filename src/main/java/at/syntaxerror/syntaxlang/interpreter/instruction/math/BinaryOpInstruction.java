@@ -24,7 +24,6 @@ import at.syntaxerror.syntaxlang.interpreter.Interpreter;
 import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
 import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
-import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
 import at.syntaxerror.syntaxlang.interpreter.object.classlike.RuntimeClassLikeInstance;
 import at.syntaxerror.syntaxlang.interpreter.object.classlike.SpecialFunctions;
 import at.syntaxerror.syntaxlang.interpreter.object.function.RuntimeCallData;
@@ -33,7 +32,6 @@ import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.lexer.Token;
 import at.syntaxerror.syntaxlang.lexer.TokenType;
 import at.syntaxerror.syntaxlang.parser.node.BinaryOpNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -47,7 +45,7 @@ import lombok.RequiredArgsConstructor;
 public class BinaryOpInstruction implements Instruction {
 
 	public static Instruction of(BinaryOpNode node) {
-		return new BinaryOpInstruction(
+		return of(
 			node.getPosition(),
 			Interpreter.makeInstruction(node.getLeft()),
 			node.getOp(),
@@ -55,7 +53,11 @@ public class BinaryOpInstruction implements Instruction {
 		);
 	}
 	
-	private RuntimeResult performOperation(InstructionData data, RuntimeValue left, Token op, RuntimeValue right) {
+	public static Instruction of(long position, Instruction left, Token op, Instruction right) {
+		return new BinaryOpInstruction(position, left, op, right);
+	}
+	
+	public static RuntimeResult performOperation(InstructionData data, long position, RuntimeValue left, Token op, RuntimeValue right) {
 		String opName = op.toSimpleString();
 		
 		RuntimeEnvironment env = data.env();
@@ -63,17 +65,42 @@ public class BinaryOpInstruction implements Instruction {
 		
 		if(left.isFunction()) {
 			input.terminate("Invalid binary operation for function: %s".formatted(opName), position);
-			return RuntimeResult.unexpected(data, getPosition());
+			return RuntimeResult.unexpected(data, position);
 		}
 		
-		if(left.isNull()) {
-			if(op.is(TokenType.EQUAL, TokenType.IDENTICAL))
-				return new RuntimeResult().value(
-					RuntimeValue.of(getPosition(), right.isNull())
-				);
+		// null only equals null, whatever the type of the other operand is
+		if(left.isNull() && op.is(TokenType.EQUAL, TokenType.IDENTICAL))
+			return new RuntimeResult().value(
+				RuntimeValue.of(position, right.isNull())
+			);
+		
+		if(PrimitiveOperations.isPrimitive(left) && PrimitiveOperations.isPrimitive(right)) {
+			RuntimeValue result = null;
+			
+			try {
+				result = PrimitiveOperations.binary(position, left, op.getType(), right);
+			} catch (ArithmeticException e) {
+				input.terminate("Arithmetic error: %s".formatted(e.getMessage()), position);
+				return RuntimeResult.unexpected(data, position);
+			}
 			
+			if(result != null)
+				return new RuntimeResult().value(result);
+		}
+		
+		if(left.isNull()) {
 			input.terminate("Invalid binary operation for null: %s".formatted(opName), position);
-			return RuntimeResult.unexpected(data, getPosition());
+			return RuntimeResult.unexpected(data, position);
+		}
+		
+		// only objects can overload operators
+		if(!left.isObject()) {
+			input.terminate(
+				"Invalid binary operation: %s %s %s"
+					.formatted(left.getType(), opName, right.getType()),
+				position
+			);
+			return RuntimeResult.unexpected(data, position);
 		}
 		
 		RuntimeClassLikeInstance instance = left.getAsObject();
@@ -113,7 +140,7 @@ public class BinaryOpInstruction implements Instruction {
 					.formatted(left.getType(), opName, right.getType()),
 				position
 			);
-			return RuntimeResult.unexpected(data, getPosition());
+			return RuntimeResult.unexpected(data, position);
 		}
 		
 		return fn.apply(new RuntimeCallData(env, position, instance.getType(), instance, new RuntimeValue[] {
@@ -121,34 +148,16 @@ public class BinaryOpInstruction implements Instruction {
 		}));
 	}
 	
-	private final Position position;
+	private final long position;
 	private final Instruction left;
 	private final Token op;
 	private final Instruction right;
 	
-	private RuntimeValue cached = null;
+	// null until the operation is executed for the first time
+	private transient BinarySpecialization specialization;
 	
 	@Override
 	public RuntimeResult process(InstructionData data) {
-		if(left instanceof LiteralInstruction llit && right instanceof LiteralInstruction rlit) {
-			if(cached != null)
-				return new RuntimeResult().value(cached);
-			
-			RuntimeResult result = performOperation(data, llit.getValue(), op, rlit.getValue());
-			
-			if(result.isThrow())
-				return result;
-			
-			if(!result.isNothing() || !result.hasValue())
-				data.env().getInputEnvironment().terminate(
-					"Invalid binary operation: %s %s %s"
-						.formatted(llit.getValue().getType(), op.toSimpleString(), rlit.getValue().getType()),
-					left.getPosition()
-				);
-			
-			return new RuntimeResult().value(cached = result.getValue());
-		}
-		
 		RuntimeResult leftResult = left.process(data);
 		
 		if(leftResult.isThrow())
@@ -187,7 +196,21 @@ public class BinaryOpInstruction implements Instruction {
 				left.getPosition()
 			);
 		
-		return performOperation(data, leftValue, op, rightResult.getValue());
+		return operate(data, leftValue, rightResult.getValue());
+	}
+	
+	// performs the operation on the evaluated operands
+	public RuntimeResult operate(InstructionData data, RuntimeValue leftValue, RuntimeValue rightValue) {
+		BinarySpecialization spec = specialization = BinarySpecialization.select(specialization, op.getType(), leftValue, rightValue);
+		
+		if(spec != BinarySpecialization.GENERIC)
+			try {
+				return new RuntimeResult().value(spec.apply(position, leftValue, rightValue));
+			} catch (ArithmeticException e) {
+				// reported by the generic path below
+			}
+		
+		return performOperation(data, position, leftValue, op, rightValue);
 	}
 
 }
@@ -0,0 +1,245 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.math;
+
+import java.math.BigDecimal;
+import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
+
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.interpreter.value.ValueType;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import lombok.Getter;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public abstract class BinarySpecialization {
+	
+	/*
+	 * A binary operation specialized for the operand types it has seen so far. Operation sites start
+	 * without a specialization, pick one when they are first executed and fall back to GENERIC (i.e.
+	 * BinaryOpInstruction.performOperation) for good as soon as the guard fails.
+	 */
+	
+	public static final BinarySpecialization GENERIC = new BinarySpecialization(null) {
+		
+		@Override
+		public boolean accepts(RuntimeValue left, RuntimeValue right) {
+			return false;
+		}
+		
+		@Override
+		public RuntimeValue apply(long position, RuntimeValue left, RuntimeValue right) {
+			throw new UnsupportedOperationException();
+		}
+		
+	};
+	
+	public static final BinarySpecialization NUMBER_ADD = new NumberArithmetic((a, b) -> a.add(b, PrimitiveOperations.CONTEXT));
+	public static final BinarySpecialization NUMBER_SUBTRACT = new NumberArithmetic((a, b) -> a.subtract(b, PrimitiveOperations.CONTEXT));
+	public static final BinarySpecialization NUMBER_MULTIPLY = new NumberArithmetic((a, b) -> a.multiply(b, PrimitiveOperations.CONTEXT));
+	public static final BinarySpecialization NUMBER_DIVIDE = new NumberArithmetic((a, b) -> a.divide(b, PrimitiveOperations.CONTEXT));
+	public static final BinarySpecialization NUMBER_MODULO = new NumberArithmetic((a, b) -> a.remainder(b, PrimitiveOperations.CONTEXT));
+	
+	public static final BinarySpecialization NUMBER_LESS = new NumberComparison(cmp -> cmp < 0);
+	public static final BinarySpecialization NUMBER_LESS_EQUAL = new NumberComparison(cmp -> cmp <= 0);
+	public static final BinarySpecialization NUMBER_GREATER = new NumberComparison(cmp -> cmp > 0);
+	public static final BinarySpecialization NUMBER_GREATER_EQUAL = new NumberComparison(cmp -> cmp >= 0);
+	public static final BinarySpecialization NUMBER_EQUAL = new NumberComparison(cmp -> cmp == 0);
+	public static final BinarySpecialization NUMBER_NOT_EQUAL = new NumberComparison(cmp -> cmp != 0);
+	
+	public static final BinarySpecialization STRING_CONCAT = new BinarySpecialization(ValueType.STRING) {
+		
+		// the right operand is converted to a string
+		@Override
+		public boolean accepts(RuntimeValue left, RuntimeValue right) {
+			return left.isString() && PrimitiveOperations.isPrimitive(right);
+		}
+		
+		@Override
+		public RuntimeValue apply(long position, RuntimeValue left, RuntimeValue right) {
+			return RuntimeValue.of(position, left.stringValue().concat(PrimitiveOperations.toWideString(right)));
+		}
+		
+	};
+	
+	// see BinaryOpInstruction.performOperation
+	public static final BinarySpecialization NULL_EQUAL = new BinarySpecialization(ValueType.BOOLEAN) {
+		
+		@Override
+		public boolean accepts(RuntimeValue left, RuntimeValue right) {
+			return left.isNull();
+		}
+		
+		@Override
+		public RuntimeValue apply(long position, RuntimeValue left, RuntimeValue right) {
+			return RuntimeValue.of(position, right.isNull());
+		}
+		
+	};
+	
+	public static final BinarySpecialization BOOLEAN_AND = new BooleanLogic(TokenType.AND);
+	public static final BinarySpecialization BOOLEAN_OR = new BooleanLogic(TokenType.OR);
+	public static final BinarySpecialization BOOLEAN_XOR = new BooleanLogic(TokenType.XOR);
+	
+	// returns the specialization to use for the given operands
+	public static BinarySpecialization select(BinarySpecialization current, TokenType op, RuntimeValue left, RuntimeValue right) {
+		if(current == null)
+			current = of(op, left, right);
+		
+		if(current.accepts(left, right))
+			return current;
+		
+		return GENERIC;
+	}
+	
+	private static BinarySpecialization of(TokenType op, RuntimeValue left, RuntimeValue right) {
+		return of(op, left.getType(), right.getType());
+	}
+	
+	// returns the specialization for operands of the given types, GENERIC if there is none
+	public static BinarySpecialization of(TokenType op, ValueType left, ValueType right) {
+		if(left == ValueType.NULL && (op == TokenType.EQUAL || op == TokenType.IDENTICAL))
+			return NULL_EQUAL;
+		
+		if(left == ValueType.NUMBER && right == ValueType.NUMBER)
+			return switch(op) {
+			case PLUS -> NUMBER_ADD;
+			case MINUS -> NUMBER_SUBTRACT;
+			case MULTIPLY -> NUMBER_MULTIPLY;
+			case DIVIDE -> NUMBER_DIVIDE;
+			case MODULO -> NUMBER_MODULO;
+			case LESS -> NUMBER_LESS;
+			case LESS_EQUAL -> NUMBER_LESS_EQUAL;
+			case GREATER -> NUMBER_GREATER;
+			case GREATER_EQUAL -> NUMBER_GREATER_EQUAL;
+			case EQUAL, IDENTICAL -> NUMBER_EQUAL;
+			case NOT_EQUAL, NOT_IDENTICAL -> NUMBER_NOT_EQUAL;
+			default -> GENERIC;
+			};
+		
+		if(left == ValueType.BOOLEAN && right == ValueType.BOOLEAN)
+			return switch(op) {
+			case AND, BITAND -> BOOLEAN_AND;
+			case OR, BITOR -> BOOLEAN_OR;
+			case XOR -> BOOLEAN_XOR;
+			default -> GENERIC;
+			};
+		
+		// the right operand is converted to a string
+		if(op == TokenType.PLUS && left == ValueType.STRING && PrimitiveOperations.isPrimitive(right))
+			return STRING_CONCAT;
+		
+		return GENERIC;
+	}
+	
+	// type of every value returned by apply, null for GENERIC
+	@Getter
+	private final ValueType resultType;
+	
+	private BinarySpecialization(ValueType resultType) {
+		this.resultType = resultType;
+	}
+	
+	// the guard
+	public abstract boolean accepts(RuntimeValue left, RuntimeValue right);
+	
+	// may throw ArithmeticException, e.g. for a division by zero
+	public abstract RuntimeValue apply(long position, RuntimeValue left, RuntimeValue right);
+	
+	public static final class NumberArithmetic extends BinarySpecialization {
+		
+		private final BinaryOperator<BigDecimal> operation;
+		
+		private NumberArithmetic(BinaryOperator<BigDecimal> operation) {
+			super(ValueType.NUMBER);
+			this.operation = operation;
+		}
+		
+		@Override
+		public boolean accepts(RuntimeValue left, RuntimeValue right) {
+			return left.isNumber() && right.isNumber();
+		}
+		
+		@Override
+		public RuntimeValue apply(long position, RuntimeValue left, RuntimeValue right) {
+			return RuntimeValue.of(position, compute(left.numberValue(), right.numberValue()));
+		}
+		
+		public BigDecimal compute(BigDecimal left, BigDecimal right) {
+			return operation.apply(left, right);
+		}
+		
+	}
+	
+	public static final class NumberComparison extends BinarySpecialization {
+		
+		private final IntPredicate comparison;
+		
+		private NumberComparison(IntPredicate comparison) {
+			super(ValueType.BOOLEAN);
+			this.comparison = comparison;
+		}
+		
+		@Override
+		public boolean accepts(RuntimeValue left, RuntimeValue right) {
+			return left.isNumber() && right.isNumber();
+		}
+		
+		@Override
+		public RuntimeValue apply(long position, RuntimeValue left, RuntimeValue right) {
+			return RuntimeValue.of(position, test(left.numberValue(), right.numberValue()));
+		}
+		
+		public boolean test(BigDecimal left, BigDecimal right) {
+			return comparison.test(left.compareTo(right));
+		}
+		
+	}
+	
+	private static class BooleanLogic extends BinarySpecialization {
+		
+		private final TokenType op;
+		
+		private BooleanLogic(TokenType op) {
+			super(ValueType.BOOLEAN);
+			this.op = op;
+		}
+		
+		@Override
+		public boolean accepts(RuntimeValue left, RuntimeValue right) {
+			return left.isBoolean() && right.isBoolean();
+		}
+		
+		@Override
+		public RuntimeValue apply(long position, RuntimeValue left, RuntimeValue right) {
+			boolean a = left.booleanValue();
+			boolean b = right.booleanValue();
+			
+			return RuntimeValue.of(position, switch(op) {
+			case AND -> a & b;
+			case OR -> a | b;
+			default -> a ^ b;
+			});
+		}
+		
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.math;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.interpreter.value.ValueType;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.string.WideString;
+import ch.obermuhlner.math.big.BigComplex;
+import ch.obermuhlner.math.big.BigDecimalMath;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class PrimitiveOperations {
+	
+	public static final MathContext CONTEXT = MathContext.DECIMAL128;
+	
+	// primitive values never dispatch to __add-style overloads
+	public static boolean isPrimitive(RuntimeValue value) {
+		return isPrimitive(value.getType());
+	}
+	public static boolean isPrimitive(ValueType type) {
+		return type != null && switch(type) {
+		case STRING, NUMBER, COMPLEX, BOOLEAN, NULL -> true;
+		default -> false;
+		};
+	}
+	
+	/*
+	 * Returns the result of a binary operation on two primitive values, or null if the operation
+	 * is not defined for the given types. Throws ArithmeticException for e.g. a division by zero.
+	 */
+	public static RuntimeValue binary(long position, RuntimeValue left, TokenType op, RuntimeValue right) {
+		switch(op) {
+		case EQUAL:
+		case IDENTICAL:
+			return RuntimeValue.of(position, equal(left, right));
+		case NOT_EQUAL:
+		case NOT_IDENTICAL:
+			return RuntimeValue.of(position, !equal(left, right));
+		default:
+			break;
+		}
+		
+		if(op == TokenType.PLUS && (left.isString() || right.isString()))
+			return RuntimeValue.of(position, toWideString(left).concat(toWideString(right)));
+		
+		if(left.isNumber() && right.isComplex())
+			return complex(position, BigComplex.valueOf(left.numberValue()), op, right.complexValue());
+		
+		if(left.isComplex() && right.isNumber())
+			return complex(position, left.complexValue(), op, BigComplex.valueOf(right.numberValue()));
+		
+		if(left.getType() != right.getType())
+			return null;
+		
+		return switch(left.getType()) {
+		case NUMBER -> number(position, left.numberValue(), op, right.numberValue());
+		case COMPLEX -> complex(position, left.complexValue(), op, right.complexValue());
+		case BOOLEAN -> bool(position, left.booleanValue(), op, right.booleanValue());
+		case STRING -> string(position, left.stringValue(), op, right.stringValue());
+		default -> null;
+		};
+	}
+	
+	public static RuntimeValue unary(long position, TokenType op, RuntimeValue value) {
+		if(value.isNumber()) {
+			BigDecimal num = value.numberValue();
+			
+			return switch(op) {
+			case PLUS -> RuntimeValue.of(position, num);
+			case MINUS -> RuntimeValue.of(position, num.negate());
+			case COMPLEMENT -> RuntimeValue.of(position, new BigDecimal(num.toBigIntegerExact().not()));
+			default -> null;
+			};
+		}
+		
+		if(value.isComplex()) {
+			BigComplex num = value.complexValue();
+			
+			return switch(op) {
+			case PLUS -> RuntimeValue.of(position, num);
+			case MINUS -> RuntimeValue.of(position, num.negate());
+			default -> null;
+			};
+		}
+		
+		if(value.isBoolean() && op == TokenType.NOT)
+			return RuntimeValue.of(position, !value.booleanValue());
+		
+		return null;
+	}
+	
+	public static boolean equal(RuntimeValue left, RuntimeValue right) {
+		if(left.getType() != right.getType())
+			return false;
+		
+		return switch(left.getType()) {
+		case NUMBER -> left.numberValue().compareTo(right.numberValue()) == 0;
+		case COMPLEX -> {
+			BigComplex a = left.complexValue();
+			BigComplex b = right.complexValue();
+			
+			yield a.re.compareTo(b.re) == 0 && a.im.compareTo(b.im) == 0;
+		}
+		case STRING -> left.stringValue().toString().equals(right.stringValue().toString());
+		case NULL -> true;
+		default -> left.getRawValue().equals(right.getRawValue());
+		};
+	}
+	
+	public static WideString toWideString(RuntimeValue value) {
+		return switch(value.getType()) {
+		case STRING -> value.stringValue();
+		case NUMBER -> new WideString(value.numberValue().stripTrailingZeros().toPlainString());
+		default -> new WideString(String.valueOf(value.getRawValue()));
+		};
+	}
+	
+	private static RuntimeValue number(long position, BigDecimal a, TokenType op, BigDecimal b) {
+		return switch(op) {
+		case PLUS -> RuntimeValue.of(position, a.add(b, CONTEXT));
+		case MINUS -> RuntimeValue.of(position, a.subtract(b, CONTEXT));
+		case MULTIPLY -> RuntimeValue.of(position, a.multiply(b, CONTEXT));
+		case DIVIDE -> RuntimeValue.of(position, a.divide(b, CONTEXT));
+		case MODULO -> RuntimeValue.of(position, a.remainder(b, CONTEXT));
+		case POWER -> RuntimeValue.of(position, BigDecimalMath.pow(a, b, CONTEXT));
+		
+		case LESS -> RuntimeValue.of(position, a.compareTo(b) < 0);
+		case LESS_EQUAL -> RuntimeValue.of(position, a.compareTo(b) <= 0);
+		case GREATER -> RuntimeValue.of(position, a.compareTo(b) > 0);
+		case GREATER_EQUAL -> RuntimeValue.of(position, a.compareTo(b) >= 0);
+		
+		case BITAND -> RuntimeValue.of(position, new BigDecimal(a.toBigIntegerExact().and(b.toBigIntegerExact())));
+		case XOR -> RuntimeValue.of(position, new BigDecimal(a.toBigIntegerExact().xor(b.toBigIntegerExact())));
+		case BITOR -> RuntimeValue.of(position, new BigDecimal(a.toBigIntegerExact().or(b.toBigIntegerExact())));
+		case LSHIFT -> RuntimeValue.of(position, new BigDecimal(a.toBigIntegerExact().shiftLeft(b.intValueExact())));
+		case RSHIFT -> RuntimeValue.of(position, new BigDecimal(a.toBigIntegerExact().shiftRight(b.intValueExact())));
+		
+		default -> null;
+		};
+	}
+	
+	private static RuntimeValue complex(long position, BigComplex a, TokenType op, BigComplex b) {
+		return switch(op) {
+		case PLUS -> RuntimeValue.of(position, a.add(b, CONTEXT));
+		case MINUS -> RuntimeValue.of(position, a.subtract(b, CONTEXT));
+		case MULTIPLY -> RuntimeValue.of(position, a.multiply(b, CONTEXT));
+		case DIVIDE -> RuntimeValue.of(position, a.divide(b, CONTEXT));
+		default -> null;
+		};
+	}
+	
+	private static RuntimeValue bool(long position, boolean a, TokenType op, boolean b) {
+		return switch(op) {
+		case AND, BITAND -> RuntimeValue.of(position, a & b);
+		case OR, BITOR -> RuntimeValue.of(position, a | b);
+		case XOR -> RuntimeValue.of(position, a ^ b);
+		default -> null;
+		};
+	}
+	
+	private static RuntimeValue string(long position, WideString a, TokenType op, WideString b) {
+		int cmp = a.toString().compareTo(b.toString());
+		
+		return switch(op) {
+		case LESS -> RuntimeValue.of(position, cmp < 0);
+		case LESS_EQUAL -> RuntimeValue.of(position, cmp <= 0);
+		case GREATER -> RuntimeValue.of(position, cmp > 0);
+		case GREATER_EQUAL -> RuntimeValue.of(position, cmp >= 0);
+		default -> null;
+		};
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.math;
+
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.parser.node.TernaryOpNode;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class TernaryOpInstruction implements Instruction {
+	
+	public static Instruction of(TernaryOpNode node) {
+		return of(
+			node.getPosition(),
+			Interpreter.makeInstruction(node.getCondition()),
+			Interpreter.makeInstruction(node.getResultThen()),
+			Interpreter.makeInstruction(node.getResultElse())
+		);
+	}
+	
+	public static Instruction of(long position, Instruction condition, Instruction resultThen, Instruction resultElse) {
+		return new TernaryOpInstruction(position, condition, resultThen, resultElse);
+	}
+	
+	private final long position;
+	private final Instruction condition;
+	private final Instruction resultThen;
+	private final Instruction resultElse;
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeResult result = condition.process(data);
+		
+		if(result.isThrow())
+			return result;
+		
+		return IfInstruction.isTrue(data, condition, result)
+			? resultThen.process(data)
+			: resultElse.process(data);
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.math;
+
+import java.util.function.Function;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.object.classlike.RuntimeClassLikeInstance;
+import at.syntaxerror.syntaxlang.interpreter.object.classlike.SpecialFunctions;
+import at.syntaxerror.syntaxlang.interpreter.object.function.RuntimeCallData;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
+import at.syntaxerror.syntaxlang.parser.node.UnaryOpNode;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class UnaryOpInstruction implements Instruction {
+	
+	public static Instruction of(UnaryOpNode node) {
+		if(node.getOp().is(TokenType.INCREMENT, TokenType.DECREMENT)) {
+			if(!(node.getTarget() instanceof LiteralNode target) || !target.getValue().is(TokenType.IDENTIFIER))
+				throw new SyntaxLangException("Illegal increment target: " + node.getTarget());
+			
+			return VarModInstruction.increment(node.getPosition(), target.getValue().identifierValue(), node.getOp(), node.isPre());
+		}
+		
+		return of(
+			node.getPosition(),
+			node.getOp(),
+			Interpreter.makeInstruction(node.getTarget())
+		);
+	}
+	
+	public static Instruction of(long position, Token op, Instruction target) {
+		return new UnaryOpInstruction(position, op, target);
+	}
+	
+	public static RuntimeResult performOperation(InstructionData data, long position, Token op, RuntimeValue value) {
+		InputEnvironment input = data.env().getInputEnvironment();
+		
+		if(PrimitiveOperations.isPrimitive(value)) {
+			RuntimeValue result = null;
+			
+			try {
+				result = PrimitiveOperations.unary(position, op.getType(), value);
+			} catch (ArithmeticException e) {
+				input.terminate("Arithmetic error: %s".formatted(e.getMessage()), position);
+				return RuntimeResult.unexpected(data, position);
+			}
+			
+			if(result != null)
+				return new RuntimeResult().value(result);
+		}
+		
+		Function<RuntimeCallData, RuntimeResult> fn = switch(op.getType()) {
+		case PLUS -> SpecialFunctions::plus;
+		case MINUS -> SpecialFunctions::minus;
+		case NOT -> SpecialFunctions::not;
+		case COMPLEMENT -> SpecialFunctions::complement;
+		default -> null;
+		};
+		
+		if(fn == null || !value.isObject()) {
+			input.terminate(
+				"Invalid unary operation: %s%s"
+					.formatted(op.toSimpleString(), value.getType()),
+				position
+			);
+			return RuntimeResult.unexpected(data, position);
+		}
+		
+		RuntimeClassLikeInstance instance = value.objectValue();
+		
+		return fn.apply(new RuntimeCallData(data.env(), position, instance.getType(), instance, new RuntimeValue[0]));
+	}
+	
+	private final long position;
+	private final Token op;
+	private final Instruction target;
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeResult result = target.process(data);
+		
+		if(result.isThrow())
+			return result;
+		
+		if(!result.isNothing() || !result.hasValue())
+			data.env().getInputEnvironment().terminate(
+				"Invalid expression in unary operation",
+				target.getPosition()
+			);
+		
+		return performOperation(data, position, op, result.getValue());
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.typed;
+
+import java.math.BigDecimal;
+
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.NumberInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization.NumberArithmetic;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public sealed interface NumberNode {
+	
+	/*
+	 * A side effect free number expression evaluated to a plain BigDecimal, without the RuntimeValue
+	 * and RuntimeResult wrappers of its intermediate values. Since nothing is changed by evaluating
+	 * it, the instruction it was created from can always be run instead (e.g. to report an error).
+	 */
+	
+	// returns null unless the instruction is a number literal, a resolved variable or a scalar arithmetic operation
+	static NumberNode of(Instruction instr) {
+		if(instr instanceof NumberInstruction n)
+			return new Constant(n.getValue().numberValue());
+		
+		if(instr instanceof VariableInstruction n && n.getSlot() != -1)
+			return new Load(n.getHops(), n.getSlot());
+		
+		if(instr instanceof ScalarOpInstruction n && n.getSource().getSpecialization() instanceof NumberArithmetic op)
+			return new Arithmetic(op, n.getLeft(), n.getRight());
+		
+		return null;
+	}
+	
+	// null if a variable is not a number (i.e. not defined)
+	BigDecimal evaluate(RuntimeEnvironment env);
+	
+	record Constant(BigDecimal value) implements NumberNode {
+		
+		@Override
+		public BigDecimal evaluate(RuntimeEnvironment env) {
+			return value;
+		}
+		
+	}
+	
+	record Load(int hops, int slot) implements NumberNode {
+		
+		@Override
+		public BigDecimal evaluate(RuntimeEnvironment env) {
+			RuntimeValue value = env.getLocal(hops, slot);
+			
+			return value == null || !value.isNumber() ? null : value.numberValue();
+		}
+		
+	}
+	
+	// may throw ArithmeticException, e.g. for a division by zero
+	record Arithmetic(NumberArithmetic op, NumberNode left, NumberNode right) implements NumberNode {
+		
+		@Override
+		public BigDecimal evaluate(RuntimeEnvironment env) {
+			BigDecimal a = left.evaluate(env);
+			
+			if(a == null)
+				return null;
+			
+			BigDecimal b = right.evaluate(env);
+			
+			return b == null ? null : op.compute(a, b);
+		}
+		
+	}
+
+}
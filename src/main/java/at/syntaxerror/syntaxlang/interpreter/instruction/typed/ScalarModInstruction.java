@@ -0,0 +1,92 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.typed;
+
+import java.math.BigDecimal;
+
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization.NumberArithmetic;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class ScalarModInstruction implements Instruction {
+	
+	/*
+	 * A number modification whose operand is a NumberNode, e.g. s += i * 2. The operand is never
+	 * wrapped in a RuntimeValue; on failure, the typed instruction runs instead (see ScalarOpInstruction)
+	 */
+	
+	// returns null unless the operand of a number modification is a NumberNode
+	public static Instruction of(@NonNull TypedModInstruction source) {
+		if(!(source.getSpecialization() instanceof NumberArithmetic))
+			return null;
+		
+		NumberNode value = NumberNode.of(source.getValue());
+		
+		if(value == null)
+			return null;
+		
+		return new ScalarModInstruction(source, value);
+	}
+	
+	private final TypedModInstruction source;
+	private final NumberNode value;
+	
+	@Override
+	public long getPosition() {
+		return source.getPosition();
+	}
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeEnvironment env = data.env();
+		VarModInstruction mod = source.getSource();
+		RuntimeValue current = env.getLocal(mod.getHops(), mod.getSlot());
+		
+		try {
+			BigDecimal operand = current == null || !current.isNumber() ? null : value.evaluate(env);
+			
+			if(operand != null) {
+				NumberArithmetic op = (NumberArithmetic) source.getSpecialization();
+				RuntimeValue result = RuntimeValue.of(getPosition(), op.compute(current.numberValue(), operand));
+				
+				env.setLocal(mod.getHops(), mod.getSlot(), result);
+				
+				return new RuntimeResult().value(result);
+			}
+		} catch (ArithmeticException e) {
+			// see above
+		}
+		
+		return source.process(data);
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.typed;
+
+import java.math.BigDecimal;
+
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization.NumberArithmetic;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization.NumberComparison;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class ScalarOpInstruction implements Instruction {
+	
+	/*
+	 * A number operation whose operands are NumberNodes. Only the final value is wrapped in a
+	 * RuntimeValue; if an operand turns out to be undefined or the operation fails, the typed
+	 * instruction runs instead and reports the error as usual
+	 */
+	
+	// returns null unless both operands are NumberNodes of a number operation
+	public static Instruction of(@NonNull TypedOpInstruction source) {
+		BinarySpecialization spec = source.getSpecialization();
+		
+		if(!(spec instanceof NumberArithmetic || spec instanceof NumberComparison))
+			return null;
+		
+		NumberNode left = NumberNode.of(source.getLeft());
+		NumberNode right = NumberNode.of(source.getRight());
+		
+		if(left == null || right == null)
+			return null;
+		
+		return new ScalarOpInstruction(source, left, right);
+	}
+	
+	private final TypedOpInstruction source;
+	private final NumberNode left;
+	private final NumberNode right;
+	
+	@Override
+	public long getPosition() {
+		return source.getPosition();
+	}
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeEnvironment env = data.env();
+		
+		try {
+			BigDecimal a = left.evaluate(env);
+			BigDecimal b = a == null ? null : right.evaluate(env);
+			
+			if(b != null)
+				return new RuntimeResult().value(
+					source.getSpecialization() instanceof NumberArithmetic op
+						? RuntimeValue.of(getPosition(), op.compute(a, b))
+						: RuntimeValue.of(getPosition(), ((NumberComparison) source.getSpecialization()).test(a, b))
+				);
+		} catch (ArithmeticException e) {
+			// see above
+		}
+		
+		return source.process(data);
+	}
+
+}
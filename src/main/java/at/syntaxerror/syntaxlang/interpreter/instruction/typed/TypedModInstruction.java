@@ -0,0 +1,93 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.typed;
+
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class TypedModInstruction implements Instruction {
+	
+	/*
+	 * A variable modification whose variable and operand types have been proven by the
+	 * TypeInference, e.g. a loop counter. Stores the specialized result without a guard
+	 */
+	
+	public static Instruction of(@NonNull VarModInstruction source, @NonNull Instruction value,
+			@NonNull BinarySpecialization specialization) {
+		return new TypedModInstruction(source, value, specialization);
+	}
+	
+	private final VarModInstruction source;
+	private final Instruction value;
+	private final BinarySpecialization specialization;
+	
+	@Override
+	public long getPosition() {
+		return source.getPosition();
+	}
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeEnvironment env = data.env();
+		RuntimeValue current = env.getLocal(source.getHops(), source.getSlot());
+		
+		if(current == null)
+			env.getInputEnvironment().terminate("Variable %s is not defined".formatted(source.getName()), source.getPosition());
+		
+		RuntimeResult result = value.process(data);
+		
+		if(result.isThrow())
+			return result;
+		
+		if(!result.isNothing() || !result.hasValue())
+			env.getInputEnvironment().terminate(
+				"Invalid expression in variable modification",
+				value.getPosition()
+			);
+		
+		RuntimeValue operand = result.getValue();
+		
+		try {
+			result = new RuntimeResult().value(specialization.apply(source.getPosition(), current, operand));
+		} catch (ArithmeticException e) {
+			// reported by the generic path
+			if((result = source.modify(data, current, operand)).isThrow())
+				return result;
+		}
+		
+		env.setLocal(source.getHops(), source.getSlot(), result.getValue());
+		
+		return result;
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.typed;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class TypedOpInstruction implements Instruction {
+	
+	/*
+	 * A binary operation whose operand types have been proven by the TypeInference.
+	 * The specialization is applied without a guard and without selecting it first
+	 */
+	
+	public static Instruction of(@NonNull BinaryOpInstruction source, @NonNull Instruction left,
+			@NonNull Instruction right, @NonNull BinarySpecialization specialization) {
+		return new TypedOpInstruction(source, left, right, specialization);
+	}
+	
+	private final BinaryOpInstruction source;
+	private final Instruction left;
+	private final Instruction right;
+	private final BinarySpecialization specialization;
+	
+	@Override
+	public long getPosition() {
+		return source.getPosition();
+	}
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		RuntimeResult result = left.process(data);
+		
+		if(result.isThrow())
+			return result;
+		
+		RuntimeValue leftValue = value(data, result);
+		
+		if((result = right.process(data)).isThrow())
+			return result;
+		
+		RuntimeValue rightValue = value(data, result);
+		
+		try {
+			return new RuntimeResult().value(specialization.apply(source.getPosition(), leftValue, rightValue));
+		} catch (ArithmeticException e) {
+			// reported by the generic path
+			return source.operate(data, leftValue, rightValue);
+		}
+	}
+	
+	private RuntimeValue value(InstructionData data, RuntimeResult result) {
+		if(!result.isNothing() || !result.hasValue())
+			data.env().getInputEnvironment().terminate(
+				"Invalid expression in binary operation",
+				left.getPosition()
+			);
+		
+		return result.getValue();
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.variable;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.parser.node.VarDeclNode;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class VarDeclInstruction implements Instruction {
+	
+	public static Instruction of(VarDeclNode node) {
+		return of(
+			node.getPosition(),
+			node.getName().identifierValue(),
+			// modifiers always declare a new variable, otherwise an existing one is assigned
+			node.getModAccess() != null || node.getModStatic() != null || node.getModFinal() != null,
+			node.getModFinal() != null,
+			Interpreter.makeInstruction(node.getValue())
+		);
+	}
+	
+	public static Instruction of(long position, String name, boolean declaration, boolean finalModifier, Instruction value) {
+		return new VarDeclInstruction(position, name, declaration, finalModifier, value, -1, -1);
+	}
+	
+	// a final variable that is declared by the runtime itself, e.g. a temporary
+	public static Instruction of(long position, String name, Instruction value, int hops, int slot) {
+		return new VarDeclInstruction(position, name, true, true, value, hops, slot);
+	}
+	
+	public static Instruction of(VarDeclInstruction decl, Instruction value, int hops, int slot) {
+		return new VarDeclInstruction(
+			decl.position,
+			decl.name,
+			decl.declaration,
+			decl.finalModifier,
+			value,
+			hops,
+			slot
+		);
+	}
+	
+	private final long position;
+	private final String name;
+	private final boolean declaration;
+	private final boolean finalModifier;
+	private final Instruction value;
+	
+	// assigned by the ScopeResolver
+	private final int hops;
+	private final int slot;
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		if(slot == -1)
+			throw new SyntaxLangException("Unresolved variable: " + name);
+		
+		RuntimeResult result = value.process(data);
+		
+		if(result.isThrow())
+			return result;
+		
+		if(!result.isNothing() || !result.hasValue())
+			data.env().getInputEnvironment().terminate(
+				"Invalid expression in variable declaration",
+				value.getPosition()
+			);
+		
+		data.env().setLocal(hops, slot, result.getValue());
+		
+		return new RuntimeResult().value(result.getValue());
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.variable;
+
+import java.math.BigDecimal;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.NumberInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.parser.node.VarModNode;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class VarModInstruction implements Instruction {
+	
+	public static Instruction of(VarModNode node) {
+		return of(
+			node.getPosition(),
+			node.getName().identifierValue(),
+			node.getOp(),
+			Interpreter.makeInstruction(node.getValue())
+		);
+	}
+	
+	// the operator is the assignment token, e.g. ASSIGN_ADD
+	public static Instruction of(long position, String name, Token assign, Instruction value) {
+		TokenType type = switch(assign.getType()) {
+		case ASSIGN_ADD -> TokenType.PLUS;
+		case ASSIGN_SUB -> TokenType.MINUS;
+		case ASSIGN_MUL -> TokenType.MULTIPLY;
+		case ASSIGN_DIV -> TokenType.DIVIDE;
+		case ASSIGN_MOD -> TokenType.MODULO;
+		case ASSIGN_POW -> TokenType.POWER;
+		case ASSIGN_LSH -> TokenType.LSHIFT;
+		case ASSIGN_RSH -> TokenType.RSHIFT;
+		case ASSIGN_AND -> TokenType.BITAND;
+		case ASSIGN_XOR -> TokenType.XOR;
+		case ASSIGN_OR -> TokenType.BITOR;
+		default -> throw new SyntaxLangException("Illegal assignment operator: " + assign);
+		};
+		
+		Token op = new Token(type);
+		op.setPosition(assign.getPosition());
+		
+		return new VarModInstruction(position, name, op, value, -1, -1);
+	}
+	
+	// ++x and --x are x += 1 and x -= 1, x++ and x-- evaluate to the previous value: (x += 1) - 1
+	public static Instruction increment(long position, String name, Token op, boolean pre) {
+		boolean increment = op.is(TokenType.INCREMENT);
+		
+		Token assign = new Token(increment ? TokenType.ASSIGN_ADD : TokenType.ASSIGN_SUB);
+		assign.setPosition(op.getPosition());
+		
+		Instruction mod = of(position, name, assign, NumberInstruction.of(position, BigDecimal.ONE));
+		
+		if(pre)
+			return mod;
+		
+		Token undo = new Token(increment ? TokenType.MINUS : TokenType.PLUS);
+		undo.setPosition(op.getPosition());
+		
+		return BinaryOpInstruction.of(position, mod, undo, NumberInstruction.of(position, BigDecimal.ONE));
+	}
+	
+	public static Instruction of(VarModInstruction mod, Instruction value, int hops, int slot) {
+		return new VarModInstruction(mod.position, mod.name, mod.op, value, hops, slot);
+	}
+	
+	private final long position;
+	private final String name;
+	private final Token op;
+	private final Instruction value;
+	
+	// assigned by the ScopeResolver
+	private final int hops;
+	private final int slot;
+	
+	// null until the modification is executed for the first time
+	private transient BinarySpecialization specialization;
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		if(slot == -1)
+			throw new SyntaxLangException("Unresolved variable: " + name);
+		
+		RuntimeEnvironment env = data.env();
+		RuntimeValue current = env.getLocal(hops, slot);
+		
+		if(current == null)
+			env.getInputEnvironment().terminate("Variable %s is not defined".formatted(name), position);
+		
+		RuntimeResult result = value.process(data);
+		
+		if(result.isThrow())
+			return result;
+		
+		if(!result.isNothing() || !result.hasValue())
+			env.getInputEnvironment().terminate(
+				"Invalid expression in variable modification",
+				value.getPosition()
+			);
+		
+		result = modify(data, current, result.getValue());
+		
+		if(result.isThrow())
+			return result;
+		
+		env.setLocal(hops, slot, result.getValue());
+		
+		return result;
+	}
+	
+	// computes the new value of the variable without storing it
+	public RuntimeResult modify(InstructionData data, RuntimeValue current, RuntimeValue operand) {
+		BinarySpecialization spec = specialization = BinarySpecialization.select(specialization, op.getType(), current, operand);
+		
+		if(spec != BinarySpecialization.GENERIC)
+			try {
+				return new RuntimeResult().value(spec.apply(position, current, operand));
+			} catch (ArithmeticException e) {
+				// reported by the generic path below
+			}
+		
+		RuntimeResult result = BinaryOpInstruction.performOperation(data, position, current, op, operand);
+		
+		if(!result.isThrow() && (!result.isNothing() || !result.hasValue()))
+			data.env().getInputEnvironment().terminate(
+				"Invalid binary operation: %s %s %s"
+					.formatted(current.getType(), op.toSimpleString(), operand.getType()),
+				position
+			);
+		
+		return result;
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.jit;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import lombok.Getter;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public abstract class CompiledInstruction implements Instruction {
+	
+	// the instruction this class was compiled from
+	@Getter
+	private final Instruction source;
+	
+	protected CompiledInstruction(Instruction source) {
+		this.source = source;
+	}
+	
+	@Override
+	public long getPosition() {
+		return source.getPosition();
+	}
+	
+	@Override
+	public RuntimeResult process(InstructionData data) {
+		try {
+			return run(data);
+		} catch (ScriptThrow e) {
+			return e.getResult();
+		}
+	}
+	
+	protected abstract RuntimeResult run(InstructionData data);
+
+}
@@ -0,0 +1,410 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.jit;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.SwitchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.TryCatchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ThrowInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.YieldInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class HandleCompiler {
+	
+	/*
+	 * Compiles expressions into trees of method handles instead of generating classes (see JitCompiler).
+	 * 
+	 * Statements are still executed by the interpreter, but every operation, ternary operation or
+	 * variable assignment in them is replaced by a HandleInstruction, whose handle combines the
+	 * operations of the whole expression. Each handle has the type (InstructionData)RuntimeValue and
+	 * is invoked with invokeExact, so once it is hot the JVM can customize and inline the entire
+	 * expression. Instructions without a handle equivalent are invoked through the interpreter.
+	 * 
+	 * Operands are always evaluated left to right: the left operand is folded into the operation
+	 * with foldArguments, which runs it before the rest of the handle.
+	 */
+	
+	static final MethodType EXPRESSION = methodType(RuntimeValue.class, InstructionData.class);
+	
+	private static final MethodHandle EVALUATE = findStatic(HandleCompiler.class, "evaluate",
+		RuntimeValue.class, Instruction.class, String.class, InstructionData.class);
+	private static final MethodHandle LOAD = findStatic(HandleCompiler.class, "load",
+		RuntimeValue.class, int.class, int.class, long.class, String.class, InstructionData.class);
+	private static final MethodHandle STORE = findStatic(HandleCompiler.class, "store",
+		RuntimeValue.class, int.class, int.class, InstructionData.class, RuntimeValue.class);
+	private static final MethodHandle MODIFY = findStatic(HandleCompiler.class, "modify",
+		RuntimeValue.class, VarModInstruction.class, InstructionData.class, RuntimeValue.class, RuntimeValue.class);
+	private static final MethodHandle SHORT_CIRCUITS = findStatic(HandleCompiler.class, "shortCircuits",
+		boolean.class, boolean.class, RuntimeValue.class);
+	
+	private static final MethodHandle UNWRAP = findStatic(JitRuntime.class, "unwrap",
+		RuntimeValue.class, RuntimeResult.class);
+	private static final MethodHandle IS_TRUE = findStatic(IfInstruction.class, "isTrue",
+		boolean.class, InstructionData.class, Instruction.class, RuntimeValue.class);
+	private static final MethodHandle UNARY = findStatic(UnaryOpInstruction.class, "performOperation",
+		RuntimeResult.class, InstructionData.class, long.class, Token.class, RuntimeValue.class);
+	private static final MethodHandle OPERATE = findVirtual(BinaryOpInstruction.class, "operate",
+		RuntimeResult.class, InstructionData.class, RuntimeValue.class, RuntimeValue.class);
+	
+	private static final MethodHandle ACCEPTS = findVirtual(BinarySpecialization.class, "accepts",
+		boolean.class, RuntimeValue.class, RuntimeValue.class);
+	private static final MethodHandle APPLY = findVirtual(BinarySpecialization.class, "apply",
+		RuntimeValue.class, long.class, RuntimeValue.class, RuntimeValue.class);
+	
+	public static List<Instruction> compile(@NonNull List<Instruction> instructions) {
+		return compileAll(instructions, new IdentityHashMap<>());
+	}
+	
+	public static Instruction compile(@NonNull Instruction instruction) {
+		return compile(instruction, new IdentityHashMap<>());
+	}
+	
+	private static List<Instruction> compileAll(List<Instruction> instructions, Map<Instruction, Instruction> done) {
+		List<Instruction> result = new ArrayList<>(instructions.size());
+		
+		for(Instruction instr : instructions)
+			result.add(compile(instr, done));
+		
+		return result;
+	}
+	
+	private static Instruction compile(Instruction instr, Map<Instruction, Instruction> done) {
+		if(instr == null)
+			return null;
+		
+		Instruction result = done.get(instr);
+		
+		if(result == null) {
+			try {
+				result = rewrite(instr, done);
+			} catch (RuntimeException e) {
+				System.err.println("WARN: could not compile instruction, falling back to the interpreter: " + e);
+				result = instr;
+			}
+			
+			done.put(instr, result);
+		}
+		
+		return result;
+	}
+	
+	// replaces the expressions in statements, leaving the statements themselves to the interpreter
+	private static Instruction rewrite(Instruction instr, Map<Instruction, Instruction> done) {
+		if(isCompound(instr))
+			return HandleInstruction.of(instr, expression(instr, "Invalid expression"));
+		
+		if(instr instanceof StatementsInstruction n)
+			return StatementsInstruction.of(n.getPosition(), compileAll(n.getInstructions(), done), n.getLocals());
+		
+		if(instr instanceof IfInstruction n)
+			return IfInstruction.of(
+				n.getPosition(),
+				compileAll(n.getConditions(), done),
+				compileAll(n.getBodies(), done),
+				compile(n.getElseBody(), done)
+			);
+		
+		if(instr instanceof WhileInstruction n)
+			return WhileInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				compile(n.getCondition(), done),
+				compile(n.getBody(), done)
+			);
+		
+		if(instr instanceof DoWhileInstruction n)
+			return DoWhileInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				compile(n.getCondition(), done),
+				compile(n.getBody(), done)
+			);
+		
+		if(instr instanceof ForInstruction n)
+			return ForInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				compileAll(n.getInit(), done),
+				compile(n.getCondition(), done),
+				compileAll(n.getUpdate(), done),
+				compile(n.getBody(), done),
+				n.getLocals()
+			);
+		
+		if(instr instanceof TryCatchInstruction n)
+			return TryCatchInstruction.of(
+				n.getPosition(),
+				n.getVarName(),
+				compile(n.getTryBody(), done),
+				compile(n.getCatchBody(), done)
+			);
+		
+		if(instr instanceof SwitchInstruction n) {
+			List<Instruction> cases = new ArrayList<>();
+			
+			for(Instruction caseValue : n.getCases())
+				cases.add(compile(caseValue, done));
+			
+			return SwitchInstruction.of(
+				n.getPosition(),
+				compile(n.getValue(), done),
+				cases,
+				compileAll(n.getBodies(), done),
+				n.isExpression()
+			);
+		}
+		
+		if(instr instanceof YieldInstruction n)
+			return YieldInstruction.of(n.getPosition(), compile(n.getValue(), done));
+		
+		if(instr instanceof ReturnInstruction n && n.getValue() != null)
+			return ReturnInstruction.of(n.getPosition(), compile(n.getValue(), done));
+		
+		if(instr instanceof ThrowInstruction n)
+			return ThrowInstruction.of(n.getPosition(), compile(n.getValue(), done));
+		
+		return instr;
+	}
+	
+	// literals and variables on their own are not worth a handle
+	private static boolean isCompound(Instruction instr) {
+		return instr instanceof BinaryOpInstruction
+			|| instr instanceof UnaryOpInstruction
+			|| instr instanceof TernaryOpInstruction
+			|| instr instanceof VarDeclInstruction n && n.getSlot() != -1
+			|| instr instanceof VarModInstruction m && m.getSlot() != -1;
+	}
+	
+	// (InstructionData)RuntimeValue
+	private static MethodHandle expression(Instruction instr, String message) {
+		if(instr instanceof LiteralInstruction n)
+			return MethodHandles.dropArguments(
+				MethodHandles.constant(RuntimeValue.class, n.getValue()),
+				0, InstructionData.class
+			);
+		
+		if(instr instanceof VariableInstruction n && n.getSlot() != -1)
+			return MethodHandles.insertArguments(LOAD, 0, n.getHops(), n.getSlot(), n.getPosition(), n.getName());
+		
+		if(instr instanceof BinaryOpInstruction n)
+			return binary(n);
+		
+		if(instr instanceof UnaryOpInstruction n)
+			return apply(
+				MethodHandles.filterReturnValue(
+					MethodHandles.insertArguments(UNARY, 1, n.getPosition(), n.getOp()),
+					UNWRAP
+				),
+				expression(n.getTarget(), "Invalid expression in unary operation")
+			);
+		
+		if(instr instanceof TernaryOpInstruction n)
+			return MethodHandles.guardWithTest(
+				condition(n.getCondition()),
+				expression(n.getResultThen(), message),
+				expression(n.getResultElse(), message)
+			);
+		
+		if(instr instanceof VarDeclInstruction n && n.getSlot() != -1)
+			return apply(
+				MethodHandles.insertArguments(STORE, 0, n.getHops(), n.getSlot()),
+				expression(n.getValue(), "Invalid expression in variable declaration")
+			);
+		
+		if(instr instanceof VarModInstruction n && n.getSlot() != -1)
+			return sequence(
+				MODIFY.bindTo(n),
+				MethodHandles.insertArguments(LOAD, 0, n.getHops(), n.getSlot(), n.getPosition(), n.getName()),
+				expression(n.getValue(), "Invalid expression in variable modification")
+			);
+		
+		return MethodHandles.insertArguments(EVALUATE, 0, instr, message);
+	}
+	
+	// (InstructionData)boolean
+	private static MethodHandle condition(Instruction instr) {
+		return apply(
+			MethodHandles.insertArguments(IS_TRUE, 1, instr),
+			expression(instr, "Invalid expression in condition")
+		);
+	}
+	
+	private static MethodHandle binary(BinaryOpInstruction instr) {
+		TokenType op = instr.getOp().getType();
+		
+		MethodHandle left = expression(instr.getLeft(), "Invalid expression in binary operation");
+		MethodHandle right = expression(instr.getRight(), "Invalid expression in binary operation");
+		
+		// (InstructionData, RuntimeValue, RuntimeValue)RuntimeValue
+		MethodHandle operation = MethodHandles.filterReturnValue(OPERATE.bindTo(instr), UNWRAP);
+		BinarySpecialization fast = numberOperation(op);
+		
+		if(fast != null)
+			operation = MethodHandles.guardWithTest(
+				MethodHandles.dropArguments(ACCEPTS.bindTo(fast), 0, InstructionData.class),
+				MethodHandles.dropArguments(
+					MethodHandles.insertArguments(APPLY.bindTo(fast), 0, instr.getPosition()),
+					0, InstructionData.class
+				),
+				operation
+			);
+		
+		if(op != TokenType.AND && op != TokenType.OR)
+			return sequence(operation, left, right);
+		
+		boolean and = op == TokenType.AND;
+		
+		// false && ... and true || ... skip the right operand; (RuntimeValue, InstructionData)RuntimeValue
+		MethodHandle skip = MethodHandles.dropArguments(
+			MethodHandles.constant(RuntimeValue.class, RuntimeValue.of(instr.getPosition(), !and)),
+			0, RuntimeValue.class, InstructionData.class
+		);
+		
+		MethodHandle test = MethodHandles.dropArguments(
+			MethodHandles.insertArguments(SHORT_CIRCUITS, 0, and),
+			1, InstructionData.class
+		);
+		
+		return MethodHandles.foldArguments(
+			MethodHandles.guardWithTest(test, skip, withRight(operation, right)),
+			left
+		);
+	}
+	
+	// the operations that cannot fail for two numbers, so errors are still reported by the interpreter
+	private static BinarySpecialization numberOperation(TokenType op) {
+		return switch(op) {
+		case PLUS -> BinarySpecialization.NUMBER_ADD;
+		case MINUS -> BinarySpecialization.NUMBER_SUBTRACT;
+		case MULTIPLY -> BinarySpecialization.NUMBER_MULTIPLY;
+		case LESS -> BinarySpecialization.NUMBER_LESS;
+		case LESS_EQUAL -> BinarySpecialization.NUMBER_LESS_EQUAL;
+		case GREATER -> BinarySpecialization.NUMBER_GREATER;
+		case GREATER_EQUAL -> BinarySpecialization.NUMBER_GREATER_EQUAL;
+		case EQUAL, IDENTICAL -> BinarySpecialization.NUMBER_EQUAL;
+		case NOT_EQUAL, NOT_IDENTICAL -> BinarySpecialization.NUMBER_NOT_EQUAL;
+		default -> null;
+		};
+	}
+	
+	// (InstructionData, A)R applied to a(InstructionData) => (InstructionData)R
+	private static MethodHandle apply(MethodHandle operation, MethodHandle a) {
+		MethodType type = operation.type();
+		
+		return MethodHandles.permuteArguments(
+			MethodHandles.filterArguments(operation, 1, a),
+			methodType(type.returnType(), InstructionData.class),
+			0, 0
+		);
+	}
+	
+	// (InstructionData, A, B)R applied to a(InstructionData), then b(InstructionData) => (InstructionData)R
+	private static MethodHandle sequence(MethodHandle operation, MethodHandle a, MethodHandle b) {
+		return MethodHandles.foldArguments(withRight(operation, b), a);
+	}
+	
+	// (InstructionData, A, B)R with b(InstructionData) => (A, InstructionData)R
+	private static MethodHandle withRight(MethodHandle operation, MethodHandle b) {
+		MethodType type = operation.type();
+		
+		return MethodHandles.permuteArguments(
+			MethodHandles.filterArguments(operation, 2, b),
+			methodType(type.returnType(), type.parameterType(1), InstructionData.class),
+			1, 0, 1
+		);
+	}
+	
+	private static MethodHandle findStatic(Class<?> owner, String name, Class<?> returnType, Class<?>... params) {
+		try {
+			return MethodHandles.lookup().findStatic(owner, name, methodType(returnType, params));
+		} catch (ReflectiveOperationException e) {
+			throw new SyntaxLangException(e);
+		}
+	}
+	
+	private static MethodHandle findVirtual(Class<?> owner, String name, Class<?> returnType, Class<?>... params) {
+		try {
+			return MethodHandles.lookup().findVirtual(owner, name, methodType(returnType, params));
+		} catch (ReflectiveOperationException e) {
+			throw new SyntaxLangException(e);
+		}
+	}
+	
+	// called by the handles
+	
+	private static RuntimeValue evaluate(Instruction instr, String message, InstructionData data) {
+		return JitRuntime.value(instr.process(data), data, instr, message);
+	}
+	
+	private static RuntimeValue load(int hops, int slot, long position, String name, InstructionData data) {
+		return JitRuntime.load(data.env(), hops, slot, data, position, name);
+	}
+	
+	private static RuntimeValue store(int hops, int slot, InstructionData data, RuntimeValue value) {
+		data.env().setLocal(hops, slot, value);
+		return value;
+	}
+	
+	private static RuntimeValue modify(VarModInstruction instr, InstructionData data, RuntimeValue current, RuntimeValue operand) {
+		RuntimeValue value = JitRuntime.unwrap(instr.modify(data, current, operand));
+		
+		data.env().setLocal(instr.getHops(), instr.getSlot(), value);
+		return value;
+	}
+	
+	private static boolean shortCircuits(boolean and, RuntimeValue left) {
+		return left.isBoolean() && left.booleanValue() != and;
+	}
+
+}
@@ -0,0 +1,920 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.jit;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.EmptyInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.IfInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.TryCatchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.BreakInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ContinueInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ThrowInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.YieldInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.PrimitiveOperations;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeError;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import lombok.NonNull;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class JitCompiler {
+	
+	/*
+	 * Translates instruction trees into JVM bytecode. Every compiled tree becomes a hidden class
+	 * extending CompiledInstruction, which can be unloaded as soon as it is no longer referenced.
+	 *
+	 * Values live on the JVM stack instead of in RuntimeResults, loops and jumps become JVM branches
+	 * and exceptions are thrown as ScriptThrow. Operations take an inlined fast path for numbers and
+	 * otherwise call into the same code as the interpreter (including operator overloads). Any
+	 * instruction that cannot be compiled is executed by the interpreter, and its result is mapped
+	 * back onto the compiled control flow.
+	 *
+	 * Instructions are referenced through static final fields, so the JVM can inline through them.
+	 */
+	
+	private static final String NAME = "at/syntaxerror/syntaxlang/interpreter/jit/CompiledUnit";
+	private static final String SUPER = Type.getInternalName(CompiledInstruction.class);
+	
+	// returns the compiled instruction, or the instruction itself if it is not worth compiling
+	public static Instruction compile(@NonNull Instruction instr) {
+		return compile(instr, false);
+	}
+	
+	// function bodies run once per call, so they are worth compiling even without loops
+	public static Instruction compileFunction(@NonNull Instruction body) {
+		return compile(body, true);
+	}
+	
+	private static Instruction compile(Instruction instr, boolean hot) {
+		if(instr instanceof CompiledInstruction)
+			return instr;
+		
+		try {
+			JitCompiler compiler = new JitCompiler();
+			compiler.hot = hot;
+			byte[] code = compiler.generate(instr);
+			
+			if(code == null)
+				return instr;
+			
+			Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(code, compiler.constants.toArray(), true);
+			
+			return (Instruction) lookup.lookupClass()
+				.getConstructor(Instruction.class)
+				.newInstance(instr);
+		} catch (Exception | LinkageError e) {
+			System.err.println("WARN: could not compile instruction, falling back to the interpreter: " + e);
+			return instr;
+		}
+	}
+	
+	private final List<Object> constants = new ArrayList<>();
+	private final List<Class<?>> constantTypes = new ArrayList<>();
+	private final Map<Object, Integer> constantIndices = new IdentityHashMap<>();
+	
+	private final List<Scope> scopes = new ArrayList<>();
+	private final List<Loop> loops = new ArrayList<>();
+	
+	private MethodVisitor mv;
+	private int nextLocal;
+	
+	// only trees containing loops are worth compiling, unless they are executed once per call
+	private boolean hot;
+	
+	private JitCompiler() { }
+	
+	private byte[] generate(Instruction root) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+		cw.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, NAME, null, SUPER, null);
+		
+		mv = cw.visitMethod(ACC_PUBLIC, "<init>", descriptor(void.class, Instruction.class), null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitMethodInsn(INVOKESPECIAL, SUPER, "<init>", descriptor(void.class, Instruction.class), false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		
+		mv = cw.visitMethod(ACC_PROTECTED, "run", descriptor(RuntimeResult.class, InstructionData.class), null, null);
+		mv.visitCode();
+		
+		// local 0 is this, local 1 the InstructionData
+		nextLocal = 2;
+		
+		int env = newLocal();
+		mv.visitVarInsn(ALOAD, 1);
+		invoke(InstructionData.class, "env", RuntimeEnvironment.class);
+		mv.visitVarInsn(ASTORE, env);
+		
+		scopes.add(new Scope(env, 1));
+		
+		if(isExpression(root)) {
+			compileExpression(root, "Invalid expression");
+			
+			int value = newLocal();
+			mv.visitVarInsn(ASTORE, value);
+			
+			newResult();
+			mv.visitVarInsn(ALOAD, value);
+			invoke(RuntimeResult.class, "value", RuntimeResult.class, RuntimeValue.class);
+		} else {
+			compileStatement(root);
+			newResult();
+		}
+		
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		
+		if(!hot)
+			return null;
+		
+		generateConstants(cw);
+		
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+	
+	// the constants are passed as class data and copied into static final fields
+	private void generateConstants(ClassWriter cw) {
+		mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+		mv.visitCode();
+		
+		mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodHandles.class), "lookup",
+			descriptor(Lookup.class), false);
+		mv.visitLdcInsn("_");
+		mv.visitLdcInsn(Type.getType(Object[].class));
+		mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodHandles.class), "classData",
+			descriptor(Object.class, Lookup.class, String.class, Class.class), false);
+		mv.visitTypeInsn(CHECKCAST, Type.getInternalName(Object[].class));
+		
+		for(int i = 0; i < constants.size(); ++i) {
+			String type = Type.getDescriptor(constantTypes.get(i));
+			
+			cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "c" + i, type, null, null).visitEnd();
+			
+			mv.visitInsn(DUP);
+			push(i);
+			mv.visitInsn(AALOAD);
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(constantTypes.get(i)));
+			mv.visitFieldInsn(PUTSTATIC, NAME, "c" + i, type);
+		}
+		
+		mv.visitInsn(POP);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+	
+	// statements
+	
+	private void compileStatement(Instruction instr) {
+		if(instr instanceof EmptyInstruction)
+			return;
+		
+		if(instr instanceof StatementsInstruction n) {
+			enterScope(n.getLocals(), n.getPosition());
+			
+			for(Instruction statement : n.getInstructions())
+				compileStatement(statement);
+			
+			leaveScope(n.getLocals());
+			return;
+		}
+		
+		if(instr instanceof IfInstruction n) {
+			Label end = new Label();
+			
+			for(int i = 0; i < n.getConditions().size(); ++i) {
+				Label next = new Label();
+				
+				compileCondition(n.getConditions().get(i), next);
+				compileStatement(n.getBodies().get(i));
+				mv.visitJumpInsn(GOTO, end);
+				mv.visitLabel(next);
+			}
+			
+			compileStatement(n.getElseBody());
+			mv.visitLabel(end);
+			return;
+		}
+		
+		if(instr instanceof WhileInstruction n) {
+			Loop loop = new Loop(n.getLabel());
+			
+			mv.visitLabel(loop.next);
+			compileCondition(n.getCondition(), loop.exit);
+			compileLoopBody(loop, n.getBody());
+			mv.visitJumpInsn(GOTO, loop.next);
+			mv.visitLabel(loop.exit);
+			return;
+		}
+		
+		if(instr instanceof DoWhileInstruction n) {
+			Loop loop = new Loop(n.getLabel());
+			Label start = new Label();
+			
+			mv.visitLabel(start);
+			compileLoopBody(loop, n.getBody());
+			mv.visitLabel(loop.next);
+			compileCondition(n.getCondition(), loop.exit);
+			mv.visitJumpInsn(GOTO, start);
+			mv.visitLabel(loop.exit);
+			return;
+		}
+		
+		if(instr instanceof ForInstruction n) {
+			Loop loop = new Loop(n.getLabel());
+			Label start = new Label();
+			
+			enterScope(n.getLocals(), n.getPosition());
+			
+			for(Instruction init : n.getInit())
+				compileStatement(init);
+			
+			mv.visitLabel(start);
+			
+			if(n.getCondition() != null)
+				compileCondition(n.getCondition(), loop.exit);
+			
+			compileLoopBody(loop, n.getBody());
+			mv.visitLabel(loop.next);
+			
+			for(Instruction update : n.getUpdate())
+				compileStatement(update);
+			
+			mv.visitJumpInsn(GOTO, start);
+			mv.visitLabel(loop.exit);
+			
+			leaveScope(n.getLocals());
+			return;
+		}
+		
+		if(instr instanceof TryCatchInstruction n) {
+			compileTryCatch(n);
+			return;
+		}
+		
+		if(instr instanceof BreakInstruction n) {
+			Loop loop = findLoop(n.getLabel());
+			
+			if(loop == null)
+				compileFallback(instr);
+			else mv.visitJumpInsn(GOTO, loop.exit);
+			return;
+		}
+		
+		if(instr instanceof ContinueInstruction n) {
+			Loop loop = findLoop(n.getLabel());
+			
+			if(loop == null)
+				compileFallback(instr);
+			else mv.visitJumpInsn(GOTO, loop.next);
+			return;
+		}
+		
+		if(instr instanceof ReturnInstruction n) {
+			if(n.getValue() == null) {
+				newResult();
+				invoke(RuntimeResult.class, "returnPlain", RuntimeResult.class);
+			} else returnValue(n.getValue(), "Invalid expression in return statement", "returnValue0");
+			
+			mv.visitInsn(ARETURN);
+			return;
+		}
+		
+		if(instr instanceof YieldInstruction n) {
+			returnValue(n.getValue(), "Invalid expression in yield statement", "yieldValue");
+			mv.visitInsn(ARETURN);
+			return;
+		}
+		
+		if(instr instanceof ThrowInstruction n) {
+			compileExpression(n.getValue(), "Invalid expression in throw statement");
+			loadData();
+			mv.visitLdcInsn(n.getPosition());
+			invokeStatic(JitRuntime.class, "raise", ScriptThrow.class, RuntimeValue.class, InstructionData.class, long.class);
+			mv.visitInsn(ATHROW);
+			return;
+		}
+		
+		if(isExpression(instr)) {
+			compileExpression(instr, "Invalid expression");
+			mv.visitInsn(POP);
+			return;
+		}
+		
+		compileFallback(instr);
+	}
+	
+	private void compileLoopBody(Loop loop, Instruction body) {
+		hot = true;
+		
+		loops.add(loop);
+		compileStatement(body);
+		loops.remove(loops.size() - 1);
+	}
+	
+	private void compileTryCatch(TryCatchInstruction instr) {
+		Label start = new Label();
+		Label end = new Label();
+		Label handler = new Label();
+		Label after = new Label();
+		
+		mv.visitLabel(start);
+		mv.visitInsn(NOP); // the protected range must not be empty
+		compileStatement(instr.getTryBody());
+		mv.visitLabel(end);
+		mv.visitJumpInsn(GOTO, after);
+		
+		// registered after the nested try-catch blocks, which must take precedence
+		mv.visitTryCatchBlock(start, end, handler, Type.getInternalName(ScriptThrow.class));
+		
+		mv.visitLabel(handler);
+		invoke(ScriptThrow.class, "getResult", RuntimeResult.class);
+		invoke(RuntimeResult.class, "getException", RuntimeError.class);
+		invoke(RuntimeError.class, "getValue", RuntimeValue.class);
+		
+		int exception = newLocal();
+		mv.visitVarInsn(ASTORE, exception);
+		
+		// the catch variable is always the first local of its scope
+		enterScope(1, instr.getPosition());
+		
+		loadEnv();
+		push(0);
+		push(0);
+		mv.visitVarInsn(ALOAD, exception);
+		invoke(RuntimeEnvironment.class, "setLocal", void.class, int.class, int.class, RuntimeValue.class);
+		
+		compileStatement(instr.getCatchBody());
+		
+		leaveScope(1);
+		
+		mv.visitLabel(after);
+	}
+	
+	private void returnValue(Instruction value, String message, String action) {
+		compileExpression(value, message);
+		
+		int local = newLocal();
+		mv.visitVarInsn(ASTORE, local);
+		
+		newResult();
+		mv.visitVarInsn(ALOAD, local);
+		invoke(RuntimeResult.class, action, RuntimeResult.class, RuntimeValue.class);
+	}
+	
+	// lets the interpreter execute a statement and maps its result onto the compiled control flow
+	private void compileFallback(Instruction instr) {
+		Label next = new Label();
+		int result = newLocal();
+		
+		loadConstant(instr, Instruction.class);
+		loadData();
+		loadEnv();
+		invoke(Instruction.class, "process", RuntimeResult.class, InstructionData.class, RuntimeEnvironment.class);
+		mv.visitVarInsn(ASTORE, result);
+		
+		mv.visitVarInsn(ALOAD, result);
+		invoke(RuntimeResult.class, "isNothing", boolean.class);
+		mv.visitJumpInsn(IFNE, next);
+		
+		mv.visitVarInsn(ALOAD, result);
+		invokeStatic(JitRuntime.class, "rethrow", void.class, RuntimeResult.class);
+		
+		for(int i = loops.size() - 1; i >= 0; --i) {
+			Loop loop = loops.get(i);
+			
+			for(String target : new String[] { "breaks", "continues" }) {
+				mv.visitVarInsn(ALOAD, result);
+				
+				if(loop.label == null)
+					mv.visitInsn(ACONST_NULL);
+				else mv.visitLdcInsn(loop.label);
+				
+				push(i == loops.size() - 1 ? 1 : 0);
+				invokeStatic(JitRuntime.class, target, boolean.class, RuntimeResult.class, String.class, boolean.class);
+				mv.visitJumpInsn(IFNE, target.equals("breaks") ? loop.exit : loop.next);
+			}
+		}
+		
+		// anything else (e.g. a return) leaves the compiled code
+		mv.visitVarInsn(ALOAD, result);
+		mv.visitInsn(ARETURN);
+		
+		mv.visitLabel(next);
+	}
+	
+	// expressions
+	
+	private static boolean isExpression(Instruction instr) {
+		return instr instanceof LiteralInstruction
+			|| instr instanceof VariableInstruction
+			|| instr instanceof BinaryOpInstruction
+			|| instr instanceof UnaryOpInstruction
+			|| instr instanceof TernaryOpInstruction
+			|| instr instanceof VarDeclInstruction
+			|| instr instanceof VarModInstruction;
+	}
+	
+	// leaves the RuntimeValue on the stack, message is reported if the interpreter returns no value
+	private void compileExpression(Instruction instr, String message) {
+		if(instr instanceof LiteralInstruction n) {
+			loadConstant(n.getValue(), RuntimeValue.class);
+			return;
+		}
+		
+		if(instr instanceof VariableInstruction n) {
+			loadVariable(n.getHops(), n.getSlot(), n.getPosition(), n.getName());
+			return;
+		}
+		
+		if(instr instanceof BinaryOpInstruction n) {
+			compileBinary(n);
+			return;
+		}
+		
+		if(instr instanceof UnaryOpInstruction n) {
+			compileExpression(n.getTarget(), "Invalid expression in unary operation");
+			
+			int value = newLocal();
+			mv.visitVarInsn(ASTORE, value);
+			
+			loadData();
+			mv.visitLdcInsn(n.getPosition());
+			loadConstant(n.getOp(), Token.class);
+			mv.visitVarInsn(ALOAD, value);
+			invokeStatic(UnaryOpInstruction.class, "performOperation", RuntimeResult.class,
+				InstructionData.class, long.class, Token.class, RuntimeValue.class);
+			invokeStatic(JitRuntime.class, "unwrap", RuntimeValue.class, RuntimeResult.class);
+			return;
+		}
+		
+		if(instr instanceof TernaryOpInstruction n) {
+			Label otherwise = new Label();
+			Label end = new Label();
+			
+			compileCondition(n.getCondition(), otherwise);
+			compileExpression(n.getResultThen(), message);
+			mv.visitJumpInsn(GOTO, end);
+			mv.visitLabel(otherwise);
+			compileExpression(n.getResultElse(), message);
+			mv.visitLabel(end);
+			return;
+		}
+		
+		if(instr instanceof VarDeclInstruction n && n.getSlot() != -1) {
+			compileExpression(n.getValue(), "Invalid expression in variable declaration");
+			storeVariable(n.getHops(), n.getSlot());
+			return;
+		}
+		
+		if(instr instanceof VarModInstruction n && n.getSlot() != -1) {
+			compileModification(n);
+			return;
+		}
+		
+		loadConstant(instr, Instruction.class);
+		loadData();
+		invoke(Instruction.class, "process", RuntimeResult.class, InstructionData.class);
+		loadData();
+		loadConstant(instr, Instruction.class);
+		mv.visitLdcInsn(message);
+		invokeStatic(JitRuntime.class, "value", RuntimeValue.class,
+			RuntimeResult.class, InstructionData.class, Instruction.class, String.class);
+	}
+	
+	private void compileBinary(BinaryOpInstruction instr) {
+		TokenType op = instr.getOp().getType();
+		Label end = new Label();
+		
+		compileExpression(instr.getLeft(), "Invalid expression in binary operation");
+		
+		if(op == TokenType.AND || op == TokenType.OR) {
+			Label evaluate = new Label();
+			
+			mv.visitInsn(DUP);
+			mv.visitLdcInsn(instr.getPosition());
+			push(op == TokenType.AND ? 1 : 0);
+			invokeStatic(JitRuntime.class, "shortCircuit", RuntimeValue.class, RuntimeValue.class, long.class, boolean.class);
+			mv.visitInsn(DUP);
+			mv.visitJumpInsn(IFNULL, evaluate);
+			
+			// replace the left operand with the result
+			mv.visitInsn(SWAP);
+			mv.visitInsn(POP);
+			mv.visitJumpInsn(GOTO, end);
+			
+			mv.visitLabel(evaluate);
+			mv.visitInsn(POP);
+		}
+		
+		compileExpression(instr.getRight(), "Invalid expression in binary operation");
+		
+		int right = newLocal();
+		int left = newLocal();
+		mv.visitVarInsn(ASTORE, right);
+		mv.visitVarInsn(ASTORE, left);
+		
+		Label generic = new Label();
+		
+		if(compileNumberOperation(op, instr.getPosition(), left, right, generic))
+			mv.visitJumpInsn(GOTO, end);
+		
+		mv.visitLabel(generic);
+		loadConstant(instr, BinaryOpInstruction.class);
+		loadData();
+		mv.visitVarInsn(ALOAD, left);
+		mv.visitVarInsn(ALOAD, right);
+		invoke(BinaryOpInstruction.class, "operate", RuntimeResult.class,
+			InstructionData.class, RuntimeValue.class, RuntimeValue.class);
+		invokeStatic(JitRuntime.class, "unwrap", RuntimeValue.class, RuntimeResult.class);
+		
+		mv.visitLabel(end);
+	}
+	
+	private void compileModification(VarModInstruction instr) {
+		TokenType op = instr.getOp().getType();
+		
+		int current = newLocal();
+		int operand = newLocal();
+		
+		loadVariable(instr.getHops(), instr.getSlot(), instr.getPosition(), instr.getName());
+		mv.visitVarInsn(ASTORE, current);
+		
+		compileExpression(instr.getValue(), "Invalid expression in variable modification");
+		mv.visitVarInsn(ASTORE, operand);
+		
+		Label generic = new Label();
+		Label end = new Label();
+		
+		if(compileNumberOperation(op, instr.getPosition(), current, operand, generic))
+			mv.visitJumpInsn(GOTO, end);
+		
+		mv.visitLabel(generic);
+		loadConstant(instr, VarModInstruction.class);
+		loadData();
+		mv.visitVarInsn(ALOAD, current);
+		mv.visitVarInsn(ALOAD, operand);
+		invoke(VarModInstruction.class, "modify", RuntimeResult.class,
+			InstructionData.class, RuntimeValue.class, RuntimeValue.class);
+		invokeStatic(JitRuntime.class, "unwrap", RuntimeValue.class, RuntimeResult.class);
+		
+		mv.visitLabel(end);
+		storeVariable(instr.getHops(), instr.getSlot());
+	}
+	
+	/*
+	 * Emits the operation for two numbers, jumping to generic if either operand is something else.
+	 * Returns false (without emitting anything) for operations that might fail, so errors are still
+	 * reported by the interpreter.
+	 */
+	private boolean compileNumberOperation(TokenType op, long position, int left, int right, Label generic) {
+		String arithmetic = switch(op) {
+		case PLUS -> "add";
+		case MINUS -> "subtract";
+		case MULTIPLY -> "multiply";
+		default -> null;
+		};
+		
+		int comparison = comparisonOpcode(op);
+		
+		if(arithmetic == null && comparison == -1)
+			return false;
+		
+		guardNumbers(left, right, generic);
+		
+		mv.visitLdcInsn(position);
+		loadNumbers(left, right);
+		
+		if(arithmetic != null) {
+			mv.visitFieldInsn(GETSTATIC, Type.getInternalName(PrimitiveOperations.class), "CONTEXT",
+				Type.getDescriptor(MathContext.class));
+			invoke(BigDecimal.class, arithmetic, BigDecimal.class, BigDecimal.class, MathContext.class);
+			invokeStatic(RuntimeValue.class, "of", RuntimeValue.class, long.class, BigDecimal.class);
+			return true;
+		}
+		
+		Label isTrue = new Label();
+		Label done = new Label();
+		
+		invoke(BigDecimal.class, "compareTo", int.class, BigDecimal.class);
+		mv.visitJumpInsn(comparison, isTrue);
+		push(0);
+		mv.visitJumpInsn(GOTO, done);
+		mv.visitLabel(isTrue);
+		push(1);
+		mv.visitLabel(done);
+		invokeStatic(RuntimeValue.class, "of", RuntimeValue.class, long.class, boolean.class);
+		return true;
+	}
+	
+	// jumps to generic unless both operands are numbers
+	private void guardNumbers(int left, int right, Label generic) {
+		mv.visitVarInsn(ALOAD, left);
+		invoke(RuntimeValue.class, "isNumber", boolean.class);
+		mv.visitJumpInsn(IFEQ, generic);
+		mv.visitVarInsn(ALOAD, right);
+		invoke(RuntimeValue.class, "isNumber", boolean.class);
+		mv.visitJumpInsn(IFEQ, generic);
+	}
+	
+	private void loadNumbers(int left, int right) {
+		mv.visitVarInsn(ALOAD, left);
+		invoke(RuntimeValue.class, "numberValue", BigDecimal.class);
+		mv.visitVarInsn(ALOAD, right);
+		invoke(RuntimeValue.class, "numberValue", BigDecimal.class);
+	}
+	
+	// returns the branch taken for compareTo results matching the operator, or -1 if it's no comparison
+	private static int comparisonOpcode(TokenType op) {
+		return switch(op) {
+		case LESS -> IFLT;
+		case LESS_EQUAL -> IFLE;
+		case GREATER -> IFGT;
+		case GREATER_EQUAL -> IFGE;
+		case EQUAL, IDENTICAL -> IFEQ;
+		case NOT_EQUAL, NOT_IDENTICAL -> IFNE;
+		default -> -1;
+		};
+	}
+	
+	private static int negate(int opcode) {
+		return switch(opcode) {
+		case IFLT -> IFGE;
+		case IFLE -> IFGT;
+		case IFGT -> IFLE;
+		case IFGE -> IFLT;
+		case IFEQ -> IFNE;
+		default -> IFEQ;
+		};
+	}
+	
+	// jumps to otherwise if the condition is false
+	private void compileCondition(Instruction condition, Label otherwise) {
+		if(condition instanceof BinaryOpInstruction n && comparisonOpcode(n.getOp().getType()) != -1) {
+			// compare numbers without creating a boolean value
+			compileExpression(n.getLeft(), "Invalid expression in binary operation");
+			compileExpression(n.getRight(), "Invalid expression in binary operation");
+			
+			int right = newLocal();
+			int left = newLocal();
+			mv.visitVarInsn(ASTORE, right);
+			mv.visitVarInsn(ASTORE, left);
+			
+			Label generic = new Label();
+			Label pass = new Label();
+			
+			guardNumbers(left, right, generic);
+			loadNumbers(left, right);
+			invoke(BigDecimal.class, "compareTo", int.class, BigDecimal.class);
+			mv.visitJumpInsn(negate(comparisonOpcode(n.getOp().getType())), otherwise);
+			mv.visitJumpInsn(GOTO, pass);
+			
+			mv.visitLabel(generic);
+			loadConstant(n, BinaryOpInstruction.class);
+			loadData();
+			mv.visitVarInsn(ALOAD, left);
+			mv.visitVarInsn(ALOAD, right);
+			invoke(BinaryOpInstruction.class, "operate", RuntimeResult.class,
+				InstructionData.class, RuntimeValue.class, RuntimeValue.class);
+			invokeStatic(JitRuntime.class, "unwrap", RuntimeValue.class, RuntimeResult.class);
+			testCondition(condition, otherwise);
+			
+			mv.visitLabel(pass);
+			return;
+		}
+		
+		compileExpression(condition, "Invalid expression in condition");
+		testCondition(condition, otherwise);
+	}
+	
+	private void testCondition(Instruction condition, Label otherwise) {
+		int value = newLocal();
+		mv.visitVarInsn(ASTORE, value);
+		
+		loadData();
+		loadConstant(condition, Instruction.class);
+		mv.visitVarInsn(ALOAD, value);
+		invokeStatic(IfInstruction.class, "isTrue", boolean.class, InstructionData.class, Instruction.class, RuntimeValue.class);
+		mv.visitJumpInsn(IFEQ, otherwise);
+	}
+	
+	// variables and scopes
+	
+	private void loadVariable(int hops, int slot, long position, String name) {
+		loadFrame(hops);
+		push(slot);
+		loadData();
+		mv.visitLdcInsn(position);
+		mv.visitLdcInsn(name);
+		invokeStatic(JitRuntime.class, "load", RuntimeValue.class,
+			RuntimeEnvironment.class, int.class, int.class, InstructionData.class, long.class, String.class);
+	}
+	
+	// stores the value on top of the stack, leaving it there
+	private void storeVariable(int hops, int slot) {
+		int value = newLocal();
+		mv.visitVarInsn(ASTORE, value);
+		
+		loadFrame(hops);
+		push(slot);
+		mv.visitVarInsn(ALOAD, value);
+		invoke(RuntimeEnvironment.class, "setLocal", void.class, int.class, int.class, RuntimeValue.class);
+		
+		mv.visitVarInsn(ALOAD, value);
+	}
+	
+	// pushes the environment and the remaining number of hops for a variable
+	private void loadFrame(int hops) {
+		int depth = scopes.size() - 1;
+		
+		// environments created by the compiled code are known statically
+		if(hops <= depth) {
+			mv.visitVarInsn(ALOAD, scopes.get(depth - hops).env);
+			push(0);
+		} else {
+			mv.visitVarInsn(ALOAD, scopes.get(0).env);
+			push(hops - depth);
+		}
+	}
+	
+	private void enterScope(int locals, long position) {
+		if(locals == 0)
+			return;
+		
+		int env = newLocal();
+		int data = newLocal();
+		
+		loadEnv();
+		push(locals);
+		invoke(RuntimeEnvironment.class, "buildScope", RuntimeEnvironment.class, int.class);
+		mv.visitVarInsn(ASTORE, env);
+		
+		loadData();
+		mv.visitVarInsn(ALOAD, env);
+		mv.visitLdcInsn(position);
+		invoke(InstructionData.class, "at", InstructionData.class, RuntimeEnvironment.class, long.class);
+		mv.visitVarInsn(ASTORE, data);
+		
+		scopes.add(new Scope(env, data));
+	}
+	
+	private void leaveScope(int locals) {
+		if(locals != 0)
+			scopes.remove(scopes.size() - 1);
+	}
+	
+	private Loop findLoop(String label) {
+		if(label == null)
+			return loops.isEmpty() ? null : loops.get(loops.size() - 1);
+		
+		for(int i = loops.size() - 1; i >= 0; --i)
+			if(label.equals(loops.get(i).label))
+				return loops.get(i);
+		
+		return null;
+	}
+	
+	// code generation utilities
+	
+	private void loadEnv() {
+		mv.visitVarInsn(ALOAD, scopes.get(scopes.size() - 1).env);
+	}
+	
+	private void loadData() {
+		mv.visitVarInsn(ALOAD, scopes.get(scopes.size() - 1).data);
+	}
+	
+	private void newResult() {
+		String type = Type.getInternalName(RuntimeResult.class);
+		
+		mv.visitTypeInsn(NEW, type);
+		mv.visitInsn(DUP);
+		mv.visitMethodInsn(INVOKESPECIAL, type, "<init>", "()V", false);
+	}
+	
+	private void loadConstant(Object value, Class<?> type) {
+		Integer index = constantIndices.get(value);
+		
+		if(index == null) {
+			index = constants.size();
+			
+			constants.add(value);
+			constantTypes.add(type);
+			constantIndices.put(value, index);
+		}
+		
+		Class<?> declared = constantTypes.get(index);
+		
+		mv.visitFieldInsn(GETSTATIC, NAME, "c" + index, Type.getDescriptor(declared));
+		
+		if(!type.isAssignableFrom(declared))
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+	}
+	
+	private int newLocal() {
+		return nextLocal++;
+	}
+	
+	private void push(int value) {
+		if(value >= -1 && value <= 5)
+			mv.visitInsn(ICONST_0 + value);
+		else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+			mv.visitIntInsn(BIPUSH, value);
+		else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+			mv.visitIntInsn(SIPUSH, value);
+		else mv.visitLdcInsn(value);
+	}
+	
+	private void invoke(Class<?> owner, String name, Class<?> returnType, Class<?>... params) {
+		mv.visitMethodInsn(
+			owner.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL,
+			Type.getInternalName(owner),
+			name,
+			descriptor(returnType, params),
+			owner.isInterface()
+		);
+	}
+	
+	private void invokeStatic(Class<?> owner, String name, Class<?> returnType, Class<?>... params) {
+		mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(owner), name, descriptor(returnType, params), false);
+	}
+	
+	private static String descriptor(Class<?> returnType, Class<?>... params) {
+		Type[] types = new Type[params.length];
+		
+		for(int i = 0; i < params.length; ++i)
+			types[i] = Type.getType(params[i]);
+		
+		return Type.getMethodDescriptor(Type.getType(returnType), types);
+	}
+	
+	// the environment and InstructionData of a scope, stored in JVM locals
+	private record Scope(int env, int data) { }
+	
+	private static class Loop {
+		
+		private final String label;
+		private final Label next = new Label(); // target of continue
+		private final Label exit = new Label(); // target of break
+		
+		private Loop(String label) {
+			this.label = label;
+		}
+		
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.jit;
+
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class JitRuntime {
+	
+	/*
+	 * Called by compiled code. Values are passed around as plain RuntimeValues there, so results
+	 * of the interpreter are unwrapped here and thrown exceptions are rethrown as ScriptThrow.
+	 */
+	
+	// unwraps the result of an instruction that was not compiled
+	public static RuntimeValue value(RuntimeResult result, InstructionData data, Instruction source, String message) {
+		if(result.isThrow())
+			throw new ScriptThrow(result);
+		
+		if(!result.isNothing() || !result.hasValue())
+			data.env().getInputEnvironment().terminate(message, source.getPosition());
+		
+		return result.getValue();
+	}
+	
+	// unwraps the result of an operation, which is always either a value or an exception
+	public static RuntimeValue unwrap(RuntimeResult result) {
+		if(result.isThrow())
+			throw new ScriptThrow(result);
+		
+		return result.getValue();
+	}
+	
+	public static void rethrow(RuntimeResult result) {
+		if(result.isThrow())
+			throw new ScriptThrow(result);
+	}
+	
+	public static RuntimeValue load(RuntimeEnvironment env, int hops, int slot, InstructionData data, long position, String name) {
+		RuntimeValue value = env.getLocal(hops, slot);
+		
+		if(value == null)
+			data.env().getInputEnvironment().terminate("Variable %s is not defined".formatted(name), position);
+		
+		return value;
+	}
+	
+	// returns the result of a && or || operation if the right operand is not evaluated, or null otherwise
+	public static RuntimeValue shortCircuit(RuntimeValue left, long position, boolean and) {
+		if(left.isBoolean() && left.booleanValue() != and)
+			return RuntimeValue.of(position, !and);
+		
+		return null;
+	}
+	
+	public static ScriptThrow raise(RuntimeValue value, InstructionData data, long position) {
+		return new ScriptThrow(new RuntimeResult().throwException(data.env().buildError(
+			value,
+			data.caller().className(),
+			data.caller().function(),
+			position
+		)));
+	}
+	
+	// plain breaks and continues target the innermost loop
+	public static boolean breaks(RuntimeResult result, String label, boolean innermost) {
+		return result.isBreak() && targets(result, label, innermost);
+	}
+	public static boolean continues(RuntimeResult result, String label, boolean innermost) {
+		return result.isContinue() && targets(result, label, innermost);
+	}
+	
+	private static boolean targets(RuntimeResult result, String label, boolean innermost) {
+		return result.hasLabel()
+			? result.getLabel().equals(label)
+			: innermost;
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.jit;
+
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.interpreter.CompileQueue;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class LoopTier {
+	
+	/*
+	 * Tiered execution of loops. Loops start out in the interpreter and count how often their header
+	 * is reached, i.e. how often they are entered plus their back-edges. Once the count exceeds the
+	 * threshold, the rest of the loop is compiled by JitCompiler and the interpreter continues in the
+	 * compiled code at the loop header (on-stack replacement). All variables live in the environment,
+	 * so there is no frame to transfer. Later executions enter the compiled code at their first header.
+	 * 
+	 * Compiled code guards all of its speculations (e.g. the number fast paths) and takes the generic
+	 * path of the interpreter when they fail, so it never has to be discarded. Loops that cannot be
+	 * compiled keep running in the interpreter.
+	 * 
+	 * With a CompileQueue, the loop is compiled by a compiler thread instead and keeps running in the
+	 * interpreter until the compiled code has been published.
+	 */
+	
+	public static final boolean ENABLED = Boolean.getBoolean("syntaxlang.tiered");
+	public static final int THRESHOLD = Integer.getInteger("syntaxlang.tier.threshold", 1000);
+	
+	public static LoopTier of(Instruction loop) {
+		return new LoopTier(loop);
+	}
+	
+	private final Instruction loop;
+	
+	private int count;
+	@Getter
+	private volatile Instruction compiled; // null until the loop has been compiled
+	
+	// called at the loop header. Returns the code to continue the loop with, or null to keep interpreting
+	public Instruction header() {
+		if(ENABLED && count <= THRESHOLD && ++count > THRESHOLD && !CompileQueue.submit(() -> compiled = compile()))
+			compiled = compile();
+		
+		return compiled;
+	}
+	
+	private Instruction compile() {
+		Instruction continuation = continuation();
+		Instruction result = JitCompiler.compile(continuation);
+		
+		return result == continuation ? null : result;
+	}
+	
+	// the loop as seen from its header
+	private Instruction continuation() {
+		// the initializer has already been run, in the scope of the loop
+		if(loop instanceof ForInstruction n)
+			return ForInstruction.of(
+				n.getPosition(),
+				n.getLabel(),
+				List.of(),
+				n.getCondition(),
+				n.getUpdate(),
+				n.getBody(),
+				0
+			);
+		
+		return loop;
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.jit;
+
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import lombok.Getter;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@SuppressWarnings("serial")
+public class ScriptThrow extends RuntimeException {
+	
+	// carries a thrown RuntimeResult through compiled code, which has no result to return it in
+	@Getter
+	private final RuntimeResult result;
+	
+	public ScriptThrow(RuntimeResult result) {
+		super(null, null, false, false);
+		this.result = result;
+	}
+
+}
@@ -32,6 +32,9 @@ public enum AccessModifier {
 	PROTECTED;
 	
 	public static AccessModifier valueOf(Token tok) {
+		if(tok == null) // no modifier given
+			return DEFAULT;
+		
 		if(tok.is(Keyword.PUBLIC))
 			return PUBLIC;
 
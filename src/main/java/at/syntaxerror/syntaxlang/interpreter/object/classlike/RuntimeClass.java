@@ -37,7 +37,6 @@ import at.syntaxerror.syntaxlang.parser.node.EmptyNode;
 import at.syntaxerror.syntaxlang.parser.node.FuncDefNode;
 import at.syntaxerror.syntaxlang.parser.node.Node;
 import at.syntaxerror.syntaxlang.parser.node.VarDeclNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.Getter;
 import lombok.NonNull;
 
@@ -64,7 +63,7 @@ public class RuntimeClass implements RuntimeClassLike {
 	
 	private final RuntimeEnvironment environment;
 	
-	private final Position position;
+	private final long position;
 	private final ClassNode node;
 	
 	public RuntimeClass(@NonNull RuntimeEnvironment env, @NonNull ClassNode node) {
@@ -19,7 +19,6 @@ package at.syntaxerror.syntaxlang.interpreter.object.classlike;
 
 import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
 import at.syntaxerror.syntaxlang.interpreter.object.MemberHolder;
-import at.syntaxerror.syntaxlang.trace.Position;
 
 /**
  * @author SyntaxError
@@ -30,7 +29,7 @@ public interface RuntimeClassLike extends MemberHolder {
 	RuntimeEnvironment getEnvironment();
 	
 	String getName();
-	Position getPosition();
+	long getPosition();
 	
 	boolean isInstanceof(RuntimeClassLike type);
 	
@@ -34,7 +34,6 @@ import at.syntaxerror.syntaxlang.parser.node.EnumNode;
 import at.syntaxerror.syntaxlang.parser.node.FuncDefNode;
 import at.syntaxerror.syntaxlang.parser.node.Node;
 import at.syntaxerror.syntaxlang.parser.node.VarDeclNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.Getter;
 import lombok.NonNull;
 
@@ -59,7 +58,7 @@ public class RuntimeEnum implements RuntimeClassLike {
 	
 	private final RuntimeEnvironment environment;
 	
-	private final Position position;
+	private final long position;
 	private final EnumNode node;
 	
 	private boolean mayCallConstructor;
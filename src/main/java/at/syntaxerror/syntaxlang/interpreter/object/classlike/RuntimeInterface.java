@@ -31,7 +31,6 @@ import at.syntaxerror.syntaxlang.interpreter.object.function.RuntimeFunction;
 import at.syntaxerror.syntaxlang.parser.node.FuncDefNode;
 import at.syntaxerror.syntaxlang.parser.node.InterfaceNode;
 import at.syntaxerror.syntaxlang.parser.node.Node;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.Getter;
 import lombok.NonNull;
 
@@ -52,7 +51,7 @@ public class RuntimeInterface implements RuntimeClassLike {
 	
 	private final RuntimeEnvironment environment;
 	
-	private final Position position;
+	private final long position;
 	private final InterfaceNode node;
 	
 	public RuntimeInterface(@NonNull RuntimeEnvironment env, @NonNull InterfaceNode node) {
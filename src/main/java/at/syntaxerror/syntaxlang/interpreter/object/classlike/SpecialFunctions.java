@@ -483,7 +483,7 @@ public class SpecialFunctions {
 		if(result.isThrow())
 			return result;
 
-		Position pos = data.called();
+		long pos = data.called();
 		
 		if(result.isNothing() && result.hasValue()) {
 			ValueType resultType = result.getValue().getType();
@@ -491,7 +491,7 @@ public class SpecialFunctions {
 			if(resultType != type) {
 				data.env().getInputEnvironment().terminate(
 					"Expected return value of %s in class %s to be of type %s, got %s instead at position %s"
-						.formatted(name, data.type().getFullName(), type, resultType, pos),
+						.formatted(name, data.type().getFullName(), type, resultType, Position.toString(pos)),
 					pos
 				);
 				return error(data, name);
@@ -499,7 +499,7 @@ public class SpecialFunctions {
 		} else {
 			data.env().getInputEnvironment().terminate(
 				"Function %s in class %s did not properly return at position %s"
-					.formatted(name, data.type().getFullName(), pos),
+					.formatted(name, data.type().getFullName(), Position.toString(pos)),
 				pos
 			);
 			return error(data, name);
@@ -21,14 +21,13 @@ import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
 import at.syntaxerror.syntaxlang.interpreter.object.classlike.RuntimeClassLike;
 import at.syntaxerror.syntaxlang.interpreter.object.classlike.RuntimeClassLikeInstance;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.NonNull;
 
 /**
  * @author SyntaxError
  * 
  */
-public record RuntimeCallData(@NonNull RuntimeEnvironment env, @NonNull Position called, RuntimeClassLike type, 
+public record RuntimeCallData(@NonNull RuntimeEnvironment env, long called, RuntimeClassLike type, 
 		RuntimeClassLikeInstance inst, @NonNull RuntimeValue[] args) {
 	
 }
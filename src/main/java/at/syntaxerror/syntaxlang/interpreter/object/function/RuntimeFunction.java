@@ -17,17 +17,46 @@
  */
 package at.syntaxerror.syntaxlang.interpreter.object.function;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.CompileQueue;
+import at.syntaxerror.syntaxlang.interpreter.Interpreter;
+import at.syntaxerror.syntaxlang.interpreter.Optimizer;
 import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.ScopeResolver;
+import at.syntaxerror.syntaxlang.interpreter.TailCalls;
+import at.syntaxerror.syntaxlang.interpreter.instruction.EmptyInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.flow.ReturnInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.fused.Operand;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.LiteralInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.TernaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.UnaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.jit.JitCompiler;
+import at.syntaxerror.syntaxlang.interpreter.jit.LoopTier;
 import at.syntaxerror.syntaxlang.interpreter.object.AccessModifier;
 import at.syntaxerror.syntaxlang.interpreter.object.Accessible;
 import at.syntaxerror.syntaxlang.interpreter.object.Callable;
 import at.syntaxerror.syntaxlang.interpreter.object.classlike.RuntimeClassLikeInstance;
 import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeStackTraceElement;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.lexer.Keyword;
 import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.parser.ParseException;
+import at.syntaxerror.syntaxlang.parser.node.FuncArgsNode;
+import at.syntaxerror.syntaxlang.parser.node.FuncArgsPartNode;
 import at.syntaxerror.syntaxlang.parser.node.FuncDefNode;
-import at.syntaxerror.syntaxlang.trace.Position;
+import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 
@@ -37,9 +66,9 @@ import lombok.NonNull;
  */
 @Getter
 public class RuntimeFunction implements Accessible, Callable {
-
+	
 	private final AccessModifier accessModifier;
-
+	
 	private final boolean staticModifier;
 	private final boolean abstractModifier;
 	private final boolean finalModifier;
@@ -51,7 +80,38 @@ public class RuntimeFunction implements Accessible, Callable {
 	
 	private final RuntimeEnvironment env;
 	
-	private final Position position;
+	private final long position;
+	
+	@Getter(AccessLevel.NONE)
+	private final FuncArgsNode args;
+	@Getter(AccessLevel.NONE)
+	private final StatementsNode body;
+	@Getter(AccessLevel.NONE)
+	private volatile Code code;
+	
+	/*
+	 * Tiered like loops (see LoopTier): the body is turned into instructions, optimized and resolved by
+	 * the first call, and compiled by JitCompiler once the function is hot, on a compiler thread if possible.
+	 * Calls keep running the interpreted body until the compiled one has been published
+	 */
+	@Getter(AccessLevel.NONE)
+	private int calls;
+	@Getter(AccessLevel.NONE)
+	private volatile boolean compilable = true;
+	
+	private static final AtomicReferenceFieldUpdater<RuntimeFunction, Code> CODE =
+		AtomicReferenceFieldUpdater.newUpdater(RuntimeFunction.class, Code.class, "code");
+	
+	/*
+	 * The resolved instructions of a function: the default value of each parameter (an EmptyInstruction
+	 * if it has none) and the body, both executed in a frame with the given number of locals. The parameters
+	 * are its first locals, followed by the list of remaining arguments if the function takes varargs.
+	 * returned is the value of a body that is a single return statement, null for any other body
+	 */
+	public static record Code(List<Instruction> defaults, Instruction body, int locals, Instruction returned) { }
+	
+	// a call in tail position, made by the RuntimeFunction#call that runs the frame of its caller
+	public static record TailCall(RuntimeFunction function, RuntimeValue[] values, RuntimeStackTraceElement site, long position) { }
 	
 	public RuntimeFunction(@NonNull RuntimeEnvironment env, @NonNull FuncDefNode node) {
 		position = node.getPosition();
@@ -69,19 +129,264 @@ public class RuntimeFunction implements Accessible, Callable {
 		} else abstractModifier = finalModifier = defaultModifier = false;
 		
 		hasBody = node.isHasBody();
+		args = node.getArgs();
+		body = node.getBody();
 		
 		this.name = node.getName().identifierValue();
 	}
 	
+	public Code getCode() {
+		if(!hasBody)
+			return null;
+		
+		Code current = code;
+		
+		return current == null ? compile() : current;
+	}
+	
+	// runs the same passes as the top-level instructions, and publishes the code unless another thread was faster
+	private Code compile() {
+		InputEnvironment input = env.getInputEnvironment();
+		
+		List<String> parameters = new ArrayList<>();
+		List<Instruction> instructions = new ArrayList<>();
+		
+		for(FuncArgsPartNode arg : args.getArgs()) {
+			parameters.add(parameter(parameters, arg.getName()));
+			instructions.add(Optimizer.optimize(Interpreter.makeInstruction(arg.getValue())));
+		}
+		
+		if(args.getVarargs() != null)
+			parameters.add(parameter(parameters, args.getVarargs()));
+		
+		try {
+			instructions.addAll(Optimizer.optimize(Interpreter.makeInstructions(body)));
+		} catch (ParseException e) {
+			// a lazily parsed body is only checked now
+			input.terminate(e.getMessage(), e.getPosition());
+			return null;
+		}
+		
+		// the default values are resolved like the first statements of the body
+		ScopeResolver scopes = ScopeResolver.resolve(input, parameters, instructions);
+		
+		List<Instruction> resolved = scopes.getInstructions();
+		int count = args.getArgs().size();
+		
+		List<Instruction> statements = resolved.subList(count, resolved.size());
+		
+		Code compiled = new Code(
+			List.copyOf(resolved.subList(0, count)),
+			StatementsInstruction.of(body.getPosition(), List.copyOf(TailCalls.mark(statements)), 0),
+			scopes.getLocals(),
+			statements.size() == 1 && statements.get(0) instanceof ReturnInstruction ret ? ret.getValue() : null
+		);
+		
+		return CODE.compareAndSet(this, null, compiled) ? compiled : code;
+	}
+	
+	private String parameter(List<String> parameters, Token name) {
+		String value = name.identifierValue();
+		
+		if(parameters.contains(value))
+			env.getInputEnvironment().terminate("Parameter is already declared", name.getPosition());
+		
+		return value;
+	}
+	
+	// called on every call, compiles the body once the function is hot
+	private void count() {
+		if(!LoopTier.ENABLED || !hasBody || !compilable || calls > LoopTier.THRESHOLD || ++calls <= LoopTier.THRESHOLD)
+			return;
+		
+		Code interpreted = getCode();
+		
+		if(!CompileQueue.submit(() -> tierUp(interpreted), () -> compilable = false))
+			tierUp(interpreted);
+	}
+	
+	private void tierUp(Code interpreted) {
+		Instruction compiled = JitCompiler.compileFunction(interpreted.body());
+		
+		if(compiled == interpreted.body())
+			compilable = false;
+		else CODE.compareAndSet(this, interpreted, new Code(interpreted.defaults(), compiled, interpreted.locals(), interpreted.returned()));
+	}
+	
+	/*
+	 * The returned expression of this function with the given arguments substituted for its parameters, so it
+	 * can be evaluated at the call site instead of making the call (see FuncCallInstruction), or null if it cannot:
+	 * every parameter has to be bound to a literal or variable, and the expression may only apply operators to
+	 * literals and parameters. Then it has no side effects and does not depend on the frame of the function
+	 */
+	public Instruction inline(@NonNull List<Instruction> arguments) {
+		Code current = getCode();
+		
+		if(current == null || current.returned() == null || args.getVarargs() != null || arguments.size() != args.getArgs().size())
+			return null;
+		
+		for(Instruction arg : arguments)
+			if(Operand.of(arg) == null)
+				return null;
+		
+		return substitute(current.returned(), arguments);
+	}
+	
+	private static Instruction substitute(Instruction instr, List<Instruction> arguments) {
+		if(instr instanceof LiteralInstruction)
+			return instr;
+		
+		// parameters are the first locals of the frame
+		if(instr instanceof VariableInstruction n)
+			return n.getHops() == 0 && n.getSlot() >= 0 && n.getSlot() < arguments.size()
+				? arguments.get(n.getSlot())
+				: null;
+		
+		if(instr instanceof UnaryOpInstruction n) {
+			Instruction target = substitute(n.getTarget(), arguments);
+			
+			return target == null ? null : UnaryOpInstruction.of(n.getPosition(), n.getOp(), target);
+		}
+		
+		if(instr instanceof BinaryOpInstruction n) {
+			Instruction left = substitute(n.getLeft(), arguments);
+			Instruction right = substitute(n.getRight(), arguments);
+			
+			return left == null || right == null ? null : BinaryOpInstruction.of(n.getPosition(), left, n.getOp(), right);
+		}
+		
+		if(instr instanceof TernaryOpInstruction n) {
+			Instruction condition = substitute(n.getCondition(), arguments);
+			Instruction resultThen = substitute(n.getResultThen(), arguments);
+			Instruction resultElse = substitute(n.getResultElse(), arguments);
+			
+			return condition == null || resultThen == null || resultElse == null
+				? null
+				: TernaryOpInstruction.of(n.getPosition(), condition, resultThen, resultElse);
+		}
+		
+		return null;
+	}
+	
 	public void init() {
 		
 	}
 	
+	// the result is the return value, or null if the function does not return any
+	public RuntimeResult call(@NonNull InstructionData caller, long called, @NonNull RuntimeValue[] values) {
+		InputEnvironment site = caller.env().getInputEnvironment();
+		
+		Code current = enter(site, called, values);
+		RuntimeEnvironment origin = env.buildFrame(caller.env(), caller.at(called).caller(), current.locals());
+		
+		RuntimeFunction function = this;
+		RuntimeResult result = run(current, origin, site, called, values);
+		
+		// calls in tail position (see TailCallInstruction) come back here, so recursion does not grow the Java stack
+		for(int elided = 0; result.isTailCall(); ++elided) {
+			TailCall tail = result.getTailCall();
+			
+			// the call site is in the body of the function that made the tail call
+			site = function.env.getInputEnvironment();
+			function = tail.function();
+			current = function.enter(site, tail.position(), tail.values());
+			
+			result = function.run(
+				current,
+				function.env.buildTailFrame(origin, tail.site(), elided, current.locals()),
+				site,
+				tail.position(),
+				tail.values()
+			);
+		}
+		
+		return result;
+	}
+	
+	private Code enter(InputEnvironment site, long called, RuntimeValue[] values) {
+		count();
+		
+		Code current = getCode();
+		
+		if(current == null)
+			site.terminate("Function %s has no body".formatted(name), called);
+		
+		if(values.length > args.getArgs().size() && args.getVarargs() == null)
+			site.terminate("Too many arguments for function %s".formatted(name), called);
+		
+		return current;
+	}
+	
+	private RuntimeResult run(Code current, RuntimeEnvironment frame, InputEnvironment site, long called, RuntimeValue[] values) {
+		InputEnvironment input = env.getInputEnvironment();
+		
+		InstructionData data = new InstructionData(frame, new RuntimeStackTraceElement(
+			input.getSource(),
+			env.getNamespace(),
+			null,
+			name,
+			input.getLine(position)
+		));
+		
+		int count = args.getArgs().size();
+		
+		for(int i = 0; i < count; ++i) {
+			if(i < values.length) {
+				frame.setLocal(0, i, values[i]);
+				continue;
+			}
+			
+			// evaluated in the frame, so they see the previous parameters
+			Instruction value = current.defaults().get(i);
+			
+			if(value instanceof EmptyInstruction)
+				site.terminate(
+					"Missing argument %s for function %s".formatted(args.getArgs().get(i).getName().identifierValue(), name),
+					called
+				);
+			
+			RuntimeResult result = value.process(data.at(value.getPosition()));
+			
+			if(result.isThrow())
+				return result;
+			
+			if(!result.isNothing() || !result.hasValue())
+				input.terminate("Invalid expression in default value", value.getPosition());
+			
+			frame.setLocal(0, i, result.getValue());
+		}
+		
+		if(args.getVarargs() != null)
+			frame.setLocal(0, count, RuntimeValue.of(called, values.length > count
+				? new ArrayList<>(Arrays.asList(values).subList(count, values.length))
+				: new ArrayList<>()));
+		
+		RuntimeResult result = current.body().process(data);
+		
+		if(result.isThrow() || result.isTailCall())
+			return result;
+		
+		if(result.isReturn() && result.hasValue())
+			return new RuntimeResult().value(result.getValue());
+		
+		if(!result.isNothing() && !result.isReturn())
+			input.terminate("Invalid break, continue or yield in function %s".formatted(name), position);
+		
+		return new RuntimeResult().value(RuntimeValue.of(called));
+	}
+	
+	// for calls from the runtime itself, e.g. RuntimeEnvironment#buildError
 	@Override
 	public RuntimeResult call(RuntimeClassLikeInstance instance, RuntimeValue[] args) {
+		InputEnvironment input = env.getInputEnvironment();
 		
-		
-		return null;
+		return call(new InstructionData(env, new RuntimeStackTraceElement(
+			input.getSource(),
+			env.getNamespace(),
+			null,
+			null,
+			input.getLine(position)
+		)), position, args);
 	}
 
 }
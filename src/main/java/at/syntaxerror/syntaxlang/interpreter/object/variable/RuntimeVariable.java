@@ -24,7 +24,6 @@ import at.syntaxerror.syntaxlang.interpreter.object.AccessModifier;
 import at.syntaxerror.syntaxlang.interpreter.object.Accessible;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
 import at.syntaxerror.syntaxlang.parser.node.VarDeclNode;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.Getter;
 import lombok.NonNull;
 
@@ -48,7 +47,7 @@ public class RuntimeVariable implements Accessible {
 	
 	private final RuntimeEnvironment env;
 	
-	private final Position position;
+	private final long position;
 	
 	public RuntimeVariable(@NonNull RuntimeEnvironment env, @NonNull VarDeclNode node) {
 		position = node.getPosition();
@@ -67,7 +66,7 @@ public class RuntimeVariable implements Accessible {
 		register();
 	}
 	
-	public RuntimeVariable(@NonNull Position position, @NonNull RuntimeEnvironment env, 
+	public RuntimeVariable(long position, @NonNull RuntimeEnvironment env, 
 			@NonNull String name, @NonNull RuntimeValue value) {
 		this.position = position;
 		this.env = env;
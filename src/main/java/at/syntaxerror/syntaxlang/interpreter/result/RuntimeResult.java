@@ -19,9 +19,9 @@ package at.syntaxerror.syntaxlang.interpreter.result;
 
 import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
 import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.object.function.RuntimeFunction.TailCall;
 import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeError;
 import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
@@ -34,7 +34,7 @@ import lombok.ToString;
 @ToString
 public class RuntimeResult {
 	
-	public static RuntimeResult unexpected(RuntimeEnvironment env, Position pos, String className, String function) {
+	public static RuntimeResult unexpected(RuntimeEnvironment env, long pos, String className, String function) {
 		return new RuntimeResult().throwException(
 			env.buildError(
 				RuntimeValue.of(pos, "An unexpected error occured"),
@@ -44,7 +44,7 @@ public class RuntimeResult {
 			)
 		);
 	}
-	public static RuntimeResult unexpected(InstructionData data, Position pos) {
+	public static RuntimeResult unexpected(InstructionData data, long pos) {
 		return unexpected(data.env(), pos, data.caller().className(), data.caller().function());
 	}
 	
@@ -53,6 +53,7 @@ public class RuntimeResult {
 	private RuntimeError exception;
 	private String label;
 	private RuntimeValue value;
+	private TailCall tailCall;
 	
 	public RuntimeResult() {
 		nothing();
@@ -63,6 +64,7 @@ public class RuntimeResult {
 		exception = null;
 		label = null;
 		value = null;
+		tailCall = null;
 	}
 	
 	public RuntimeResult nothing() {
@@ -120,9 +122,16 @@ public class RuntimeResult {
 		return this;
 	}
 	
+	public RuntimeResult tailCall(@NonNull TailCall tailCall) {
+		reset();
+		action = RuntimeResultAction.TAIL_CALL;
+		this.tailCall = tailCall;
+		return this;
+	}
+	
 	public RuntimeResult throwException(@NonNull RuntimeError exception) {
-		action = RuntimeResultAction.THROW_EXCEPTION;
 		reset();
+		action = RuntimeResultAction.THROW_EXCEPTION;
 		this.exception = exception;
 		return this;
 	}
@@ -159,6 +168,9 @@ public class RuntimeResult {
 		return action == RuntimeResultAction.CONTINUE || 
 				action == RuntimeResultAction.CONTINUE_LABEL;
 	}
+	public boolean isTailCall() {
+		return action == RuntimeResultAction.TAIL_CALL;
+	}
 	public boolean isThrow() {
 		return action == RuntimeResultAction.THROW_EXCEPTION;
 	}
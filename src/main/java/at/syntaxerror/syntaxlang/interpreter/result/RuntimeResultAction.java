@@ -32,6 +32,7 @@ public enum RuntimeResultAction {
 	BREAK_LABEL,
 	CONTINUE,
 	CONTINUE_LABEL,
+	TAIL_CALL,
 	THROW_EXCEPTION;
 	
 }
@@ -0,0 +1,63 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class RuntimeStackTrace {
+	
+	/*
+	 * An immutable stack trace. Each call only links a new element to the trace of its caller,
+	 * so building environments does not copy the trace, and environments can share it safely
+	 */
+	
+	public static final RuntimeStackTrace EMPTY = new RuntimeStackTrace(null, null, 0);
+	
+	private final RuntimeStackTrace caller;
+	private final RuntimeStackTraceElement element; // null for the empty trace
+	private final int depth;
+	
+	public RuntimeStackTrace push(@NonNull RuntimeStackTraceElement element) {
+		return new RuntimeStackTrace(this, element, depth + 1);
+	}
+	
+	// outermost element first
+	public List<RuntimeStackTraceElement> toList() {
+		List<RuntimeStackTraceElement> list = new ArrayList<>(depth);
+		
+		for(RuntimeStackTrace trace = this; trace.element != null; trace = trace.caller)
+			list.add(trace.element);
+		
+		Collections.reverse(list);
+		return list;
+	}
+
+}
@@ -23,10 +23,27 @@ import lombok.NonNull;
  * @author SyntaxError
  * 
  */
-public record RuntimeStackTraceElement(@NonNull String file, String namespace, String className, String function, int line) {
+public record RuntimeStackTraceElement(@NonNull String file, String namespace, String className, String function, int line,
+		int elided) {
+	
+	public RuntimeStackTraceElement(@NonNull String file, String namespace, String className, String function, int line) {
+		this(file, namespace, className, function, line, 0);
+	}
+	
+	// the call site of a tail call, standing in for the given number of tail call sites before it
+	public RuntimeStackTraceElement eliding(int elided) {
+		return new RuntimeStackTraceElement(file, namespace, className, function, line, elided);
+	}
 	
 	@Override
 	public String toString() {
+		// frames replaced by tail calls are only counted
+		return elided == 0
+			? location()
+			: "%s (%d tail call%s elided)".formatted(location(), elided, elided == 1 ? "" : "s");
+	}
+	
+	private String location() {
 		if(namespace == null) {
 			if(function == null) // file:line
 				return "%s:%d".formatted(file, line);
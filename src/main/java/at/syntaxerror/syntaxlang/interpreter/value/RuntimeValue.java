@@ -41,54 +41,53 @@ import lombok.RequiredArgsConstructor;
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class RuntimeValue {
 	
-	public static RuntimeValue of(Position pos, WideString str) {
+	public static RuntimeValue of(long pos, WideString str) {
 		return of(pos).setString(str);
 	}
-	public static RuntimeValue of(Position pos, String str) {
+	public static RuntimeValue of(long pos, String str) {
 		return of(pos, new WideString(str));
 	}
 	
-	public static RuntimeValue of(Position pos, BigDecimal num) {
+	public static RuntimeValue of(long pos, BigDecimal num) {
 		return of(pos).setNumber(num);
 	}
-	public static RuntimeValue of(Position pos, Number num) {
+	public static RuntimeValue of(long pos, Number num) {
 		return of(pos, BigDecimal.valueOf(num.doubleValue()));
 	}
 	
-	public static RuntimeValue of(Position pos, BigComplex complex) {
+	public static RuntimeValue of(long pos, BigComplex complex) {
 		return of(pos).setComplex(complex);
 	}
 	
-	public static RuntimeValue of(Position pos, boolean bool) {
+	public static RuntimeValue of(long pos, boolean bool) {
 		return of(pos).setBoolean(bool);
 	}
 
-	public static RuntimeValue of(Position pos, List<RuntimeValue> list) {
+	public static RuntimeValue of(long pos, List<RuntimeValue> list) {
 		return of(pos).setList(list);
 	}
 
-	public static RuntimeValue of(Position pos, Map<RuntimeValue, RuntimeValue> map) {
+	public static RuntimeValue of(long pos, Map<RuntimeValue, RuntimeValue> map) {
 		return of(pos).setMap(map);
 	}
 
 	@Deprecated
-	public static RuntimeValue of0(Position pos, Object func) { // TODO
+	public static RuntimeValue of0(long pos, Object func) { // TODO
 		return of(pos).setFunction(func);
 	}
 
-	public static RuntimeValue of(Position pos, RuntimeClassLikeInstance obj) {
+	public static RuntimeValue of(long pos, RuntimeClassLikeInstance obj) {
 		return of(pos).setObject(obj);
 	}
 	
-	public static RuntimeValue of(Position pos) {
+	public static RuntimeValue of(long pos) {
 		return new RuntimeValue(pos);
 	}
 	
 	@NonNull
 	private ValueType type = ValueType.NULL;
 	private Object rawValue = null;
-	@NonNull
-	private final Position position;
+	private final long position;
 	
 	public boolean isString() {
 		return type == ValueType.STRING;
@@ -121,7 +120,7 @@ public class RuntimeValue {
 	private void ensureType(ValueType type) {
 		if(this.type != type)
 			throw new SyntaxLangException("Expected value to be of type %s, got %s instead at position %s"
-					.formatted(type, this.type, position));
+					.formatted(type, this.type, Position.toString(position)));
 	}
 	
 	public WideString stringValue() {
@@ -142,12 +141,12 @@ public class RuntimeValue {
 	}
 	@SuppressWarnings("unchecked")
 	public List<RuntimeValue> listValue() {
-		ensureType(ValueType.BOOLEAN);
+		ensureType(ValueType.LIST);
 		return (List<RuntimeValue>) rawValue;
 	}
 	@SuppressWarnings("unchecked")
 	public Map<RuntimeValue, RuntimeValue> mapValue() {
-		ensureType(ValueType.BOOLEAN);
+		ensureType(ValueType.MAP);
 		return (Map<RuntimeValue, RuntimeValue>) rawValue;
 	}
 	@Deprecated
@@ -166,11 +165,11 @@ public class RuntimeValue {
 		
 		if(type == ValueType.NULL)
 			throw new SyntaxLangException("Value is null at position %s"
-					.formatted(position));
+					.formatted(Position.toString(position)));
 
 		if(type == ValueType.FUNCTION)
 			throw new SyntaxLangException("Value is an anonymous function at position %s"
-					.formatted(position));
+					.formatted(Position.toString(position)));
 		
 		return switch(type) { // TODO
 		case STRING -> null;
@@ -230,7 +229,7 @@ public class RuntimeValue {
 		return this;
 	}
 	
-	public RuntimeValue at(Position position) {
+	public RuntimeValue at(long position) {
 		return new RuntimeValue(type, rawValue, position);
 	}
 	
@@ -97,16 +97,13 @@ public class Lexer {
 	@NonNull
 	private final InputEnvironment input;
 	
-	private int line = 0;
-	private int prevLineAbs = 0;
-	private int lineAbs = 0;
 	private int abs = -1;
 	
 	private void startPosition() {
 		abs = input.getPosition();
 	}
-	private Position getPosition() {
-		return new Position(abs, abs - lineAbs, line, input.getPosition() - abs, prevLineAbs);
+	private long getPosition() {
+		return Position.pack(abs, input.getPosition() - abs);
 	}
 	
 	private ErrorOptional<Token> getError(String message) {
@@ -117,12 +114,6 @@ public class Lexer {
 		return new ErrorOptional<>(getPosition(), message);
 	}
 
-	private void newLine() {
-		++line;
-		prevLineAbs = lineAbs;
-		lineAbs = input.getPosition();
-	}
-	
 	public Tokens makeTokens() {
 		List<Token> tokens = new ArrayList<>();
 		
@@ -136,13 +127,7 @@ public class Lexer {
 			
 			int c = wc.getCodepoint();
 			
-			if(c == '\n') {
-				input.readChar();
-				newLine();
-				continue;
-			}
-			
-			if(c == ' ' || c == '\t') {
+			if(c == '\n' || c == ' ' || c == '\t') {
 				input.readChar();
 				continue;
 			}
@@ -268,13 +253,6 @@ public class Lexer {
 		while((wc = input.readChar()) != null) {
 			int cp = wc.getCodepoint();
 			
-			if(cp == '\n') {
-				input.mark();
-				input.readChar();
-				newLine();
-				input.reset();
-			}
-			
 			if((cp == '\'' && single) || cp == '"' && !single)
 				break;
 			
@@ -37,9 +37,8 @@ import lombok.Setter;
 @Getter
 public class Token {
 
-	@NonNull
 	@Setter
-	private Position position = null;
+	private long position = Position.NONE;
 	
 	@NonNull
 	private final TokenType type;
@@ -79,7 +78,7 @@ public class Token {
 	private void ensureType(TokenType type) {
 		if(this.type != type)
 			throw new SyntaxLangException("Expected Token to be of type %s, got %s instead at position %s"
-					.formatted(type, this.type, position));
+					.formatted(type, this.type, Position.toString(position)));
 	}
 	
 	public String identifierValue() {
@@ -102,7 +101,7 @@ public class Token {
 	public boolean booleanValue() {
 		if(!is(Keyword.TRUE, Keyword.FALSE))
 			throw new SyntaxLangException("Expected Token to be of type boolean, got %s instead at position %s"
-					.formatted(type, position));
+					.formatted(type, Position.toString(position)));
 		
 		return is(Keyword.TRUE);
 	}
@@ -48,6 +48,10 @@ public class Tokens {
 		return tokens.size();
 	}
 	
+	public Token get(int index) {
+		return tokens.get(index);
+	}
+	
 	public Token next() {
 		Token tok = current();
 		++position;
@@ -0,0 +1,165 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.misc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.SyntaxLangMain;
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class CacheFiles {
+	
+	/*
+	 * Shared by the files derived from a source (see ParseCache and RuntimeImage): they are named after
+	 * a hash of the source and everything else their contents depend on, start with a magic number and
+	 * the version, and are only ever published complete
+	 */
+	
+	// the hex SHA-256 of the version, the settings and the source
+	public static String key(@NonNull InputEnvironment input, byte... settings) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			
+			digest.update(SyntaxLangMain.VERSION.getBytes(StandardCharsets.UTF_8));
+			digest.update(settings);
+			digest.update(input.getData().getBytes());
+			
+			return hex(digest.digest());
+		} catch (Exception e) {
+			throw new SyntaxLangException("Could not hash source", e);
+		}
+	}
+	
+	public static String hex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		
+		for(byte b : bytes)
+			sb.append("%02x".formatted(b));
+		
+		return sb.toString();
+	}
+	
+	// opens a file and checks its header
+	public static DataInputStream open(@NonNull Path path, int magic) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+		
+		try {
+			if(in.readInt() != magic || !in.readUTF().equals(SyntaxLangMain.VERSION))
+				throw new IOException("Version mismatch");
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		
+		return in;
+	}
+	
+	public static void write(@NonNull Path path, int magic, @NonNull Contents contents) throws Exception {
+		Files.createDirectories(path.getParent());
+		
+		// write to a private temporary file first, then publish it with an atomic rename
+		Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+		
+		try {
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(magic);
+				out.writeUTF(SyntaxLangMain.VERSION);
+				
+				contents.write(out);
+			}
+			
+			try {
+				Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+	
+	/*
+	 * Loads a class named by a file, which has to be one of the given types or a subtype of one. The class is
+	 * not initialized before it has passed the check, so a file cannot run the static initializer of an arbitrary class
+	 */
+	public static Class<?> loadClass(@NonNull String name, @NonNull Class<?>... types) throws IOException {
+		Class<?> cls;
+		
+		try {
+			cls = Class.forName(name, false, CacheFiles.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unknown class: " + name);
+		}
+		
+		for(Class<?> type : types)
+			if(type.isAssignableFrom(cls))
+				return cls;
+		
+		throw new IOException("Invalid class: " + name);
+	}
+	
+	public static int readVarInt(@NonNull DataInput in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		
+		do {
+			b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+		
+		return value;
+	}
+	
+	public static void writeVarInt(@NonNull DataOutput out, int value) throws IOException {
+		while((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		
+		out.writeByte(value);
+	}
+	
+	public interface Contents {
+		
+		void write(DataOutputStream out) throws Exception;
+		
+	}
+
+}
@@ -0,0 +1,256 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.lexer.Tokens;
+import at.syntaxerror.syntaxlang.parser.node.LazyStatementsNode;
+import at.syntaxerror.syntaxlang.parser.node.Node;
+import at.syntaxerror.syntaxlang.parser.node.NodeFactory;
+import at.syntaxerror.syntaxlang.parser.node.NodeVisitor;
+import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
+import at.syntaxerror.syntaxlang.trace.Position;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class IncrementalParser {
+	
+	/*
+	 * Only the top-level statements overlapping the edit (given in positions of the old input) are parsed
+	 * again. Statements before the edit are reused, statements after it are copied with their positions
+	 * moved to the matching tokens of the edited input, so the old tree stays valid. If the edited region
+	 * cannot be parsed on its own, the whole input is parsed again.
+	 */
+	public static StatementsNode reparse(@NonNull InputEnvironment input, @NonNull Tokens tokens, @NonNull StatementsNode old, @NonNull TextEdit edit) {
+		StatementsNode nodes = tryReparse(input, tokens, old, edit);
+		
+		if(nodes != null)
+			return nodes;
+		
+		return new Parser(input, tokens).makeNodes();
+	}
+	
+	private static StatementsNode tryReparse(InputEnvironment input, Tokens tokens, StatementsNode old, TextEdit edit) {
+		List<Node> statements = old.getStatements();
+		int count = statements.size();
+		
+		if(tokens.size() == 0 || count == 0)
+			return null;
+		
+		int editStart = edit.offset();
+		int editEnd = edit.offset() + edit.removed();
+		int delta = edit.delta();
+		
+		// statements touching the edit, including direct neighbours, are parsed again
+		int first = 0;
+		
+		while(first < count && end(statements.get(first)) < editStart)
+			++first;
+		
+		int last = first;
+		
+		while(last < count && start(statements.get(last)) <= editEnd)
+			++last;
+		
+		for(int i = 0; i < count; ++i)
+			if(statements.get(i).getPosition() == Position.NONE)
+				return null;
+		
+		int regionStart = first == 0 ? 0 : end(statements.get(first - 1));
+		int regionEnd = last == count ? -1 : start(statements.get(last)) + delta;
+		
+		int from = find(tokens, regionStart, false);
+		int to = regionEnd == -1 ? tokens.size() - 1 : find(tokens, regionEnd, true);
+		
+		if(from == -1 || to == -1 || from > to)
+			return null;
+		
+		List<Token> slice = new ArrayList<>(to - from + 1);
+		
+		for(int i = from; i < to; ++i)
+			slice.add(tokens.get(i));
+		
+		Token eof = new Token(TokenType.EOF);
+		eof.setPosition(tokens.get(to).getPosition());
+		slice.add(eof);
+		
+		StatementsNode region = new Parser(input, new Tokens(slice)).tryMakeNodes();
+		
+		if(region == null)
+			return null;
+		
+		List<Node> result = new ArrayList<>(count - (last - first) + region.getStatements().size());
+		
+		result.addAll(statements.subList(0, first));
+		result.addAll(region.getStatements());
+		
+		if(last < count) {
+			// positions only store offsets, so the suffix only has to be moved if the edit changed the length
+			if(delta != 0) {
+				Relocator relocator = new Relocator(delta);
+				
+				for(int i = last; i < count; ++i)
+					result.add(relocator.copy(statements.get(i)));
+			}
+			else result.addAll(statements.subList(last, count));
+		}
+		
+		StatementsNode nodes = new StatementsNode(result);
+		
+		nodes.setPosition(Position.span(tokens.get(0).getPosition(), tokens.get(tokens.size() - 1).getPosition()));
+		
+		return nodes;
+	}
+	
+	private static int start(Node node) {
+		return Position.offset(node.getPosition());
+	}
+	private static int end(Node node) {
+		return Position.end(node.getPosition());
+	}
+	
+	// index of the first token starting at or after abs, or -1 if exact is set and no token starts at abs
+	static int find(Tokens tokens, int abs, boolean exact) {
+		int lo = 0;
+		int hi = tokens.size() - 1;
+		
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			
+			if(Position.offset(tokens.get(mid).getPosition()) < abs)
+				lo = mid + 1;
+			else hi = mid;
+		}
+		
+		int pos = Position.offset(tokens.get(lo).getPosition());
+		
+		if(exact ? pos != abs : pos < abs)
+			return -1;
+		
+		return lo;
+	}
+	
+	// copies a subtree with every position moved by delta
+	private static class Relocator {
+		
+		private final int delta;
+		
+		// keeps nodes and tokens shared within the subtree shared in the copy
+		private final Map<Object, Object> copies = new IdentityHashMap<>();
+		
+		private Relocator(int delta) {
+			this.delta = delta;
+		}
+		
+		private long move(long pos) {
+			return pos == Position.NONE ? pos : Position.pack(Position.offset(pos) + delta, Position.length(pos));
+		}
+		
+		private Node copy(Node node) {
+			if(node == null)
+				return null;
+			
+			Object known = copies.get(node);
+			
+			if(known != null)
+				return (Node) known;
+			
+			Node result;
+			
+			if(node instanceof LazyStatementsNode lazy && !lazy.isParsed())
+				result = new LazyStatementsNode(() -> new Relocator(delta).copyAll(lazy.getStatements()));
+			
+			else {
+				List<Object> values = new ArrayList<>();
+				
+				node.accept(new NodeVisitor() {
+					
+					@Override
+					public void visitNode(String name, Node child) {
+						values.add(copy(child));
+					}
+					
+					@Override
+					public void visitToken(String name, Token token) {
+						values.add(copy(token));
+					}
+					
+					@Override
+					public void visitBoolean(String name, boolean value) {
+						values.add(value);
+					}
+					
+					@Override
+					public void visitNodes(String name, List<? extends Node> nodes) {
+						values.add(nodes == null ? null : copyAll(nodes));
+					}
+					
+				});
+				
+				result = NodeFactory.create(node.getNodeType(), values.toArray());
+			}
+			
+			result.setPosition(move(node.getPosition()));
+			copies.put(node, result);
+			
+			return result;
+		}
+		
+		private List<Node> copyAll(List<? extends Node> nodes) {
+			List<Node> result = new ArrayList<>(nodes.size());
+			
+			for(Node node : nodes)
+				result.add(copy(node));
+			
+			return result;
+		}
+		
+		private Token copy(Token token) {
+			if(token == null)
+				return null;
+			
+			Object known = copies.get(token);
+			
+			if(known != null)
+				return (Token) known;
+			
+			Token result = token.getKeyword() != null
+				? new Token(token.getKeyword())
+				: new Token(token.getType(), token.getValue());
+			
+			result.setPosition(move(token.getPosition()));
+			copies.put(token, result);
+			
+			return result;
+		}
+		
+	}
+
+}
@@ -0,0 +1,422 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.lexer.Keyword;
+import at.syntaxerror.syntaxlang.lexer.Lexer;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.misc.CacheFiles;
+import at.syntaxerror.syntaxlang.parser.node.LazyStatementsNode;
+import at.syntaxerror.syntaxlang.parser.node.Node;
+import at.syntaxerror.syntaxlang.parser.node.NodeFactory;
+import at.syntaxerror.syntaxlang.parser.node.NodeVisitor;
+import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
+import at.syntaxerror.syntaxlang.string.WideString;
+import at.syntaxerror.syntaxlang.trace.Position;
+import ch.obermuhlner.math.big.BigComplex;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class ParseCache {
+	
+	private static final int MAGIC = 0x534C4304; // SLC\4
+	private static final String EXTENSION = ".slc";
+	
+	private static final int TAG_NULL = 0;
+	private static final int TAG_NODE = 1;
+	private static final int TAG_TOKEN = 2;
+	private static final int TAG_BOOLEAN = 3;
+	private static final int TAG_LIST = 4;
+	private static final int TAG_END = 5;
+	private static final int TAG_LAZY = 6;
+	
+	@Getter
+	private final File directory;
+	
+	/*
+	 * Settings of the Parser for inputs that are not cached yet. They are part of the key, since a tree
+	 * parsed with lazy bodies stores them as positions, which are only parsed once needed after reading
+	 */
+	@Getter
+	@Setter
+	private boolean lazyBodies = false;
+	@Getter
+	@Setter
+	private ForkJoinPool pool; // parses in parallel, unless null
+	
+	public ParseCache(@NonNull File directory) {
+		this.directory = directory;
+	}
+	
+	public StatementsNode parse(@NonNull InputEnvironment input) {
+		String key = key(input);
+		Path path = directory.toPath().resolve(key + EXTENSION);
+		
+		if(Files.isRegularFile(path))
+			try {
+				return read(path, input);
+			} catch (Exception e) {
+				input.warn("Discarding invalid cache entry %s: %s".formatted(path, e));
+			}
+		
+		Parser parser = new Parser(input, new Lexer(input).makeTokens());
+		parser.setLazyBodies(lazyBodies);
+		
+		StatementsNode nodes = pool == null ? parser.makeNodes() : parser.makeNodesParallel(pool);
+		
+		try {
+			write(path, nodes);
+		} catch (Exception e) {
+			input.warn("Could not write cache entry %s: %s".formatted(path, e));
+		}
+		
+		return nodes;
+	}
+	
+	private String key(InputEnvironment input) {
+		return CacheFiles.key(input, (byte) 0, (byte) ((lazyBodies ? 1 : 0) | (pool != null ? 2 : 0)));
+	}
+	
+	// reading
+	
+	private StatementsNode read(Path path, InputEnvironment input) throws Exception {
+		try(DataInputStream in = CacheFiles.open(path, MAGIC)) {
+			return (StatementsNode) new Reader(in, new LazyBodies(input)).readNode();
+		}
+	}
+	
+	/*
+	 * The input is only lexed again once the first lazy body is needed. The tokens of every body read
+	 * are cut out of it then, so the ones of the whole input do not have to be kept
+	 */
+	@RequiredArgsConstructor
+	private static class LazyBodies {
+		
+		private final InputEnvironment input;
+		private final List<Long> positions = new ArrayList<>();
+		private Map<Long, LazyStatementsNode> bodies;
+		
+		private synchronized LazyStatementsNode body(long position) {
+			if(bodies == null) {
+				// the copy is lexed, so the state of the input (which may be in use by then) is not changed
+				Parser parser = new Parser(input, new Lexer(input.copy()).makeTokens());
+				parser.setLazyBodies(true);
+				
+				bodies = new HashMap<>();
+				
+				for(long pos : positions)
+					bodies.put(pos, parser.makeLazyBody(pos));
+			}
+			
+			LazyStatementsNode body = bodies.get(position);
+			
+			if(body == null)
+				throw new SyntaxLangException("No function body at " + Position.toString(position));
+			
+			return body;
+		}
+		
+		private synchronized LazyStatementsNode get(long position) {
+			positions.add(position);
+			
+			LazyStatementsNode body = new LazyStatementsNode(() -> body(position).getStatements());
+			
+			body.setPosition(position);
+			return body;
+		}
+		
+	}
+	
+	private static class Reader {
+		
+		private final DataInputStream in;
+		private final LazyBodies bodies;
+		private final List<Class<? extends Node>> classes = new ArrayList<>();
+		
+		private Reader(InputStream in, LazyBodies bodies) {
+			this.in = new DataInputStream(in);
+			this.bodies = bodies;
+		}
+		
+		private Node readNode() throws Exception {
+			Class<? extends Node> cls = readClass();
+			long pos = readPosition();
+			
+			List<Object> args = new ArrayList<>();
+			
+			int tag;
+			
+			while((tag = in.readByte()) != TAG_END)
+				args.add(readValue(tag));
+			
+			Node node = NodeFactory.create(cls, args.toArray());
+			node.setPosition(pos);
+			
+			return node;
+		}
+		
+		private Class<? extends Node> readClass() throws Exception {
+			int idx = readVarInt();
+			
+			if(idx < classes.size())
+				return classes.get(idx);
+			
+			Class<? extends Node> type = CacheFiles.loadClass(in.readUTF(), Node.class).asSubclass(Node.class);
+			
+			classes.add(type);
+			return type;
+		}
+		
+		private Object readValue(int tag) throws Exception {
+			switch(tag) {
+			case TAG_NULL: return null;
+			case TAG_NODE: return readNode();
+			case TAG_TOKEN: return readToken();
+			case TAG_BOOLEAN: return in.readBoolean();
+			case TAG_LAZY: return bodies.get(readPosition());
+			case TAG_LIST:
+				int size = readVarInt();
+				List<Object> list = new ArrayList<>(size);
+				
+				for(int i = 0; i < size; ++i)
+					list.add(readValue(in.readByte()));
+				
+				return list;
+			default: throw new IOException("Invalid tag: " + tag);
+			}
+		}
+		
+		private Token readToken() throws Exception {
+			TokenType type = TokenType.values()[readVarInt()];
+			Token tok;
+			
+			switch(type) {
+			case KEYWORD:
+				tok = new Token(Keyword.values()[readVarInt()]);
+				break;
+			case IDENTIFIER:
+			case STRING:
+				tok = new Token(type, new WideString(readBytes()));
+				break;
+			case NUMBER:
+				tok = new Token(type, new BigDecimal(in.readUTF()));
+				break;
+			case COMPLEX:
+				tok = new Token(type, BigComplex.valueOf(new BigDecimal(in.readUTF()), new BigDecimal(in.readUTF())));
+				break;
+			default:
+				tok = new Token(type);
+				break;
+			}
+			
+			tok.setPosition(readPosition());
+			return tok;
+		}
+		
+		private long readPosition() throws Exception {
+			int abs = readVarInt() - 1;
+			return abs == -1 ? Position.NONE : Position.pack(abs, readVarInt());
+		}
+		
+		private byte[] readBytes() throws Exception {
+			byte[] bytes = new byte[readVarInt()];
+			in.readFully(bytes);
+			return bytes;
+		}
+		
+		private int readVarInt() throws Exception {
+			return CacheFiles.readVarInt(in);
+		}
+		
+	}
+	
+	// writing
+	
+	private void write(Path path, StatementsNode nodes) throws Exception {
+		CacheFiles.write(path, MAGIC, out -> {
+			try {
+				new Writer(out).writeNode(nodes);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		});
+	}
+	
+	private static class Writer implements NodeVisitor {
+		
+		private final DataOutputStream out;
+		private final Map<Class<?>, Integer> classes = new HashMap<>();
+		
+		private Writer(OutputStream out) {
+			this.out = new DataOutputStream(out);
+		}
+		
+		private void writeNode(Node node) throws IOException {
+			Class<?> cls = node.getNodeType();
+			Integer idx = classes.get(cls);
+			
+			if(idx == null) {
+				writeVarInt(classes.size());
+				out.writeUTF(cls.getName());
+				classes.put(cls, classes.size());
+			} else writeVarInt(idx);
+			
+			writePosition(node.getPosition());
+			
+			node.accept(this);
+			
+			out.writeByte(TAG_END);
+		}
+		
+		private void writeValue(Node node) throws IOException {
+			if(node == null)
+				out.writeByte(TAG_NULL);
+			else if(node instanceof LazyStatementsNode) {
+				// stays lazy, whether it has been parsed already or not
+				out.writeByte(TAG_LAZY);
+				writePosition(node.getPosition());
+			} else {
+				out.writeByte(TAG_NODE);
+				writeNode(node);
+			}
+		}
+		
+		@Override
+		public void visitNode(String name, Node node) {
+			try {
+				writeValue(node);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		@Override
+		public void visitToken(String name, Token token) {
+			try {
+				if(token == null)
+					out.writeByte(TAG_NULL);
+				else {
+					out.writeByte(TAG_TOKEN);
+					writeToken(token);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		@Override
+		public void visitBoolean(String name, boolean value) {
+			try {
+				out.writeByte(TAG_BOOLEAN);
+				out.writeBoolean(value);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		@Override
+		public void visitNodes(String name, List<? extends Node> nodes) {
+			try {
+				if(nodes == null) {
+					out.writeByte(TAG_NULL);
+					return;
+				}
+				
+				out.writeByte(TAG_LIST);
+				writeVarInt(nodes.size());
+				
+				for(Node node : nodes)
+					writeValue(node);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		private void writeToken(Token tok) throws IOException {
+			TokenType type = tok.getType();
+			writeVarInt(type.ordinal());
+			
+			switch(type) {
+			case KEYWORD:
+				writeVarInt(tok.getKeyword().ordinal());
+				break;
+			case IDENTIFIER:
+			case STRING:
+				writeBytes(((WideString) tok.getValue()).getBytes());
+				break;
+			case NUMBER:
+				out.writeUTF(tok.numberValue().toString());
+				break;
+			case COMPLEX:
+				BigComplex complex = tok.complexValue();
+				out.writeUTF(complex.re.toString());
+				out.writeUTF(complex.im.toString());
+				break;
+			default:
+				break;
+			}
+			
+			writePosition(tok.getPosition());
+		}
+		
+		private void writePosition(long pos) throws IOException {
+			if(pos == Position.NONE) {
+				writeVarInt(0);
+				return;
+			}
+			
+			writeVarInt(Position.offset(pos) + 1);
+			writeVarInt(Position.length(pos));
+		}
+		
+		private void writeBytes(byte[] bytes) throws IOException {
+			writeVarInt(bytes.length);
+			out.write(bytes);
+		}
+		
+		private void writeVarInt(int value) throws IOException {
+			CacheFiles.writeVarInt(out, value);
+		}
+		
+	}
+}
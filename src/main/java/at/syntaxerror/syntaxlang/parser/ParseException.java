@@ -0,0 +1,38 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import lombok.Getter;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@SuppressWarnings("serial")
+@Getter
+public class ParseException extends SyntaxLangException {
+	
+	private final long position;
+	
+	public ParseException(String message, long position) {
+		super(message);
+		this.position = position;
+	}
+
+}
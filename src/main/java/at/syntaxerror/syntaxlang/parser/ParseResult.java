@@ -19,7 +19,6 @@ package at.syntaxerror.syntaxlang.parser;
 
 import at.syntaxerror.syntaxlang.lexer.Token;
 import at.syntaxerror.syntaxlang.parser.node.Node;
-import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -39,7 +38,7 @@ public class ParseResult {
 	private Node result;
 	
 	private String message;
-	private Position position;
+	private long position;
 	
 	private boolean severe;
 	
@@ -58,7 +57,7 @@ public class ParseResult {
 		return this;
 	}
 	
-	public static ParseResult error(String message, Position position, boolean severe) {
+	public static ParseResult error(String message, long position, boolean severe) {
 		return new ParseResult(new Throwable(), null, message, position, severe);
 	}
 	public static ParseResult error(String message, Token tok, boolean severe) {
@@ -21,6 +21,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import at.syntaxerror.syntaxlang.input.InputEnvironment;
@@ -52,6 +55,7 @@ import at.syntaxerror.syntaxlang.parser.node.IfNode;
 import at.syntaxerror.syntaxlang.parser.node.ImportNode;
 import at.syntaxerror.syntaxlang.parser.node.InstanceofNode;
 import at.syntaxerror.syntaxlang.parser.node.InterfaceNode;
+import at.syntaxerror.syntaxlang.parser.node.LazyStatementsNode;
 import at.syntaxerror.syntaxlang.parser.node.ListNode;
 import at.syntaxerror.syntaxlang.parser.node.LiteralNode;
 import at.syntaxerror.syntaxlang.parser.node.MapNode;
@@ -59,6 +63,7 @@ import at.syntaxerror.syntaxlang.parser.node.MapPartNode;
 import at.syntaxerror.syntaxlang.parser.node.MemberAccessNode;
 import at.syntaxerror.syntaxlang.parser.node.NamespaceNode;
 import at.syntaxerror.syntaxlang.parser.node.NewNode;
+import at.syntaxerror.syntaxlang.parser.node.NodeArena;
 import at.syntaxerror.syntaxlang.parser.node.Node;
 import at.syntaxerror.syntaxlang.parser.node.ParenthesizedNode;
 import at.syntaxerror.syntaxlang.parser.node.ReturnNode;
@@ -78,6 +83,7 @@ import at.syntaxerror.syntaxlang.parser.node.YieldNode;
 import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 /**
  * @author SyntaxError
@@ -91,9 +97,17 @@ public class Parser {
 	@NonNull
 	private final Tokens tokens;
 
-	private Stack<Position> startPositions = new Stack<>();
+	private long[] startPositions = new long[16];
+	private int startDepth = 0;
 	private Stack<Throwable> startPositionsTrace = new Stack<>();
 	
+	// when set, function bodies are only brace-matched and parsed the first time they are needed
+	@Setter
+	private boolean lazyBodies = false;
+	
+	// when set, receives the top-level statements instead of the StatementsNode, see makeArena
+	private Consumer<Node> statementSink;
+	
 	private ParseResult expectedCurrent(String what, boolean severe) {
 		Token tok = tokens.current();
 		return ParseResult.error("Expected " + what + ", got " + tok.toSimpleString() + " instead", tok, severe);
@@ -108,24 +122,22 @@ public class Parser {
 	}
 	
 	private void startPosition() {
-		startPositions.add(tokens.current().getPosition());
+		if(startDepth == startPositions.length)
+			startPositions = Arrays.copyOf(startPositions, startDepth * 2);
+		
+		startPositions[startDepth++] = tokens.current().getPosition();
 		startPositionsTrace.add(new Throwable());
 	}
 	private void clearPosition() {
-		startPositions.pop();
+		--startDepth;
 		startPositionsTrace.pop();
 	}
-	private Position getPosition() {
-		Position old = startPositions.pop();
-		Position cur = tokens.current().getPosition();
-		
-		return new Position(old.abs(), old.rel(), old.line(), cur.abs() - old.abs(), old.prevLine());
+	private long getPosition() {
+		startPositionsTrace.pop();
+		return Position.span(startPositions[--startDepth], tokens.current().getPosition());
 	}
-	private Position getAndKeepPosition() {
-		Position old = startPositions.peek();
-		Position cur = tokens.current().getPosition();
-		
-		return new Position(old.abs(), old.rel(), old.line(), cur.abs() - old.abs(), old.prevLine());
+	private long getAndKeepPosition() {
+		return Position.span(startPositions[startDepth - 1], tokens.current().getPosition());
 	}
 	
 	private Node emptyNode() {
@@ -137,7 +149,7 @@ public class Parser {
 	public StatementsNode makeNodes() {
 		if(tokens.size() == 0) {
 			StatementsNode statements = new StatementsNode(new ArrayList<>());
-			statements.setPosition(new Position(0, 0, 0, 0, 0));
+			statements.setPosition(Position.pack(0, 0));
 			return statements;
 		}
 		
@@ -148,37 +160,26 @@ public class Parser {
 			tokens.purgeMarks();
 		}
 		
-		if(!startPositions.isEmpty()) {
+		if(startDepth != 0) {
 			System.err.println("WARN: position is still started");
 
-			System.err.printf("purging %d positions:\n", startPositions.size());
+			System.err.printf("purging %d positions:\n", startDepth);
 			
-			for(int i = 0; i < startPositions.size(); ++i) {
-				System.err.printf("- #%s:\n", startPositions.pop());
+			while(startDepth > 0) {
+				System.err.printf("- #%s:\n", Position.toString(startPositions[--startDepth]));
 				startPositionsTrace.pop().printStackTrace();
 			}
 		}
 		
 		if(res.isError()) {
-			Position pos = res.getPosition();
-			
-			if(pos == null)
-				input.terminate(
-					"null",
-					new Position(0, 0, 0, Integer.MAX_VALUE, 0)
-				);
-			else input.terminate(
-				res.getMessage(),
-				res.getPosition()
-			);
-			
+			terminate(res);
 			return null;
 		}
 		
 		Token eof = tokens.current();
 		
 		if(!eof.is(TokenType.EOF)) {
-			Position pos = eof.getPosition();
+			long pos = eof.getPosition();
 			
 			input.terminate(
 				"Expected EOF, got " + eof.toSimpleString() + " instead",
@@ -193,18 +194,209 @@ public class Parser {
 		} catch (Exception e) {
 			input.terminate(
 				e.getMessage(),
-				new Position(0, 0, 0, Integer.MAX_VALUE, 0)
+				Position.pack(0, Integer.MAX_VALUE)
 			);
 		}
 		
 		return nodes;
 	}
 	
+	/*
+	 * Like makeNodes, but each top-level statement is moved into the arena as soon as it has been parsed,
+	 * so the Node tree of the whole input never exists at once. Function bodies are never parsed lazily
+	 */
+	public NodeArena makeArena() {
+		NodeArena.Appender arena = NodeArena.appender();
+		boolean lazy = lazyBodies;
+		
+		lazyBodies = false;
+		statementSink = node -> {
+			try {
+				node.errorCheck();
+			} catch (Exception e) {
+				input.terminate(e.getMessage(), node.getPosition());
+			}
+			
+			arena.append(node);
+		};
+		
+		try {
+			return arena.finish(makeNodes().getPosition());
+		} finally {
+			lazyBodies = lazy;
+			statementSink = null;
+		}
+	}
+	
+	private void terminate(ParseResult res) {
+		long pos = res.getPosition();
+		
+		if(pos == Position.NONE)
+			input.terminate(
+				"null",
+				Position.pack(0, Integer.MAX_VALUE)
+			);
+		else input.terminate(
+			res.getMessage(),
+			res.getPosition()
+		);
+	}
+	
+	/*
+	 * Splits the tokens at top-level declarations (found by bracket matching) and parses the resulting
+	 * chunks concurrently, each with its own Parser. The chunks only return their errors, the earliest
+	 * one (which a sequential parse would have stopped at) is reported by the calling thread.
+	 */
+	public StatementsNode makeNodesParallel(@NonNull ForkJoinPool pool) {
+		ParseResult res = makeChunksParallel(pool);
+		
+		if(res.isError()) {
+			terminate(res);
+			return null;
+		}
+		
+		return (StatementsNode) res.getResult();
+	}
+	
+	// like makeNodesParallel, but the earliest error is returned instead of being reported
+	ParseResult makeChunksParallel(ForkJoinPool pool) {
+		List<Integer> bounds = declarationBounds(pool.getParallelism());
+		
+		if(bounds.size() <= 2)
+			return makeChunk();
+		
+		List<ForkJoinTask<ParseResult>> tasks = new ArrayList<>();
+		
+		for(int i = 0; i < bounds.size() - 1; ++i) {
+			int from = bounds.get(i);
+			int to = bounds.get(i + 1);
+			
+			tasks.add(pool.submit(() -> {
+				List<Token> slice = new ArrayList<>(to - from + 1);
+				
+				for(int j = from; j < to; ++j)
+					slice.add(tokens.get(j));
+				
+				Token eof = new Token(TokenType.EOF);
+				eof.setPosition(tokens.get(to).getPosition());
+				slice.add(eof);
+				
+				Parser parser = new Parser(input, new Tokens(slice));
+				parser.lazyBodies = lazyBodies;
+				
+				return parser.makeChunk();
+			}));
+		}
+		
+		List<Node> statements = new ArrayList<>();
+		ParseResult error = null;
+		
+		for(ForkJoinTask<ParseResult> task : tasks) {
+			ParseResult chunk = task.join();
+			
+			if(!chunk.isError())
+				statements.addAll(((StatementsNode) chunk.getResult()).getStatements());
+			
+			else if(error == null || Position.offset(chunk.getPosition()) < Position.offset(error.getPosition()))
+				error = chunk;
+		}
+		
+		if(error != null)
+			return error;
+		
+		StatementsNode nodes = new StatementsNode(statements);
+		nodes.setPosition(Position.span(tokens.get(0).getPosition(), tokens.get(tokens.size() - 1).getPosition()));
+		
+		return ParseResult.success(nodes);
+	}
+	
+	// token indices where chunks start, followed by the index of the EOF token
+	List<Integer> declarationBounds(int parallelism) {
+		int size = tokens.size();
+		int minChunk = Math.max(64, size / Math.max(1, parallelism * 4));
+		
+		List<Integer> bounds = new ArrayList<>();
+		bounds.add(0);
+		
+		int depth = 0;
+		int last = 0;
+		
+		for(int i = 0; i < size - 1; ++i) {
+			Token tok = tokens.get(i);
+			
+			switch(tok.getType()) {
+			case LBRACE, LBRACKET, LPAREN:
+				++depth;
+				continue;
+			case RBRACE, RBRACKET, RPAREN:
+				--depth;
+				continue;
+			default:
+				break;
+			}
+			
+			if(depth != 0 || i == 0 || i - last < minChunk)
+				continue;
+			
+			Token prev = tokens.get(i - 1);
+			
+			if(!prev.is(TokenType.SEMICOLON, TokenType.RBRACE) || !isDeclarationStart(i))
+				continue;
+			
+			bounds.add(i);
+			last = i;
+		}
+		
+		bounds.add(size - 1);
+		return bounds;
+	}
+	
+	private boolean isDeclarationStart(int idx) {
+		Token tok = tokens.get(idx);
+		
+		if(tok.is(Keyword.FUN))
+			return tokens.get(idx + 1).is(TokenType.IDENTIFIER);
+		
+		return tok.is(
+			Keyword.PUBLIC, Keyword.PRIVATE, Keyword.PROTECTED, Keyword.STATIC, Keyword.FINAL, Keyword.ABSTRACT,
+			Keyword.CLONEABLE, Keyword.CLASS, Keyword.STRUCT, Keyword.ENUM, Keyword.INTERFACE
+		);
+	}
+	
+	// like makeNodes, but returns null instead of terminating if the tokens do not form valid statements
+	StatementsNode tryMakeNodes() {
+		ParseResult res = makeChunk();
+		return res.isError() ? null : (StatementsNode) res.getResult();
+	}
+	
+	// like makeNodes, but errors are returned instead of being reported
+	ParseResult makeChunk() {
+		ParseResult res = makeMarked(this::makeMainStatements);
+		
+		if(res.isError())
+			return res;
+		
+		Token eof = tokens.current();
+		
+		if(!eof.is(TokenType.EOF))
+			return ParseResult.error("Expected EOF, got " + eof.toSimpleString() + " instead", eof, true);
+		
+		StatementsNode nodes = (StatementsNode) res.getResult();
+		
+		try {
+			nodes.errorCheck();
+		} catch (Exception e) {
+			return ParseResult.error(e.getMessage(), nodes.getPosition(), true);
+		}
+		
+		return ParseResult.success(nodes);
+	}
+	
 	private ParseResult makeMarked(Supplier<ParseResult> fn) {
 		tokens.mark();
 		startPosition();
 		ParseResult res = fn.get();
-		Position pos = getPosition();
+		long pos = getPosition();
 		
 		if(res.isError()) {
 			tokens.reset();
@@ -233,7 +425,9 @@ public class Parser {
 			if(res.isError())
 				return res;
 			
-			statements.add(res.getResult());
+			if(statementSink != null)
+				statementSink.accept(res.getResult());
+			else statements.add(res.getResult());
 		}
 		
 		return ParseResult.success(new StatementsNode(statements));
@@ -515,7 +709,7 @@ public class Parser {
 
 		List<IfBodyNode> ifBodies = new ArrayList<>();
 		
-		ParseResult body = makeIfBody();
+		ParseResult body = makeMarked(this::makeIfBody);
 		
 		if(body.isError())
 			return body;
@@ -527,7 +721,7 @@ public class Parser {
 				break;
 			tokens.next();
 			
-			body = makeIfBody();
+			body = makeMarked(this::makeIfBody);
 			
 			if(body.isError())
 				return body.severe();
@@ -812,19 +1006,26 @@ public class Parser {
 
 		List<Node> statements = new ArrayList<>();
 		
+		startPosition();
+		
 		while(true) {
 			if(tokens.current().is(TokenType.RBRACE) || tokens.current().is(Keyword.CASE, Keyword.DEFAULT))
 				break;
 			
 			ParseResult stmt = makeMarked(this::makeStatement);
 			
-			if(stmt.isError())
+			if(stmt.isError()) {
+				clearPosition();
 				return stmt.severe();
+			}
 			
 			statements.add(stmt.getResult());
 		}
 		
-		return ParseResult.success(new SwitchCaseNode(value.getResult(), new StatementsNode(statements), false));
+		StatementsNode body = new StatementsNode(statements);
+		body.setPosition(getPosition());
+		
+		return ParseResult.success(new SwitchCaseNode(value.getResult(), body, false));
 	}
 	private ParseResult makeSwitchValueCase() {
 		ParseResult value = getSwitchCaseHead();
@@ -953,6 +1154,30 @@ public class Parser {
 			bodyNode.setPosition(tokens.current().getPosition());
 			
 			tokens.next();
+		} else if(lazyBodies && tokens.current().is(TokenType.LBRACE)) {
+			startPosition();
+			
+			int from = tokens.getPosition();
+			int depth = 0;
+			
+			do {
+				Token tok = tokens.next();
+				
+				if(tok.is(TokenType.LBRACE))
+					++depth;
+				else if(tok.is(TokenType.RBRACE))
+					--depth;
+				else if(tok.is(TokenType.EOF)) {
+					clearPosition();
+					return expected("'}'", true);
+				}
+			} while(depth > 0);
+			
+			int to = tokens.getPosition();
+			
+			hasBody = true;
+			bodyNode = makeLazyBody(from, to);
+			bodyNode.setPosition(getPosition());
 		} else {
 			ParseResult body = makeMarked(this::makeStatementsBlock);
 			
@@ -974,6 +1199,84 @@ public class Parser {
 		));
 	}
 	
+	/*
+	 * A lazily parsed body for the '{' token at the start of the given position, e.g. for a body whose
+	 * tokens have been created again (see ParseCache). Returns null if there is no such body
+	 */
+	LazyStatementsNode makeLazyBody(long position) {
+		int from = IncrementalParser.find(tokens, Position.offset(position), true);
+		
+		if(from == -1 || !tokens.get(from).is(TokenType.LBRACE))
+			return null;
+		
+		int idx = from;
+		int depth = 0;
+		
+		do {
+			Token tok = tokens.get(idx++);
+			
+			if(tok.is(TokenType.LBRACE))
+				++depth;
+			else if(tok.is(TokenType.RBRACE))
+				--depth;
+			else if(tok.is(TokenType.EOF))
+				return null;
+		} while(depth > 0);
+		
+		LazyStatementsNode body = makeLazyBody(from, idx);
+		body.setPosition(position);
+		
+		return body;
+	}
+	
+	// the body only keeps its own tokens until it is parsed, not the ones of the whole input
+	private LazyStatementsNode makeLazyBody(int from, int to) {
+		List<Token> slice = new ArrayList<>(to - from + 1);
+		
+		for(int i = from; i < to; ++i)
+			slice.add(tokens.get(i));
+		
+		Token eof = new Token(TokenType.EOF);
+		eof.setPosition(tokens.get(to).getPosition());
+		slice.add(eof);
+		
+		InputEnvironment input = this.input;
+		
+		// same range as the position of the LazyStatementsNode
+		long span = Position.span(slice.get(0).getPosition(), eof.getPosition());
+		
+		return new LazyStatementsNode(() -> parseLazyBody(input, slice, span));
+	}
+	
+	private static List<Node> parseLazyBody(InputEnvironment input, List<Token> slice, long span) {
+		Parser parser = new Parser(input, new Tokens(slice));
+		parser.lazyBodies = true;
+		
+		ParseResult res = parser.makeMarked(parser::makeStatementsBlock);
+		
+		// thrown to whoever needs the body first, which may not be the executing thread
+		if(res.isError())
+			throw new ParseException(res.getMessage(), res.getPosition());
+		
+		Token end = parser.tokens.current();
+		
+		if(!end.is(TokenType.EOF))
+			throw new ParseException(
+				"Expected EOF, got " + end.toSimpleString() + " instead",
+				end.getPosition()
+			);
+		
+		StatementsNode body = (StatementsNode) res.getResult();
+		
+		try {
+			body.errorCheck();
+		} catch (Exception e) {
+			throw new ParseException(e.getMessage(), span);
+		}
+		
+		return body.getStatements();
+	}
+	
 	private ParseResult makeFuncArgs() {
 		List<FuncArgsPartNode> args = new ArrayList<>();
 		
@@ -1029,8 +1332,8 @@ public class Parser {
 			
 			ParseResult res = makeMarked(this::makeExpr);
 			
-			if(res.noError())
-				return res;
+			if(res.isError())
+				return res.severe();
 			
 			value = res.getResult();
 		} else {
@@ -1106,7 +1409,7 @@ public class Parser {
 		
 		if(tokens.current().is(TokenType.IDENTIFIER)) {
 			Token tok = tokens.next();
-			Position pos = tok.getPosition();
+			long pos = tok.getPosition();
 			
 			Node empty = emptyNode();
 			
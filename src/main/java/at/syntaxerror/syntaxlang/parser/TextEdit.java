@@ -0,0 +1,37 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public record TextEdit(int offset, int removed, int inserted) {
+	
+	public TextEdit {
+		if(offset < 0 || removed < 0 || inserted < 0)
+			throw new SyntaxLangException("Invalid edit: offset=%d, removed=%d, inserted=%d".formatted(offset, removed, inserted));
+	}
+	
+	public int delta() {
+		return inserted - removed;
+	}
+
+}
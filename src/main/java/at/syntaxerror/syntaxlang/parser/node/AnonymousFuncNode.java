@@ -35,4 +35,10 @@ public class AnonymousFuncNode extends Node {
 	private final FuncArgsNode args;
 	private final StatementsNode body;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("args", args);
+		visitor.visitNode("body", body);
+	}
+	
 }
@@ -35,4 +35,10 @@ public class ArrayAccessNode extends Node {
 	private final Node target;
 	private final Node index;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("target", target);
+		visitor.visitNode("index", index);
+	}
+
 }
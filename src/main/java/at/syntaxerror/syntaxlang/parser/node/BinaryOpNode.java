@@ -37,4 +37,11 @@ public class BinaryOpNode extends Node {
 	private final Token op;
 	private final Node right;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("left", left);
+		visitor.visitToken("op", op);
+		visitor.visitNode("right", right);
+	}
+	
 }
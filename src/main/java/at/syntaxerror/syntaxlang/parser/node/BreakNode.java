@@ -33,4 +33,9 @@ public class BreakNode extends Node {
 	
 	private final Token label;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("label", label);
+	}
+	
 }
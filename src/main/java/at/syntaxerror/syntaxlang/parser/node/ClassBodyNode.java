@@ -37,4 +37,10 @@ public class ClassBodyNode extends Node {
 	private final List<VarDeclNode> variables;
 	private final List<FuncDefNode> functions;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNodes("variables", variables);
+		visitor.visitNodes("functions", functions);
+	}
+
 }
@@ -46,4 +46,15 @@ public class ClassNode extends Node {
 	@NonNull
 	private final ClassBodyNode body;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("modAccess", modAccess);
+		visitor.visitToken("modCloneable", modCloneable);
+		visitor.visitToken("modAbstractFinal", modAbstractFinal);
+		visitor.visitToken("name", name);
+		visitor.visitNode("extendedClass", extendedClass);
+		visitor.visitNodes("implementedClasses", implementedClasses);
+		visitor.visitNode("body", body);
+	}
+	
 }
@@ -0,0 +1,95 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser.node;
+
+import at.syntaxerror.syntaxlang.lexer.Token;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class CompactNode {
+	
+	@Getter
+	private final NodeArena arena;
+	@Getter
+	private final int cell;
+	
+	public int getKind() {
+		return arena.kind(cell);
+	}
+	
+	public Class<? extends Node> getType() {
+		return arena.type(cell);
+	}
+	
+	public boolean is(@NonNull Class<? extends Node> type) {
+		return arena.type(cell) == type;
+	}
+	
+	public boolean isNull() {
+		return arena.kind(cell) == NodeArena.NULL;
+	}
+	
+	public boolean isList() {
+		return arena.kind(cell) == NodeArena.LIST;
+	}
+	
+	public long getPosition() {
+		return arena.position(cell);
+	}
+	
+	public Token getToken() {
+		return arena.token(cell);
+	}
+	
+	public boolean getBoolean() {
+		return arena.bool(cell);
+	}
+	
+	public int size() {
+		return arena.childCount(cell);
+	}
+	
+	public CompactNode get(int index) {
+		int child = arena.child(cell, index);
+		return child == -1 ? null : new CompactNode(arena, child);
+	}
+	
+	// the field in the given slot, see NodeArena
+	public CompactNode field(int slot) {
+		int child = arena.field(cell, slot);
+		return child == -1 ? null : new CompactNode(arena, child);
+	}
+	
+	public Node toNode() {
+		return arena.toNode(cell);
+	}
+	
+	@Override
+	public String toString() {
+		Class<? extends Node> type = getType();
+		return "CompactNode[cell=" + cell + ", type=" + (type == null ? getKind() : type.getSimpleName()) + "]";
+	}
+
+}
@@ -38,4 +38,11 @@ public class DoWhileNode extends Node {
 	@NonNull
 	private final Node body;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("label", label);
+		visitor.visitNode("condition", condition);
+		visitor.visitNode("body", body);
+	}
+	
 }
@@ -26,4 +26,9 @@ import lombok.ToString;
 @ToString
 public class EmptyNode extends Node {
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		
+	}
+	
 }
@@ -36,4 +36,10 @@ public class EnumConstantNode extends Node {
 	private final Token name;
 	private final FuncCallArgsNode args;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("name", name);
+		visitor.visitNode("args", args);
+	}
+
 }
@@ -44,4 +44,13 @@ public class EnumNode extends Node {
 	@NonNull
 	private final ClassBodyNode body;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("modAccess", modAccess);
+		visitor.visitToken("name", name);
+		visitor.visitNodes("implementedClasses", implementedClasses);
+		visitor.visitNodes("constants", constants);
+		visitor.visitNode("body", body);
+	}
+	
 }
@@ -44,4 +44,13 @@ public class ForNode extends Node {
 	@NonNull
 	private final Node body;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("label", label);
+		visitor.visitNodes("init", init);
+		visitor.visitNode("condition", condition);
+		visitor.visitNodes("update", update);
+		visitor.visitNode("body", body);
+	}
+	
 }
@@ -40,4 +40,12 @@ public class ForeachNode extends Node {
 	@NonNull
 	private final Node body;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("label", label);
+		visitor.visitToken("var", var);
+		visitor.visitNode("value", value);
+		visitor.visitNode("body", body);
+	}
+	
 }
@@ -38,4 +38,10 @@ public class FuncArgsNode extends Node {
 	private final List<FuncArgsPartNode> args;
 	private final Token varargs;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNodes("args", args);
+		visitor.visitToken("varargs", varargs);
+	}
+
 }
@@ -36,4 +36,9 @@ public class FuncCallArgsNode extends Node {
 
 	private final List<Node> args;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNodes("args", args);
+	}
+
 }
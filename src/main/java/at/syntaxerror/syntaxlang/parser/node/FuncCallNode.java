@@ -35,4 +35,10 @@ public class FuncCallNode extends Node {
 	private final Node target;
 	private final FuncCallArgsNode args;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("target", target);
+		visitor.visitNode("args", args);
+	}
+
 }
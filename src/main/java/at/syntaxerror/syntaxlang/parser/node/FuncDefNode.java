@@ -44,4 +44,15 @@ public class FuncDefNode extends Node {
 	
 	private final boolean hasBody;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("modAccess", modAccess);
+		visitor.visitToken("modStatic", modStatic);
+		visitor.visitToken("modAbstractFinalDefault", modAbstractFinalDefault);
+		visitor.visitToken("name", name);
+		visitor.visitNode("args", args);
+		visitor.visitNode("body", body);
+		visitor.visitBoolean("hasBody", hasBody);
+	}
+	
 }
@@ -35,4 +35,10 @@ public class IfBodyNode extends Node {
 	private final Node condition;
 	private final Node body;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("condition", condition);
+		visitor.visitNode("body", body);
+	}
+	
 }
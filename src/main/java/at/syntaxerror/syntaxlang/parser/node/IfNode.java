@@ -37,4 +37,10 @@ public class IfNode extends Node {
 	private final List<IfBodyNode> ifBodies;
 	private final Node elseBody;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNodes("ifBodies", ifBodies);
+		visitor.visitNode("elseBody", elseBody);
+	}
+	
 }
@@ -35,4 +35,9 @@ public class ImportNode extends Node {
 	
 	private final Token value;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("value", value);
+	}
+	
 }
@@ -36,4 +36,10 @@ public class InstanceofNode extends Node {
 	private final Node target;
 	private final Token type;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("target", target);
+		visitor.visitToken("type", type);
+	}
+	
 }
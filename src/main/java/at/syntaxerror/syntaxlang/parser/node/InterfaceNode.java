@@ -42,4 +42,12 @@ public class InterfaceNode extends Node {
 	@NonNull
 	private final ClassBodyNode body;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("modAccess", modAccess);
+		visitor.visitToken("name", name);
+		visitor.visitNodes("extendedClasses", extendedClasses);
+		visitor.visitNode("body", body);
+	}
+	
 }
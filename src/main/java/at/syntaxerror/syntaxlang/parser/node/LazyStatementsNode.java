@@ -0,0 +1,72 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser.node;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import lombok.NonNull;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class LazyStatementsNode extends StatementsNode {
+	
+	private final Supplier<List<Node>> parser;
+	private volatile List<Node> statements;
+	
+	public LazyStatementsNode(@NonNull Supplier<List<Node>> parser) {
+		super(List.of());
+		this.parser = parser;
+	}
+	
+	public boolean isParsed() {
+		return statements != null;
+	}
+	
+	@Override
+	public List<Node> getStatements() {
+		List<Node> result = statements;
+		
+		if(result == null)
+			synchronized(this) {
+				if((result = statements) == null)
+					statements = result = parser.get();
+			}
+		
+		return result;
+	}
+	
+	@Override
+	public Class<? extends Node> getNodeType() {
+		return StatementsNode.class;
+	}
+	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitLazy("statements", this);
+	}
+	
+	@Override
+	public String toString() {
+		List<Node> result = statements;
+		return result == null ? "LazyStatementsNode(unparsed)" : "LazyStatementsNode(statements=" + result + ")";
+	}
+
+}
@@ -36,4 +36,9 @@ public class ListNode extends Node {
 
 	private final List<Node> values;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNodes("values", values);
+	}
+
 }
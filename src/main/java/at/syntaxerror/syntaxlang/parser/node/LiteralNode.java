@@ -35,4 +35,9 @@ public class LiteralNode extends Node {
 	
 	private final Token value;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("value", value);
+	}
+	
 }
@@ -36,4 +36,9 @@ public class MapNode extends Node {
 
 	private final List<MapPartNode> values;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNodes("values", values);
+	}
+
 }
@@ -36,4 +36,10 @@ public class MapPartNode extends Node {
 	private final Token name;
 	private final Node value;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("name", name);
+		visitor.visitNode("value", value);
+	}
+	
 }
@@ -36,4 +36,10 @@ public class MemberAccessNode extends Node {
 	private final Node target;
 	private final Token member;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("target", target);
+		visitor.visitToken("member", member);
+	}
+
 }
@@ -34,4 +34,9 @@ public class NewNode extends Node {
 	
 	private final Node target;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("target", target);
+	}
+	
 }
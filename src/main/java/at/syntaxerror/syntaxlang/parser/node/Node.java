@@ -17,10 +17,8 @@
  */
 package at.syntaxerror.syntaxlang.parser.node;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -29,7 +27,6 @@ import at.syntaxerror.syntaxlang.SyntaxLangException;
 import at.syntaxerror.syntaxlang.lexer.Token;
 import at.syntaxerror.syntaxlang.trace.Position;
 import lombok.Getter;
-import lombok.NonNull;
 import lombok.Setter;
 
 /**
@@ -38,92 +35,163 @@ import lombok.Setter;
  */
 public abstract class Node {
 
-	@NonNull
 	@Setter
 	@Getter
-	private Position position = null;
+	private long position = Position.NONE;
+	
+	public abstract void accept(NodeVisitor visitor);
+	
+	public Class<? extends Node> getNodeType() {
+		return getClass();
+	}
 
 	public void errorCheck() {
-		errorCheck("[" + getClass().getSimpleName() + "] ");
+		new ErrorChecker().check(this);
+	}
+	
+	public JSONObject toJSON() {
+		return new JSONBuilder(this).json;
 	}
 	
-	private void errorCheck(String prefix) {
-		try {
-			Objects.requireNonNull(getPosition(), "Node position is null: " + prefix);
+	private static class ErrorChecker implements NodeVisitor {
+		
+		private Node[] nodes = new Node[16];
+		private String[] names = new String[16];
+		private int[] indices = new int[16];
+		private int depth = 0;
+		
+		private void check(Node root) {
+			enter(root, null, -1);
+		}
+		
+		private void enter(Node node, String name, int index) {
+			if(depth == nodes.length) {
+				nodes = Arrays.copyOf(nodes, depth * 2);
+				names = Arrays.copyOf(names, depth * 2);
+				indices = Arrays.copyOf(indices, depth * 2);
+			}
+			
+			nodes[depth] = node;
+			names[depth] = name;
+			indices[depth] = index;
+			++depth;
+			
+			if(node.getPosition() == Position.NONE)
+				throw new SyntaxLangException("Node position is null: " + prefix(depth));
 			
-			String cname = getClass().getSimpleName();
+			node.accept(this);
 			
-			for(Field f : getClass().getDeclaredFields()) {
-				if(Modifier.isStatic(f.getModifiers()))
+			nodes[--depth] = null;
+		}
+		
+		// the prefix is only built when an error is actually reported
+		private String prefix(int depth) {
+			StringBuilder sb = new StringBuilder();
+			
+			for(int i = 0; i < depth; ++i) {
+				if(i == 0) {
+					sb.append('[').append(nodes[0].getNodeType().getSimpleName()).append("] ");
 					continue;
+				}
 				
-				f.setAccessible(true);
-				
-				Object value = f.get(this);
-				String name = f.getName();
+				appendName(sb, names[i], indices[i], nodes[i - 1]);
+				sb.append(' ');
+			}
+			
+			return sb.toString();
+		}
+		
+		private static void appendName(StringBuilder sb, String name, int index, Node parent) {
+			sb.append(name);
+			
+			if(index >= 0)
+				sb.append('#').append(index);
+			
+			sb.append('[').append(parent.getNodeType().getSimpleName()).append(']');
+		}
+		
+		@Override
+		public void visitNode(String name, Node node) {
+			if(node != null)
+				enter(node, name, -1);
+		}
+		
+		@Override
+		public void visitToken(String name, Token token) {
+			if(token == null || token.getPosition() != Position.NONE)
+				return;
+			
+			StringBuilder sb = new StringBuilder("Token position is null: ").append(prefix(depth));
+			appendName(sb, name, -1, nodes[depth - 1]);
+			
+			throw new SyntaxLangException(sb.toString());
+		}
+		
+		@Override
+		public void visitBoolean(String name, boolean value) { }
+		
+		@Override
+		public void visitNodes(String name, List<? extends Node> list) {
+			if(list == null)
+				return;
+			
+			for(int i = 0; i < list.size(); ++i) {
+				Node node = list.get(i);
 				
-				if(value instanceof Node n) {
-					n.errorCheck(prefix + name + "[" + cname + "] ");
-				} else if(value instanceof Token t)
-					Objects.requireNonNull(t.getPosition(), "Token position is null: " + prefix + name + "[" + cname + "]");
-				else if(value instanceof List<?> l) {
-					int i = 0;
-					
-					for(Object lval : l) {
-						if(lval instanceof Node n)
-							n.errorCheck(prefix + name + "#" + i + "[" + cname + "] ");
-						else if(lval instanceof Token t)
-							Objects.requireNonNull(t.getPosition(), "Token position is null: " + prefix + name + "#" + i + "[" + cname + "]");
-
-						++i;
-					}
-				}
+				if(node != null)
+					enter(node, name, i);
 			}
-		} catch (SyntaxLangException e) {
-			throw e;
-		} catch (Exception e) {
-			throw new SyntaxLangException(e);
 		}
+		
+		// lazily parsed bodies are checked once they are parsed
+		@Override
+		public void visitLazy(String name, LazyStatementsNode node) {
+			if(node.isParsed())
+				visitNodes(name, node.getStatements());
+		}
+		
 	}
 	
-	public JSONObject toJSON() {
-		try {
-			JSONObject json = new JSONObject();
-			json.put("nodename", getClass().getSimpleName());
+	private static class JSONBuilder implements NodeVisitor {
+		
+		private final JSONObject json = new JSONObject();
+		
+		private JSONBuilder(Node node) {
+			json.put("nodename", node.getNodeType().getSimpleName());
+			node.accept(this);
+		}
+		
+		@Override
+		public void visitNode(String name, Node node) {
+			if(node != null)
+				json.put(name, node.toJSON());
+		}
+		
+		@Override
+		public void visitToken(String name, Token token) {
+			if(token != null)
+				json.put(name, token.toSimpleString());
+		}
+		
+		@Override
+		public void visitBoolean(String name, boolean value) {
+			json.put(name, value);
+		}
+		
+		@Override
+		public void visitNodes(String name, List<? extends Node> nodes) {
+			if(nodes == null)
+				return;
 			
-			for(Field f : getClass().getDeclaredFields()) {
-				if(Modifier.isStatic(f.getModifiers()))
-					continue;
-				
-				f.setAccessible(true);
-				
-				Object value = f.get(this);
-				String name = f.getName();
-				
-				if(value instanceof Node n)
-					json.put(name, n.toJSON());
-				else if(value instanceof Token t)
-					json.put(name, t.toSimpleString());
-				else if(value instanceof Boolean b)
-					json.put(name, b);
-				else if(value instanceof List<?> l) {
-					JSONArray list = new JSONArray();
-					
-					for(Object lval : l) {
-						if(lval instanceof Node n)
-							list.put(n.toJSON());
-						else if(lval instanceof Token t)
-							list.put(t.toSimpleString());
-					}
-					
-					json.put(name, list);
-				}
-			}
+			JSONArray list = new JSONArray();
+			
+			for(Node node : nodes)
+				if(node != null)
+					list.put(node.toJSON());
 			
-			return json;
-		} catch (Exception e) {
-			throw new SyntaxLangException("Could not serialize Node", e);
+			json.put(name, list);
 		}
+		
 	}
 	
 }
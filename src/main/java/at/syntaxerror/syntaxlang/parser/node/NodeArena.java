@@ -0,0 +1,449 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser.node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.lexer.Keyword;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+import at.syntaxerror.syntaxlang.trace.Position;
+import lombok.NonNull;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class NodeArena {
+	
+	/*
+	 * Every node and every field of a node is a cell. Cells are stored in
+	 * parallel int arrays in preorder:
+	 * 
+	 *   kind   node type index, or one of NULL, TOKEN, BOOLEAN, LIST
+	 *   data   position index (node), token index (token), 0/1 (boolean), element count (list)
+	 *   first  first field (node) or first element (list)
+	 *   next   next sibling within the parent
+	 * 
+	 * Tokens are not retained either: each one is stored as (type, payload, position index),
+	 * where the payload is the keyword ordinal or an index into a deduplicated value table.
+	 * Token objects are only recreated when they are requested. Positions are kept
+	 * packed, see Position#pack(int, int).
+	 * 
+	 * The fields of a node are its children in the order they are reported to a NodeVisitor,
+	 * so they are accessed by their index (slot) instead of their name.
+	 */
+	
+	public static final int NULL = -1;
+	public static final int TOKEN = -2;
+	public static final int BOOLEAN = -3;
+	public static final int LIST = -4;
+	
+	public static NodeArena of(@NonNull Node root) {
+		NodeArena arena = new NodeArena();
+		arena.new Builder().node(root);
+		arena.trim();
+		return arena;
+	}
+	
+	// an arena whose root StatementsNode is built one statement at a time, see Parser#makeArena
+	public static Appender appender() {
+		return new NodeArena().new Appender();
+	}
+	
+	private int[] kinds = new int[256];
+	private int[] data = new int[256];
+	private int[] firsts = new int[256];
+	private int[] nexts = new int[256];
+	private int size = 0;
+	
+	private long[] positions = new long[128];
+	private int positionCount = 0;
+	
+	private int[] tokens = new int[384];
+	private int tokenCount = 0;
+	
+	private final List<Object> values = new ArrayList<>();
+	private Map<String, Integer> valueIndices = new HashMap<>();
+	
+	private final List<Class<? extends Node>> types = new ArrayList<>();
+	private final List<String[]> fieldNames = new ArrayList<>();
+	private final Map<Class<? extends Node>, Integer> typeIndices = new HashMap<>();
+	
+	private NodeArena() { }
+	
+	public int size() {
+		return size;
+	}
+	
+	public CompactNode getRoot() {
+		return new CompactNode(this, 0);
+	}
+	
+	public CompactNode get(int cell) {
+		return new CompactNode(this, cell);
+	}
+	
+	public int kind(int cell) {
+		return kinds[cell];
+	}
+	
+	public boolean isNode(int cell) {
+		return kinds[cell] >= 0;
+	}
+	
+	public Class<? extends Node> type(int cell) {
+		int kind = kinds[cell];
+		return kind < 0 ? null : types.get(kind);
+	}
+	
+	public int firstChild(int cell) {
+		return firsts[cell];
+	}
+	
+	public int nextSibling(int cell) {
+		return nexts[cell];
+	}
+	
+	public int childCount(int cell) {
+		if(kinds[cell] == LIST)
+			return data[cell];
+		
+		int count = 0;
+		
+		for(int child = firsts[cell]; child != -1; child = nexts[child])
+			++count;
+		
+		return count;
+	}
+	
+	public int child(int cell, int index) {
+		int child = firsts[cell];
+		
+		while(child != -1 && index-- > 0)
+			child = nexts[child];
+		
+		return child;
+	}
+	
+	public int field(int cell, int slot) {
+		return kinds[cell] < 0 ? -1 : child(cell, slot);
+	}
+	
+	public Token token(int cell) {
+		if(kinds[cell] != TOKEN)
+			return null;
+		
+		int off = data[cell] * 3;
+		
+		TokenType type = TokenType.values()[tokens[off]];
+		int payload = tokens[off + 1];
+		
+		Token token;
+		
+		if(type == TokenType.KEYWORD)
+			token = new Token(Keyword.values()[payload]);
+		else if(payload == -1)
+			token = new Token(type);
+		else token = new Token(type, values.get(payload));
+		
+		token.setPosition(positionAt(tokens[off + 2]));
+		
+		return token;
+	}
+	
+	public boolean bool(int cell) {
+		return kinds[cell] == BOOLEAN && data[cell] != 0;
+	}
+	
+	public long position(int cell) {
+		return kinds[cell] < 0 ? Position.NONE : positionAt(data[cell]);
+	}
+	
+	private long positionAt(int index) {
+		return index == -1 ? Position.NONE : positions[index];
+	}
+	
+	// on-demand view
+	
+	public Node toNode(int cell) {
+		Object value = toValue(cell);
+		
+		if(value instanceof Node node)
+			return node;
+		
+		throw new SyntaxLangException("Cell is not a node: " + cell);
+	}
+	
+	private Object toValue(int cell) {
+		switch(kinds[cell]) {
+		case NULL:
+			return null;
+		case TOKEN:
+			return token(cell);
+		case BOOLEAN:
+			return data[cell] != 0;
+		case LIST:
+			List<Object> list = new ArrayList<>(data[cell]);
+			
+			for(int child = firsts[cell]; child != -1; child = nexts[child])
+				list.add(toValue(child));
+			
+			return list;
+		default:
+			break;
+		}
+		
+		int kind = kinds[cell];
+		Object[] args = new Object[fieldNames.get(kind).length];
+		
+		int i = 0;
+		
+		for(int child = firsts[cell]; child != -1; child = nexts[child])
+			args[i++] = toValue(child);
+		
+		Node node = NodeFactory.create(types.get(kind), args);
+		node.setPosition(position(cell));
+		return node;
+	}
+	
+	// building
+	
+	private int add(int kind, int value) {
+		if(size == kinds.length) {
+			int cap = size * 2;
+			kinds = Arrays.copyOf(kinds, cap);
+			data = Arrays.copyOf(data, cap);
+			firsts = Arrays.copyOf(firsts, cap);
+			nexts = Arrays.copyOf(nexts, cap);
+		}
+		
+		kinds[size] = kind;
+		data[size] = value;
+		firsts[size] = -1;
+		nexts[size] = -1;
+		
+		return size++;
+	}
+	
+	private int addPosition(long pos) {
+		if(pos == Position.NONE)
+			return -1;
+		
+		// nodes frequently share the position of their last token
+		if(positionCount > 0 && positions[positionCount - 1] == pos)
+			return positionCount - 1;
+		
+		if(positionCount == positions.length)
+			positions = Arrays.copyOf(positions, positions.length * 2);
+		
+		positions[positionCount] = pos;
+		
+		return positionCount++;
+	}
+	
+	private int addToken(Token token) {
+		int off = tokenCount * 3;
+		
+		if(off + 3 > tokens.length)
+			tokens = Arrays.copyOf(tokens, tokens.length * 2);
+		
+		int payload = -1;
+		
+		if(token.getType() == TokenType.KEYWORD)
+			payload = token.getKeyword().ordinal();
+		else if(token.getValue() != null) {
+			Object value = token.getValue();
+			
+			payload = valueIndices.computeIfAbsent(token.getType().ordinal() + ":" + value, k -> {
+				values.add(value);
+				return values.size() - 1;
+			});
+		}
+		
+		tokens[off] = token.getType().ordinal();
+		tokens[off + 1] = payload;
+		tokens[off + 2] = addPosition(token.getPosition());
+		
+		return tokenCount++;
+	}
+	
+	private int kindOf(Node node) {
+		Class<? extends Node> type = node.getNodeType();
+		Integer kind = typeIndices.get(type);
+		
+		if(kind != null)
+			return kind;
+		
+		List<String> names = new ArrayList<>();
+		
+		node.accept(new NodeVisitor() {
+			
+			@Override
+			public void visitNode(String name, Node node) {
+				names.add(name);
+			}
+			
+			@Override
+			public void visitToken(String name, Token token) {
+				names.add(name);
+			}
+			
+			@Override
+			public void visitBoolean(String name, boolean value) {
+				names.add(name);
+			}
+			
+			@Override
+			public void visitNodes(String name, List<? extends Node> nodes) {
+				names.add(name);
+			}
+			
+		});
+		
+		kind = types.size();
+		
+		types.add(type);
+		fieldNames.add(names.toArray(String[]::new));
+		typeIndices.put(type, kind);
+		
+		return kind;
+	}
+	
+	private void trim() {
+		kinds = Arrays.copyOf(kinds, size);
+		data = Arrays.copyOf(data, size);
+		firsts = Arrays.copyOf(firsts, size);
+		nexts = Arrays.copyOf(nexts, size);
+		positions = Arrays.copyOf(positions, positionCount);
+		tokens = Arrays.copyOf(tokens, tokenCount * 3);
+		
+		((ArrayList<Object>) values).trimToSize();
+		valueIndices = null;
+	}
+	
+	public class Appender {
+		
+		private final Builder builder = new Builder();
+		private final int list;
+		
+		private Appender() {
+			int root = add(kindOf(new StatementsNode(List.of())), -1);
+			
+			list = add(LIST, 0);
+			firsts[root] = list;
+			
+			builder.parent = list;
+		}
+		
+		public void append(@NonNull Node statement) {
+			builder.link(builder.value(statement));
+			++data[list];
+		}
+		
+		public NodeArena finish(long position) {
+			data[0] = addPosition(position);
+			trim();
+			
+			return NodeArena.this;
+		}
+		
+	}
+	
+	private class Builder implements NodeVisitor {
+		
+		private int parent = -1;
+		private int last = -1;
+		
+		private int node(Node node) {
+			int cell = add(kindOf(node), addPosition(node.getPosition()));
+			
+			int prevParent = parent;
+			int prevLast = last;
+			
+			parent = cell;
+			last = -1;
+			
+			node.accept(this);
+			
+			parent = prevParent;
+			last = prevLast;
+			
+			return cell;
+		}
+		
+		private void link(int cell) {
+			if(last == -1)
+				firsts[parent] = cell;
+			else nexts[last] = cell;
+			
+			last = cell;
+		}
+		
+		private int value(Node node) {
+			return node == null ? add(NULL, 0) : node(node);
+		}
+		
+		@Override
+		public void visitNode(String name, Node node) {
+			link(value(node));
+		}
+		
+		@Override
+		public void visitToken(String name, Token token) {
+			if(token == null)
+				link(add(NULL, 0));
+			else link(add(TOKEN, addToken(token)));
+		}
+		
+		@Override
+		public void visitBoolean(String name, boolean value) {
+			link(add(BOOLEAN, value ? 1 : 0));
+		}
+		
+		@Override
+		public void visitNodes(String name, List<? extends Node> nodes) {
+			if(nodes == null) {
+				link(add(NULL, 0));
+				return;
+			}
+			
+			int list = add(LIST, nodes.size());
+			link(list);
+			
+			int prevParent = parent;
+			int prevLast = last;
+			
+			parent = list;
+			last = -1;
+			
+			for(Node node : nodes)
+				link(value(node));
+			
+			parent = prevParent;
+			last = prevLast;
+		}
+		
+	}
+
+}
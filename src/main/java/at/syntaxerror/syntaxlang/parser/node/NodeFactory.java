@@ -0,0 +1,67 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser.node;
+
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class NodeFactory {
+	
+	private static final Map<Class<?>, Constructor<?>[]> CONSTRUCTORS = new HashMap<>();
+	
+	// creates a node from its field values, in the order they are reported to a NodeVisitor
+	public static Node create(@NonNull Class<? extends Node> type, Object... args) {
+		try {
+			return (Node) constructor(type, args.length).newInstance(args);
+		} catch (SyntaxLangException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SyntaxLangException("Could not create node " + type.getSimpleName(), e);
+		}
+	}
+	
+	private static synchronized Constructor<?> constructor(Class<?> cls, int count) {
+		Constructor<?>[] ctors = CONSTRUCTORS.computeIfAbsent(cls, c -> new Constructor<?>[8]);
+		
+		if(count < ctors.length && ctors[count] != null)
+			return ctors[count];
+		
+		for(Constructor<?> ctor : cls.getDeclaredConstructors())
+			if(ctor.getParameterCount() == count) {
+				ctor.setAccessible(true);
+				
+				if(count < ctors.length)
+					ctors[count] = ctor;
+				
+				return ctor;
+			}
+		
+		throw new SyntaxLangException("No suitable constructor for " + cls.getSimpleName());
+	}
+
+}
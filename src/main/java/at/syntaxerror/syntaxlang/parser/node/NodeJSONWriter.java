@@ -0,0 +1,204 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser.node;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.SyntaxLangException;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import lombok.NonNull;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class NodeJSONWriter implements NodeVisitor {
+	
+	private final Writer out;
+	private final int indent;
+	
+	private int depth = 0;
+	private boolean first = true;
+	
+	public NodeJSONWriter(@NonNull OutputStream out, int indent) {
+		this(new OutputStreamWriter(out, StandardCharsets.UTF_8), indent);
+	}
+	
+	public NodeJSONWriter(@NonNull Writer out, int indent) {
+		this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+		this.indent = indent;
+	}
+	
+	public void write(@NonNull Node node) {
+		try {
+			writeNode(node);
+			out.flush();
+		} catch (UncheckedIOException e) {
+			throw new SyntaxLangException("Could not serialize Node", e.getCause());
+		} catch (IOException e) {
+			throw new SyntaxLangException("Could not serialize Node", e);
+		}
+	}
+	
+	private void writeNode(Node node) throws IOException {
+		boolean outer = first;
+		
+		out.write('{');
+		++depth;
+		first = true;
+		
+		key("nodename");
+		string(node.getNodeType().getSimpleName());
+		
+		node.accept(this);
+		
+		--depth;
+		newline();
+		out.write('}');
+		first = outer;
+	}
+	
+	private void key(String name) throws IOException {
+		if(!first)
+			out.write(',');
+		
+		first = false;
+		
+		newline();
+		string(name);
+		out.write(indent > 0 ? ": " : ":");
+	}
+	
+	private void newline() throws IOException {
+		if(indent <= 0)
+			return;
+		
+		out.write('\n');
+		
+		for(int i = 0, n = depth * indent; i < n; ++i)
+			out.write(' ');
+	}
+	
+	private void string(String str) throws IOException {
+		out.write('"');
+		
+		for(int i = 0; i < str.length(); ++i) {
+			char c = str.charAt(i);
+			
+			switch(c) {
+			case '"':  out.write("\\\""); break;
+			case '\\': out.write("\\\\"); break;
+			case '\b': out.write("\\b"); break;
+			case '\f': out.write("\\f"); break;
+			case '\n': out.write("\\n"); break;
+			case '\r': out.write("\\r"); break;
+			case '\t': out.write("\\t"); break;
+			default:
+				if(c < 0x20)
+					out.write("\\u%04x".formatted((int) c));
+				else out.write(c);
+				break;
+			}
+		}
+		
+		out.write('"');
+	}
+	
+	@Override
+	public void visitNode(String name, Node node) {
+		if(node == null)
+			return;
+		
+		try {
+			key(name);
+			writeNode(node);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	@Override
+	public void visitToken(String name, Token token) {
+		if(token == null)
+			return;
+		
+		try {
+			key(name);
+			string(token.toSimpleString());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	@Override
+	public void visitBoolean(String name, boolean value) {
+		try {
+			key(name);
+			out.write(value ? "true" : "false");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	@Override
+	public void visitNodes(String name, List<? extends Node> nodes) {
+		if(nodes == null)
+			return;
+		
+		try {
+			key(name);
+			out.write('[');
+			
+			boolean outer = first;
+			boolean empty = true;
+			
+			++depth;
+			
+			for(Node node : nodes) {
+				if(node == null)
+					continue;
+				
+				if(!empty)
+					out.write(',');
+				
+				empty = false;
+				
+				newline();
+				writeNode(node);
+			}
+			
+			--depth;
+			
+			if(!empty)
+				newline();
+			
+			out.write(']');
+			first = outer;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
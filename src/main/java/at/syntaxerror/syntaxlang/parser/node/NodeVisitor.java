@@ -0,0 +1,43 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser.node;
+
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.lexer.Token;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public interface NodeVisitor {
+	
+	void visitNode(String name, Node node);
+	void visitToken(String name, Token token);
+	void visitBoolean(String name, boolean value);
+	void visitNodes(String name, List<? extends Node> nodes);
+	
+	/*
+	 * The statements of a lazily parsed body, which are parsed (and checked) now unless they have been
+	 * already. Visitors that have to leave the body unparsed override this and check isParsed themselves
+	 */
+	default void visitLazy(String name, LazyStatementsNode node) {
+		visitNodes(name, node.getStatements());
+	}
+
+}
@@ -36,4 +36,10 @@ public class ScopedNode extends Node {
 	private final Token scope;
 	private final Node target;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("scope", scope);
+		visitor.visitNode("target", target);
+	}
+
 }
@@ -36,4 +36,9 @@ public class StatementsNode extends Node {
 
 	private final List<Node> statements;
 
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNodes("statements", statements);
+	}
+
 }
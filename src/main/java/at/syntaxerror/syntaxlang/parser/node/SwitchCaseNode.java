@@ -36,4 +36,11 @@ public class SwitchCaseNode extends Node {
 	private final Node body;
 	private final boolean expression;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("value", value);
+		visitor.visitNode("body", body);
+		visitor.visitBoolean("expression", expression);
+	}
+	
 }
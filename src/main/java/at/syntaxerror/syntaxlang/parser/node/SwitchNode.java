@@ -37,4 +37,10 @@ public class SwitchNode extends Node {
 	private final Node value;
 	private final List<SwitchCaseNode> body;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("value", value);
+		visitor.visitNodes("body", body);
+	}
+	
 }
@@ -36,4 +36,11 @@ public class TernaryOpNode extends Node {
 	private final Node resultThen;	
 	private final Node resultElse;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("condition", condition);
+		visitor.visitNode("resultThen", resultThen);
+		visitor.visitNode("resultElse", resultElse);
+	}
+	
 }
@@ -34,4 +34,9 @@ public class ThrowNode extends Node {
 	
 	private final Node value;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("value", value);
+	}
+	
 }
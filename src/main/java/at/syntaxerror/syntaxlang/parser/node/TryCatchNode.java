@@ -37,4 +37,11 @@ public class TryCatchNode extends Node {
 	private final Token var;
 	private final StatementsNode catchBody;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitNode("tryBody", tryBody);
+		visitor.visitToken("var", var);
+		visitor.visitNode("catchBody", catchBody);
+	}
+	
 }
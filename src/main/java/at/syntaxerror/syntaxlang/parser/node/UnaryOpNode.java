@@ -37,4 +37,11 @@ public class UnaryOpNode extends Node {
 	private final Token op;
 	private final Node target;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitBoolean("pre", pre);
+		visitor.visitToken("op", op);
+		visitor.visitNode("target", target);
+	}
+	
 }
@@ -36,4 +36,10 @@ public class UseAsNode extends Node {
 	private final Token use;
 	private final Token as;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("use", use);
+		visitor.visitToken("as", as);
+	}
+	
 }
@@ -40,4 +40,13 @@ public class VarDeclNode extends Node {
 	@NonNull
 	private final Node value;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("modAccess", modAccess);
+		visitor.visitToken("modStatic", modStatic);
+		visitor.visitToken("modFinal", modFinal);
+		visitor.visitToken("name", name);
+		visitor.visitNode("value", value);
+	}
+	
 }
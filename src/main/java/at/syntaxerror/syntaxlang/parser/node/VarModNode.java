@@ -37,4 +37,11 @@ public class VarModNode extends Node {
 	private final Token op;
 	private final Node value;
 	
+	@Override
+	public void accept(NodeVisitor visitor) {
+		visitor.visitToken("name", name);
+		visitor.visitToken("op", op);
+		visitor.visitNode("value", value);
+	}
+	
 }
@@ -35,7 +35,7 @@ public class ErrorOptional<T> {
 	
 	private final T value;
 	
-	private final Position position;
+	private final long position;
 	private final String message;
 	
 	private final boolean error;
@@ -45,7 +45,7 @@ public class ErrorOptional<T> {
 	public ErrorOptional(T value) {
 		this.value = value;
 		
-		position = null;
+		position = Position.NONE;
 		message = null;
 		
 		error = false;
@@ -53,7 +53,7 @@ public class ErrorOptional<T> {
 		trace = null;
 	}
 	
-	public ErrorOptional(@NonNull Position position, @NonNull String message) {
+	public ErrorOptional(long position, @NonNull String message) {
 		value = null;
 		
 		this.position = position;
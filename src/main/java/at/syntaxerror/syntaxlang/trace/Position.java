@@ -23,6 +23,34 @@ package at.syntaxerror.syntaxlang.trace;
  */
 public record Position(int abs, int rel, int line, int len, int prevLine) {
 	
+	/* positions are passed around packed into a single long (offset in the upper,
+	 * length in the lower 32 bits); line and column are derived on demand from the
+	 * line table of the InputEnvironment, see InputEnvironment#decode(long)
+	 */
+	public static final long NONE = -1L;
+	
+	public static long pack(int offset, int length) {
+		return ((long) offset << 32) | (length & 0xFFFFFFFFL);
+	}
+	
+	public static int offset(long position) {
+		return (int) (position >> 32);
+	}
+	public static int length(long position) {
+		return (int) position;
+	}
+	public static int end(long position) {
+		return offset(position) + length(position);
+	}
+	
+	public static long span(long from, long to) {
+		return pack(offset(from), offset(to) - offset(from));
+	}
+	
+	public static String toString(long position) {
+		return "Position[abs=%d, len=%d]".formatted(offset(position), length(position));
+	}
+	
 	@Override
 	public String toString() {
 		return "Position[abs=%d, rel=%d, line=%d, len=%d]".formatted(abs, rel, line, len);
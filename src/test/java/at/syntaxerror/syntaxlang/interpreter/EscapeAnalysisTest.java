@@ -0,0 +1,125 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import static at.syntaxerror.syntaxlang.interpreter.TypeInferenceTest.value;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.NumberNode;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.ScalarModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.ScalarOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class EscapeAnalysisTest {
+	
+	private static final UnaryOperator<List<Instruction>> ESCAPE = EscapeAnalysis::scalarReplace;
+	
+	@Test
+	public void numberTrees() {
+		String source =
+			"a = 2; b = 3;\n" +
+			"c = a * b + a - 1;\n" +
+			"d = a * b < c;\n" +
+			"e = \"x\" + a * b;\n";
+		
+		List<Instruction> instructions = TestPrograms.specialize(source, ESCAPE);
+		
+		// (a * b + a) - 1 is a single tree, only its result is allocated
+		ScalarOpInstruction c = assertInstanceOf(ScalarOpInstruction.class, value(instructions.get(2)));
+		NumberNode.Arithmetic sum = assertInstanceOf(NumberNode.Arithmetic.class, c.getLeft());
+		
+		assertSame(BinarySpecialization.NUMBER_ADD, sum.op());
+		assertInstanceOf(NumberNode.Arithmetic.class, sum.left());
+		assertInstanceOf(NumberNode.Constant.class, c.getRight());
+		
+		// comparisons consume number trees as well
+		ScalarOpInstruction d = assertInstanceOf(ScalarOpInstruction.class, value(instructions.get(3)));
+		
+		assertSame(BinarySpecialization.NUMBER_LESS, d.getSource().getSpecialization());
+		assertInstanceOf(NumberNode.Load.class, d.getRight());
+		
+		// the product escapes into a string concatenation and is computed on its own
+		Instruction e = value(instructions.get(4));
+		
+		assertEquals(TypedOpInstruction.class, e.getClass());
+		assertInstanceOf(ScalarOpInstruction.class, ((TypedOpInstruction) e).getRight());
+		
+		RuntimeValue[] locals = TestPrograms.runSpecialized(source, ESCAPE);
+		
+		assertEquals(7, locals[2].numberValue().intValue());
+		assertTrue(locals[3].booleanValue());
+		assertEquals("x6", locals[4].stringValue().toString());
+	}
+	
+	@Test
+	public void modifications() {
+		String source =
+			"s = 0; k = 2;\n" +
+			"for(i = 0; i < 10; i += 1) s += i * k + 1;\n";
+		
+		List<Instruction> instructions = TestPrograms.specialize(source, ESCAPE);
+		
+		ForInstruction loop = assertInstanceOf(ForInstruction.class, instructions.get(2));
+		ScalarModInstruction body = assertInstanceOf(ScalarModInstruction.class, loop.getBody());
+		
+		assertInstanceOf(NumberNode.Arithmetic.class, body.getValue());
+		assertInstanceOf(ScalarOpInstruction.class, loop.getCondition());
+		
+		assertEquals(100, TestPrograms.runSpecialized(source, ESCAPE)[0].numberValue().intValue());
+	}
+	
+	@Test
+	public void afterHoisting() {
+		// the hoisted temporary is a plain number variable to the tree that reads it
+		UnaryOperator<List<Instruction>> passes = instructions -> EscapeAnalysis.scalarReplace(LoopInvariants.hoist(instructions));
+		
+		String source =
+			"n = 3; t = 0;\n" +
+			"for(i = 0; i < 10; i += 1) t += n * 2 + i;\n";
+		
+		List<Instruction> instructions = TestPrograms.specialize(source, passes);
+		
+		StatementsInstruction preheader = assertInstanceOf(StatementsInstruction.class, instructions.get(2));
+		ForInstruction loop = assertInstanceOf(ForInstruction.class, preheader.getInstructions().get(1));
+		ScalarModInstruction body = assertInstanceOf(ScalarModInstruction.class, loop.getBody());
+		NumberNode.Arithmetic add = assertInstanceOf(NumberNode.Arithmetic.class, body.getValue());
+		
+		assertInstanceOf(ScalarOpInstruction.class, value(preheader.getInstructions().get(0)));
+		assertEquals(new NumberNode.Load(1, 0), add.left());
+		
+		assertEquals(105, TestPrograms.runSpecialized(source, passes)[1].numberValue().intValue());
+	}
+
+}
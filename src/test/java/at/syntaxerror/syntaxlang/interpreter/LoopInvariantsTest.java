@@ -0,0 +1,126 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import static at.syntaxerror.syntaxlang.interpreter.TypeInferenceTest.assertTyped;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class LoopInvariantsTest {
+	
+	private static final UnaryOperator<List<Instruction>> HOIST = LoopInvariants::hoist;
+	
+	@Test
+	public void preheader() {
+		String source =
+			"n = 3; t = 0;\n" +
+			"for(i = 0; i < 10; i += 1) t += n * 2 + i;\n";
+		
+		List<Instruction> instructions = TestPrograms.specialize(source, HOIST);
+		
+		// { <invariant0> = n * 2; for(...) t += <invariant0> + i; }
+		StatementsInstruction preheader = assertInstanceOf(StatementsInstruction.class, instructions.get(2));
+		
+		assertEquals(1, preheader.getLocals());
+		assertEquals(2, preheader.getInstructions().size());
+		
+		VarDeclInstruction invariant = assertInstanceOf(VarDeclInstruction.class, preheader.getInstructions().get(0));
+		TypedOpInstruction product = assertTyped(invariant.getValue(), BinarySpecialization.NUMBER_MULTIPLY);
+		
+		assertVariable(product.getLeft(), 1, 0);
+		
+		// the loop's own scope lies between the body and the preheader
+		ForInstruction loop = assertInstanceOf(ForInstruction.class, preheader.getInstructions().get(1));
+		TypedModInstruction sum = assertInstanceOf(TypedModInstruction.class, loop.getBody());
+		TypedOpInstruction add = assertTyped(sum.getValue(), BinarySpecialization.NUMBER_ADD);
+		
+		assertVariable(add.getLeft(), 1, 0);
+		assertEquals(2, sum.getSource().getHops());
+		
+		assertEquals(105, TestPrograms.runSpecialized(source, HOIST)[1].numberValue().intValue());
+	}
+	
+	@Test
+	public void labeledContinue() {
+		// n * 3 is hoisted out of both loops, the label stays on the outer loop inside its preheader
+		String source =
+			"n = 2; t = 0;\n" +
+			"outer: for(i = 0; i < 5; i += 1) { for(j = 0; j < 5; j += 1) { if(j == 3) continue outer; t += n * 3 + j; } t -= 1000; }\n";
+		
+		List<Instruction> instructions = TestPrograms.specialize(source, HOIST);
+		
+		StatementsInstruction preheader = assertInstanceOf(StatementsInstruction.class, instructions.get(2));
+		ForInstruction outer = assertInstanceOf(ForInstruction.class, preheader.getInstructions().get(1));
+		
+		assertEquals("outer", outer.getLabel());
+		assertTyped(
+			assertInstanceOf(VarDeclInstruction.class, preheader.getInstructions().get(0)).getValue(),
+			BinarySpecialization.NUMBER_MULTIPLY
+		);
+		
+		assertEquals(105, TestPrograms.runSpecialized(source, HOIST)[1].numberValue().intValue());
+	}
+	
+	@Test
+	public void tryCatch() {
+		/*
+		 * Loops containing a try-catch are left alone: the preheader would otherwise run
+		 * outside of the handler, and the types within the try-catch are unknown anyway
+		 */
+		String source =
+			"n = 4; t = 0;\n" +
+			"for(i = 0; i < 6; i += 1) { t += n * 2; try { if(i % 2 == 0) throw i; t += 1; } catch(e) { t += e; } }\n" +
+			"try { for(i = 0; i < 3; i += 1) t += n * 2; } catch(e) { t = -1; }\n";
+		
+		List<Instruction> instructions = TestPrograms.specialize(source, HOIST);
+		
+		assertInstanceOf(ForInstruction.class, instructions.get(2));
+		
+		RuntimeValue[] locals = TestPrograms.runSpecialized(source, HOIST);
+		
+		assertEquals(TestPrograms.run(source)[1].numberValue().intValue(), locals[1].numberValue().intValue());
+		assertEquals(81, locals[1].numberValue().intValue());
+	}
+	
+	private static void assertVariable(Instruction instr, int hops, int slot) {
+		VariableInstruction variable = assertInstanceOf(VariableInstruction.class, instr);
+		
+		assertEquals(hops, variable.getHops(), "hops of " + variable.getName());
+		assertEquals(slot, variable.getSlot(), "slot of " + variable.getName());
+	}
+
+}
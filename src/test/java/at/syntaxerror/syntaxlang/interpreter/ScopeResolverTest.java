@@ -0,0 +1,182 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.TryCatchInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VariableInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class ScopeResolverTest {
+	
+	@Test
+	public void nestedBlocks() {
+		ScopeResolver scopes = TestPrograms.resolve(
+			"a = 1;\n" +
+			"{ b = 2; { c = a + b; } }\n"
+		);
+		
+		assertEquals(1, scopes.getLocals());
+		assertDeclaration(scopes.getInstructions().get(0), 0, 0);
+		
+		StatementsInstruction outer = block(scopes.getInstructions().get(1));
+		StatementsInstruction inner = block(outer.getInstructions().get(1));
+		
+		assertEquals(1, outer.getLocals());
+		assertEquals(1, inner.getLocals());
+		
+		VarDeclInstruction c = assertDeclaration(inner.getInstructions().get(0), 0, 0);
+		BinaryOpInstruction sum = assertInstanceOf(BinaryOpInstruction.class, c.getValue());
+		
+		assertVariable(sum.getLeft(), 2, 0);
+		assertVariable(sum.getRight(), 1, 0);
+	}
+	
+	@Test
+	public void blocksWithoutDeclarations() {
+		// the middle block declares nothing, so it gets no environment and does not count as a hop
+		ScopeResolver scopes = TestPrograms.resolve(
+			"a = 1;\n" +
+			"{ { b = a; } }\n"
+		);
+		
+		StatementsInstruction middle = block(scopes.getInstructions().get(1));
+		StatementsInstruction inner = block(middle.getInstructions().get(0));
+		
+		assertEquals(0, middle.getLocals());
+		assertEquals(1, inner.getLocals());
+		assertVariable(assertDeclaration(inner.getInstructions().get(0), 0, 0).getValue(), 1, 0);
+	}
+	
+	@Test
+	public void declarationAfterAccess() {
+		// c is declared after the access to a has walked past the middle block
+		ScopeResolver scopes = TestPrograms.resolve(
+			"a = 1;\n" +
+			"{ { b = a; } c = 2; }\n"
+		);
+		
+		StatementsInstruction middle = block(scopes.getInstructions().get(1));
+		StatementsInstruction inner = block(middle.getInstructions().get(0));
+		
+		assertEquals(1, middle.getLocals());
+		assertVariable(assertDeclaration(inner.getInstructions().get(0), 0, 0).getValue(), 2, 0);
+		assertDeclaration(middle.getInstructions().get(1), 0, 0);
+	}
+	
+	@Test
+	public void shadowing() {
+		ScopeResolver scopes = TestPrograms.resolve(
+			"a = 1;\n" +
+			"{ final a = 2; b = a; }\n" +
+			"{ a = 3; }\n" +
+			"c = a;\n"
+		);
+		
+		List<Instruction> instructions = scopes.getInstructions();
+		
+		// the modifier declares a new variable instead of modifying the outer one
+		StatementsInstruction shadowing = block(instructions.get(1));
+		
+		assertEquals(2, shadowing.getLocals());
+		assertDeclaration(shadowing.getInstructions().get(0), 0, 0);
+		assertVariable(assertDeclaration(shadowing.getInstructions().get(1), 0, 1).getValue(), 0, 0);
+		
+		StatementsInstruction modifying = block(instructions.get(2));
+		
+		assertEquals(0, modifying.getLocals());
+		assertDeclaration(modifying.getInstructions().get(0), 0, 0);
+		
+		assertVariable(assertDeclaration(instructions.get(3), 0, 1).getValue(), 0, 0);
+	}
+	
+	@Test
+	public void catchVariable() {
+		ScopeResolver scopes = TestPrograms.resolve(
+			"r = 0;\n" +
+			"try { throw 5; } catch(e) { r = r + e; }\n"
+		);
+		
+		TryCatchInstruction tryCatch = assertInstanceOf(TryCatchInstruction.class, scopes.getInstructions().get(1));
+		StatementsInstruction body = block(tryCatch.getCatchBody());
+		
+		assertEquals(0, body.getLocals());
+		
+		BinaryOpInstruction sum = assertInstanceOf(
+			BinaryOpInstruction.class,
+			assertDeclaration(body.getInstructions().get(0), 1, 0).getValue()
+		);
+		
+		assertVariable(sum.getLeft(), 1, 0);
+		assertVariable(sum.getRight(), 0, 0);
+	}
+	
+	@Test
+	public void execution() {
+		// the environments created by buildScope have to match the resolved addresses
+		RuntimeValue[] locals = TestPrograms.run(
+			"a = 1;\n" +
+			"r = 0;\n" +
+			"{ final a = 2; b = a; r = b; }\n" +
+			"c = a;\n" +
+			"try { throw 5; } catch(e) { r = r + e; }\n" +
+			"{ { d = a; } x = 2; a = a + x; }\n" +
+			"for(i = 0; i < 3; i += 1) { { a = a + i; } }\n"
+		);
+		
+		assertEquals(3, locals.length);
+		assertEquals(6, locals[0].numberValue().intValue());
+		assertEquals(7, locals[1].numberValue().intValue());
+		assertEquals(1, locals[2].numberValue().intValue());
+	}
+	
+	private static StatementsInstruction block(Instruction instr) {
+		return assertInstanceOf(StatementsInstruction.class, instr);
+	}
+	
+	private static VarDeclInstruction assertDeclaration(Instruction instr, int hops, int slot) {
+		VarDeclInstruction decl = assertInstanceOf(VarDeclInstruction.class, instr);
+		
+		assertEquals(hops, decl.getHops(), "hops of " + decl.getName());
+		assertEquals(slot, decl.getSlot(), "slot of " + decl.getName());
+		
+		return decl;
+	}
+	
+	private static void assertVariable(Instruction instr, int hops, int slot) {
+		VariableInstruction variable = assertInstanceOf(VariableInstruction.class, instr);
+		
+		assertEquals(hops, variable.getHops(), "hops of " + variable.getName());
+		assertEquals(slot, variable.getSlot(), "slot of " + variable.getName());
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.InstructionData;
+import at.syntaxerror.syntaxlang.interpreter.result.RuntimeResult;
+import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeStackTraceElement;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.lexer.Lexer;
+import at.syntaxerror.syntaxlang.parser.Parser;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class TestPrograms {
+	
+	public static ScopeResolver resolve(String source) {
+		return resolve(InputEnvironment.fromString("<test>", source));
+	}
+	
+	private static ScopeResolver resolve(InputEnvironment input) {
+		return ScopeResolver.resolve(
+			input,
+			Interpreter.makeInstructions(new Parser(input, new Lexer(input).makeTokens()).makeNodes())
+		);
+	}
+	
+	// runs the top-level instructions and returns the top-level locals, in the order they are declared in
+	public static RuntimeValue[] run(String source) {
+		return execute(source).getLocals();
+	}
+	
+	// runs the top-level instructions and returns the environment they ran in
+	public static RuntimeEnvironment execute(String source) {
+		InputEnvironment input = InputEnvironment.fromString("<test>", source);
+		ScopeResolver scopes = resolve(input);
+		
+		return execute(input, scopes.getInstructions(), scopes.getLocals());
+	}
+	
+	// like SyntaxLangMain: the instructions are optimized and resolved, then passed to the given backend
+	public static RuntimeEnvironment execute(String source, UnaryOperator<List<Instruction>> backend) {
+		InputEnvironment input = InputEnvironment.fromString("<test>", source);
+		ScopeResolver scopes = optimize(input);
+		
+		return execute(input, backend.apply(scopes.getInstructions()), scopes.getLocals());
+	}
+	
+	// like SyntaxLangMain with syntaxlang.infer: the optimized and resolved instructions are typed, then passed to the given passes
+	public static List<Instruction> specialize(String source, UnaryOperator<List<Instruction>> passes) {
+		ScopeResolver scopes = optimize(InputEnvironment.fromString("<test>", source));
+		
+		return passes.apply(TypeInference.specialize(scopes.getInstructions(), scopes.getLocals()));
+	}
+	
+	// runs the instructions returned by specialize
+	public static RuntimeValue[] runSpecialized(String source, UnaryOperator<List<Instruction>> passes) {
+		InputEnvironment input = InputEnvironment.fromString("<test>", source);
+		ScopeResolver scopes = optimize(input);
+		
+		return execute(
+			input,
+			passes.apply(TypeInference.specialize(scopes.getInstructions(), scopes.getLocals())),
+			scopes.getLocals()
+		).getLocals();
+	}
+	
+	private static ScopeResolver optimize(InputEnvironment input) {
+		return ScopeResolver.resolve(
+			input,
+			Optimizer.optimize(Interpreter.makeInstructions(new Parser(input, new Lexer(input).makeTokens()).makeNodes()))
+		);
+	}
+	
+	private static RuntimeEnvironment execute(InputEnvironment input, List<Instruction> instructions, int locals) {
+		RuntimeEnvironment runtime = new RuntimeEnvironment(input);
+		runtime.allocateLocals(locals);
+		
+		for(Instruction instr : instructions) {
+			RuntimeResult result = instr.process(new InstructionData(runtime, new RuntimeStackTraceElement(
+				input.getSource(),
+				runtime.getNamespace(),
+				null,
+				null,
+				input.getLine(instr.getPosition())
+			)));
+			
+			assertTrue(result.isNothing(), () -> "Unexpected result: " + result);
+		}
+		
+		return runtime;
+	}
+
+}
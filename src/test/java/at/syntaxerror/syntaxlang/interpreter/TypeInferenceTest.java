@@ -0,0 +1,110 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinaryOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.math.BinarySpecialization;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedModInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.typed.TypedOpInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.variable.VarDeclInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class TypeInferenceTest {
+	
+	@Test
+	public void straightLine() {
+		List<Instruction> instructions = TestPrograms.specialize(
+			"a = 1;\n" +
+			"b = a + 2;\n" +
+			"c = b * a < 4;\n",
+			UnaryOperator.identity()
+		);
+		
+		TypedOpInstruction sum = assertTyped(value(instructions.get(1)), BinarySpecialization.NUMBER_ADD);
+		TypedOpInstruction less = assertTyped(value(instructions.get(2)), BinarySpecialization.NUMBER_LESS);
+		
+		assertInstanceOf(VarDeclInstruction.class, instructions.get(0));
+		assertSame(sum.getSource().getLeft(), sum.getLeft());
+		assertTyped(less.getLeft(), BinarySpecialization.NUMBER_MULTIPLY);
+	}
+	
+	@Test
+	public void typeChangeInLoop() {
+		// v is a number in the first iteration only, so v + 1 must stay generic
+		String source =
+			"v = 0; w = 0;\n" +
+			"for(i = 0; i < 10; i += 1) { w = v + 1; if(i == 5) v = \"s\"; }\n";
+		
+		List<Instruction> instructions = TestPrograms.specialize(source, UnaryOperator.identity());
+		
+		ForInstruction loop = assertInstanceOf(ForInstruction.class, instructions.get(2));
+		StatementsInstruction body = assertInstanceOf(StatementsInstruction.class, loop.getBody());
+		
+		assertTyped(loop.getCondition(), BinarySpecialization.NUMBER_LESS);
+		assertInstanceOf(TypedModInstruction.class, loop.getUpdate().get(0));
+		assertEquals(BinaryOpInstruction.class, value(body.getInstructions().get(0)).getClass());
+		
+		RuntimeValue[] locals = TestPrograms.runSpecialized(source, UnaryOperator.identity());
+		
+		assertEquals("s", locals[0].stringValue().toString());
+		assertEquals("s1", locals[1].stringValue().toString());
+	}
+	
+	@Test
+	public void unknownInstructions() {
+		// nothing is known about the types after a try-catch, even if it did not assign anything
+		String source =
+			"a = 1; b = 0;\n" +
+			"try { a = \"x\"; throw 1; } catch(e) { b = e; }\n" +
+			"c = a + b;\n";
+		
+		List<Instruction> instructions = TestPrograms.specialize(source, UnaryOperator.identity());
+		
+		assertEquals(BinaryOpInstruction.class, value(instructions.get(3)).getClass());
+		assertEquals("x1", TestPrograms.runSpecialized(source, UnaryOperator.identity())[2].stringValue().toString());
+	}
+	
+	static Instruction value(Instruction instr) {
+		return assertInstanceOf(VarDeclInstruction.class, instr).getValue();
+	}
+	
+	static TypedOpInstruction assertTyped(Instruction instr, BinarySpecialization specialization) {
+		TypedOpInstruction typed = assertInstanceOf(TypedOpInstruction.class, instr);
+		
+		assertSame(specialization, typed.getSpecialization());
+		
+		return typed;
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.instruction.math;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import at.syntaxerror.syntaxlang.interpreter.TestPrograms;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+import at.syntaxerror.syntaxlang.interpreter.value.ValueType;
+import at.syntaxerror.syntaxlang.lexer.TokenType;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class BinaryOpInstructionTest {
+	
+	@Test
+	public void nullEqualsAnyType() {
+		RuntimeValue[] locals = TestPrograms.run(
+			"a = null == [1];\n" +
+			"b = null === {\"k\": 1};\n" +
+			"c = null == null;\n" +
+			"d = null == 0;\n"
+		);
+		
+		assertEquals(false, locals[0].booleanValue());
+		assertEquals(false, locals[1].booleanValue());
+		assertEquals(true, locals[2].booleanValue());
+		assertEquals(false, locals[3].booleanValue());
+	}
+	
+	@Test
+	public void nullEqualsAfterSpecialization() {
+		// s starts specialized for null == null, t for 1 == 1 and then falls back to the generic operation
+		RuntimeValue[] locals = TestPrograms.run(
+			"s = \"\";\n" +
+			"t = \"\";\n" +
+			"for(i = 0; i < 2; i += 1) {\n" +
+			"	v = i == 0 ? null : [1];\n" +
+			"	s = s + (null == v ? \"t\" : \"f\");\n" +
+			"	u = i == 0 ? 1 : null;\n" +
+			"	w = i == 0 ? 1 : [1];\n" +
+			"	t = t + (u == w ? \"t\" : \"f\");\n" +
+			"}\n"
+		);
+		
+		assertEquals("tf", locals[0].stringValue().toString());
+		assertEquals("tf", locals[1].stringValue().toString());
+	}
+	
+	@Test
+	public void nullSpecialization() {
+		assertEquals(BinarySpecialization.NULL_EQUAL, BinarySpecialization.of(TokenType.EQUAL, ValueType.NULL, ValueType.LIST));
+		assertEquals(BinarySpecialization.NULL_EQUAL, BinarySpecialization.of(TokenType.IDENTICAL, ValueType.NULL, ValueType.NULL));
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.jit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import at.syntaxerror.syntaxlang.interpreter.Superinstructions;
+import at.syntaxerror.syntaxlang.interpreter.TestPrograms;
+import at.syntaxerror.syntaxlang.interpreter.bytecode.BytecodeCompiler;
+import at.syntaxerror.syntaxlang.interpreter.flat.FlatCompiler;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.DoWhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.ForInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.WhileInstruction;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class TieredExecutionTest {
+	
+	private static final String LOOPS =
+		"t = 0; outer: for(a = 0; a < 40; a += 1) { for(b = 0; b < 30; b += 1) { if(b == 20) continue outer; t += a * b; } }\n" +
+		"u = 0; for(k = 0; k < 200; k += 1) { if(k == 150) break; u += k; }\n" +
+		"d = 0; do { d += 2; } while(d < 300);\n" +
+		"w = 0; while(true) { w += 1; if(w > 50) { final q = w * 2; w = q; break; } }\n";
+	
+	// the type of v changes late in its loop, after the compiled code has specialized on numbers
+	private static final String BLOCKS =
+		"c = 0; for(i = 0; i < 50; i += 1) { try { if(i % 2 == 0) throw i; c += 1; } catch(e) { c += e * 10; } }\n" +
+		"r = 0; for(i = 0; i < 60; i += 1) { switch(i % 6) { case 1: continue; case 4: break; default: r += i; } r += 100; }\n" +
+		"s = \"\"; for(i = 0; i < 30; i += 1) s = s + i % 10;\n" +
+		"v = 0; for(i = 0; i < 100; i += 1) { if(i == 90) v = \"s\"; v = v + 1; }\n";
+	
+	private static final String CALLS =
+		"fun poly(x, y = 2) { z = x * y; for(i = 0; i < 3; ++i) z += i; return z + 1; }\n" +
+		"fun sum(n, acc = 0) { if(n == 0) return acc; return sum(n - 1, acc + n); }\n" +
+		"fun sq(x) { return x * x; }\n" +
+		"p = 0; for(n = 0; n < 100; ++n) p += poly(n) + sq(n);\n" +
+		"q = sum(500);\n";
+	
+	// the results of the plain interpreter without tiering
+	private static final Map<String, Object[]> PROGRAMS = Map.of(
+		LOOPS, new Object[] { 148200, 11175, 300, 102 },
+		BLOCKS, new Object[] { 6025, 6180, "012345678901234567890123456789", "s1111111111" },
+		CALLS, new Object[] { 338650, 125250 }
+	);
+	
+	private static Map<String, UnaryOperator<List<Instruction>>> backends() {
+		Map<String, UnaryOperator<List<Instruction>>> backends = new LinkedHashMap<>();
+		
+		// tiered by LoopTier and RuntimeFunction when syntaxlang.tiered is set
+		backends.put("interpreter", UnaryOperator.identity());
+		backends.put("jit", instructions -> instructions.stream().map(JitCompiler::compile).toList());
+		backends.put("handles", HandleCompiler::compile);
+		backends.put("bytecode", BytecodeCompiler::compile);
+		backends.put("fuse", Superinstructions::fuse);
+		backends.put("flat", FlatCompiler::makeInstructions);
+		
+		return backends;
+	}
+	
+	@Test
+	public void equivalentBackends() {
+		backends().forEach((name, backend) -> PROGRAMS.forEach((source, expected) -> {
+			RuntimeValue[] locals = TestPrograms.execute(source, backend).getLocals();
+			
+			String message = name + " running\n" + source;
+			
+			assertEquals(expected.length, locals.length, message);
+			
+			for(int i = 0; i < expected.length; ++i)
+				if(expected[i] instanceof String value)
+					assertEquals(value, locals[i].stringValue().toString(), message);
+				else assertEquals(0, BigDecimal.valueOf((Integer) expected[i]).compareTo(locals[i].numberValue()), message);
+		}));
+	}
+	
+	@Test
+	public void loopsTierUp() {
+		assumeTrue(LoopTier.ENABLED && LoopTier.THRESHOLD < 40, "tiered execution is disabled");
+		
+		List<LoopTier> tiers = new ArrayList<>();
+		
+		TestPrograms.execute(LOOPS, instructions -> {
+			for(Instruction instr : instructions)
+				if(instr instanceof ForInstruction n)
+					tiers.add(n.getTier());
+				else if(instr instanceof WhileInstruction n)
+					tiers.add(n.getTier());
+				else if(instr instanceof DoWhileInstruction n)
+					tiers.add(n.getTier());
+			
+			return instructions;
+		});
+		
+		// every top-level loop runs past the threshold, and continues in compiled code
+		assertFalse(tiers.isEmpty());
+		
+		for(LoopTier tier : tiers)
+			assertNotNull(tier.getCompiled());
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.interpreter.object.function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import at.syntaxerror.syntaxlang.interpreter.RuntimeEnvironment;
+import at.syntaxerror.syntaxlang.interpreter.TestPrograms;
+import at.syntaxerror.syntaxlang.interpreter.instruction.Instruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.block.StatementsInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.function.FuncCallInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.function.TailCallInstruction;
+import at.syntaxerror.syntaxlang.interpreter.instruction.literal.NumberInstruction;
+import at.syntaxerror.syntaxlang.interpreter.jit.CompiledInstruction;
+import at.syntaxerror.syntaxlang.interpreter.jit.LoopTier;
+import at.syntaxerror.syntaxlang.interpreter.trace.RuntimeStackTraceElement;
+import at.syntaxerror.syntaxlang.interpreter.value.RuntimeValue;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class RuntimeFunctionTest {
+	
+	@Test
+	public void calls() {
+		RuntimeValue[] locals = TestPrograms.run(
+			"fun add(a, b = a * 10) { return a + b; }\n" +
+			"fun fact(n) { if(n <= 1) return 1; return n * fact(n - 1); }\n" +
+			"fun rest(first, ...others) { return others; }\n" +
+			"fun nothing() { x = 1; }\n" +
+			"a = add(1, 2);\n" +
+			"b = add(3);\n" +
+			"c = fact(6);\n" +
+			"d = rest(1, 2, 3);\n" +
+			"e = nothing();\n"
+		);
+		
+		assertEquals(5, locals.length);
+		assertEquals(3, locals[0].numberValue().intValue());
+		assertEquals(33, locals[1].numberValue().intValue());
+		assertEquals(720, locals[2].numberValue().intValue());
+		
+		List<RuntimeValue> others = locals[3].listValue();
+		
+		assertEquals(2, others.size());
+		assertEquals(2, others.get(0).numberValue().intValue());
+		assertEquals(3, others.get(1).numberValue().intValue());
+		
+		assertTrue(locals[4].isNull());
+	}
+	
+	@Test
+	public void parametersAreLocals() {
+		RuntimeEnvironment runtime = TestPrograms.execute(
+			"fun f(a, b) { { c = a; } return b; }\n" +
+			"r = f(1, 2);\n"
+		);
+		
+		RuntimeFunction.Code code = runtime.getFunctions().get("f").getCode();
+		
+		// the parameters take the first slots of the frame, the block gets its own environment
+		assertEquals(2, code.locals());
+		assertEquals(2, runtime.getLocals()[0].numberValue().intValue());
+		assertInstanceOf(StatementsInstruction.class, code.body());
+	}
+	
+	@Test
+	public void hotFunction() {
+		assumeTrue(LoopTier.ENABLED && LoopTier.THRESHOLD < 100, "tiered execution is disabled");
+		
+		// the first calls run the interpreted body, the remaining ones the compiled body
+		RuntimeEnvironment runtime = TestPrograms.execute(
+			"fun poly(x, y = 2) {\n" +
+			"	z = x * y;\n" +
+			"	for(i = 0; i < 3; ++i) z += i;\n" +
+			"	try { if(x == 50) throw x; } catch(e) { z -= e; }\n" +
+			"	return z + 1;\n" +
+			"}\n" +
+			"sum = 0;\n" +
+			"for(n = 0; n < 100; ++n) sum += poly(n);\n"
+		);
+		
+		// sum of 2n + 4 for n < 100, minus 50
+		assertEquals(10250, runtime.getLocals()[0].numberValue().intValue());
+		assertInstanceOf(CompiledInstruction.class, runtime.getFunctions().get("poly").getCode().body());
+	}
+	
+	@Test
+	public void tailCalls() {
+		// deep enough to overflow the Java stack if every call nested another one
+		RuntimeEnvironment runtime = TestPrograms.execute(
+			"fun down(n) { if(n == 0) return 0; return down(n - 1); }\n" +
+			"fun even(n) { if(n == 0) return true; return odd(n - 1); }\n" +
+			"fun odd(n) { if(n == 0) return false; return even(n - 1); }\n" +
+			"fun sum(n, acc = 0) { if(n == 0) return acc; return sum(n - 1, acc + n); }\n" +
+			"fun boom() { throw 1; }\n" +
+			"fun guarded() { try { return boom(); } catch(e) { return -1; } }\n" +
+			"fun start(n) { return down(n); }\n" +
+			"a = start(200000);\n" +
+			"b = even(100001);\n" +
+			"c = sum(100000);\n" +
+			"d = guarded();\n"
+		);
+		
+		RuntimeValue[] locals = runtime.getLocals();
+		
+		assertEquals(0, locals[0].numberValue().intValue());
+		assertFalse(locals[1].booleanValue());
+		assertEquals(5000050000L, locals[2].numberValue().longValue());
+		
+		// the call in the try statement is not a tail call, so the exception is still caught
+		assertEquals(-1, locals[3].numberValue().intValue());
+		
+		StatementsInstruction body = (StatementsInstruction) runtime.getFunctions().get("start").getCode().body();
+		
+		assertInstanceOf(TailCallInstruction.class, body.getInstructions().get(0));
+	}
+	
+	@Test
+	public void elidedFrames() {
+		RuntimeStackTraceElement site = new RuntimeStackTraceElement("a.sl", null, null, "f", 3);
+		
+		assertEquals("a.sl#f:3", site.toString());
+		assertEquals("a.sl#f:3", site.eliding(0).toString());
+		assertEquals("a.sl#f:3 (1 tail call elided)", site.eliding(1).toString());
+		assertEquals("a.sl#f:3 (5 tail calls elided)", site.eliding(5).toString());
+	}
+	
+	@Test
+	public void inlining() {
+		assumeTrue(FuncCallInstruction.INLINE, "inlining is disabled");
+		
+		RuntimeEnvironment runtime = TestPrograms.execute(
+			"fun sq(x) { return x * x; }\n" +
+			"fun dist(a, b) { return a < b ? b - a : a - b; }\n" +
+			"fun twice(x) { return sq(x) * 2; }\n" +
+			"fun scaled(x, by = 3) { return x * by; }\n" +
+			"s = 0;\n" +
+			"t = 0;\n" +
+			"for(i = 0; i < 50; ++i) {\n" +
+			"	s += sq(i) + dist(i, 7);\n" +
+			"	t += twice(i) + scaled(i) + sq(i + 1);\n" +
+			"}\n"
+		);
+		
+		RuntimeValue[] locals = runtime.getLocals();
+		
+		// sum of i^2 and |i - 7| for i < 50
+		assertEquals(40425 + 28 + 903, locals[0].numberValue().intValue());
+		// sum of 2i^2, 3i and (i + 1)^2 for i < 50
+		assertEquals(80850 + 3675 + 42925, locals[1].numberValue().intValue());
+		
+		List<Instruction> one = List.of(NumberInstruction.of(0, BigDecimal.ONE));
+		
+		assertNotNull(runtime.getFunctions().get("sq").inline(one));
+		// bodies with calls and calls with missing arguments are not inlined
+		assertNull(runtime.getFunctions().get("twice").inline(one));
+		assertNull(runtime.getFunctions().get("scaled").inline(one));
+		assertNull(runtime.getFunctions().get("dist").inline(one));
+	}
+
+}
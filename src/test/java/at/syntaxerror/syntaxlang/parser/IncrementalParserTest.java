@@ -0,0 +1,96 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser;
+
+import static at.syntaxerror.syntaxlang.parser.TestTrees.dump;
+import static at.syntaxerror.syntaxlang.parser.TestTrees.parse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.lexer.Lexer;
+import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class IncrementalParserTest {
+	
+	@Test
+	public void replaceInside() {
+		check("a = 1;\nb = 2;\nc = 3;\n", "b = 2", "b = 22");
+		check("a = 1;\nb = 2;\nc = 3;\n", "2", "(2 + 3)");
+		check("a = 1;\nwhile (a < 3) { a += 1; }\nc = 3;\n", "a += 1;", "a += 2; b = 1;");
+	}
+	
+	@Test
+	public void insertAndRemove() {
+		check("a = 1;\nb = 2;\nc = 3;\n", "a = 1;\n", "");
+		check("a = 1;\nb = 2;\nc = 3;\n", "c = 3;\n", "c = 3;\nd = 4;\n");
+		check("a = 1; b = 2; c = 3;", "b = 2;", "b = 2; { x = 1; }");
+		check("a = 1;\n\n\nb = 2;\n", "\n\n", "\n");
+	}
+	
+	@Test
+	public void changeStructure() {
+		check("if (a) { b = 1; }\nc = 2;\n", "b = 1;", "b = 1; } else { d = 3;");
+		check("a = 1;\nb = 2;\nc = 3;\n", ";\nb", ";\n;b");
+	}
+	
+	@Test
+	public void suffixIsMoved() {
+		// the statements after the edit are reused, their positions must match the new input
+		check("x = 1;\nfor (i = 0; i < 3; i += 1) { y = [i, 'a'] ; }\nswitch (y) { case 1: z = 2; break; }\n", "x = 1;", "x = 10 + 1;");
+		check("x = 10 + 1;\ny = { a: 1, b: [2] };\nz = -y;\n", "10 + ", "");
+	}
+	
+	@Test
+	public void oldTreeIsKept() {
+		String source = "a = 1;\nb = 2;\nc = (3 + 4);\n";
+		StatementsNode old = parse(source);
+		String before = dump(old);
+		
+		int offset = source.indexOf("a = 1");
+		String edited = "a = 100" + source.substring(offset + 5);
+		InputEnvironment input = InputEnvironment.fromString("<edited>", edited);
+		
+		IncrementalParser.reparse(input, new Lexer(input).makeTokens(), old, new TextEdit(offset, 5, 7));
+		
+		assertEquals(before, dump(old));
+	}
+	
+	private static void check(String source, String replaced, String replacement) {
+		int offset = source.indexOf(replaced);
+		String edited = source.substring(0, offset) + replacement + source.substring(offset + replaced.length());
+		
+		StatementsNode old = parse(source);
+		
+		InputEnvironment input = InputEnvironment.fromString("<edited>", edited);
+		StatementsNode incremental = IncrementalParser.reparse(
+			input,
+			new Lexer(input).makeTokens(),
+			old,
+			new TextEdit(offset, replaced.length(), replacement.length())
+		);
+		
+		assertEquals(dump(parse(edited)), dump(incremental), edited);
+	}
+
+}
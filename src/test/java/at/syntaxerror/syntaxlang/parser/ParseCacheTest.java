@@ -0,0 +1,126 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser;
+
+import static at.syntaxerror.syntaxlang.parser.TestTrees.dump;
+import static at.syntaxerror.syntaxlang.parser.TestTrees.parse;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class ParseCacheTest {
+	
+	private static final String SOURCE =
+		"fun f(a) { b = a + 1; return [b, 'x']; }\n" +
+		"c = { k: 2.5, l: 1i };\n" +
+		"fun g() { if(c) { return -c; } }\n" +
+		"while(c < 3) { c += 1; }\n";
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	public void roundTrip() throws IOException {
+		String fresh = dump(parse(SOURCE));
+		
+		assertEquals(fresh, dump(cache().parse(input())), "miss");
+		
+		Path entry = entry();
+		byte[] written = Files.readAllBytes(entry);
+		
+		// a new cache reads the entry instead of parsing and writing it again
+		assertEquals(fresh, dump(cache().parse(input())), "hit");
+		assertArrayEquals(written, Files.readAllBytes(entry));
+	}
+	
+	@Test
+	public void corruptedEntry() throws IOException {
+		cache().parse(input());
+		
+		Path entry = entry();
+		byte[] bytes = Files.readAllBytes(entry);
+		
+		// truncated in the middle of the tree
+		Files.write(entry, Arrays.copyOf(bytes, bytes.length / 2));
+		
+		assertEquals(dump(parse(SOURCE)), dump(cache().parse(input())));
+		
+		// replaced by a valid entry
+		assertArrayEquals(bytes, Files.readAllBytes(entry));
+	}
+	
+	@Test
+	public void settingsAreKeys() throws IOException {
+		String fresh = dump(parse(SOURCE));
+		
+		for(int mode = 0; mode < 4; ++mode)
+			for(int run = 0; run < 2; ++run) {
+				ParseCache cache = cache();
+				cache.setLazyBodies((mode & 1) != 0);
+				
+				if((mode & 2) != 0)
+					cache.setPool(ForkJoinPool.commonPool());
+				
+				StatementsNode nodes = cache.parse(input());
+				
+				// lazy bodies are parsed by the dump, they have to match the ones parsed right away
+				assertEquals(fresh, dump(nodes), "mode " + mode + ", run " + run);
+			}
+		
+		try(var entries = Files.list(directory)) {
+			assertEquals(4, entries.count());
+		}
+	}
+	
+	private ParseCache cache() {
+		return new ParseCache(directory.toFile());
+	}
+	
+	private static InputEnvironment input() {
+		return InputEnvironment.fromString("<test>", SOURCE);
+	}
+	
+	private Path entry() throws IOException {
+		try(var entries = Files.list(directory)) {
+			List<Path> list = entries.toList();
+			
+			assertEquals(1, list.size());
+			assertFalse(Files.isDirectory(list.get(0)));
+			
+			return list.get(0);
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser;
+
+import static at.syntaxerror.syntaxlang.parser.TestTrees.dump;
+import static at.syntaxerror.syntaxlang.parser.TestTrees.parse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.lexer.Keyword;
+import at.syntaxerror.syntaxlang.lexer.Lexer;
+import at.syntaxerror.syntaxlang.lexer.Tokens;
+import at.syntaxerror.syntaxlang.parser.node.FuncDefNode;
+import at.syntaxerror.syntaxlang.parser.node.LazyStatementsNode;
+import at.syntaxerror.syntaxlang.parser.node.NodeJSONWriter;
+import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
+import at.syntaxerror.syntaxlang.trace.Position;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+public class ParserTest {
+	
+	private static ForkJoinPool pool;
+	
+	@BeforeAll
+	public static void startPool() {
+		pool = new ForkJoinPool(4);
+	}
+	
+	@AfterAll
+	public static void stopPool() {
+		pool.shutdown();
+	}
+	
+	@Test
+	public void lazyBodiesAreVisited() {
+		String source = "fun f(a) { b = a + 1; fun g() { return b; } }\nc = 2;\n";
+		
+		StatementsNode nodes = parseLazy(source);
+		LazyStatementsNode body = lazyBody(nodes, 0);
+		
+		// checking the tree does not parse the body
+		nodes.errorCheck();
+		assertFalse(body.isParsed());
+		
+		// visiting it does, including the nested body
+		assertEquals(json(parse(source)), json(nodes));
+		assertTrue(body.isParsed());
+		assertEquals(dump(parse(source)), dump(nodes));
+	}
+	
+	@Test
+	public void lazyBodyErrors() {
+		String source = "fun f(a) { b = a + ; }\nc = 2;\n";
+		
+		StatementsNode nodes = parseLazy(source);
+		LazyStatementsNode body = lazyBody(nodes, 0);
+		
+		ParseException e = assertThrows(ParseException.class, () -> dump(nodes));
+		
+		// at the missing operand
+		assertEquals(source.indexOf("; }"), Position.offset(e.getPosition()));
+		assertFalse(body.isParsed());
+		
+		// reported again by the next visitor
+		assertThrows(ParseException.class, body::getStatements);
+	}
+	
+	@Test
+	public void chunksStartAtDeclarations() {
+		InputEnvironment input = InputEnvironment.fromString("<test>", declarations(40, -1));
+		Tokens tokens = new Lexer(input).makeTokens();
+		List<Integer> bounds = new Parser(input, tokens).declarationBounds(4);
+		
+		assertTrue(bounds.size() > 3, () -> "not split: " + bounds);
+		assertEquals(0, bounds.get(0));
+		assertEquals(tokens.size() - 1, bounds.get(bounds.size() - 1));
+		
+		for(int i = 1; i < bounds.size() - 1; ++i)
+			assertTrue(tokens.get(bounds.get(i)).is(Keyword.FUN), "chunk " + i);
+	}
+	
+	@Test
+	public void parallelMatchesSequential() {
+		String source = declarations(40, -1);
+		
+		StatementsNode sequential = parse(source);
+		StatementsNode parallel = (StatementsNode) parallel(source, false).getResult();
+		
+		assertEquals(dump(sequential), dump(parallel));
+		assertEquals(json(sequential), json(parallel));
+		
+		// the lazy bodies of every chunk are parsed from their own tokens
+		assertEquals(dump(sequential), dump((StatementsNode) parallel(source, true).getResult()));
+	}
+	
+	@Test
+	public void parallelReportsEarliestError() {
+		// broken declarations in two later chunks, the earlier one is reported
+		String source = declarations(40, 25) + declarations(10, 3);
+		
+		ParseResult sequential = parser(source).makeChunk();
+		ParseResult parallel = parallel(source, false);
+		
+		assertTrue(sequential.isError());
+		assertTrue(parallel.isError());
+		
+		assertEquals(source.indexOf("* ;") + 2, Position.offset(parallel.getPosition()));
+		assertEquals(sequential.getPosition(), parallel.getPosition());
+		assertEquals(sequential.getMessage(), parallel.getMessage());
+	}
+	
+	// count declarations of a function and a variable each, the one at index broken misses an operand
+	private static String declarations(int count, int broken) {
+		StringBuilder sb = new StringBuilder();
+		
+		for(int i = 0; i < count; ++i)
+			sb.append("fun f%d(a, b) {\n\tc = a * %s;\n\tif(c > b) { return [c, b]; }\n\treturn { x: c, y: b };\n}\nv%d = %d + 1;\n"
+				.formatted(i, i == broken ? "" : "b + " + i, i, i));
+		
+		return sb.toString();
+	}
+	
+	private static ParseResult parallel(String source, boolean lazy) {
+		Parser parser = parser(source);
+		parser.setLazyBodies(lazy);
+		
+		return parser.makeChunksParallel(pool);
+	}
+	
+	private static Parser parser(String source) {
+		InputEnvironment input = InputEnvironment.fromString("<test>", source);
+		return new Parser(input, new Lexer(input).makeTokens());
+	}
+	
+	private static StatementsNode parseLazy(String source) {
+		InputEnvironment input = InputEnvironment.fromString("<test>", source);
+		
+		Parser parser = new Parser(input, new Lexer(input).makeTokens());
+		parser.setLazyBodies(true);
+		
+		return parser.makeNodes();
+	}
+	
+	private static LazyStatementsNode lazyBody(StatementsNode nodes, int index) {
+		return assertInstanceOf(LazyStatementsNode.class, ((FuncDefNode) nodes.getStatements().get(index)).getBody());
+	}
+	
+	private static String json(StatementsNode nodes) {
+		StringWriter out = new StringWriter();
+		new NodeJSONWriter(out, 0).write(nodes);
+		return out.toString();
+	}
+
+}
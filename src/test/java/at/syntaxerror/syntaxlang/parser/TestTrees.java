@@ -0,0 +1,104 @@
+/*
+ * SyntaxLang - A simple programming language written in Java
+ * Copyright (C) 2021  SyntaxError
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package at.syntaxerror.syntaxlang.parser;
+
+import java.util.List;
+
+import at.syntaxerror.syntaxlang.input.InputEnvironment;
+import at.syntaxerror.syntaxlang.lexer.Lexer;
+import at.syntaxerror.syntaxlang.lexer.Token;
+import at.syntaxerror.syntaxlang.parser.node.Node;
+import at.syntaxerror.syntaxlang.parser.node.NodeVisitor;
+import at.syntaxerror.syntaxlang.parser.node.StatementsNode;
+import at.syntaxerror.syntaxlang.trace.Position;
+import lombok.experimental.UtilityClass;
+
+/**
+ * @author SyntaxError
+ * 
+ */
+@UtilityClass
+public class TestTrees {
+	
+	public static StatementsNode parse(String source) {
+		InputEnvironment input = InputEnvironment.fromString("<test>", source);
+		return new Parser(input, new Lexer(input).makeTokens()).makeNodes();
+	}
+	
+	// node tree including every node and token position
+	public static String dump(Node node) {
+		StringBuilder sb = new StringBuilder();
+		dump(node, sb);
+		return sb.toString();
+	}
+	
+	private static void dump(Node node, StringBuilder sb) {
+		if(node == null) {
+			sb.append("null");
+			return;
+		}
+		
+		sb.append(node.getNodeType().getSimpleName())
+			.append('@')
+			.append(Position.toString(node.getPosition()))
+			.append('(');
+		
+		node.accept(new NodeVisitor() {
+			
+			@Override
+			public void visitNode(String name, Node child) {
+				sb.append(name).append('=');
+				dump(child, sb);
+				sb.append(", ");
+			}
+			
+			@Override
+			public void visitToken(String name, Token token) {
+				sb.append(name).append('=');
+				
+				if(token == null)
+					sb.append("null");
+				else sb.append(token).append('@').append(Position.toString(token.getPosition()));
+				
+				sb.append(", ");
+			}
+			
+			@Override
+			public void visitBoolean(String name, boolean value) {
+				sb.append(name).append('=').append(value).append(", ");
+			}
+			
+			@Override
+			public void visitNodes(String name, List<? extends Node> nodes) {
+				sb.append(name).append("=[");
+				
+				if(nodes != null)
+					for(Node child : nodes) {
+						dump(child, sb);
+						sb.append("; ");
+					}
+				
+				sb.append("], ");
+			}
+			
+		});
+		
+		sb.append(')');
+	}
+
+}